@@ -0,0 +1,72 @@
+package org.killbill.billing.plugin.toss.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Masking cost of typical Toss error messages, compared with the former regex based masking.
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="TossSensitiveDataMaskerBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TossSensitiveDataMaskerBenchmark {
+
+    private static final Pattern CARD_NUMBER_16 = Pattern.compile("\\b\\d{4}[\\s-]?\\d{4}[\\s-]?\\d{4}[\\s-]?\\d{4}\\b");
+    private static final Pattern CARD_NUMBER = Pattern.compile("\\b\\d{13,19}\\b");
+
+    @Param({"clean", "card", "keys"})
+    public String kind;
+
+    private String message;
+
+    @Setup
+    public void setUp() {
+        switch (kind) {
+            case "clean":
+                message = "카드사에서 거절한 결제입니다. 잔액 부족 (code REJECT_CARD_COMPANY, amount 150000, 2024-01-01 10:00:00)";
+                break;
+            case "card":
+                message = "Invalid card number 4111-1111-1111-1111 for order a4CWyWY5m89PNh7xJwhk1 (amount 150000)";
+                break;
+            default:
+                message = "Unauthorized: Basic dGVzdF9za196WExrS0V5cE5BcldtbzUwblgzbG1lYXhZRzVSOg== billingKey=Z_t5vOvQxrj4499PeiJcjen28-zqEkzNM2ImxYNmw46c=";
+        }
+    }
+
+    @Benchmark
+    public String scanner() {
+        return TossSensitiveDataMasker.mask(message);
+    }
+
+    @Benchmark
+    public String replaceAll() {
+        // Former implementation: patterns compiled on each call
+        final String masked = message.replaceAll("\\b\\d{4}[\\s-]?\\d{4}[\\s-]?\\d{4}[\\s-]?\\d{4}\\b", "****-****-****-****");
+        return masked.replaceAll("\\b\\d{13,19}\\b", "****");
+    }
+
+    @Benchmark
+    public String precompiledRegex() {
+        final String masked = CARD_NUMBER_16.matcher(message).replaceAll("****-****-****-****");
+        return CARD_NUMBER.matcher(masked).replaceAll("****");
+    }
+}
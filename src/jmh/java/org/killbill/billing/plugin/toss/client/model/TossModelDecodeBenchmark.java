@@ -0,0 +1,75 @@
+package org.killbill.billing.plugin.toss.client.model;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Binding cost of the Toss responses, with the mapper set up as in {@code TossClientImpl}.
+ * Run with the GC profiler to get the allocation rate ({@code gc.alloc.rate.norm}, in bytes per call):
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="TossModelDecodeBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TossModelDecodeBenchmark {
+
+    @Param({TossPayloads.CARD, TossPayloads.EASY_PAY})
+    public String method;
+
+    @Param({"0", "5", "50"})
+    public int cancels;
+
+    private ObjectMapper objectMapper;
+    private byte[] payment;
+    private byte[] billing;
+    private byte[] error;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        payment = TossPayloads.payment(method, cancels);
+        billing = TossPayloads.billing();
+        error = TossPayloads.error();
+    }
+
+    @Benchmark
+    public TossPayment payment() throws IOException {
+        return objectMapper.readValue(payment, TossPayment.class);
+    }
+
+    @Benchmark
+    public LazyTossPayment lazyPayment() throws IOException {
+        // What the client does: only the summary is bound
+        return LazyTossPayment.parse(payment, objectMapper);
+    }
+
+    @Benchmark
+    public TossBilling billing() throws IOException {
+        return objectMapper.readValue(billing, TossBilling.class);
+    }
+
+    @Benchmark
+    public TossError error() throws IOException {
+        return objectMapper.readValue(error, TossError.class);
+    }
+}
@@ -0,0 +1,59 @@
+package org.killbill.billing.plugin.toss.client.model;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Serialization cost of the request bodies sent to Toss, as done by {@code TossClientImpl}.
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="TossModelEncodeBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TossModelEncodeBenchmark {
+
+    private ObjectMapper objectMapper;
+    private PaymentConfirmRequest confirmRequest;
+    private BillingKeyPaymentRequest billingKeyPaymentRequest;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        confirmRequest = new PaymentConfirmRequest("5EnNZRJGvaBX7zk2yd8ydw26XvwXkLrx9POLqKQjmAw4b0e1", "a4CWyWY5m89PNh7xJwhk1", 150000L);
+        billingKeyPaymentRequest = new BillingKeyPaymentRequest(150000L,
+                                                                "a4CWyWY5m89PNh7xJwhk1",
+                                                                "월간 구독",
+                                                                "aENcQAtPdYbTjGhtQnNVj",
+                                                                "customer@example.com",
+                                                                "박토스");
+    }
+
+    @Benchmark
+    public String confirmRequest() throws IOException {
+        return objectMapper.writeValueAsString(confirmRequest);
+    }
+
+    @Benchmark
+    public String billingKeyPaymentRequest() throws IOException {
+        return objectMapper.writeValueAsString(billingKeyPaymentRequest);
+    }
+}
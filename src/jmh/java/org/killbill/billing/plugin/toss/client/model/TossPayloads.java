@@ -0,0 +1,97 @@
+package org.killbill.billing.plugin.toss.client.model;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Toss responses shaped like those of the API (v2022-11-16), including the fields the plugin does not bind.
+ */
+public final class TossPayloads {
+
+    public static final String CARD = "card";
+    public static final String EASY_PAY = "easyPay";
+
+    private TossPayloads() {
+    }
+
+    /**
+     * @param method {@link #CARD} or {@link #EASY_PAY}
+     * @param cancels number of partial cancels of the payment
+     */
+    public static byte[] payment(final String method, final int cancels) {
+        final long totalAmount = 150000L;
+        final long cancelAmount = cancels == 0 ? 0 : Math.max(1, totalAmount / (cancels + 1));
+        final long balanceAmount = totalAmount - cancels * cancelAmount;
+
+        final StringBuilder json = new StringBuilder(2048 + cancels * 320);
+        json.append("{\"mId\":\"tosspayments\",")
+            .append("\"lastTransactionKey\":\"9C62B18EEF0DE3EB7F4422EB6D14BC6E\",")
+            .append("\"paymentKey\":\"5EnNZRJGvaBX7zk2yd8ydw26XvwXkLrx9POLqKQjmAw4b0e1\",")
+            .append("\"orderId\":\"a4CWyWY5m89PNh7xJwhk1\",")
+            .append("\"orderName\":\"토스 티셔츠 외 2건\",")
+            .append("\"taxExemptionAmount\":0,")
+            .append("\"status\":\"").append(cancels == 0 ? "DONE" : "PARTIAL_CANCELED").append("\",")
+            .append("\"requestedAt\":\"2024-02-13T12:17:57+09:00\",")
+            .append("\"approvedAt\":\"2024-02-13T12:18:14+09:00\",")
+            .append("\"useEscrow\":false,")
+            .append("\"cultureExpense\":false,");
+        if (CARD.equals(method)) {
+            json.append("\"card\":{\"issuerCode\":\"71\",\"acquirerCode\":\"71\",\"number\":\"12345678****000*\",")
+                .append("\"installmentPlanMonths\":0,\"isInterestFree\":false,\"interestPayer\":null,\"approveNo\":\"00000000\",")
+                .append("\"useCardPoint\":false,\"cardType\":\"신용\",\"ownerType\":\"개인\",\"acquireStatus\":\"READY\",")
+                .append("\"amount\":").append(totalAmount).append("},")
+                .append("\"easyPay\":null,");
+        } else {
+            json.append("\"card\":null,")
+                .append("\"easyPay\":{\"provider\":\"토스페이\",\"amount\":").append(totalAmount).append(",\"discountAmount\":0},");
+        }
+        json.append("\"virtualAccount\":null,\"transfer\":null,\"mobilePhone\":null,\"giftCertificate\":null,")
+            .append("\"cashReceipt\":null,\"cashReceipts\":null,\"discount\":null,");
+        if (cancels == 0) {
+            json.append("\"cancels\":null,");
+        } else {
+            json.append("\"cancels\":[");
+            for (int i = 0; i < cancels; i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"transactionKey\":\"").append(String.format("%032X", i + 1)).append("\",")
+                    .append("\"cancelReason\":\"고객 요청에 의한 부분 취소\",")
+                    .append("\"taxExemptionAmount\":0,")
+                    .append("\"canceledAt\":\"2024-02-14T09:").append(String.format("%02d", i % 60)).append(":00+09:00\",")
+                    .append("\"easyPayDiscountAmount\":0,")
+                    .append("\"receiptKey\":null,")
+                    .append("\"cancelAmount\":").append(cancelAmount).append(',')
+                    .append("\"taxFreeAmount\":0,")
+                    .append("\"refundableAmount\":").append(totalAmount - (i + 1) * cancelAmount).append(',')
+                    .append("\"cancelStatus\":\"DONE\",")
+                    .append("\"cancelRequestId\":null}");
+            }
+            json.append("],");
+        }
+        json.append("\"secret\":null,\"type\":\"NORMAL\",\"country\":\"KR\",\"failure\":null,\"isPartialCancelable\":true,")
+            .append("\"receipt\":{\"url\":\"https://dashboard.tosspayments.com/receipt/redirection?transactionId=tviva20240213121757MvuS8&ref=PX\"},")
+            .append("\"checkout\":{\"url\":\"https://api.tosspayments.com/v1/payments/5EnNZRJGvaBX7zk2yd8ydw26XvwXkLrx9POLqKQjmAw4b0e1/checkout\"},")
+            .append("\"currency\":\"KRW\",")
+            .append("\"totalAmount\":").append(totalAmount).append(',')
+            .append("\"balanceAmount\":").append(balanceAmount).append(',')
+            .append("\"suppliedAmount\":136364,\"vat\":13636,\"taxFreeAmount\":0,\"metadata\":null,")
+            .append("\"method\":\"").append(CARD.equals(method) ? "카드" : "간편결제").append("\",")
+            .append("\"version\":\"2022-11-16\"}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static byte[] billing() {
+        return ("{\"mId\":\"tosspayments\"," +
+                "\"customerKey\":\"aENcQAtPdYbTjGhtQnNVj\"," +
+                "\"authenticatedAt\":\"2024-02-13T12:17:57+09:00\"," +
+                "\"method\":\"카드\"," +
+                "\"billingKey\":\"Z_t5vOvQxrj4499PeiJcjen28-zqEkzNM2ImxYNmw46c=\"," +
+                "\"card\":{\"issuerCode\":\"61\",\"acquirerCode\":\"31\",\"number\":\"43301234****123*\",\"cardType\":\"신용\",\"ownerType\":\"개인\"}," +
+                "\"cardCompany\":\"현대\"," +
+                "\"cardNumber\":\"43301234****123*\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static byte[] error() {
+        return "{\"code\":\"REJECT_CARD_COMPANY\",\"message\":\"카드사에서 거절한 결제입니다. 잔액 부족\"}".getBytes(StandardCharsets.UTF_8);
+    }
+}
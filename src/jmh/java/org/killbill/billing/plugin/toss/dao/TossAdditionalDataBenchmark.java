@@ -0,0 +1,116 @@
+package org.killbill.billing.plugin.toss.dao;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.plugin.toss.EmbeddedDbHelper;
+import org.killbill.billing.plugin.toss.client.model.LazyTossPayment;
+import org.killbill.billing.plugin.toss.client.model.TossPayloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Round trip of a Toss payment through additional_data: the response is bound as by the client, converted
+ * for storage, then read back as by {@link TossDao#fromAdditionalData}. The storage modes are:
+ *
+ * <ul>
+ *   <li>{@code reserialized}: the default, through {@code toAdditionalDataMap} (binds the full payment)</li>
+ *   <li>{@code raw}: store_raw_responses, the bytes sent by Toss</li>
+ *   <li>{@code gzip}: store_raw_responses and compress_raw_responses</li>
+ * </ul>
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="TossAdditionalDataBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TossAdditionalDataBenchmark {
+
+    @Param({"reserialized", "raw", "gzip"})
+    public String storage;
+
+    @Param({TossPayloads.CARD, TossPayloads.EASY_PAY})
+    public String method;
+
+    @Param({"0", "5", "50"})
+    public int cancels;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final UUID kbId = UUID.randomUUID();
+    private final DateTime utcNow = new DateTime(DateTimeZone.UTC);
+
+    private TossDao dao;
+    private byte[] payment;
+    private String storedAdditionalData;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // TossDao needs a database to detect its dialect, none of the benchmarks query it
+        EmbeddedDbHelper.instance().startDb();
+        dao = EmbeddedDbHelper.instance().getTossDao(!"reserialized".equals(storage), "gzip".equals(storage));
+        payment = TossPayloads.payment(method, cancels);
+        storedAdditionalData = toAdditionalData();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        EmbeddedDbHelper.instance().stopDB();
+    }
+
+    @Benchmark
+    public Map roundTrip() throws IOException {
+        return TossDao.fromAdditionalData(toAdditionalData());
+    }
+
+    @Benchmark
+    public String write() throws IOException {
+        return toAdditionalData();
+    }
+
+    @Benchmark
+    public Map read() {
+        return TossDao.fromAdditionalData(storedAdditionalData);
+    }
+
+    private String toAdditionalData() throws IOException {
+        // A new payment each time: the lazy payment caches its full binding
+        final LazyTossPayment tossPayment = LazyTossPayment.parse(payment, objectMapper);
+        return dao.toAdditionalData(new TossResponseEntry(kbId,
+                                                          kbId,
+                                                          kbId,
+                                                          TransactionType.PURCHASE,
+                                                          BigDecimal.valueOf(150000),
+                                                          Currency.KRW,
+                                                          tossPayment.getPaymentKey(),
+                                                          tossPayment,
+                                                          null,
+                                                          utcNow,
+                                                          kbId));
+    }
+}
@@ -0,0 +1,169 @@
+package org.killbill.billing.plugin.toss.dao;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+
+import org.killbill.billing.plugin.toss.EmbeddedDbHelper;
+import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossPaymentMethodsRecord;
+import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossResponsesRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.postgresql.ds.PGSimpleDataSource;
+
+/**
+ * Latency of the {@link TossDao} lookups against tables filled by {@link TossDataGenerator}, sampled so that the
+ * percentiles are reported. The plans of the queries ({@code EXPLAIN ANALYZE}, see {@link TossQueryPlans}) are
+ * printed and written to {@code target/toss-query-plans/<database>-<payments>.txt} before each trial.
+ *
+ * <p>H2 is the embedded database of the tests. PostgreSQL is an existing database, whose plugin tables are dropped
+ * and re-created (use a scratch database):</p>
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="TossDaoLookupBenchmark"
+ * mvn -Pjmh test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main \
+ *     -Dexec.args="TossDaoLookupBenchmark -p database=postgresql -p payments=1000000 -jvmArgs -Dtoss.bench.postgresql.url=jdbc:postgresql://localhost:5432/toss_bench?user=postgres&amp;reWriteBatchedInserts=true"
+ * </pre>
+ *
+ * <p>Each trial generates its data set, which takes minutes for millions of payments.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TossDaoLookupBenchmark {
+
+    static final String POSTGRESQL_URL_PROPERTY = "toss.bench.postgresql.url";
+
+    @Param({"h2"})
+    public String database;
+
+    @Param({"100000", "1000000"})
+    public int payments;
+
+    @Param({"50"})
+    public int tenants;
+
+    private TossDao dao;
+    private List<UUID[]> sampledPayments;
+    private List<UUID[]> hotPayments;
+    private List<UUID[]> sampledAccounts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final DataSource dataSource = startDatabase();
+
+        final long startNanos = System.nanoTime();
+        final TossDataGenerator.Keys keys = new TossDataGenerator(payments, tenants, 42).generate(dataSource);
+        System.out.printf(Locale.ROOT, "%nGenerated %s in %ds%n", keys, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos));
+        sampledPayments = keys.getPayments();
+        hotPayments = keys.getHotPayments();
+        sampledAccounts = keys.getAccounts();
+
+        dao = new TossDao(dataSource);
+        writePlans(dataSource);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if ("h2".equals(database)) {
+            EmbeddedDbHelper.instance().stopDB();
+        }
+    }
+
+    @Benchmark
+    public TossResponsesRecord getResponse() throws Exception {
+        final UUID[] payment = next(sampledPayments);
+        return dao.getResponse(payment[2], payment[0]);
+    }
+
+    @Benchmark
+    public TossResponsesRecord getResponseByPaymentId() throws Exception {
+        final UUID[] payment = next(sampledPayments);
+        return dao.getResponseByPaymentId(payment[1], payment[0]);
+    }
+
+    /**
+     * Payments synced hundreds of times: the latest of many rows sharing the payment id.
+     */
+    @Benchmark
+    public TossResponsesRecord getResponseByPaymentIdHot() throws Exception {
+        final UUID[] payment = next(hotPayments);
+        return dao.getResponseByPaymentId(payment[1], payment[0]);
+    }
+
+    @Benchmark
+    public TossResponsesRecord getSuccessfulPurchaseResponse() throws Exception {
+        final UUID[] payment = next(sampledPayments);
+        return dao.getSuccessfulPurchaseResponse(payment[1], payment[0]);
+    }
+
+    @Benchmark
+    public List<TossPaymentMethodsRecord> getPaymentMethods() throws Exception {
+        final UUID[] account = next(sampledAccounts);
+        return dao.getPaymentMethods(account[1], account[0]);
+    }
+
+    private DataSource startDatabase() throws Exception {
+        if ("h2".equals(database)) {
+            EmbeddedDbHelper.instance().startDb();
+            return EmbeddedDbHelper.instance().getDataSource();
+        } else if ("postgresql".equals(database)) {
+            final String url = System.getProperty(POSTGRESQL_URL_PROPERTY);
+            if (url == null) {
+                throw new IllegalStateException("Set -D" + POSTGRESQL_URL_PROPERTY + " to benchmark PostgreSQL");
+            }
+            final PGSimpleDataSource dataSource = new PGSimpleDataSource();
+            dataSource.setUrl(url);
+            TossDataGenerator.createSchema(dataSource, "ddl-postgresql.sql");
+            return dataSource;
+        }
+        throw new IllegalArgumentException("Unknown database: " + database);
+    }
+
+    private void writePlans(final DataSource dataSource) throws Exception {
+        final UUID[] payment = sampledPayments.get(0);
+        final UUID[] hotPayment = hotPayments.get(0);
+        final UUID[] account = sampledAccounts.get(0);
+        final TossQueryPlans plans = new TossQueryPlans(dataSource, "h2".equals(database) ? "EXPLAIN ANALYZE" : "EXPLAIN (ANALYZE, BUFFERS)")
+                .explain("getResponse", tossDao -> tossDao.getResponse(payment[2], payment[0]))
+                .explain("getResponseByPaymentId", tossDao -> tossDao.getResponseByPaymentId(payment[1], payment[0]))
+                .explain("getResponseByPaymentIdHot", tossDao -> tossDao.getResponseByPaymentId(hotPayment[1], hotPayment[0]))
+                .explain("getSuccessfulPurchaseResponse", tossDao -> tossDao.getSuccessfulPurchaseResponse(payment[1], payment[0]))
+                .explain("getPaymentMethods", tossDao -> tossDao.getPaymentMethods(account[1], account[0]));
+        System.out.println(plans);
+
+        final Path file = Paths.get("target", "toss-query-plans", database + "-" + payments + ".txt");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, plans.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (final IOException e) {
+            System.err.println("Unable to write " + file + ": " + e);
+        }
+    }
+
+    private static UUID[] next(final List<UUID[]> keys) {
+        return keys.get(ThreadLocalRandom.current().nextInt(keys.size()));
+    }
+}
@@ -0,0 +1,319 @@
+package org.killbill.billing.plugin.toss.dao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+
+import org.killbill.billing.payment.api.TransactionType;
+
+/**
+ * Fills toss_responses, toss_payment_methods and toss_notifications with a production-like data set, through
+ * JDBC batches (the DAO would take hours for millions of rows). The data is derived from a seed, so that runs
+ * against H2 and PostgreSQL, or before and after a schema change, query the same rows.
+ *
+ * <p>Skew of the data set:</p>
+ * <ul>
+ *   <li>tenants: a few large tenants own most of the accounts</li>
+ *   <li>payments: one PURCHASE response, then a geometric number of syncs (mean {@value #MEAN_SYNCS}); one payment
+ *   in a hundred stays pending and is synced {@value #STUCK_MIN_SYNCS} to {@value #STUCK_MAX_SYNCS} times</li>
+ *   <li>refunds: one payment in ten gets one to three partial refunds</li>
+ *   <li>payment methods: about {@value #PAYMENT_METHODS_PER_ACCOUNT} per account, one in ten deleted</li>
+ *   <li>notifications: about one per two payments, almost all processed</li>
+ * </ul>
+ */
+public class TossDataGenerator {
+
+    static final double MEAN_SYNCS = 2;
+    static final int STUCK_MIN_SYNCS = 20;
+    static final int STUCK_MAX_SYNCS = 200;
+    static final double PAYMENT_METHODS_PER_ACCOUNT = 1.5;
+
+    private static final int PAYMENTS_PER_ACCOUNT = 5;
+    private static final int BATCH_SIZE = 5000;
+    // Keys kept for the lookups
+    private static final int SAMPLE_SIZE = 10000;
+    private static final int HOT_SAMPLE_SIZE = 100;
+
+    private static final String INSERT_RESPONSE = "insert into toss_responses (kb_account_id, kb_payment_id, kb_payment_transaction_id, transaction_type, amount, currency, payment_key, order_id, toss_payment_status, toss_method, toss_receipt_url, additional_data, created_date, kb_tenant_id) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PAYMENT_METHOD = "insert into toss_payment_methods (kb_account_id, kb_payment_method_id, billing_key, customer_key, card_company, card_last4, is_default, is_deleted, additional_data, created_date, updated_date, kb_tenant_id) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_NOTIFICATION = "insert into toss_notifications (kb_account_id, kb_payment_id, kb_payment_transaction_id, event_type, payment_key, order_id, notification_body, processed, created_date, kb_tenant_id) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String[] CARD_COMPANIES = {"신한", "현대", "삼성", "국민", "롯데", "하나", "우리", "농협", "비씨"};
+    private static final String[] SYNC_STATUSES = {"IN_PROGRESS", "WAITING_FOR_DEPOSIT", "READY"};
+    private static final String[] FINAL_STATUSES = {"DONE", "DONE", "DONE", "DONE", "DONE", "DONE", "DONE", "DONE", "ABORTED", "EXPIRED"};
+
+    /**
+     * Keys of the generated rows, to look up.
+     */
+    public static final class Keys {
+
+        private final List<UUID[]> payments = new ArrayList<>();
+        private final List<UUID[]> hotPayments = new ArrayList<>();
+        private final List<UUID[]> accounts = new ArrayList<>();
+        private long responses;
+        private long paymentMethods;
+        private long notifications;
+
+        /**
+         * @return {tenant, payment, last transaction} of payments sampled uniformly
+         */
+        public List<UUID[]> getPayments() {
+            return payments;
+        }
+
+        /**
+         * @return {tenant, payment, last transaction} of stuck payments, with at least {@code STUCK_MAX_SYNCS / 2} responses
+         */
+        public List<UUID[]> getHotPayments() {
+            return hotPayments;
+        }
+
+        /**
+         * @return {tenant, account} of accounts sampled uniformly
+         */
+        public List<UUID[]> getAccounts() {
+            return accounts;
+        }
+
+        public long getResponses() {
+            return responses;
+        }
+
+        public long getPaymentMethods() {
+            return paymentMethods;
+        }
+
+        public long getNotifications() {
+            return notifications;
+        }
+
+        @Override
+        public String toString() {
+            return responses + " responses, " + paymentMethods + " payment methods, " + notifications + " notifications";
+        }
+    }
+
+    private final int payments;
+    private final int tenants;
+    private final long seed;
+
+    /**
+     * @param payments number of payments (toss_responses gets about four rows per payment)
+     * @param tenants number of tenants
+     * @param seed seed of the data set
+     */
+    public TossDataGenerator(final int payments, final int tenants, final long seed) {
+        this.payments = payments;
+        this.tenants = tenants;
+        this.seed = seed;
+    }
+
+    /**
+     * Drop and create the plugin tables.
+     *
+     * @param ddlResource ddl.sql or ddl-postgresql.sql
+     */
+    public static void createSchema(final DataSource dataSource, final String ddlResource) throws IOException, SQLException {
+        try (final Connection connection = dataSource.getConnection();
+             final Statement statement = connection.createStatement()) {
+            for (final String table : new String[]{"toss_responses", "toss_payment_methods", "toss_billing_intents", "toss_notifications"}) {
+                statement.execute("drop table if exists " + table);
+            }
+            final String ddl = readResource(ddlResource).replaceAll("(?s)/\\*.*?\\*/;?", "");
+            for (final String sql : ddl.split(";")) {
+                if (!sql.isBlank()) {
+                    statement.execute(sql);
+                }
+            }
+        }
+    }
+
+    public Keys generate(final DataSource dataSource) throws SQLException {
+        final SplittableRandom random = new SplittableRandom(seed);
+        final Keys keys = new Keys();
+        final int accounts = Math.max(1, payments / PAYMENTS_PER_ACCOUNT);
+        final UUID[] tenantIds = new UUID[tenants];
+        for (int i = 0; i < tenants; i++) {
+            tenantIds[i] = uuid(random);
+        }
+        final LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        try (final Connection connection = dataSource.getConnection();
+             final PreparedStatement responses = connection.prepareStatement(INSERT_RESPONSE);
+             final PreparedStatement paymentMethods = connection.prepareStatement(INSERT_PAYMENT_METHOD);
+             final PreparedStatement notifications = connection.prepareStatement(INSERT_NOTIFICATION)) {
+            connection.setAutoCommit(false);
+
+            int paymentsLeft = payments;
+            for (int account = 0; account < accounts; account++) {
+                final UUID kbTenantId = tenantIds[skewed(random, tenants)];
+                final UUID kbAccountId = uuid(random);
+                if (sample(random, keys.accounts.size(), accounts)) {
+                    keys.accounts.add(new UUID[]{kbTenantId, kbAccountId});
+                }
+
+                final int accountPaymentMethods = (int) PAYMENT_METHODS_PER_ACCOUNT + (random.nextDouble() < PAYMENT_METHODS_PER_ACCOUNT % 1 ? 1 : 0);
+                for (int i = 0; i < accountPaymentMethods; i++) {
+                    final LocalDateTime createdDate = start.plusMinutes(random.nextInt(525600));
+                    final String cardCompany = CARD_COMPANIES[random.nextInt(CARD_COMPANIES.length)];
+                    paymentMethods.setString(1, kbAccountId.toString());
+                    paymentMethods.setString(2, uuid(random).toString());
+                    paymentMethods.setString(3, "billing_" + uuid(random));
+                    paymentMethods.setString(4, "customer_" + kbAccountId);
+                    paymentMethods.setString(5, cardCompany);
+                    paymentMethods.setString(6, String.format("%03d*", random.nextInt(1000)));
+                    paymentMethods.setShort(7, i == 0 ? TossDao.TRUE : TossDao.FALSE);
+                    paymentMethods.setShort(8, random.nextInt(10) == 0 ? TossDao.TRUE : TossDao.FALSE);
+                    paymentMethods.setString(9, "{\"method\":\"카드\",\"cardCompany\":\"" + cardCompany + "\"}");
+                    paymentMethods.setTimestamp(10, Timestamp.valueOf(createdDate));
+                    paymentMethods.setTimestamp(11, Timestamp.valueOf(createdDate));
+                    paymentMethods.setString(12, kbTenantId.toString());
+                    paymentMethods.addBatch();
+                    keys.paymentMethods++;
+                    flush(connection, paymentMethods, keys.paymentMethods);
+                }
+
+                final int accountPayments = account == accounts - 1 ? paymentsLeft : Math.min(paymentsLeft, PAYMENTS_PER_ACCOUNT);
+                paymentsLeft -= accountPayments;
+                for (int payment = 0; payment < accountPayments; payment++) {
+                    final UUID kbPaymentId = uuid(random);
+                    final String paymentKey = "tgen_" + kbPaymentId.toString().replace("-", "");
+                    final String orderId = "order_" + kbPaymentId;
+                    final BigDecimal amount = BigDecimal.valueOf(1000L * (1 + random.nextInt(500)));
+                    LocalDateTime createdDate = start.plusSeconds(random.nextInt(31536000));
+
+                    final boolean stuck = random.nextInt(100) == 0;
+                    final int syncs = stuck ? STUCK_MIN_SYNCS + random.nextInt(STUCK_MAX_SYNCS - STUCK_MIN_SYNCS + 1) : geometric(random, MEAN_SYNCS);
+                    final int refunds = !stuck && random.nextInt(10) == 0 ? 1 + random.nextInt(3) : 0;
+                    final String finalStatus = FINAL_STATUSES[random.nextInt(FINAL_STATUSES.length)];
+
+                    final UUID purchaseTransactionId = uuid(random);
+                    UUID lastTransactionId = purchaseTransactionId;
+                    // The purchase, its syncs (the last one being final unless the payment is stuck), then the refunds
+                    for (int i = 0; i <= syncs + refunds; i++) {
+                        final boolean refund = i > syncs;
+                        final String status;
+                        if (refund) {
+                            status = "PARTIAL_CANCELED";
+                        } else if (i == syncs && !stuck) {
+                            status = finalStatus;
+                        } else {
+                            status = SYNC_STATUSES[random.nextInt(SYNC_STATUSES.length)];
+                        }
+                        final UUID kbTransactionId = refund ? uuid(random) : purchaseTransactionId;
+                        lastTransactionId = kbTransactionId;
+                        createdDate = createdDate.plusSeconds(1 + random.nextInt(600));
+
+                        responses.setString(1, kbAccountId.toString());
+                        responses.setString(2, kbPaymentId.toString());
+                        responses.setString(3, kbTransactionId.toString());
+                        responses.setString(4, (refund ? TransactionType.REFUND : TransactionType.PURCHASE).toString());
+                        responses.setBigDecimal(5, refund ? amount.divide(BigDecimal.TEN) : amount);
+                        responses.setString(6, "KRW");
+                        responses.setString(7, paymentKey);
+                        responses.setString(8, orderId);
+                        responses.setString(9, status);
+                        responses.setString(10, "카드");
+                        responses.setString(11, "https://dashboard.tosspayments.com/receipt/redirection?transactionId=" + paymentKey);
+                        responses.setString(12, "{\"paymentKey\":\"" + paymentKey + "\",\"orderId\":\"" + orderId + "\",\"status\":\"" + status +
+                                                "\",\"method\":\"카드\",\"totalAmount\":" + amount.longValue() + ",\"balanceAmount\":" + amount.longValue() + "}");
+                        responses.setTimestamp(13, Timestamp.valueOf(createdDate));
+                        responses.setString(14, kbTenantId.toString());
+                        responses.addBatch();
+                        keys.responses++;
+                        flush(connection, responses, keys.responses);
+                    }
+
+                    final UUID[] paymentKeys = {kbTenantId, kbPaymentId, lastTransactionId};
+                    if (sample(random, keys.payments.size(), payments)) {
+                        keys.payments.add(paymentKeys);
+                    }
+                    if (syncs >= STUCK_MAX_SYNCS / 2 && keys.hotPayments.size() < HOT_SAMPLE_SIZE) {
+                        keys.hotPayments.add(paymentKeys);
+                    }
+
+                    if (random.nextInt(2) == 0) {
+                        notifications.setString(1, kbAccountId.toString());
+                        notifications.setString(2, kbPaymentId.toString());
+                        notifications.setString(3, purchaseTransactionId.toString());
+                        notifications.setString(4, "PAYMENT_STATUS_CHANGED");
+                        notifications.setString(5, paymentKey);
+                        notifications.setString(6, orderId);
+                        notifications.setString(7, "{\"eventType\":\"PAYMENT_STATUS_CHANGED\",\"data\":{\"paymentKey\":\"" + paymentKey + "\",\"status\":\"" + finalStatus + "\"}}");
+                        notifications.setShort(8, random.nextInt(100) == 0 ? TossDao.FALSE : TossDao.TRUE);
+                        notifications.setTimestamp(9, Timestamp.valueOf(createdDate));
+                        notifications.setString(10, kbTenantId.toString());
+                        notifications.addBatch();
+                        keys.notifications++;
+                        flush(connection, notifications, keys.notifications);
+                    }
+                }
+            }
+
+            responses.executeBatch();
+            paymentMethods.executeBatch();
+            notifications.executeBatch();
+            connection.commit();
+            connection.setAutoCommit(true);
+        }
+
+        // Statistics for the planner
+        try (final Connection connection = dataSource.getConnection();
+             final Statement statement = connection.createStatement()) {
+            statement.execute("analyze");
+        }
+        return keys;
+    }
+
+    private static void flush(final Connection connection, final PreparedStatement statement, final long rows) throws SQLException {
+        if (rows % BATCH_SIZE == 0) {
+            statement.executeBatch();
+            connection.commit();
+        }
+    }
+
+    /**
+     * @return an index in [0, size), index 0 being the most frequent (about a third of the draws for 50 tenants)
+     */
+    private static int skewed(final SplittableRandom random, final int size) {
+        return (int) (size * Math.pow(random.nextDouble(), 4));
+    }
+
+    private static int geometric(final SplittableRandom random, final double mean) {
+        return (int) (Math.log(1 - random.nextDouble()) / Math.log(mean / (mean + 1)));
+    }
+
+    private static boolean sample(final SplittableRandom random, final int sampled, final int total) {
+        return sampled < SAMPLE_SIZE && random.nextInt(Math.max(1, total / SAMPLE_SIZE)) == 0;
+    }
+
+    private static UUID uuid(final SplittableRandom random) {
+        return new UUID((random.nextLong() & ~0xF000L) | 0x4000L, (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L);
+    }
+
+    private static String readResource(final String resourceName) throws IOException {
+        try (final InputStream is = TossDataGenerator.class.getClassLoader().getResourceAsStream(resourceName)) {
+            if (is == null) {
+                throw new IOException("Resource not found: " + resourceName);
+            }
+            try (final BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+                return reader.lines().collect(Collectors.joining("\n"));
+            }
+        }
+    }
+}
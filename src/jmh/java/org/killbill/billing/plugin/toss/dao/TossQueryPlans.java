@@ -0,0 +1,141 @@
+package org.killbill.billing.plugin.toss.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+
+/**
+ * Plans of the queries sent by {@link TossDao}. The DAO is run against a recording data source, which keeps the
+ * SQL and the bound values of each prepared statement; they are then run again under {@code EXPLAIN ANALYZE}, so
+ * that the plans are those of the SQL rendered by jOOQ, for the same values.
+ */
+public class TossQueryPlans {
+
+    /**
+     * A call of the DAO to explain.
+     */
+    public interface Query {
+
+        void run(TossDao dao) throws SQLException;
+    }
+
+    private final DataSource dataSource;
+    private final String explain;
+    private final Map<String, String> plans = new LinkedHashMap<>();
+
+    /**
+     * @param explain prefix of the explained statements, e.g. {@code EXPLAIN ANALYZE} for H2
+     *                or {@code EXPLAIN (ANALYZE, BUFFERS)} for PostgreSQL
+     */
+    public TossQueryPlans(final DataSource dataSource, final String explain) {
+        this.dataSource = dataSource;
+        this.explain = explain;
+    }
+
+    /**
+     * Explain the statements run by {@code query}.
+     */
+    public TossQueryPlans explain(final String name, final Query query) throws SQLException {
+        final List<RecordedStatement> statements = new ArrayList<>();
+        query.run(new TossDao(recording(statements)));
+
+        final StringBuilder plan = new StringBuilder();
+        try (final Connection connection = dataSource.getConnection()) {
+            for (final RecordedStatement statement : statements) {
+                plan.append(statement.sql).append('\n');
+                try (final PreparedStatement explained = connection.prepareStatement(explain + " " + statement.sql)) {
+                    for (final Object[] parameter : statement.parameters) {
+                        invoke(explained, (Method) parameter[0], (Object[]) parameter[1]);
+                    }
+                    try (final ResultSet rows = explained.executeQuery()) {
+                        while (rows.next()) {
+                            plan.append("  ").append(rows.getString(1).replace("\n", "\n  ")).append('\n');
+                        }
+                    }
+                }
+            }
+        }
+        plans.put(name, plan.toString());
+        return this;
+    }
+
+    public Map<String, String> getPlans() {
+        return plans;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder out = new StringBuilder();
+        plans.forEach((name, plan) -> out.append("-- ").append(name).append('\n').append(plan).append('\n'));
+        return out.toString();
+    }
+
+    private static final class RecordedStatement {
+
+        private final String sql;
+        // {setter, arguments}
+        private final List<Object[]> parameters = new ArrayList<>();
+
+        private RecordedStatement(final String sql) {
+            this.sql = sql;
+        }
+    }
+
+    private DataSource recording(final List<RecordedStatement> statements) {
+        return proxy(DataSource.class, dataSource, (target, method, args) -> {
+            final Object result = invoke(target, method, args);
+            return result instanceof Connection ? recording((Connection) result, statements) : result;
+        });
+    }
+
+    private static Connection recording(final Connection connection, final List<RecordedStatement> statements) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            final Object result = invoke(target, method, args);
+            if (result instanceof PreparedStatement && "prepareStatement".equals(method.getName())) {
+                final RecordedStatement statement = new RecordedStatement((String) args[0]);
+                statements.add(statement);
+                return proxy(PreparedStatement.class, (PreparedStatement) result, (targetStatement, statementMethod, statementArgs) -> {
+                    if (statementMethod.getName().startsWith("set") && statementArgs != null && statementArgs.length >= 2 && statementArgs[0] instanceof Integer) {
+                        statement.parameters.add(new Object[]{statementMethod, statementArgs});
+                    }
+                    return invoke(targetStatement, statementMethod, statementArgs);
+                });
+            }
+            return result;
+        });
+    }
+
+    private interface Handler<T> {
+
+        Object handle(T target, Method method, Object[] args) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(final Class<T> type, final T target, final Handler<T> handler) {
+        final InvocationHandler invocationHandler = (proxy, method, args) -> handler.handle(target, method, args);
+        return (T) Proxy.newProxyInstance(TossQueryPlans.class.getClassLoader(), new Class<?>[]{type}, invocationHandler);
+    }
+
+    private static Object invoke(final Object target, final Method method, final Object[] args) throws SQLException {
+        try {
+            return method.invoke(target, args);
+        } catch (final InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException(e.getCause());
+        } catch (final IllegalAccessException e) {
+            throw new SQLException(e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.killbill.billing.plugin.toss.api;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.killbill.billing.catalog.api.Currency;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One billing-key charge of a batch charge run.
+ * The payment and transaction must already exist in Kill Bill; the payment method must hold a stored billing key.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TossBatchChargeItem {
+
+    private final UUID kbAccountId;
+    private final UUID kbPaymentId;
+    private final UUID kbTransactionId;
+    private final UUID kbPaymentMethodId;
+    private final BigDecimal amount;
+    private final Currency currency;
+
+    @JsonCreator
+    public TossBatchChargeItem(@JsonProperty("kbAccountId") final UUID kbAccountId,
+                               @JsonProperty("kbPaymentId") final UUID kbPaymentId,
+                               @JsonProperty("kbTransactionId") final UUID kbTransactionId,
+                               @JsonProperty("kbPaymentMethodId") final UUID kbPaymentMethodId,
+                               @JsonProperty("amount") final BigDecimal amount,
+                               @JsonProperty("currency") final Currency currency) {
+        this.kbAccountId = kbAccountId;
+        this.kbPaymentId = kbPaymentId;
+        this.kbTransactionId = kbTransactionId;
+        this.kbPaymentMethodId = kbPaymentMethodId;
+        this.amount = amount;
+        // Toss only settles in KRW
+        this.currency = currency == null ? Currency.KRW : currency;
+    }
+
+    public UUID getKbAccountId() {
+        return kbAccountId;
+    }
+
+    public UUID getKbPaymentId() {
+        return kbPaymentId;
+    }
+
+    public UUID getKbTransactionId() {
+        return kbTransactionId;
+    }
+
+    public UUID getKbPaymentMethodId() {
+        return kbPaymentMethodId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+}
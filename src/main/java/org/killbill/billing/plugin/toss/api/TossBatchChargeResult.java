@@ -0,0 +1,95 @@
+package org.killbill.billing.plugin.toss.api;
+
+import java.util.UUID;
+
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Outcome of one item of a batch charge run.
+ */
+public class TossBatchChargeResult {
+
+    private final UUID kbPaymentId;
+    private final UUID kbTransactionId;
+    private final PaymentPluginStatus status;
+    private final String paymentKey;
+    private final String orderId;
+    private final String gatewayErrorCode;
+    private final String gatewayError;
+    private final boolean alreadyProcessed;
+
+    public TossBatchChargeResult(final UUID kbPaymentId,
+                                 final UUID kbTransactionId,
+                                 final PaymentPluginStatus status,
+                                 final String paymentKey,
+                                 final String orderId,
+                                 final String gatewayErrorCode,
+                                 final String gatewayError,
+                                 final boolean alreadyProcessed) {
+        this.kbPaymentId = kbPaymentId;
+        this.kbTransactionId = kbTransactionId;
+        this.status = status;
+        this.paymentKey = paymentKey;
+        this.orderId = orderId;
+        this.gatewayErrorCode = gatewayErrorCode;
+        this.gatewayError = gatewayError;
+        this.alreadyProcessed = alreadyProcessed;
+    }
+
+    public static TossBatchChargeResult of(final PaymentTransactionInfoPlugin info, final boolean alreadyProcessed) {
+        return new TossBatchChargeResult(info.getKbPaymentId(),
+                                         info.getKbTransactionPaymentId(),
+                                         info.getStatus(),
+                                         info.getFirstPaymentReferenceId(),
+                                         info.getSecondPaymentReferenceId(),
+                                         info.getGatewayErrorCode(),
+                                         info.getGatewayError(),
+                                         alreadyProcessed);
+    }
+
+    @JsonProperty("kbPaymentId")
+    public UUID getKbPaymentId() {
+        return kbPaymentId;
+    }
+
+    @JsonProperty("kbTransactionId")
+    public UUID getKbTransactionId() {
+        return kbTransactionId;
+    }
+
+    @JsonProperty("status")
+    public PaymentPluginStatus getStatus() {
+        return status;
+    }
+
+    @JsonProperty("paymentKey")
+    public String getPaymentKey() {
+        return paymentKey;
+    }
+
+    @JsonProperty("orderId")
+    public String getOrderId() {
+        return orderId;
+    }
+
+    @JsonProperty("gatewayErrorCode")
+    public String getGatewayErrorCode() {
+        return gatewayErrorCode;
+    }
+
+    @JsonProperty("gatewayError")
+    public String getGatewayError() {
+        return gatewayError;
+    }
+
+    /**
+     * @return true if the transaction had already been processed (by a previous run) and Toss was not called again
+     */
+    @JsonProperty("alreadyProcessed")
+    public boolean isAlreadyProcessed() {
+        return alreadyProcessed;
+    }
+}
@@ -0,0 +1,621 @@
+package org.killbill.billing.plugin.toss.api;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.account.api.AccountApiException;
+import org.killbill.billing.osgi.libs.killbill.OSGIKillbillAPI;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.api.PluginProperties;
+import org.killbill.billing.plugin.toss.client.TossClient;
+import org.killbill.billing.plugin.toss.client.TossRequestLane;
+import org.killbill.billing.plugin.toss.client.TossRequestLanes;
+import org.killbill.billing.plugin.toss.client.TossSensitiveDataMasker;
+import org.killbill.billing.plugin.toss.client.exception.TossApplicationException;
+import org.killbill.billing.plugin.toss.client.exception.TossLaneRejectedException;
+import org.killbill.billing.plugin.toss.client.model.BillingKeyPaymentRequest;
+import org.killbill.billing.plugin.toss.client.model.TossPayment;
+import org.killbill.billing.plugin.toss.core.TossTenantRuntime;
+import org.killbill.billing.plugin.toss.dao.TossDao;
+import org.killbill.billing.plugin.toss.dao.TossResponseEntry;
+import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossPaymentMethodsRecord;
+import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossResponsesRecord;
+import org.killbill.billing.plugin.toss.metrics.TossOperation;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.clock.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Charges many stored billing keys in one run (e.g. month-start subscription renewals).
+ *
+ * <p>Compared to calling {@code purchasePayment} once per renewal, a run:</p>
+ * <ul>
+ *   <li>resolves the tenant configuration once</li>
+ *   <li>prefetches idempotency state and billing keys with a few bulk queries</li>
+ *   <li>looks up each account at most once, before any payment is locked</li>
+ *   <li>runs the Toss calls with bounded parallelism ({@code batch_parallelism}), in the background lane</li>
+ *   <li>persists responses with multi-row inserts, {@link #PERSIST_CHUNK_SIZE} at a time</li>
+ * </ul>
+ *
+ * <p>Transactions which already have a response are not charged again, so an interrupted run can be resumed
+ * by submitting the same items.</p>
+ *
+ * <p>Runs of thousands of items take minutes: {@link #start} runs them in the background, callers poll
+ * {@link #getProgress}.</p>
+ */
+public class TossBatchChargeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TossBatchChargeService.class);
+
+    /** Number of completed charges persisted per multi-row insert */
+    static final int PERSIST_CHUNK_SIZE = 50;
+
+    /** Maximum time a failed run waits for the charges already sent to Toss */
+    static final long DRAIN_TIMEOUT_MILLIS = 60000;
+
+    private static final int MAX_TRACKED_BATCHES = 100;
+    private static final String DEFAULT_ORDER_NAME = "구독 결제";
+
+    private final TossPaymentPluginApi pluginApi;
+    private final OSGIKillbillAPI killbillAPI;
+    private final TossDao dao;
+    private final TossRequestLanes requestLanes;
+    private final TossPaymentLocks paymentLocks;
+    private final Clock clock;
+    private final Cache<String, TossBatchProgress> progressByBatchId = CacheBuilder.newBuilder()
+                                                                                   .maximumSize(MAX_TRACKED_BATCHES)
+                                                                                   .build();
+    private final ExecutorService runExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("toss-batch-run-%d")
+                                                                                                        .setDaemon(true)
+                                                                                                        .build());
+
+    public TossBatchChargeService(final TossPaymentPluginApi pluginApi,
+                                  final OSGIKillbillAPI killbillAPI,
+                                  final TossDao dao,
+                                  final TossRequestLanes requestLanes,
+                                  final TossPaymentLocks paymentLocks,
+                                  final Clock clock) {
+        this.pluginApi = pluginApi;
+        this.killbillAPI = killbillAPI;
+        this.dao = dao;
+        this.requestLanes = requestLanes;
+        this.paymentLocks = paymentLocks;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the number of batches whose progress is tracked
+     */
+    public long getTrackedBatchCount() {
+        return progressByBatchId.size();
+    }
+
+    /**
+     * @param batchId the batch identifier
+     * @return the progress of the most recent run with this identifier, or null if unknown
+     */
+    public TossBatchProgress getProgress(final String batchId) {
+        return progressByBatchId.getIfPresent(batchId);
+    }
+
+    /**
+     * Check the items of a run before anything is prefetched or charged.
+     *
+     * @param items the charges to execute
+     * @return why the items cannot be charged, null if they can
+     */
+    @Nullable
+    public static String validate(@Nullable final List<TossBatchChargeItem> items) {
+        if (items == null || items.isEmpty()) {
+            return "items are required";
+        }
+        final Set<UUID> kbTransactionIds = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            final TossBatchChargeItem item = items.get(i);
+            if (item == null) {
+                return "items[" + i + "] is null";
+            }
+            if (item.getKbAccountId() == null || item.getKbPaymentId() == null || item.getKbTransactionId() == null || item.getKbPaymentMethodId() == null) {
+                return "items[" + i + "]: kbAccountId, kbPaymentId, kbTransactionId and kbPaymentMethodId are required";
+            }
+            // Toss amounts are whole KRW
+            if (item.getAmount() == null || item.getAmount().signum() <= 0 || item.getAmount().stripTrailingZeros().scale() > 0) {
+                return "items[" + i + "]: amount must be a positive whole number, got " + item.getAmount();
+            }
+            // Same Idempotency-Key: Toss would answer both with the same payment
+            if (!kbTransactionIds.add(item.getKbTransactionId())) {
+                return "items[" + i + "]: duplicate kbTransactionId " + item.getKbTransactionId();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Start charging the stored billing key of each item, in the background.
+     *
+     * @param batchId identifier used to track progress of the run
+     * @param items the charges to execute
+     * @param properties plugin properties (only {@code orderName} and {@code tossLane} are honored)
+     * @param context the call context
+     * @return the progress of the run, or null if a run of this batch is still in flight
+     * @throws IllegalArgumentException if the items are invalid, see {@link #validate}
+     */
+    @Nullable
+    public TossBatchProgress start(final String batchId,
+                                   final List<TossBatchChargeItem> items,
+                                   final Iterable<PluginProperty> properties,
+                                   final CallContext context) {
+        final String invalid = validate(items);
+        if (invalid != null) {
+            throw new IllegalArgumentException(invalid);
+        }
+
+        final TossBatchProgress progress = new TossBatchProgress(batchId, context.getTenantId(), items.size(), clock.getUTCNow());
+        final TossBatchProgress registered = progressByBatchId.asMap().merge(batchId, progress, (running, started) -> running.isFinished() ? started : running);
+        if (registered != progress) {
+            return null;
+        }
+
+        runExecutor.execute(() -> {
+            try {
+                run(progress, items, properties, context);
+            } catch (final PaymentPluginApiException e) {
+                progress.fail(e.getErrorMessage(), clock.getUTCNow());
+            } catch (final RuntimeException e) {
+                logger.error("Unexpected error during batch charge: batchId={}", batchId, e);
+                progress.fail("Batch charge " + batchId + " failed, resubmit to resume: " + e, clock.getUTCNow());
+            }
+        });
+        return progress;
+    }
+
+    /**
+     * Interrupt the runs in flight. Each stops sending charges and waits, for at most {@link #DRAIN_TIMEOUT_MILLIS},
+     * for the ones already sent to Toss, so that their outcomes are persisted; resubmitting the batches resumes them.
+     */
+    void shutdown() {
+        runExecutor.shutdownNow();
+    }
+
+    /**
+     * @return false if runs were still in flight after the timeout
+     */
+    boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return runExecutor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Charge the stored billing key of each item.
+     *
+     * @param batchId identifier used to track progress of the run
+     * @param items the charges to execute
+     * @param properties plugin properties (only {@code orderName} and {@code tossLane} are honored)
+     * @param context the call context
+     * @return one result per item, in the order of the items
+     * @throws PaymentPluginApiException if the items are invalid, the prefetch queries fail or the run is interrupted
+     */
+    public List<TossBatchChargeResult> charge(final String batchId,
+                                              final List<TossBatchChargeItem> items,
+                                              final Iterable<PluginProperty> properties,
+                                              final CallContext context) throws PaymentPluginApiException {
+        final String invalid = validate(items);
+        if (invalid != null) {
+            throw new PaymentPluginApiException("INVALID_BATCH", invalid);
+        }
+
+        final TossBatchProgress progress = new TossBatchProgress(batchId, context.getTenantId(), items.size(), clock.getUTCNow());
+        progressByBatchId.put(batchId, progress);
+        try {
+            return run(progress, items, properties, context);
+        } catch (final PaymentPluginApiException e) {
+            progress.fail(e.getErrorMessage(), clock.getUTCNow());
+            throw e;
+        }
+    }
+
+    private List<TossBatchChargeResult> run(final TossBatchProgress progress,
+                                            final List<TossBatchChargeItem> items,
+                                            final Iterable<PluginProperty> properties,
+                                            final CallContext context) throws PaymentPluginApiException {
+        final String batchId = progress.getBatchId();
+        logger.info("Batch charge started: batchId={}, items={}", batchId, items.size());
+
+        final Set<UUID> kbTransactionIds = new HashSet<>();
+        final Set<UUID> kbPaymentMethodIds = new HashSet<>();
+        for (final TossBatchChargeItem item : items) {
+            kbTransactionIds.add(item.getKbTransactionId());
+            kbPaymentMethodIds.add(item.getKbPaymentMethodId());
+        }
+
+        final Map<UUID, TossResponsesRecord> existingResponses;
+        final Map<UUID, TossPaymentMethodsRecord> paymentMethods;
+        try {
+            existingResponses = dao.getResponsesByTransactionIds(kbTransactionIds, context.getTenantId());
+            paymentMethods = dao.getPaymentMethodsByIds(kbPaymentMethodIds, context.getTenantId());
+        } catch (final SQLException e) {
+            logger.error("Database error while prefetching batch charge state: batchId={}", batchId, e);
+            throw new PaymentPluginApiException("DATABASE_ERROR", "Failed to prefetch batch charge state: " + e.getMessage());
+        }
+
+        final TossTenantRuntime runtime = pluginApi.getRuntimeForTenant(context);
+        final String secretKey = runtime.getSecretKey();
+        final TossClient client = pluginApi.clientFor(runtime);
+        final String orderName = PluginProperties.getValue("orderName", DEFAULT_ORDER_NAME, properties);
+        final TossRequestLane lane = pluginApi.resolveLane(TossRequestLane.BACKGROUND, properties);
+
+        final TossBatchChargeResult[] results = new TossBatchChargeResult[items.size()];
+        final List<Integer> toCharge = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            final TossBatchChargeItem item = items.get(i);
+            final TossResponsesRecord existingResponse = existingResponses.get(item.getKbTransactionId());
+            if (existingResponse != null) {
+                logger.info("Idempotency: Transaction already processed, skipping: kbTransactionId={}", item.getKbTransactionId());
+                results[i] = TossBatchChargeResult.of(pluginApi.buildPaymentTransactionInfoFromRecord(item.getKbPaymentId(), existingResponse), true);
+                progress.recordAlreadyProcessed();
+                continue;
+            }
+
+            final TossPaymentMethodsRecord paymentMethod = paymentMethods.get(item.getKbPaymentMethodId());
+            if (paymentMethod == null || paymentMethod.getBillingKey() == null) {
+                results[i] = new TossBatchChargeResult(item.getKbPaymentId(),
+                                                       item.getKbTransactionId(),
+                                                       PaymentPluginStatus.CANCELED,
+                                                       null,
+                                                       null,
+                                                       "MISSING_BILLING_KEY",
+                                                       "No billing key found for payment method: " + item.getKbPaymentMethodId(),
+                                                       false);
+                progress.recordOutcome(PaymentPluginStatus.CANCELED);
+                continue;
+            }
+
+            toCharge.add(i);
+        }
+
+        if (!toCharge.isEmpty()) {
+            final Map<UUID, Customer> customers = lookupCustomers(items, toCharge, context);
+            chargeInParallel(batchId, items, toCharge, paymentMethods, customers, secretKey, client, orderName, lane, Math.max(1, runtime.getConfig().getBatchParallelism()), results, progress, context);
+        }
+
+        final List<TossBatchChargeResult> chargeResults = Arrays.asList(results);
+        progress.finish(chargeResults, clock.getUTCNow());
+        logger.info("Batch charge finished: batchId={}, alreadyProcessed={}, processed={}, pending={}, failed={}",
+                    batchId, progress.getAlreadyProcessed(), progress.getProcessed(), progress.getPending(), progress.getFailed());
+        return chargeResults;
+    }
+
+    private void chargeInParallel(final String batchId,
+                                  final List<TossBatchChargeItem> items,
+                                  final List<Integer> toCharge,
+                                  final Map<UUID, TossPaymentMethodsRecord> paymentMethods,
+                                  final Map<UUID, Customer> customers,
+                                  final String secretKey,
+                                  final TossClient client,
+                                  final String orderName,
+                                  final TossRequestLane lane,
+                                  final int parallelism,
+                                  final TossBatchChargeResult[] results,
+                                  final TossBatchProgress progress,
+                                  final CallContext context) throws PaymentPluginApiException {
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, toCharge.size()),
+                                                                      new ThreadFactoryBuilder().setNameFormat("toss-batch-charge-%d")
+                                                                                                .setDaemon(true)
+                                                                                                .build());
+        final CompletionService<ChargeOutcome> completionService = new ExecutorCompletionService<>(executor);
+        // Set when the run fails: charges not started yet are not sent to Toss
+        final AtomicBoolean stopped = new AtomicBoolean();
+        for (final Integer index : toCharge) {
+            final TossBatchChargeItem item = items.get(index);
+            final TossPaymentMethodsRecord paymentMethod = paymentMethods.get(item.getKbPaymentMethodId());
+            completionService.submit(() -> stopped.get() ?
+                                           notSent(index, item, "INTERRUPTED", "Batch charge " + batchId + " stopped") :
+                                           chargeItemLocked(index, item, paymentMethod, secretKey, client, orderName, lane, customers, context));
+        }
+
+        final List<TossResponseEntry> toPersist = new ArrayList<>(PERSIST_CHUNK_SIZE);
+        int remaining = toCharge.size();
+        try {
+            while (remaining > 0) {
+                final Future<ChargeOutcome> future = completionService.take();
+                remaining--;
+                record(batchId, future.get(), results, progress, toPersist);
+            }
+        } catch (final InterruptedException e) {
+            drain(batchId, executor, completionService, remaining, stopped, results, progress, toPersist);
+            Thread.currentThread().interrupt();
+            throw new PaymentPluginApiException("INTERRUPTED", "Batch charge " + batchId + " interrupted, resubmit to resume");
+        } catch (final ExecutionException e) {
+            // chargeItem handles gateway and network errors, this is a bug
+            logger.error("Unexpected error during batch charge: batchId={}", batchId, e.getCause());
+            drain(batchId, executor, completionService, remaining, stopped, results, progress, toPersist);
+            throw new PaymentPluginApiException("BATCH_ERROR", "Batch charge " + batchId + " failed, resubmit to resume: " + e.getCause());
+        } finally {
+            // Outcomes taken so far, including the ones drained after a failure
+            persist(batchId, toPersist, progress);
+            executor.shutdown();
+        }
+    }
+
+    private void record(final String batchId,
+                        final ChargeOutcome outcome,
+                        final TossBatchChargeResult[] results,
+                        final TossBatchProgress progress,
+                        final List<TossResponseEntry> toPersist) {
+        results[outcome.index] = TossBatchChargeResult.of(outcome.info, false);
+        progress.recordOutcome(outcome.info.getStatus());
+
+        if (outcome.entry != null) {
+            toPersist.add(outcome.entry);
+        }
+        if (toPersist.size() >= PERSIST_CHUNK_SIZE) {
+            persist(batchId, toPersist, progress);
+        }
+    }
+
+    /**
+     * Stop a failed run, and take the outcomes of the charges still running: Toss may execute them, so they must
+     * be persisted like the others. Waits for at most {@link #DRAIN_TIMEOUT_MILLIS}; charges still running after that
+     * are interrupted, and only their Idempotency-Key lets a resubmitted run find out what Toss did.
+     */
+    private void drain(final String batchId,
+                       final ExecutorService executor,
+                       final CompletionService<ChargeOutcome> completionService,
+                       final int remaining,
+                       final AtomicBoolean stopped,
+                       final TossBatchChargeResult[] results,
+                       final TossBatchProgress progress,
+                       final List<TossResponseEntry> toPersist) {
+        stopped.set(true);
+        executor.shutdown();
+
+        // Cleared while waiting, restored afterwards
+        final boolean interrupted = Thread.interrupted();
+        final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT_MILLIS);
+        int left = remaining;
+        try {
+            while (left > 0) {
+                final Future<ChargeOutcome> future = completionService.poll(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (future == null) {
+                    break;
+                }
+                left--;
+                try {
+                    record(batchId, future.get(), results, progress, toPersist);
+                } catch (final ExecutionException e) {
+                    logger.error("Unexpected error during batch charge: batchId={}", batchId, e.getCause());
+                }
+            }
+        } catch (final InterruptedException e) {
+            // Interrupted again, stop waiting
+            Thread.currentThread().interrupt();
+        } finally {
+            if (left > 0) {
+                logger.warn("Batch charge stopped with {} charges still running, resubmit to find out their outcome: batchId={}", left, batchId);
+                executor.shutdownNow();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private ChargeOutcome chargeItemLocked(final int index,
+                                          final TossBatchChargeItem item,
+                                          final TossPaymentMethodsRecord paymentMethod,
+                                          final String secretKey,
+                                          final TossClient client,
+                                          final String orderName,
+                                          final TossRequestLane lane,
+                                          final Map<UUID, Customer> customers,
+                                          final TenantContext context) {
+        try {
+            return paymentLocks.execute(item.getKbPaymentId(), () -> chargeItem(index, item, paymentMethod, secretKey, client, orderName, lane, customers, context));
+        } catch (final PaymentPluginApiException e) {
+            logger.warn("Batch charge skipped, payment is busy: kbTransactionId={}, {}", item.getKbTransactionId(), e.getErrorMessage());
+            return notSent(index, item, e.getErrorType(), e.getErrorMessage());
+        }
+    }
+
+    /**
+     * @return the outcome of a charge not sent to Toss: nothing to persist, resubmitting the batch retries it
+     */
+    private ChargeOutcome notSent(final int index, final TossBatchChargeItem item, final String errorType, final String errorMessage) {
+        final PaymentTransactionInfoPlugin info = new TossPaymentTransactionInfoPlugin(item.getKbPaymentId(),
+                                                                                       item.getKbTransactionId(),
+                                                                                       TransactionType.PURCHASE,
+                                                                                       item.getAmount(),
+                                                                                       item.getCurrency(),
+                                                                                       PaymentPluginStatus.CANCELED,
+                                                                                       errorMessage,
+                                                                                       errorType,
+                                                                                       null,
+                                                                                       null,
+                                                                                       clock.getUTCNow(),
+                                                                                       clock.getUTCNow(),
+                                                                                       Collections.emptyList());
+        return new ChargeOutcome(index, info, null);
+    }
+
+    private ChargeOutcome chargeItem(final int index,
+                                     final TossBatchChargeItem item,
+                                     final TossPaymentMethodsRecord paymentMethod,
+                                     final String secretKey,
+                                     final TossClient client,
+                                     final String orderName,
+                                     final TossRequestLane lane,
+                                     final Map<UUID, Customer> customers,
+                                     final TenantContext context) {
+        final Customer customer = customers.get(item.getKbAccountId());
+        final BillingKeyPaymentRequest request = new BillingKeyPaymentRequest(item.getAmount().longValue(),
+                                                                              item.getKbPaymentId().toString(),
+                                                                              orderName,
+                                                                              paymentMethod.getCustomerKey(),
+                                                                              customer.email,
+                                                                              customer.name);
+        try {
+            final TossPayment tossPayment = requestLanes.execute(lane,
+                                                                 TossOperation.BILLING_KEY_PAYMENT,
+                                                                 context.getTenantId(),
+                                                                 () -> client.executeBillingKeyPayment(secretKey, paymentMethod.getBillingKey(), request, item.getKbTransactionId().toString()));
+            final PaymentTransactionInfoPlugin info = pluginApi.buildPaymentTransactionInfo(item.getKbPaymentId(),
+                                                                                            item.getKbTransactionId(),
+                                                                                            TransactionType.PURCHASE,
+                                                                                            item.getAmount(),
+                                                                                            item.getCurrency(),
+                                                                                            tossPayment);
+            return new ChargeOutcome(index, info, toEntry(item, tossPayment.getPaymentKey(), tossPayment, null, context));
+        } catch (final TossLaneRejectedException e) {
+            // Not sent to Toss: nothing to persist, resubmitting the batch retries it
+            logger.warn("Batch charge not sent to Toss: kbTransactionId={}, {}", item.getKbTransactionId(), e.getMessage());
+            final PaymentTransactionInfoPlugin info = pluginApi.buildLaneRejectedResponse(item.getKbPaymentId(),
+                                                                                          item.getKbTransactionId(),
+                                                                                          TransactionType.PURCHASE,
+                                                                                          item.getAmount(),
+                                                                                          item.getCurrency(),
+                                                                                          e);
+            return new ChargeOutcome(index, info, null);
+        } catch (final TossApplicationException e) {
+            logger.warn("Toss API error during batch charge: kbTransactionId={}, code={}, message={}",
+                        item.getKbTransactionId(), e.getTossError().getCode(), TossSensitiveDataMasker.masked(e.getTossError().getMessage()));
+            final PaymentTransactionInfoPlugin info = pluginApi.buildErrorResponse(item.getKbPaymentId(),
+                                                                                   item.getKbTransactionId(),
+                                                                                   TransactionType.PURCHASE,
+                                                                                   item.getAmount(),
+                                                                                   item.getCurrency(),
+                                                                                   e);
+            return new ChargeOutcome(index, info, toEntry(item, null, null, e, context));
+        } catch (final IOException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            logger.warn("Network error during batch charge: kbTransactionId={}", item.getKbTransactionId(), e);
+            final PaymentTransactionInfoPlugin info = pluginApi.buildPendingResponse(item.getKbPaymentId(),
+                                                                                     item.getKbTransactionId(),
+                                                                                     TransactionType.PURCHASE,
+                                                                                     item.getAmount(),
+                                                                                     item.getCurrency(),
+                                                                                     null,
+                                                                                     e);
+            return new ChargeOutcome(index, info, toEntry(item, null, null, null, context));
+        }
+    }
+
+    private TossResponseEntry toEntry(final TossBatchChargeItem item,
+                                      final String paymentKey,
+                                      final TossPayment tossPayment,
+                                      final TossApplicationException tossException,
+                                      final TenantContext context) {
+        return new TossResponseEntry(item.getKbAccountId(),
+                                     item.getKbPaymentId(),
+                                     item.getKbTransactionId(),
+                                     TransactionType.PURCHASE,
+                                     item.getAmount(),
+                                     item.getCurrency(),
+                                     paymentKey,
+                                     tossPayment,
+                                     tossException,
+                                     clock.getUTCNow(),
+                                     context.getTenantId());
+    }
+
+    private void persist(final String batchId, final List<TossResponseEntry> entries, final TossBatchProgress progress) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        try {
+            dao.addResponses(entries);
+            progress.recordPersisted(entries.size());
+        } catch (final SQLException dbError) {
+            for (final TossResponseEntry entry : entries) {
+                // Kept in the local journal until the database recovers
+                if (entry.getTossPayment() != null && !pluginApi.journalUnsavedResponse(entry)) {
+                    logger.error("CRITICAL: Batch charge completed but failed to save to DB. Manual intervention required. batchId={}, kbPaymentId={}, kbTransactionId={}, paymentKey={}",
+                                 batchId, entry.getKbPaymentId(), entry.getKbPaymentTransactionId(), entry.getPaymentKey());
+                }
+            }
+            logger.error("Failed to save batch charge responses to database", dbError);
+        }
+        entries.clear();
+    }
+
+    /**
+     * @return the customer of each account to charge, read-only
+     */
+    private Map<UUID, Customer> lookupCustomers(final List<TossBatchChargeItem> items, final List<Integer> toCharge, final TenantContext context) {
+        final Map<UUID, Customer> customers = new HashMap<>();
+        for (final Integer index : toCharge) {
+            final UUID kbAccountId = items.get(index).getKbAccountId();
+            if (!customers.containsKey(kbAccountId)) {
+                customers.put(kbAccountId, lookupCustomer(kbAccountId, context));
+            }
+        }
+        return Collections.unmodifiableMap(customers);
+    }
+
+    private Customer lookupCustomer(final UUID kbAccountId, final TenantContext context) {
+        try {
+            final Account account = killbillAPI.getAccountUserApi().getAccountById(kbAccountId, context);
+            return new Customer(account.getEmail() != null ? account.getEmail() : "",
+                                account.getName() != null ? account.getName() : "");
+        } catch (final AccountApiException e) {
+            logger.warn("Failed to retrieve account, using empty customer email and name: kbAccountId={}", kbAccountId);
+            return new Customer("", "");
+        }
+    }
+
+    private static final class Customer {
+
+        private final String email;
+        private final String name;
+
+        private Customer(final String email, final String name) {
+            this.email = email;
+            this.name = name;
+        }
+    }
+
+    private static final class ChargeOutcome {
+
+        private final int index;
+        private final PaymentTransactionInfoPlugin info;
+        /** null when there is nothing to persist */
+        private final TossResponseEntry entry;
+
+        private ChargeOutcome(final int index, final PaymentTransactionInfoPlugin info, final TossResponseEntry entry) {
+            this.index = index;
+            this.info = info;
+            this.entry = entry;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.killbill.billing.plugin.toss.api;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Live progress of a batch charge run, safe to read while the run is in flight. Once finished, it holds the
+ * per-item results, or the error which stopped the run.
+ *
+ * <p>Progress is durable through toss_responses: re-submitting the same items after an interrupted run
+ * skips every transaction that already has a persisted response and only charges the remaining ones.</p>
+ */
+public class TossBatchProgress {
+
+    private final String batchId;
+    private final UUID tenantId;
+    private final int total;
+    private final DateTime startedAt;
+    private final AtomicInteger alreadyProcessed = new AtomicInteger();
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger persisted = new AtomicInteger();
+    private volatile DateTime finishedAt;
+    private volatile List<TossBatchChargeResult> results;
+    private volatile String error;
+
+    public TossBatchProgress(final String batchId, final UUID tenantId, final int total, final DateTime startedAt) {
+        this.batchId = batchId;
+        this.tenantId = tenantId;
+        this.total = total;
+        this.startedAt = startedAt;
+    }
+
+    void recordAlreadyProcessed() {
+        alreadyProcessed.incrementAndGet();
+    }
+
+    void recordOutcome(final PaymentPluginStatus status) {
+        if (status == PaymentPluginStatus.PROCESSED) {
+            processed.incrementAndGet();
+        } else if (status == PaymentPluginStatus.PENDING || status == PaymentPluginStatus.UNDEFINED) {
+            pending.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+        }
+    }
+
+    void recordPersisted(final int count) {
+        persisted.addAndGet(count);
+    }
+
+    void finish(final List<TossBatchChargeResult> results, final DateTime now) {
+        this.results = results;
+        finishedAt = now;
+    }
+
+    void fail(final String error, final DateTime now) {
+        this.error = error;
+        finishedAt = now;
+    }
+
+    /**
+     * @return the tenant which started the run
+     */
+    @JsonIgnore
+    public UUID getTenantId() {
+        return tenantId;
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    @JsonProperty("batchId")
+    public String getBatchId() {
+        return batchId;
+    }
+
+    @JsonProperty("total")
+    public int getTotal() {
+        return total;
+    }
+
+    @JsonProperty("completed")
+    public int getCompleted() {
+        return alreadyProcessed.get() + processed.get() + pending.get() + failed.get();
+    }
+
+    @JsonProperty("alreadyProcessed")
+    public int getAlreadyProcessed() {
+        return alreadyProcessed.get();
+    }
+
+    @JsonProperty("processed")
+    public int getProcessed() {
+        return processed.get();
+    }
+
+    @JsonProperty("pending")
+    public int getPending() {
+        return pending.get();
+    }
+
+    @JsonProperty("failed")
+    public int getFailed() {
+        return failed.get();
+    }
+
+    @JsonProperty("persisted")
+    public int getPersisted() {
+        return persisted.get();
+    }
+
+    @JsonProperty("startedAt")
+    public String getStartedAt() {
+        return startedAt.toString();
+    }
+
+    @JsonProperty("finishedAt")
+    public String getFinishedAt() {
+        return finishedAt == null ? null : finishedAt.toString();
+    }
+
+    /**
+     * @return one result per item, in the order of the items, or null until the run has completed
+     */
+    @JsonProperty("results")
+    public List<TossBatchChargeResult> getResults() {
+        return results;
+    }
+
+    /**
+     * @return why the run stopped before charging every item (resubmit to resume), or null
+     */
+    @JsonProperty("error")
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,144 @@
+package org.killbill.billing.plugin.toss.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+
+/**
+ * Breakdown of the time spent by a purchase or refund, returned as plugin properties of its result
+ * (e.g. {@code timing.tossCallMs=182.431}) so that a slow payment can be pinned to a phase from the Kill Bill API.
+ *
+ * <p>Phases may be recorded from the lookup and background purchase threads. A phase run several times
+ * (e.g. the two Toss calls of a first purchase) is summed, and a phase which did not run has no property.</p>
+ *
+ * <p>{@link #DISABLED} records nothing and does not read the clock.</p>
+ */
+final class TossCallTimings {
+
+    static final TossCallTimings DISABLED = new TossCallTimings(false);
+
+    static final String PROPERTY_PREFIX = "timing.";
+    static final String PROPERTY_TOTAL = PROPERTY_PREFIX + "totalMs";
+
+    enum Phase {
+
+        /** Lookup of an existing response for the transaction */
+        IDEMPOTENCY_CHECK("idempotencyCheckMs"),
+
+        /** Lookup of the Kill Bill account, for the customer email and name */
+        ACCOUNT_LOOKUP("accountLookupMs"),
+
+        /** Wait for a slot in the lane of the Toss call */
+        QUEUEING("queueingMs"),
+
+        /** Toss call, including the partial binding of the response by the client */
+        TOSS_CALL("tossCallMs"),
+
+        /** Build of the Kill Bill result from the Toss response */
+        RESPONSE_DECODE("responseDecodeMs"),
+
+        /** Storage of the response (and payment method of a first purchase) */
+        DB_PERSIST("dbPersistMs");
+
+        private final String propertyName;
+
+        Phase(final String propertyName) {
+            this.propertyName = PROPERTY_PREFIX + propertyName;
+        }
+
+        String getPropertyName() {
+            return propertyName;
+        }
+    }
+
+    private final boolean enabled;
+    private final long startNanos;
+    private final AtomicLongArray phaseNanos;
+    private final AtomicLongArray phaseCounts;
+
+    private TossCallTimings(final boolean enabled) {
+        this.enabled = enabled;
+        this.startNanos = enabled ? System.nanoTime() : 0;
+        this.phaseNanos = enabled ? new AtomicLongArray(Phase.values().length) : null;
+        this.phaseCounts = enabled ? new AtomicLongArray(Phase.values().length) : null;
+    }
+
+    /**
+     * @return timings of a call starting now
+     */
+    static TossCallTimings start() {
+        return new TossCallTimings(true);
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the start of a phase, to pass to {@link #mark}
+     */
+    long now() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record a phase which started at {@code sinceNanos} and ends now.
+     *
+     * @return now, i.e. the start of the next phase
+     */
+    long mark(final Phase phase, final long sinceNanos) {
+        if (!enabled) {
+            return 0;
+        }
+        final long nowNanos = System.nanoTime();
+        phaseNanos.addAndGet(phase.ordinal(), nowNanos - sinceNanos);
+        phaseCounts.incrementAndGet(phase.ordinal());
+        return nowNanos;
+    }
+
+    List<PluginProperty> toProperties() {
+        final List<PluginProperty> properties = new ArrayList<>(Phase.values().length + 1);
+        for (final Phase phase : Phase.values()) {
+            if (phaseCounts.get(phase.ordinal()) > 0) {
+                properties.add(new PluginProperty(phase.getPropertyName(), millis(phaseNanos.get(phase.ordinal())), false));
+            }
+        }
+        properties.add(new PluginProperty(PROPERTY_TOTAL, millis(System.nanoTime() - startNanos), false));
+        return properties;
+    }
+
+    /**
+     * @return the result with the timings appended to its properties, or the result itself if disabled
+     */
+    PaymentTransactionInfoPlugin attachTo(final PaymentTransactionInfoPlugin info) {
+        if (!enabled || info == null) {
+            return info;
+        }
+        final List<PluginProperty> properties = new ArrayList<>();
+        if (info.getProperties() != null) {
+            properties.addAll(info.getProperties());
+        }
+        properties.addAll(toProperties());
+        return new TossPaymentTransactionInfoPlugin(info.getKbPaymentId(),
+                                                    info.getKbTransactionPaymentId(),
+                                                    info.getTransactionType(),
+                                                    info.getAmount(),
+                                                    info.getCurrency(),
+                                                    info.getStatus(),
+                                                    info.getGatewayError(),
+                                                    info.getGatewayErrorCode(),
+                                                    info.getFirstPaymentReferenceId(),
+                                                    info.getSecondPaymentReferenceId(),
+                                                    info.getCreatedDate(),
+                                                    info.getEffectiveDate(),
+                                                    properties);
+    }
+
+    private static String millis(final long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000d);
+    }
+}
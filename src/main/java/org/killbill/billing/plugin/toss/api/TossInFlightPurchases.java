@@ -0,0 +1,61 @@
+package org.killbill.billing.plugin.toss.api;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Toss purchase calls running on behalf of a deadline-bounded {@code purchasePayment}.
+ *
+ * <p>A call stays registered until its outcome is persisted, including when the caller gave up waiting,
+ * so {@code getPaymentInfo} knows not to query Toss about a transaction the plugin is still completing.</p>
+ */
+class TossInFlightPurchases {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("toss-purchase-%d")
+                                                                                                     .setDaemon(true)
+                                                                                                     .build());
+    private final Map<UUID, CompletableFuture<TossPurchaseOutcome>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Start a purchase call. The caller must {@link #remove} it once its outcome is persisted.
+     */
+    CompletableFuture<TossPurchaseOutcome> submit(final UUID kbTransactionId, final Supplier<TossPurchaseOutcome> purchase) {
+        final CompletableFuture<TossPurchaseOutcome> future = CompletableFuture.supplyAsync(purchase, executor);
+        inFlight.put(kbTransactionId, future);
+        return future;
+    }
+
+    void remove(final UUID kbTransactionId) {
+        inFlight.remove(kbTransactionId);
+    }
+
+    boolean isInFlight(final UUID kbTransactionId) {
+        return inFlight.containsKey(kbTransactionId);
+    }
+
+    int size() {
+        return inFlight.size();
+    }
+
+    /**
+     * Stop accepting purchases. Those in flight keep running, so that their outcomes are persisted (or journaled).
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * @return false if purchases were still in flight after the timeout
+     */
+    boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,57 @@
+package org.killbill.billing.plugin.toss.api;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.plugin.api.PluginProperties;
+import org.killbill.billing.plugin.toss.dao.TossDao;
+
+/**
+ * Plugin properties of an additional_data column, parsed on first access.
+ *
+ * <p>Listings build one plugin object per row but rarely read the properties, so the JSON is only
+ * parsed (once) when the list is actually used.</p>
+ */
+final class TossLazyPluginProperties extends AbstractList<PluginProperty> {
+
+    private final String additionalData;
+
+    private volatile List<PluginProperty> properties;
+
+    TossLazyPluginProperties(@Nullable final String additionalData) {
+        this.additionalData = additionalData;
+        if (additionalData == null) {
+            this.properties = Collections.emptyList();
+        }
+    }
+
+    @Override
+    public PluginProperty get(final int index) {
+        return properties().get(index);
+    }
+
+    @Override
+    public int size() {
+        return properties().size();
+    }
+
+    boolean isParsed() {
+        return properties != null;
+    }
+
+    private List<PluginProperty> properties() {
+        List<PluginProperty> parsed = properties;
+        if (parsed == null) {
+            final Map additionalDataMap = TossDao.fromAdditionalData(additionalData);
+            // Racing threads parse the same value: no need to lock
+            parsed = Collections.unmodifiableList(PluginProperties.buildPluginProperties(additionalDataMap));
+            properties = parsed;
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,156 @@
+package org.killbill.billing.plugin.toss.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Independent lookups (database reads, Kill Bill API calls) run concurrently under a shared deadline.
+ *
+ * <p>Modeled after a shut-down-on-failure structured task scope: {@link #fork} starts a lookup right away,
+ * {@link #join} waits for all of them and, on the first failure or when the deadline is reached, cancels the lookups
+ * still running. Closing the scope cancels whatever was not joined.</p>
+ *
+ * <p>Cancelling does not interrupt: an interrupt in the middle of a JDBC call can leave its (pooled) connection
+ * unusable. The lookups not started yet never run, those already started finish in the background and their results
+ * are discarded.</p>
+ *
+ * <pre>
+ * try (final TossLookupScope scope = new TossLookupScope(executor, timeoutMillis)) {
+ *     final TossLookupScope.Fork&lt;A&gt; a = scope.fork("a", () -&gt; ...);
+ *     final TossLookupScope.Fork&lt;B&gt; b = scope.fork("b", () -&gt; ...);
+ *     scope.join();
+ *     use(a.get(), b.get());
+ * }
+ * </pre>
+ *
+ * <p>Not thread-safe: forks are started and joined by the owner thread.</p>
+ */
+final class TossLookupScope implements AutoCloseable {
+
+    private final CompletionService<Object> completionService;
+    private final long startNanos;
+    private final long deadlineNanos;
+    private final List<Fork<?>> forks = new ArrayList<>(4);
+
+    private long joinedNanos = -1;
+
+    TossLookupScope(final ExecutorService executor, final long timeoutMillis) {
+        this.completionService = new ExecutorCompletionService<>(executor);
+        this.startNanos = System.nanoTime();
+        this.deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Start a lookup.
+     *
+     * @param name name of the lookup, for the timings
+     * @param lookup the lookup
+     * @return a handle on its result, available after {@link #join()}
+     * @throws RejectedExecutionException if the executor cannot take the lookup; those already forked are cancelled
+     *                                    when the scope is closed
+     */
+    <T> Fork<T> fork(final String name, final Callable<T> lookup) {
+        final Fork<T> fork = new Fork<>(name);
+        fork.future = completionService.submit(() -> {
+            final long start = System.nanoTime();
+            try {
+                return lookup.call();
+            } finally {
+                fork.elapsedNanos = System.nanoTime() - start;
+            }
+        });
+        forks.add(fork);
+        return fork;
+    }
+
+    /**
+     * Wait for all lookups.
+     *
+     * @throws ExecutionException if a lookup failed (the cause is its exception), the others are cancelled
+     * @throws TimeoutException if the lookups did not complete before the deadline, they are cancelled
+     * @throws InterruptedException if interrupted while waiting, the lookups are cancelled
+     */
+    void join() throws ExecutionException, TimeoutException, InterruptedException {
+        try {
+            for (int i = 0; i < forks.size(); i++) {
+                final long remainingNanos = deadlineNanos - System.nanoTime();
+                final Future<Object> completed = remainingNanos > 0 ? completionService.poll(remainingNanos, TimeUnit.NANOSECONDS) : completionService.poll();
+                if (completed == null) {
+                    throw new TimeoutException("Lookups did not complete within the deadline: " + timings());
+                }
+                // Throws on the first failure
+                completed.get();
+            }
+        } catch (final ExecutionException | TimeoutException | InterruptedException e) {
+            cancelAll();
+            throw e;
+        } finally {
+            joinedNanos = System.nanoTime() - startNanos;
+        }
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+    }
+
+    /**
+     * @return the time taken by each lookup and by the whole scope, e.g. {@code idempotency=2ms, account=14ms, total=15ms}
+     */
+    String timings() {
+        final StringBuilder timings = new StringBuilder();
+        for (final Fork<?> fork : forks) {
+            timings.append(fork.name).append('=');
+            if (fork.elapsedNanos < 0) {
+                timings.append("unfinished");
+            } else {
+                timings.append(TimeUnit.NANOSECONDS.toMillis(fork.elapsedNanos)).append("ms");
+            }
+            timings.append(", ");
+        }
+        final long totalNanos = joinedNanos < 0 ? System.nanoTime() - startNanos : joinedNanos;
+        return timings.append("total=").append(TimeUnit.NANOSECONDS.toMillis(totalNanos)).append("ms").toString();
+    }
+
+    private void cancelAll() {
+        for (final Fork<?> fork : forks) {
+            fork.future.cancel(false);
+        }
+    }
+
+    static final class Fork<T> {
+
+        private final String name;
+        private Future<Object> future;
+        private volatile long elapsedNanos = -1;
+
+        private Fork(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the result of the lookup, once the scope is joined
+         */
+        @SuppressWarnings("unchecked")
+        T get() {
+            if (!future.isDone() || future.isCancelled()) {
+                throw new IllegalStateException("Lookup " + name + " not joined");
+            }
+            try {
+                return (T) future.get();
+            } catch (final InterruptedException | ExecutionException e) {
+                // Not reachable after a successful join
+                throw new IllegalStateException("Lookup " + name + " failed", e);
+            }
+        }
+    }
+}
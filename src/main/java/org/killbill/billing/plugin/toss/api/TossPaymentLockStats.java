@@ -0,0 +1,140 @@
+package org.killbill.billing.plugin.toss.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Point-in-time contention statistics of the {@link TossPaymentLocks}.
+ */
+public class TossPaymentLockStats {
+
+    private final int lockedPayments;
+    private final long acquisitions;
+    private final long contended;
+    private final long timeouts;
+    private final long avgWaitMicros;
+    private final long maxWaitMicros;
+    private final boolean distributed;
+    private final long distributedAcquisitions;
+    private final long distributedTimeouts;
+    private final long avgDistributedWaitMicros;
+    private final long maxDistributedWaitMicros;
+
+    public TossPaymentLockStats(final int lockedPayments,
+                                final long acquisitions,
+                                final long contended,
+                                final long timeouts,
+                                final long avgWaitMicros,
+                                final long maxWaitMicros,
+                                final boolean distributed,
+                                final long distributedAcquisitions,
+                                final long distributedTimeouts,
+                                final long avgDistributedWaitMicros,
+                                final long maxDistributedWaitMicros) {
+        this.lockedPayments = lockedPayments;
+        this.acquisitions = acquisitions;
+        this.contended = contended;
+        this.timeouts = timeouts;
+        this.avgWaitMicros = avgWaitMicros;
+        this.maxWaitMicros = maxWaitMicros;
+        this.distributed = distributed;
+        this.distributedAcquisitions = distributedAcquisitions;
+        this.distributedTimeouts = distributedTimeouts;
+        this.avgDistributedWaitMicros = avgDistributedWaitMicros;
+        this.maxDistributedWaitMicros = maxDistributedWaitMicros;
+    }
+
+    /**
+     * @return number of payments whose lock is held or waited for
+     */
+    @JsonProperty
+    public int getLockedPayments() {
+        return lockedPayments;
+    }
+
+    @JsonProperty
+    public long getAcquisitions() {
+        return acquisitions;
+    }
+
+    /**
+     * @return number of operations which had to queue behind another operation on the same payment
+     */
+    @JsonProperty
+    public long getContended() {
+        return contended;
+    }
+
+    /**
+     * @return fraction of the operations which had to queue, between 0 and 1
+     */
+    @JsonProperty
+    public double getContentionRate() {
+        return acquisitions == 0 ? 0 : (double) contended / acquisitions;
+    }
+
+    @JsonProperty
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @return average time spent waiting, over the contended operations
+     */
+    @JsonProperty
+    public long getAvgWaitMicros() {
+        return avgWaitMicros;
+    }
+
+    @JsonProperty
+    public long getMaxWaitMicros() {
+        return maxWaitMicros;
+    }
+
+    /**
+     * @return true if operations also take a database advisory lock
+     */
+    @JsonProperty
+    public boolean isDistributed() {
+        return distributed;
+    }
+
+    @JsonProperty
+    public long getDistributedAcquisitions() {
+        return distributedAcquisitions;
+    }
+
+    @JsonProperty
+    public long getDistributedTimeouts() {
+        return distributedTimeouts;
+    }
+
+    /**
+     * @return average time spent acquiring the database advisory lock (including the round trip)
+     */
+    @JsonProperty
+    public long getAvgDistributedWaitMicros() {
+        return avgDistributedWaitMicros;
+    }
+
+    @JsonProperty
+    public long getMaxDistributedWaitMicros() {
+        return maxDistributedWaitMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "TossPaymentLockStats{" +
+                "lockedPayments=" + lockedPayments +
+                ", acquisitions=" + acquisitions +
+                ", contended=" + contended +
+                ", timeouts=" + timeouts +
+                ", avgWaitMicros=" + avgWaitMicros +
+                ", maxWaitMicros=" + maxWaitMicros +
+                ", distributed=" + distributed +
+                ", distributedAcquisitions=" + distributedAcquisitions +
+                ", distributedTimeouts=" + distributedTimeouts +
+                ", avgDistributedWaitMicros=" + avgDistributedWaitMicros +
+                ", maxDistributedWaitMicros=" + maxDistributedWaitMicros +
+                '}';
+    }
+}
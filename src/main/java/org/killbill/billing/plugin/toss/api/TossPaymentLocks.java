@@ -0,0 +1,266 @@
+package org.killbill.billing.plugin.toss.api;
+
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
+import org.killbill.billing.plugin.toss.dao.TossAdvisoryLock;
+import org.killbill.billing.plugin.toss.dao.TossDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serializes operations on the same payment within this node, using one lock per kbPaymentId.
+ *
+ * <p>Operations on the same payment (e.g. two refunds, or a refund and a getPaymentInfo sync) run one after
+ * the other, in arrival order. Operations on different payments never wait on each other: the locks are held
+ * for the whole Toss call, so a slow call must not hold up unrelated payments. A lock only exists while an
+ * operation holds or waits for it.</p>
+ *
+ * <p>When built with a {@link TossDao} on PostgreSQL or MySQL, operations also hold a database advisory lock
+ * of the payment, so that they are serialized across Kill Bill nodes. The local lock is taken first, so that
+ * a node uses at most one connection per payment; both waits share the same timeout. On other databases
+ * (H2), only the local lock is used.</p>
+ *
+ * <p>An advisory lock holds a pooled connection for the whole operation, on top of the connections of the queries
+ * run under it: the pool must be larger than the capacity of the request lanes, or these queries starve.</p>
+ */
+public class TossPaymentLocks {
+
+    private static final Logger logger = LoggerFactory.getLogger(TossPaymentLocks.class);
+
+    public static final int DEFAULT_TIMEOUT_MILLIS = 30000;
+
+    public static final String LOCK_TIMEOUT_ERROR_CODE = "LOCK_TIMEOUT";
+
+    /**
+     * An operation on a payment.
+     */
+    @FunctionalInterface
+    public interface PaymentOperation<T> {
+
+        T run() throws PaymentPluginApiException;
+    }
+
+    private final Map<UUID, PaymentLock> locks = new ConcurrentHashMap<>();
+    // Payments locked by the current thread, whose nested operations run without locking again
+    private final ThreadLocal<Set<UUID>> heldPayments = ThreadLocal.withInitial(HashSet::new);
+    private final long timeoutMillis;
+    private final TossDao dao;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder distributedAcquisitions = new LongAdder();
+    private final LongAdder distributedTimeouts = new LongAdder();
+    private final LongAdder totalDistributedWaitNanos = new LongAdder();
+    private final AtomicLong maxDistributedWaitNanos = new AtomicLong();
+
+    public TossPaymentLocks() {
+        this(DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param timeoutMillis maximum time to wait for a payment lock
+     */
+    public TossPaymentLocks(final long timeoutMillis) {
+        this(timeoutMillis, null);
+    }
+
+    /**
+     * @param timeoutMillis maximum time to wait for a payment lock
+     * @param dao to also take cluster-wide advisory locks, null for local locks only
+     */
+    public TossPaymentLocks(final long timeoutMillis, @Nullable final TossDao dao) {
+        this.timeoutMillis = timeoutMillis;
+
+        if (dao != null && !dao.supportsAdvisoryLocks()) {
+            logger.warn("Database advisory locks not supported, falling back to local payment locks");
+            this.dao = null;
+        } else {
+            this.dao = dao;
+        }
+    }
+
+    /**
+     * @return maximum time in milliseconds to wait for a payment lock
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @return true if operations are also serialized across nodes
+     */
+    public boolean isDistributed() {
+        return dao != null;
+    }
+
+    /**
+     * Run an operation while holding the lock of the payment.
+     *
+     * @param kbPaymentId the Kill Bill payment ID
+     * @param operation the operation
+     * @return the result of the operation
+     * @throws PaymentPluginApiException if the lock could not be acquired in time, or thrown by the operation
+     */
+    public <T> T execute(final UUID kbPaymentId, final PaymentOperation<T> operation) throws PaymentPluginApiException {
+        final Set<UUID> held = heldPayments.get();
+        if (held.contains(kbPaymentId)) {
+            // Nested operation of this thread: it already holds the local and advisory locks of the payment
+            return operation.run();
+        }
+
+        final long startNanos = System.nanoTime();
+        final PaymentLock lock = reference(kbPaymentId);
+        try {
+            acquire(lock, kbPaymentId);
+            held.add(kbPaymentId);
+            try {
+                if (dao == null) {
+                    return operation.run();
+                }
+
+                final long remainingMillis = timeoutMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                try (final TossAdvisoryLock ignored = acquireDistributed(kbPaymentId, remainingMillis)) {
+                    return operation.run();
+                }
+            } finally {
+                held.remove(kbPaymentId);
+                lock.unlock();
+            }
+        } finally {
+            release(kbPaymentId);
+        }
+    }
+
+    /**
+     * @return the lock of the payment, created if needed; it is kept until {@link #release}
+     */
+    private PaymentLock reference(final UUID kbPaymentId) {
+        return locks.compute(kbPaymentId, (id, lock) -> {
+            final PaymentLock referenced = lock == null ? new PaymentLock() : lock;
+            referenced.references++;
+            return referenced;
+        });
+    }
+
+    private void release(final UUID kbPaymentId) {
+        locks.computeIfPresent(kbPaymentId, (id, lock) -> --lock.references == 0 ? null : lock);
+    }
+
+    private void acquire(final ReentrantLock lock, final UUID kbPaymentId) throws PaymentPluginApiException {
+        acquisitions.increment();
+        // Honors fairness: does not barge ahead of queued operations
+        try {
+            if (lock.tryLock(0, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentPluginApiException("INTERRUPTED", "Interrupted while waiting for the lock of payment " + kbPaymentId);
+        }
+
+        contended.increment();
+        final long startNanos = System.nanoTime();
+        final boolean acquired;
+        try {
+            acquired = lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentPluginApiException("INTERRUPTED", "Interrupted while waiting for the lock of payment " + kbPaymentId);
+        } finally {
+            recordWait(System.nanoTime() - startNanos);
+        }
+
+        if (!acquired) {
+            timeouts.increment();
+            logger.warn("Timed out after {}ms waiting for the lock of payment: kbPaymentId={}", timeoutMillis, kbPaymentId);
+            throw new PaymentPluginApiException(LOCK_TIMEOUT_ERROR_CODE, "Another operation on payment " + kbPaymentId + " is still running");
+        }
+    }
+
+    private TossAdvisoryLock acquireDistributed(final UUID kbPaymentId, final long remainingMillis) throws PaymentPluginApiException {
+        distributedAcquisitions.increment();
+        final long startNanos = System.nanoTime();
+        final TossAdvisoryLock advisoryLock;
+        try {
+            advisoryLock = dao.tryAdvisoryLock(kbPaymentId, Math.max(0, remainingMillis));
+        } catch (final SQLException e) {
+            logger.error("Failed to acquire the advisory lock of payment: kbPaymentId={}", kbPaymentId, e);
+            throw new PaymentPluginApiException("DATABASE_ERROR", "Failed to acquire the lock of payment " + kbPaymentId + ": " + e.getMessage());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentPluginApiException("INTERRUPTED", "Interrupted while waiting for the lock of payment " + kbPaymentId);
+        } finally {
+            final long waitNanos = System.nanoTime() - startNanos;
+            totalDistributedWaitNanos.add(waitNanos);
+            updateMax(maxDistributedWaitNanos, waitNanos);
+        }
+
+        if (advisoryLock == null) {
+            distributedTimeouts.increment();
+            logger.warn("Timed out waiting for the advisory lock of payment, held by another node: kbPaymentId={}", kbPaymentId);
+            throw new PaymentPluginApiException(LOCK_TIMEOUT_ERROR_CODE, "Another operation on payment " + kbPaymentId + " is still running on another node");
+        }
+        return advisoryLock;
+    }
+
+    /**
+     * @return number of payments whose lock is held or waited for
+     */
+    int getLockedPayments() {
+        return locks.size();
+    }
+
+    private void recordWait(final long nanos) {
+        totalWaitNanos.add(nanos);
+        updateMax(maxWaitNanos, nanos);
+    }
+
+    private static void updateMax(final AtomicLong max, final long nanos) {
+        long currentMax = max.get();
+        while (nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+            currentMax = max.get();
+        }
+    }
+
+    public TossPaymentLockStats getStats() {
+        final long contendedCount = contended.sum();
+        final long distributedCount = distributedAcquisitions.sum();
+        return new TossPaymentLockStats(getLockedPayments(),
+                                        acquisitions.sum(),
+                                        contendedCount,
+                                        timeouts.sum(),
+                                        contendedCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.sum()) / contendedCount,
+                                        TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()),
+                                        isDistributed(),
+                                        distributedCount,
+                                        distributedTimeouts.sum(),
+                                        distributedCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalDistributedWaitNanos.sum()) / distributedCount,
+                                        TimeUnit.NANOSECONDS.toMicros(maxDistributedWaitNanos.get()));
+    }
+
+    private static final class PaymentLock extends ReentrantLock {
+
+        // Operations holding or waiting for the lock, guarded by the map
+        private int references;
+
+        private PaymentLock() {
+            // Fair, so that queued operations on a payment run in arrival order
+            super(true);
+        }
+    }
+}
@@ -17,13 +17,10 @@
 package org.killbill.billing.plugin.toss.api;
 
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 import org.killbill.billing.payment.api.PluginProperty;
-import org.killbill.billing.plugin.api.PluginProperties;
 import org.killbill.billing.plugin.api.payment.PluginPaymentMethodPlugin;
-import org.killbill.billing.plugin.toss.dao.TossDao;
 import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossPaymentMethodsRecord;
 
 public class TossPaymentMethodPlugin extends PluginPaymentMethodPlugin {
@@ -32,14 +29,14 @@ public class TossPaymentMethodPlugin extends PluginPaymentMethodPlugin {
     public static final short FALSE = 0;
 
     public static TossPaymentMethodPlugin build(final TossPaymentMethodsRecord record) {
-        final Map additionalData = TossDao.fromAdditionalData(record.getAdditionalData());
         final String billingKey = record.getBillingKey();
 
+        // additional_data is only parsed if the properties are read
         return new TossPaymentMethodPlugin(
                 UUID.fromString(record.getKbPaymentMethodId()),
                 billingKey,
                 record.getIsDefault() == TRUE,
-                PluginProperties.buildPluginProperties(additionalData)
+                new TossLazyPluginProperties(record.getAdditionalData())
         );
     }
 
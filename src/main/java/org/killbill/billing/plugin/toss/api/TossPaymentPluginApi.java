@@ -3,10 +3,25 @@ package org.killbill.billing.plugin.toss.api;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -24,23 +39,38 @@ import org.killbill.billing.payment.plugin.api.PaymentMethodInfoPlugin;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
 import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.api.PluginCallContext;
 import org.killbill.billing.plugin.api.PluginProperties;
 import org.killbill.billing.plugin.api.payment.PluginPaymentPluginApi;
 import org.killbill.billing.plugin.toss.client.TossClient;
+import org.killbill.billing.plugin.toss.client.TossRequestLane;
+import org.killbill.billing.plugin.toss.client.TossRequestLanes;
+import org.killbill.billing.plugin.toss.client.TossSensitiveDataMasker;
 import org.killbill.billing.plugin.toss.client.exception.TossApplicationException;
+import org.killbill.billing.plugin.toss.client.exception.TossLaneRejectedException;
 import org.killbill.billing.plugin.toss.client.model.BillingKeyPaymentRequest;
 import org.killbill.billing.plugin.toss.client.model.BillingKeyRequest;
 import org.killbill.billing.plugin.toss.client.model.PaymentCancelRequest;
 import org.killbill.billing.plugin.toss.client.model.PaymentConfirmRequest;
 import org.killbill.billing.plugin.toss.client.model.TossBilling;
 import org.killbill.billing.plugin.toss.client.model.TossPayment;
+import org.killbill.billing.plugin.toss.client.model.TossPaymentSummary;
+import org.killbill.billing.plugin.toss.core.TossActivator;
 import org.killbill.billing.plugin.toss.core.TossConfigProperties;
 import org.killbill.billing.plugin.toss.core.TossConfigurationHandler;
+import org.killbill.billing.plugin.toss.core.TossTenantRuntime;
 import org.killbill.billing.plugin.toss.dao.TossDao;
+import org.killbill.billing.plugin.toss.dao.TossResponseEntry;
+import org.killbill.billing.plugin.toss.dao.TossResponseJournal;
 import org.killbill.billing.plugin.toss.dao.gen.tables.TossPaymentMethods;
 import org.killbill.billing.plugin.toss.dao.gen.tables.TossResponses;
+import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossBillingIntentsRecord;
 import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossPaymentMethodsRecord;
 import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossResponsesRecord;
+import org.killbill.billing.plugin.toss.metrics.TossFlightRecorder;
+import org.killbill.billing.plugin.toss.metrics.TossMetrics;
+import org.killbill.billing.plugin.toss.metrics.TossOperation;
+import org.killbill.billing.plugin.toss.metrics.TossPluginOperationEvent;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.entity.Pagination;
@@ -48,13 +78,40 @@ import org.killbill.clock.Clock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRecord, TossResponses, TossPaymentMethodsRecord, TossPaymentMethods> {
 
     private static final Logger logger = LoggerFactory.getLogger(TossPaymentPluginApi.class);
 
+    // Toss keeps idempotency keys for 15 days: older billing intents cannot be replayed safely
+    private static final int BILLING_INTENT_REPLAY_DAYS = 14;
+    // Time close() waits for the background work in flight
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    // Lookups forked by lookUpBeforePurchase
+    private static final int LOOKUPS_PER_PURCHASE = 3;
+
+    /** Plugin property overriding the lane chosen by the flow: INTERACTIVE or BACKGROUND */
+    public static final String PROPERTY_LANE = "tossLane";
+
+    /** Plugin property overriding the {@code timing_properties} tenant setting: true to return the timings of the call */
+    public static final String PROPERTY_TIMINGS = "tossTimings";
+
     private final TossDao dao;
     private final TossConfigurationHandler configurationHandler;
     private final TossClient tossClient;
+    private final TossRequestLanes requestLanes;
+    private final TossPaymentLocks paymentLocks;
+    private final TossResponseJournal responseJournal;
+    private final TossBatchChargeService batchChargeService;
+    private final TossInFlightPurchases inFlightPurchases = new TossInFlightPurchases();
+    // Threads blocked on database reads and Kill Bill API calls, see lookUpBeforePurchase
+    private final ExecutorService lookupExecutor;
+    private final ExecutorService recoveryExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("toss-billing-intent-recovery-%d")
+                                                                                                                 .setDaemon(true)
+                                                                                                                 .build());
 
     public TossPaymentPluginApi(final OSGIKillbillAPI killbillAPI,
                                 final OSGIConfigPropertiesService configProperties,
@@ -62,10 +119,50 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
                                 final TossDao dao,
                                 final TossConfigurationHandler configurationHandler,
                                 final TossClient tossClient) {
+        this(killbillAPI, configProperties, clock, dao, configurationHandler, tossClient, new TossRequestLanes(), new TossPaymentLocks());
+    }
+
+    public TossPaymentPluginApi(final OSGIKillbillAPI killbillAPI,
+                                final OSGIConfigPropertiesService configProperties,
+                                final Clock clock,
+                                final TossDao dao,
+                                final TossConfigurationHandler configurationHandler,
+                                final TossClient tossClient,
+                                final TossRequestLanes requestLanes,
+                                final TossPaymentLocks paymentLocks) {
+        this(killbillAPI, configProperties, clock, dao, configurationHandler, tossClient, requestLanes, paymentLocks, null);
+    }
+
+    /**
+     * @param responseJournal local journal of the successful responses that could not be saved, null to disable it
+     */
+    public TossPaymentPluginApi(final OSGIKillbillAPI killbillAPI,
+                                final OSGIConfigPropertiesService configProperties,
+                                final Clock clock,
+                                final TossDao dao,
+                                final TossConfigurationHandler configurationHandler,
+                                final TossClient tossClient,
+                                final TossRequestLanes requestLanes,
+                                final TossPaymentLocks paymentLocks,
+                                @Nullable final TossResponseJournal responseJournal) {
         super(killbillAPI, configProperties, clock, dao);
         this.dao = dao;
         this.configurationHandler = configurationHandler;
         this.tossClient = tossClient;
+        this.requestLanes = requestLanes;
+        this.paymentLocks = paymentLocks;
+        this.responseJournal = responseJournal;
+        this.batchChargeService = new TossBatchChargeService(this, killbillAPI, dao, requestLanes, paymentLocks, clock);
+        // Lookups timed out are not interrupted and keep their thread until they complete: bounded by the purchases
+        // the lanes admit, so that stuck lookups are rejected (LOOKUP_TIMEOUT) instead of piling up threads
+        this.lookupExecutor = new ThreadPoolExecutor(0,
+                                                     Math.max(1, requestLanes.getCapacity() * LOOKUPS_PER_PURCHASE),
+                                                     60L,
+                                                     TimeUnit.SECONDS,
+                                                     new SynchronousQueue<>(),
+                                                     new ThreadFactoryBuilder().setNameFormat("toss-lookup-%d")
+                                                                               .setDaemon(true)
+                                                                               .build());
     }
 
     /**
@@ -78,6 +175,20 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
         return configurationHandler.getConfigurable(context.getTenantId());
     }
 
+    /**
+     * Get the runtime (validated secret key, client, ...) built from the Toss configuration of a tenant.
+     *
+     * @param context tenant context
+     * @return TossTenantRuntime for the given tenant
+     */
+    TossTenantRuntime getRuntimeForTenant(final TenantContext context) {
+        return configurationHandler.getRuntime(context.getTenantId());
+    }
+
+    TossClient clientFor(final TossTenantRuntime runtime) {
+        return runtime.getClient() != null ? runtime.getClient() : tossClient;
+    }
+
     @Override
     public PaymentTransactionInfoPlugin authorizePayment(final UUID kbAccountId, final UUID kbPaymentId, final UUID kbTransactionId, final UUID kbPaymentMethodId, final BigDecimal amount, final Currency currency, final Iterable<PluginProperty> properties, final CallContext context) throws PaymentPluginApiException {
         logger.info("authorizePayment called - operation not supported for Korean PG");
@@ -93,21 +204,80 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
     @Override
     public PaymentTransactionInfoPlugin purchasePayment(final UUID kbAccountId, final UUID kbPaymentId, final UUID kbTransactionId, final UUID kbPaymentMethodId, final BigDecimal amount, final Currency currency, final Iterable<PluginProperty> properties, final CallContext context) throws PaymentPluginApiException {
         logger.info("purchasePayment called: kbPaymentId={}, amount={}, currency={}", kbPaymentId, amount, currency);
+        final TossCallTimings timings = startTimings(properties, context);
+        return recorded(purchaseFlow(properties), kbPaymentId,
+                        () -> timings.attachTo(paymentLocks.execute(kbPaymentId, () -> doPurchasePayment(kbAccountId, kbPaymentId, kbTransactionId, kbPaymentMethodId, amount, currency, properties, timings, context))));
+    }
+
+    /**
+     * @return the purchase flow chosen by {@link #doPurchasePayment}, for the JFR events
+     */
+    static String purchaseFlow(final Iterable<PluginProperty> properties) {
+        if (PluginProperties.findPluginPropertyValue("authKey", properties) != null &&
+            "true".equalsIgnoreCase(PluginProperties.findPluginPropertyValue("storePaymentMethod", properties))) {
+            return "purchase_auth_key_with_billing_key";
+        }
+        if (PluginProperties.findPluginPropertyValue("paymentKey", properties) != null) {
+            return "purchase_confirm";
+        }
+        return "purchase_stored_billing_key";
+    }
 
+    private PaymentTransactionInfoPlugin doPurchasePayment(final UUID kbAccountId, final UUID kbPaymentId, final UUID kbTransactionId, final UUID kbPaymentMethodId, final BigDecimal amount, final Currency currency, final Iterable<PluginProperty> properties, final TossCallTimings timings, final CallContext context) throws PaymentPluginApiException {
         final String authKey = PluginProperties.findPluginPropertyValue("authKey", properties);
         final String storePaymentMethodStr = PluginProperties.findPluginPropertyValue("storePaymentMethod", properties);
         final boolean storePaymentMethod = "true".equalsIgnoreCase(storePaymentMethodStr);
         final String paymentKey = PluginProperties.findPluginPropertyValue("paymentKey", properties);
 
         if (authKey != null && storePaymentMethod) {
-            return handleAuthKeyWithBillingKeyFlow(kbAccountId, kbPaymentId, kbTransactionId, kbPaymentMethodId, amount, currency, authKey, properties, context);
+            return handleAuthKeyWithBillingKeyFlow(kbAccountId, kbPaymentId, kbTransactionId, kbPaymentMethodId, amount, currency, authKey, properties, timings, context);
         }
 
         if (paymentKey != null) {
-            return handleRegularConfirmFlow(kbAccountId, kbPaymentId, kbTransactionId, amount, currency, paymentKey, properties, context);
+            return handleRegularConfirmFlow(kbAccountId, kbPaymentId, kbTransactionId, amount, currency, paymentKey, properties, timings, context);
         }
 
-        return handleStoredBillingKeyFlow(kbAccountId, kbPaymentId, kbTransactionId, kbPaymentMethodId, amount, currency, properties, context);
+        return handleStoredBillingKeyFlow(kbAccountId, kbPaymentId, kbTransactionId, kbPaymentMethodId, amount, currency, properties, timings, context);
+    }
+
+    /**
+     * Charge the stored billing keys of many payments in one run, e.g. for subscription renewals.
+     *
+     * @param batchId identifier used to track (and resume) the run
+     * @param items the charges to execute
+     * @param properties plugin properties
+     * @param context the call context
+     * @return one result per item, in the order of the items
+     * @throws PaymentPluginApiException if the run cannot be started or is interrupted
+     * @see TossBatchChargeService
+     */
+    public List<TossBatchChargeResult> chargeBatch(final String batchId,
+                                                   final List<TossBatchChargeItem> items,
+                                                   final Iterable<PluginProperty> properties,
+                                                   final CallContext context) throws PaymentPluginApiException {
+        return batchChargeService.charge(batchId, items, properties, context);
+    }
+
+    /**
+     * Start a batch charge run in the background, see {@link #chargeBatch}.
+     *
+     * @return the progress of the run, or null if a run of this batch is still in flight
+     * @throws IllegalArgumentException if the items are invalid, see {@link TossBatchChargeService#validate}
+     */
+    @Nullable
+    public TossBatchProgress startBatch(final String batchId,
+                                        final List<TossBatchChargeItem> items,
+                                        final Iterable<PluginProperty> properties,
+                                        final CallContext context) {
+        return batchChargeService.start(batchId, items, properties, context);
+    }
+
+    /**
+     * @param batchId the batch identifier
+     * @return the progress of the most recent batch charge run with this identifier, or null if unknown
+     */
+    public TossBatchProgress getBatchProgress(final String batchId) {
+        return batchChargeService.getProgress(batchId);
     }
 
     private PaymentTransactionInfoPlugin handleAuthKeyWithBillingKeyFlow(final UUID kbAccountId,
@@ -118,36 +288,187 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
                                                                           final Currency currency,
                                                                           final String authKey,
                                                                           final Iterable<PluginProperty> properties,
+                                                                          final TossCallTimings timings,
                                                                           final CallContext context) throws PaymentPluginApiException {
         logger.info("handleAuthKeyWithBillingKeyFlow: issuing billing key and executing payment");
 
-        final TossConfigProperties config = getConfigForTenant(context);
-        final String secretKey = config.getSecretKey();
+        final TossTenantRuntime runtime = getRuntimeForTenant(context);
+        // Checked before issuing the billing key, so a retried transaction does not store a second payment method
+        final TossPurchaseLookups lookups = lookUpBeforePurchase(kbAccountId, kbTransactionId, null, runtime, properties, timings, context);
+        if (lookups.getExistingTransaction() != null) {
+            return lookups.getExistingTransaction();
+        }
+
+        final String secretKey = runtime.getSecretKey();
+        final TossClient client = clientFor(runtime);
         final String customerKey = kbPaymentMethodId.toString();
 
         final TossBilling tossBilling;
         try {
             final BillingKeyRequest billingKeyRequest = new BillingKeyRequest(customerKey, authKey);
-            tossBilling = tossClient.issueBillingKey(secretKey, billingKeyRequest);
-            logger.info("Billing key issued successfully: billingKey={}", maskSensitiveKey(tossBilling.getBillingKey()));
+            tossBilling = callToss(resolveLane(TossRequestLane.INTERACTIVE, properties),
+                                   TossOperation.ISSUE_BILLING_KEY,
+                                   context.getTenantId(),
+                                   timings,
+                                   () -> client.issueBillingKey(secretKey, billingKeyRequest));
+            logger.info("Billing key issued successfully: billingKey={}", TossSensitiveDataMasker.maskKey(tossBilling.getBillingKey()));
+        } catch (final TossLaneRejectedException e) {
+            logger.warn("Billing key issuance not sent to Toss: {}", e.getMessage());
+            return buildLaneRejectedResponse(kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, e);
         } catch (final TossApplicationException e) {
-            logger.error("Failed to issue billing key: code={}, message={}", e.getTossError().getCode(), e.getTossError().getMessage());
+            logger.error("Failed to issue billing key: code={}, message={}", e.getTossError().getCode(), TossSensitiveDataMasker.masked(e.getTossError().getMessage()));
             return buildErrorResponse(kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, e);
         } catch (final IOException | InterruptedException e) {
             logger.error("Network error during billing key issuance", e);
             return buildPendingResponse(kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, null, e);
         }
 
+        final boolean isDefault = "true".equalsIgnoreCase(PluginProperties.findPluginPropertyValue("isDefault", properties));
+        final BillingKeyPaymentRequest request = newBillingKeyPaymentRequest(kbPaymentId, amount, customerKey, lookups, properties);
+
+        // The payment method and the purchase response are stored together once Toss answers: until then, the intent
+        // keeps the billing key so that an interrupted flow can be completed by recoverBillingIntents
+        final TossBillingIntentsRecord intent;
+        final long persistNanos = timings.now();
         try {
-            final boolean isDefault = "true".equalsIgnoreCase(PluginProperties.findPluginPropertyValue("isDefault", properties));
-            dao.addPaymentMethod(kbAccountId, kbPaymentMethodId, isDefault, tossBilling, clock.getUTCNow(), context.getTenantId());
-            logger.info("Billing key saved to payment method: kbPaymentMethodId={}", kbPaymentMethodId);
+            intent = dao.addBillingIntent(kbAccountId, kbPaymentId, kbTransactionId, kbPaymentMethodId, amount, currency, isDefault,
+                                          tossBilling, request, clock.getUTCNow(), context.getTenantId());
+            timings.mark(TossCallTimings.Phase.DB_PERSIST, persistNanos);
+            logger.info("Billing key intent saved: kbPaymentMethodId={}", kbPaymentMethodId);
         } catch (final SQLException e) {
             logger.error("Failed to save billing key to database", e);
             throw new PaymentPluginApiException("DATABASE_ERROR", "Failed to save billing key: " + e.getMessage());
         }
 
-        return executeBillingKeyPayment(kbAccountId, kbPaymentId, kbTransactionId, amount, currency, tossBilling.getBillingKey(), customerKey, properties, context);
+        return sendBillingKeyPayment(kbAccountId, kbPaymentId, kbTransactionId, amount, currency, tossBilling.getBillingKey(), request,
+                                     resolveLane(TossRequestLane.INTERACTIVE, properties), runtime, intent, timings, context);
+    }
+
+    /**
+     * {@link #recoverBillingIntents} in the background, without delaying the startup.
+     */
+    public void startBillingIntentRecovery(final DateTime createdBefore) {
+        recoveryExecutor.execute(() -> recoverBillingIntents(createdBefore));
+    }
+
+    /**
+     * Stop the background work: the billing intent recovery and the batch runs are interrupted (both resume at the
+     * next start), the purchases completing after their deadline and the lookups in flight are waited for, so that
+     * their outcomes are persisted (or journaled) before the journal is closed.
+     */
+    public void close() throws InterruptedException {
+        recoveryExecutor.shutdownNow();
+        batchChargeService.shutdown();
+        inFlightPurchases.shutdown();
+        lookupExecutor.shutdown();
+
+        final long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(CLOSE_TIMEOUT_SECONDS);
+        if (!recoveryExecutor.awaitTermination(remainingNanos(deadlineNanos), TimeUnit.NANOSECONDS)) {
+            logger.warn("Billing intent recovery still running after {}s", CLOSE_TIMEOUT_SECONDS);
+        }
+        if (!batchChargeService.awaitTermination(remainingNanos(deadlineNanos), TimeUnit.NANOSECONDS)) {
+            logger.warn("Batch charge runs still running after {}s", CLOSE_TIMEOUT_SECONDS);
+        }
+        if (!inFlightPurchases.awaitTermination(remainingNanos(deadlineNanos), TimeUnit.NANOSECONDS)) {
+            logger.warn("Purchases still in flight after {}s, their outcomes are synced from Toss by getPaymentInfo: inFlight={}",
+                        CLOSE_TIMEOUT_SECONDS, inFlightPurchases.size());
+        }
+        if (!lookupExecutor.awaitTermination(remainingNanos(deadlineNanos), TimeUnit.NANOSECONDS)) {
+            logger.warn("Lookups still running after {}s", CLOSE_TIMEOUT_SECONDS);
+        }
+    }
+
+    private static long remainingNanos(final long deadlineNanos) {
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * Complete the billing intents left behind by an interrupted first purchase (e.g. a crash after the billing key
+     * was issued), typically at startup.
+     *
+     * <p>The purchase is sent again with its original idempotency key, so Toss returns the original outcome if it had
+     * already processed it. Intents older than the Toss idempotency window only get their payment method stored, and
+     * their purchase must be reconciled manually.</p>
+     *
+     * <p>Intents younger than the payment lock timeout plus the Toss read timeout are skipped: their purchase may still
+     * be waiting for the payment lock or for Toss, on this node or another one. Each intent is recovered under the
+     * payment lock, distributed if enabled.</p>
+     *
+     * @param createdBefore only complete the intents created before this date, the others may still be in progress
+     * @return the number of intents completed
+     */
+    public int recoverBillingIntents(final DateTime createdBefore) {
+        final List<TossBillingIntentsRecord> intents;
+        try {
+            intents = dao.getBillingIntents();
+        } catch (final SQLException e) {
+            logger.error("Failed to retrieve billing intents", e);
+            return 0;
+        }
+
+        final DateTime now = clock.getUTCNow();
+        int completed = 0;
+        for (final TossBillingIntentsRecord intent : intents) {
+            final DateTime createdDate = toDateTime(intent.getCreatedDate());
+            if (!createdDate.isBefore(createdBefore) || !createdDate.plus(inFlightMillis(intent)).isBefore(now)) {
+                continue;
+            }
+            try {
+                if (recoverBillingIntent(intent)) {
+                    completed++;
+                }
+            } catch (final PaymentPluginApiException | RuntimeException e) {
+                logger.error("Failed to recover billing intent: kbTransactionId={}", intent.getKbPaymentTransactionId(), e);
+            }
+        }
+        if (completed > 0) {
+            logger.info("Recovered {} interrupted billing key purchase(s)", completed);
+        }
+        return completed;
+    }
+
+    /**
+     * @return how long the purchase of an intent may still be in flight: waiting for the payment lock, then for Toss
+     */
+    private long inFlightMillis(final TossBillingIntentsRecord intent) {
+        final TossTenantRuntime runtime = configurationHandler.getRuntime(UUID.fromString(intent.getKbTenantId()));
+        final int readTimeout = runtime == null ? 0 : runtime.getConfig().getReadTimeout();
+        return paymentLocks.getTimeoutMillis() + Math.max(readTimeout, 0);
+    }
+
+    private boolean recoverBillingIntent(final TossBillingIntentsRecord intent) throws PaymentPluginApiException {
+        final UUID kbAccountId = UUID.fromString(intent.getKbAccountId());
+        final UUID kbPaymentId = UUID.fromString(intent.getKbPaymentId());
+        final UUID kbTransactionId = UUID.fromString(intent.getKbPaymentTransactionId());
+        final UUID kbTenantId = UUID.fromString(intent.getKbTenantId());
+        final Currency currency = intent.getCurrency() == null ? null : Currency.valueOf(intent.getCurrency());
+        final CallContext context = new PluginCallContext(TossActivator.PLUGIN_NAME, clock.getUTCNow(), kbAccountId, kbTenantId);
+
+        return paymentLocks.execute(kbPaymentId, () -> {
+            try {
+                final TossResponsesRecord existingResponse = dao.getResponse(kbTransactionId, kbTenantId);
+                if (existingResponse != null && buildPaymentTransactionInfoFromRecord(kbPaymentId, existingResponse).getStatus() != PaymentPluginStatus.PENDING) {
+                    // Only the payment method is missing
+                    return dao.completeBillingIntent(intent, null, clock.getUTCNow());
+                }
+                if (toDateTime(intent.getCreatedDate()).plusDays(BILLING_INTENT_REPLAY_DAYS).isBefore(clock.getUTCNow())) {
+                    logger.error("Billing intent too old to replay its purchase, storing the payment method only. Manual reconciliation required: kbPaymentId={}, kbTransactionId={}",
+                                 kbPaymentId, kbTransactionId);
+                    return dao.completeBillingIntent(intent, null, clock.getUTCNow());
+                }
+            } catch (final SQLException e) {
+                throw new PaymentPluginApiException("DATABASE_ERROR", "Failed to recover billing intent: " + e.getMessage());
+            }
+
+            logger.info("Replaying interrupted billing key purchase: kbPaymentId={}, kbTransactionId={}", kbPaymentId, kbTransactionId);
+            sendBillingKeyPayment(kbAccountId, kbPaymentId, kbTransactionId, intent.getAmount(), currency, intent.getBillingKey(), TossDao.toPaymentRequest(intent),
+                                  TossRequestLane.BACKGROUND, getRuntimeForTenant(context), intent, TossCallTimings.DISABLED, context);
+            return true;
+        });
+    }
+
+    private static DateTime toDateTime(final LocalDateTime utcDateTime) {
+        return new DateTime(utcDateTime.toInstant(ZoneOffset.UTC).toEpochMilli(), DateTimeZone.UTC);
     }
 
     private PaymentTransactionInfoPlugin handleStoredBillingKeyFlow(final UUID kbAccountId,
@@ -157,17 +478,17 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
                                                                      final BigDecimal amount,
                                                                      final Currency currency,
                                                                      final Iterable<PluginProperty> properties,
+                                                                     final TossCallTimings timings,
                                                                      final CallContext context) throws PaymentPluginApiException {
         logger.info("handleStoredBillingKeyFlow: using stored billing key from payment method");
 
-        final TossPaymentMethodsRecord paymentMethod;
-        try {
-            paymentMethod = dao.getPaymentMethod(kbPaymentMethodId, context.getTenantId());
-        } catch (final SQLException e) {
-            logger.error("Database error while retrieving payment method", e);
-            throw new PaymentPluginApiException("DATABASE_ERROR", "Failed to retrieve payment method: " + e.getMessage());
+        final TossTenantRuntime runtime = getRuntimeForTenant(context);
+        final TossPurchaseLookups lookups = lookUpBeforePurchase(kbAccountId, kbTransactionId, kbPaymentMethodId, runtime, properties, timings, context);
+        if (lookups.getExistingTransaction() != null) {
+            return lookups.getExistingTransaction();
         }
 
+        final TossPaymentMethodsRecord paymentMethod = lookups.getPaymentMethod();
         if (paymentMethod == null || paymentMethod.getBillingKey() == null) {
             throw new PaymentPluginApiException("MISSING_BILLING_KEY", "No billing key found for payment method: " + kbPaymentMethodId);
         }
@@ -175,80 +496,159 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
         final String billingKey = paymentMethod.getBillingKey();
         final String customerKey = paymentMethod.getCustomerKey();
 
-        return executeBillingKeyPayment(kbAccountId, kbPaymentId, kbTransactionId, amount, currency, billingKey, customerKey, properties, context);
+        final BillingKeyPaymentRequest request = newBillingKeyPaymentRequest(kbPaymentId, amount, customerKey, lookups, properties);
+        return sendBillingKeyPayment(kbAccountId, kbPaymentId, kbTransactionId, amount, currency, billingKey, request,
+                                     resolveLane(TossRequestLane.BACKGROUND, properties), runtime, null, timings, context);
     }
 
-    private PaymentTransactionInfoPlugin executeBillingKeyPayment(final UUID kbAccountId,
-                                                                   final UUID kbPaymentId,
-                                                                   final UUID kbTransactionId,
-                                                                   final BigDecimal amount,
-                                                                   final Currency currency,
-                                                                   final String billingKey,
-                                                                   final String customerKey,
-                                                                   final Iterable<PluginProperty> properties,
-                                                                   final CallContext context) throws PaymentPluginApiException {
-        final PaymentTransactionInfoPlugin existingTransaction = checkIdempotency(kbPaymentId, kbTransactionId, context);
-        if (existingTransaction != null) {
-            return existingTransaction;
-        }
-
-        final TossConfigProperties config = getConfigForTenant(context);
-        final String secretKey = config.getSecretKey();
-        final Long tossAmount = amount.longValue();
-        final String orderId = PluginProperties.getValue("orderId", kbPaymentId.toString(), properties);
-        final String orderName = PluginProperties.getValue("orderName", "구독 결제", properties);
-
-        final String customerEmail = resolveCustomerEmail(kbAccountId, properties, context);
-        final String customerName = resolveCustomerName(kbAccountId, properties, context);
+    /**
+     * Run the reads needed before a billing key purchase concurrently, within the {@code lookup_timeout} of the tenant:
+     * the idempotency check, the stored payment method (if any) and the account (unless the customer email and name
+     * are passed as plugin properties).
+     *
+     * @param kbPaymentMethodId the payment method to look up, null if the billing key is not stored yet
+     */
+    private TossPurchaseLookups lookUpBeforePurchase(final UUID kbAccountId,
+                                                     final UUID kbTransactionId,
+                                                     @Nullable final UUID kbPaymentMethodId,
+                                                     final TossTenantRuntime runtime,
+                                                     final Iterable<PluginProperty> properties,
+                                                     final TossCallTimings timings,
+                                                     final CallContext context) throws PaymentPluginApiException {
+        final String emailProperty = PluginProperties.findPluginPropertyValue("customerEmail", properties);
+        final String nameProperty = PluginProperties.findPluginPropertyValue("customerName", properties);
+
+        try (final TossLookupScope scope = new TossLookupScope(lookupExecutor, runtime.getConfig().getLookupTimeout())) {
+            final TossLookupScope.Fork<TossResponsesRecord> existingResponse = scope.fork("idempotency", () -> {
+                final long lookupNanos = timings.now();
+                try {
+                    return dao.getResponse(kbTransactionId, context.getTenantId());
+                } catch (final SQLException e) {
+                    logger.error("Database error during idempotency check", e);
+                    throw new PaymentPluginApiException("DATABASE_ERROR", "Failed to check idempotency: " + e.getMessage());
+                } finally {
+                    timings.mark(TossCallTimings.Phase.IDEMPOTENCY_CHECK, lookupNanos);
+                }
+            });
+            final TossLookupScope.Fork<TossPaymentMethodsRecord> paymentMethod = kbPaymentMethodId == null ? null : scope.fork("paymentMethod", () -> {
+                try {
+                    return dao.getPaymentMethod(kbPaymentMethodId, context.getTenantId());
+                } catch (final SQLException e) {
+                    logger.error("Database error while retrieving payment method", e);
+                    throw new PaymentPluginApiException("DATABASE_ERROR", "Failed to retrieve payment method: " + e.getMessage());
+                }
+            });
+            final TossLookupScope.Fork<Account> account = emailProperty != null && nameProperty != null ? null : scope.fork("account", () -> {
+                final long lookupNanos = timings.now();
+                try {
+                    return getAccount(kbAccountId, context);
+                } finally {
+                    timings.mark(TossCallTimings.Phase.ACCOUNT_LOOKUP, lookupNanos);
+                }
+            });
 
-        try {
-            final BillingKeyPaymentRequest request = new BillingKeyPaymentRequest(tossAmount, orderId, orderName, customerKey, customerEmail, customerName);
-            final String idempotencyKey = kbTransactionId.toString();
-            final TossPayment tossPayment = tossClient.executeBillingKeyPayment(secretKey, billingKey, request, idempotencyKey);
+            scope.join();
+            logger.debug("Lookups before purchase: kbTransactionId={}, {}", kbTransactionId, scope.timings());
 
-            final PaymentTransactionInfoPlugin response = buildPaymentTransactionInfo(
-                    kbPaymentId,
-                    kbTransactionId,
-                    TransactionType.PURCHASE,
-                    amount,
-                    currency,
-                    tossPayment
-            );
-
-            try {
-                dao.addResponse(kbAccountId, kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, tossPayment.getPaymentKey(), tossPayment, null, clock.getUTCNow(), context.getTenantId());
-            } catch (final Exception dbError) {
-                logger.error("CRITICAL: Payment succeeded but failed to save to DB. Manual intervention required. kbPaymentId={}, kbTransactionId={}, paymentKey={}", 
-                            kbPaymentId, kbTransactionId, tossPayment.getPaymentKey(), dbError);
+            PaymentTransactionInfoPlugin existingTransaction = null;
+            if (existingResponse.get() != null) {
+                logger.info("Idempotency: Transaction already processed, returning existing result: kbTransactionId={}", kbTransactionId);
+                existingTransaction = buildPaymentTransactionInfoFromRecord(UUID.fromString(existingResponse.get().getKbPaymentId()), existingResponse.get());
             }
-
-            logger.info("Billing key payment succeeded: paymentKey={}, status={}", tossPayment.getPaymentKey(), tossPayment.getStatus());
-            return response;
-
-        } catch (final TossApplicationException e) {
-            logger.error("Toss API error during billing key payment: code={}, message={}", e.getTossError().getCode(), e.getTossError().getMessage());
-            final PaymentTransactionInfoPlugin errorResponse = buildErrorResponse(kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, e);
-
-            try {
-                dao.addResponse(kbAccountId, kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, null, null, e, clock.getUTCNow(), context.getTenantId());
-            } catch (final Exception dbError) {
-                logger.error("Failed to save error response to database", dbError);
+            return new TossPurchaseLookups(existingTransaction,
+                                           paymentMethod == null ? null : paymentMethod.get(),
+                                           emailProperty != null ? emailProperty : accountValue(account == null ? null : account.get(), Account::getEmail),
+                                           nameProperty != null ? nameProperty : accountValue(account == null ? null : account.get(), Account::getName));
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof PaymentPluginApiException) {
+                throw (PaymentPluginApiException) e.getCause();
             }
+            logger.error("Unexpected error during lookups: kbTransactionId={}", kbTransactionId, e.getCause());
+            throw new PaymentPluginApiException("LOOKUP_ERROR", "Lookups failed: " + e.getCause());
+        } catch (final TimeoutException e) {
+            logger.warn("Lookups before purchase timed out: kbTransactionId={}, {}", kbTransactionId, e.getMessage());
+            throw new PaymentPluginApiException("LOOKUP_TIMEOUT", e.getMessage());
+        } catch (final RejectedExecutionException e) {
+            // All lookup threads busy, e.g. with lookups still stuck after their deadline
+            logger.warn("Lookups before purchase rejected, no lookup thread available: kbTransactionId={}", kbTransactionId);
+            throw new PaymentPluginApiException("LOOKUP_TIMEOUT", "No lookup thread available");
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentPluginApiException("LOOKUP_ERROR", "Interrupted during lookups");
+        }
+    }
 
-            return errorResponse;
+    private BillingKeyPaymentRequest newBillingKeyPaymentRequest(final UUID kbPaymentId,
+                                                                 final BigDecimal amount,
+                                                                 final String customerKey,
+                                                                 final TossPurchaseLookups lookups,
+                                                                 final Iterable<PluginProperty> properties) {
+        final Long tossAmount = amount.longValue();
+        final String orderId = PluginProperties.getValue("orderId", kbPaymentId.toString(), properties);
+        final String orderName = PluginProperties.getValue("orderName", "구독 결제", properties);
 
-        } catch (final IOException | InterruptedException e) {
-            logger.error("Network error during billing key payment", e);
-            final PaymentTransactionInfoPlugin pendingResponse = buildPendingResponse(kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, null, e);
+        return new BillingKeyPaymentRequest(tossAmount, orderId, orderName, customerKey, lookups.getCustomerEmail(), lookups.getCustomerName());
+    }
 
+    /**
+     * @param intent the billing intent of a first purchase, completed together with the purchase outcome; null for stored billing keys
+     */
+    private PaymentTransactionInfoPlugin sendBillingKeyPayment(final UUID kbAccountId,
+                                                                final UUID kbPaymentId,
+                                                                final UUID kbTransactionId,
+                                                                final BigDecimal amount,
+                                                                final Currency currency,
+                                                                final String billingKey,
+                                                                final BillingKeyPaymentRequest request,
+                                                                final TossRequestLane lane,
+                                                                final TossTenantRuntime runtime,
+                                                                @Nullable final TossBillingIntentsRecord intent,
+                                                                final TossCallTimings timings,
+                                                                final CallContext context) throws PaymentPluginApiException {
+        final String secretKey = runtime.getSecretKey();
+        final TossClient client = clientFor(runtime);
+        final String idempotencyKey = kbTransactionId.toString();
+
+        final Supplier<TossPurchaseOutcome> purchase = () -> {
             try {
-                dao.addResponse(kbAccountId, kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, null, null, null, clock.getUTCNow(), context.getTenantId());
-            } catch (final Exception dbError) {
-                logger.error("Failed to save pending response to database", dbError);
+                final TossPayment tossPayment = callToss(lane,
+                                                         TossOperation.BILLING_KEY_PAYMENT,
+                                                         context.getTenantId(),
+                                                         timings,
+                                                         () -> client.executeBillingKeyPayment(secretKey, billingKey, request, idempotencyKey));
+
+                final long decodeNanos = timings.now();
+                final PaymentTransactionInfoPlugin response = buildPaymentTransactionInfo(
+                        kbPaymentId,
+                        kbTransactionId,
+                        TransactionType.PURCHASE,
+                        amount,
+                        currency,
+                        tossPayment
+                );
+                timings.mark(TossCallTimings.Phase.RESPONSE_DECODE, decodeNanos);
+
+                logger.info("Billing key payment succeeded: paymentKey={}, status={}", tossPayment.getPaymentKey(), tossPayment.getStatus());
+                return new TossPurchaseOutcome(response, newPurchaseEntry(kbAccountId, kbPaymentId, kbTransactionId, amount, currency, tossPayment.getPaymentKey(), tossPayment, null, context));
+
+            } catch (final TossLaneRejectedException e) {
+                // Nothing was sent to Toss and no response is persisted, so Kill Bill can retry the transaction
+                logger.warn("Billing key payment not sent to Toss: kbTransactionId={}, {}", kbTransactionId, e.getMessage());
+                return new TossPurchaseOutcome(buildLaneRejectedResponse(kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, e), null);
+
+            } catch (final TossApplicationException e) {
+                logger.error("Toss API error during billing key payment: code={}, message={}", e.getTossError().getCode(), TossSensitiveDataMasker.masked(e.getTossError().getMessage()));
+                return new TossPurchaseOutcome(buildErrorResponse(kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, e),
+                                               newPurchaseEntry(kbAccountId, kbPaymentId, kbTransactionId, amount, currency, null, null, e, context));
+
+            } catch (final IOException | InterruptedException e) {
+                logger.error("Network error during billing key payment", e);
+                return new TossPurchaseOutcome(buildPendingResponse(kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, null, e),
+                                               newPurchaseEntry(kbAccountId, kbPaymentId, kbTransactionId, amount, currency, null, null, null, context));
             }
+        };
 
-            return pendingResponse;
-        }
+        return purchaseWithDeadline(kbAccountId, kbPaymentId, kbTransactionId, amount, currency, null, runtime.getConfig(), purchase, intent, timings, context);
     }
 
     private PaymentTransactionInfoPlugin handleRegularConfirmFlow(final UUID kbAccountId,
@@ -258,70 +658,249 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
                                                                    final Currency currency,
                                                                    final String paymentKey,
                                                                    final Iterable<PluginProperty> properties,
+                                                                   final TossCallTimings timings,
                                                                    final CallContext context) throws PaymentPluginApiException {
         logger.info("handleRegularConfirmFlow: confirming payment with paymentKey={}", paymentKey);
 
+        final long lookupNanos = timings.now();
         final PaymentTransactionInfoPlugin existingTransaction = checkIdempotency(kbPaymentId, kbTransactionId, context);
+        timings.mark(TossCallTimings.Phase.IDEMPOTENCY_CHECK, lookupNanos);
         if (existingTransaction != null) {
             return existingTransaction;
         }
 
-        try {
-            final String orderId = PluginProperties.getValue("orderId", kbPaymentId.toString(), properties);
-            final Long tossAmount = amount.longValue();
+        final String orderId = PluginProperties.getValue("orderId", kbPaymentId.toString(), properties);
+        final Long tossAmount = amount.longValue();
 
-            final TossConfigProperties config = getConfigForTenant(context);
-            final String secretKey = config.getSecretKey();
+        final TossTenantRuntime runtime = getRuntimeForTenant(context);
+        final String secretKey = runtime.getSecretKey();
+        final TossClient client = clientFor(runtime);
 
-            final PaymentConfirmRequest request = new PaymentConfirmRequest(paymentKey, orderId, tossAmount);
-            final String idempotencyKey = kbTransactionId.toString();
-            final TossPayment tossPayment = tossClient.confirmPayment(secretKey, request, idempotencyKey);
-
-            final PaymentTransactionInfoPlugin response = buildPaymentTransactionInfo(
-                    kbPaymentId,
-                    kbTransactionId,
-                    TransactionType.PURCHASE,
-                    amount,
-                    currency,
-                    tossPayment
-            );
+        final PaymentConfirmRequest request = new PaymentConfirmRequest(paymentKey, orderId, tossAmount);
+        final String idempotencyKey = kbTransactionId.toString();
+        final TossRequestLane lane = resolveLane(TossRequestLane.INTERACTIVE, properties);
 
+        final Supplier<TossPurchaseOutcome> purchase = () -> {
             try {
-                dao.addResponse(kbAccountId, kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, paymentKey, tossPayment, null, clock.getUTCNow(), context.getTenantId());
-            } catch (final Exception dbError) {
-                logger.error("CRITICAL: Payment succeeded but failed to save to DB. Manual intervention required. kbPaymentId={}, kbTransactionId={}, paymentKey={}",
-                            kbPaymentId, kbTransactionId, paymentKey, dbError);
+                final TossPayment tossPayment = callToss(lane,
+                                                         TossOperation.CONFIRM_PAYMENT,
+                                                         context.getTenantId(),
+                                                         timings,
+                                                         () -> client.confirmPayment(secretKey, request, idempotencyKey));
+
+                final long decodeNanos = timings.now();
+                final PaymentTransactionInfoPlugin response = buildPaymentTransactionInfo(
+                        kbPaymentId,
+                        kbTransactionId,
+                        TransactionType.PURCHASE,
+                        amount,
+                        currency,
+                        tossPayment
+                );
+                timings.mark(TossCallTimings.Phase.RESPONSE_DECODE, decodeNanos);
+
+                logger.info("purchasePayment succeeded: paymentKey={}, status={}", paymentKey, tossPayment.getStatus());
+                return new TossPurchaseOutcome(response, newPurchaseEntry(kbAccountId, kbPaymentId, kbTransactionId, amount, currency, paymentKey, tossPayment, null, context));
+
+            } catch (final TossLaneRejectedException e) {
+                logger.warn("Payment confirmation not sent to Toss: paymentKey={}, {}", paymentKey, e.getMessage());
+                return new TossPurchaseOutcome(buildLaneRejectedResponse(kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, e), null);
+
+            } catch (final TossApplicationException e) {
+                logger.error("Toss API error: code={}, message={}", e.getTossError().getCode(), TossSensitiveDataMasker.masked(e.getTossError().getMessage()));
+                return new TossPurchaseOutcome(buildErrorResponse(kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, e),
+                                               newPurchaseEntry(kbAccountId, kbPaymentId, kbTransactionId, amount, currency, paymentKey, null, e, context));
+
+            } catch (final IOException | InterruptedException e) {
+                logger.error("Network error during payment confirmation", e);
+                return new TossPurchaseOutcome(buildPendingResponse(kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, paymentKey, e),
+                                               newPurchaseEntry(kbAccountId, kbPaymentId, kbTransactionId, amount, currency, paymentKey, null, null, context));
             }
+        };
 
-            logger.info("purchasePayment succeeded: paymentKey={}, status={}", paymentKey, tossPayment.getStatus());
-            return response;
+        return purchaseWithDeadline(kbAccountId, kbPaymentId, kbTransactionId, amount, currency, paymentKey, runtime.getConfig(), purchase, null, timings, context);
+    }
 
-        } catch (final TossApplicationException e) {
-            logger.error("Toss API error: code={}, message={}", e.getTossError().getCode(), e.getTossError().getMessage());
-            final PaymentTransactionInfoPlugin errorResponse = buildErrorResponse(kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, e);
+    /**
+     * Run a purchase call and persist its outcome.
+     *
+     * <p>When {@code purchase_deadline} is set and Toss has not answered in time, a PENDING response is persisted
+     * and returned right away while the call keeps running in the background. Its outcome is persisted once it
+     * completes, so that a later {@code getPaymentInfo} returns it without calling Toss. If the call was rejected by its
+     * lane, nothing was sent to Toss and the PENDING response is deleted instead, so that the transaction can be retried.</p>
+     *
+     * <p>The outcome of a first purchase is stored in the same transaction as the payment method of its billing intent.</p>
+     */
+    private PaymentTransactionInfoPlugin purchaseWithDeadline(final UUID kbAccountId,
+                                                              final UUID kbPaymentId,
+                                                              final UUID kbTransactionId,
+                                                              final BigDecimal amount,
+                                                              final Currency currency,
+                                                              @Nullable final String paymentKey,
+                                                              final TossConfigProperties config,
+                                                              final Supplier<TossPurchaseOutcome> purchase,
+                                                              @Nullable final TossBillingIntentsRecord intent,
+                                                              final TossCallTimings timings,
+                                                              final CallContext context) throws PaymentPluginApiException {
+        final int deadline = config.getPurchaseDeadline();
+        if (deadline <= 0) {
+            final TossPurchaseOutcome outcome = purchase.get();
+            final long persistNanos = timings.now();
+            persistPurchaseOutcome(outcome, intent);
+            timings.mark(TossCallTimings.Phase.DB_PERSIST, persistNanos);
+            return outcome.getInfo();
+        }
 
-            try {
-                dao.addResponse(kbAccountId, kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, paymentKey, null, e, clock.getUTCNow(), context.getTenantId());
-            } catch (final Exception dbError) {
-                logger.error("Failed to save error response to database", dbError);
+        final CompletableFuture<TossPurchaseOutcome> future = inFlightPurchases.submit(kbTransactionId, purchase);
+        final TossPurchaseOutcome outcome;
+        try {
+            outcome = future.get(deadline, TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
             }
+            logger.warn("Toss did not answer within {}ms, completing purchase in the background: kbTransactionId={}, paymentKey={}",
+                        deadline, kbTransactionId, paymentKey);
+            return detachPurchase(kbAccountId, kbPaymentId, kbTransactionId, amount, currency, paymentKey, future, intent, context);
+        } catch (final ExecutionException e) {
+            inFlightPurchases.remove(kbTransactionId);
+            logger.error("Unexpected error during purchase: kbTransactionId={}", kbTransactionId, e.getCause());
+            throw new PaymentPluginApiException("PURCHASE_ERROR", "Purchase failed: " + e.getCause());
+        }
 
-            return errorResponse;
+        final long persistNanos = timings.now();
+        try {
+            persistPurchaseOutcome(outcome, intent);
+            timings.mark(TossCallTimings.Phase.DB_PERSIST, persistNanos);
+        } finally {
+            inFlightPurchases.remove(kbTransactionId);
+        }
+        return outcome.getInfo();
+    }
 
-        } catch (final IOException | InterruptedException e) {
-            logger.error("Network error during payment confirmation", e);
-            final PaymentTransactionInfoPlugin pendingResponse = buildPendingResponse(kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, paymentKey, e);
+    private PaymentTransactionInfoPlugin detachPurchase(final UUID kbAccountId,
+                                                        final UUID kbPaymentId,
+                                                        final UUID kbTransactionId,
+                                                        final BigDecimal amount,
+                                                        final Currency currency,
+                                                        @Nullable final String paymentKey,
+                                                        final CompletableFuture<TossPurchaseOutcome> future,
+                                                        @Nullable final TossBillingIntentsRecord intent,
+                                                        final CallContext context) {
+        // Persisted before the completion callback is registered, so the final outcome is always the latest row
+        try {
+            dao.addResponses(Collections.singletonList(newPurchaseEntry(kbAccountId, kbPaymentId, kbTransactionId, amount, currency, paymentKey, null, null, context)));
+        } catch (final Exception dbError) {
+            logger.error("Failed to save pending response to database", dbError);
+        }
 
+        future.whenComplete((outcome, error) -> {
             try {
-                dao.addResponse(kbAccountId, kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, paymentKey, null, null, clock.getUTCNow(), context.getTenantId());
-            } catch (final Exception dbError) {
-                logger.error("Failed to save pending response to database", dbError);
+                if (error != null) {
+                    logger.error("Background purchase failed, transaction stays PENDING: kbTransactionId={}", kbTransactionId, error);
+                } else {
+                    persistPurchaseOutcome(outcome, intent);
+                    if (outcome.getEntry() == null) {
+                        // Not sent to Toss (lane rejected): no paymentKey for getPaymentInfo to sync the placeholder with
+                        deletePendingResponse(kbTransactionId, context);
+                    }
+                    logger.info("Background purchase completed: kbTransactionId={}, status={}", kbTransactionId, outcome.getInfo().getStatus());
+                }
+            } finally {
+                inFlightPurchases.remove(kbTransactionId);
             }
+        });
 
-            return pendingResponse;
+        final DateTime now = clock.getUTCNow();
+        return new TossPaymentTransactionInfoPlugin(
+                kbPaymentId,
+                kbTransactionId,
+                TransactionType.PURCHASE,
+                amount,
+                currency,
+                PaymentPluginStatus.PENDING,
+                "Toss did not answer in time, the payment is being completed in the background",
+                "DEADLINE_EXCEEDED",
+                paymentKey,
+                null,
+                now,
+                now,
+                ImmutableList.of(new PluginProperty("idempotencyKey", kbTransactionId.toString(), false))
+        );
+    }
+
+    private void deletePendingResponse(final UUID kbTransactionId, final CallContext context) {
+        try {
+            dao.deletePendingResponse(kbTransactionId, context.getTenantId());
+        } catch (final Exception dbError) {
+            logger.error("Failed to delete pending response, transaction stays PENDING: kbTransactionId={}", kbTransactionId, dbError);
         }
     }
 
+    private void persistPurchaseOutcome(final TossPurchaseOutcome outcome, @Nullable final TossBillingIntentsRecord intent) {
+        final TossResponseEntry entry = outcome.getEntry();
+        if (entry == null && intent == null) {
+            return;
+        }
+
+        try {
+            if (intent != null) {
+                // Left in place on failure, for recoverBillingIntents to replay
+                if (!dao.completeBillingIntent(intent, entry, clock.getUTCNow()) && entry != null) {
+                    // Completed concurrently (e.g. by recoverBillingIntents): its payment method is stored, not this response
+                    dao.addResponses(Collections.singletonList(entry));
+                }
+            } else {
+                dao.addResponses(Collections.singletonList(entry));
+            }
+        } catch (final Exception dbError) {
+            if (entry != null && entry.getTossPayment() != null) {
+                if (journalUnsavedResponse(entry)) {
+                    logger.warn("Payment succeeded but failed to save to DB, kept in the local journal until the DB recovers: kbPaymentId={}, kbTransactionId={}, paymentKey={}",
+                                entry.getKbPaymentId(), entry.getKbPaymentTransactionId(), entry.getPaymentKey(), dbError);
+                } else {
+                    logger.error("CRITICAL: Payment succeeded but failed to save to DB. Manual intervention required. kbPaymentId={}, kbTransactionId={}, paymentKey={}",
+                                 entry.getKbPaymentId(), entry.getKbPaymentTransactionId(), entry.getPaymentKey(), dbError);
+                }
+            } else {
+                logger.error("Failed to save {} response to database", outcome.getInfo().getStatus(), dbError);
+            }
+        }
+    }
+
+    /**
+     * Keep a successful Toss response that could not be saved in the local journal: it is replayed into the database
+     * once it recovers.
+     *
+     * @return false if the response could not be journaled either, and needs manual intervention
+     */
+    boolean journalUnsavedResponse(final TossResponseEntry entry) {
+        if (responseJournal == null || entry.getTossPayment() == null) {
+            return false;
+        }
+        try {
+            if (responseJournal.append(entry)) {
+                return true;
+            }
+            logger.error("Toss response journal is full: file={}, depth={}", responseJournal.getFile(), responseJournal.getDepth());
+        } catch (final IOException | RuntimeException e) {
+            logger.error("Failed to write Toss response journal: file={}", responseJournal.getFile(), e);
+        }
+        return false;
+    }
+
+    private TossResponseEntry newPurchaseEntry(final UUID kbAccountId,
+                                               final UUID kbPaymentId,
+                                               final UUID kbTransactionId,
+                                               final BigDecimal amount,
+                                               final Currency currency,
+                                               @Nullable final String paymentKey,
+                                               @Nullable final TossPayment tossPayment,
+                                               @Nullable final TossApplicationException tossException,
+                                               final CallContext context) {
+        return new TossResponseEntry(kbAccountId, kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, currency, paymentKey, tossPayment, tossException, clock.getUTCNow(), context.getTenantId());
+    }
+
     @Override
     public PaymentTransactionInfoPlugin voidPayment(final UUID kbAccountId, final UUID kbPaymentId, final UUID kbTransactionId, final UUID kbPaymentMethodId, final Iterable<PluginProperty> properties, final CallContext context) throws PaymentPluginApiException {
         logger.info("voidPayment called - operation not supported for Korean PG");
@@ -337,7 +916,12 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
     @Override
     public PaymentTransactionInfoPlugin refundPayment(final UUID kbAccountId, final UUID kbPaymentId, final UUID kbTransactionId, final UUID kbPaymentMethodId, final BigDecimal amount, final Currency currency, final Iterable<PluginProperty> properties, final CallContext context) throws PaymentPluginApiException {
         logger.info("refundPayment called: kbPaymentId={}, amount={}, currency={}", kbPaymentId, amount, currency);
+        final TossCallTimings timings = startTimings(properties, context);
+        return recorded("refund", kbPaymentId,
+                        () -> timings.attachTo(paymentLocks.execute(kbPaymentId, () -> doRefundPayment(kbAccountId, kbPaymentId, kbTransactionId, amount, currency, properties, timings, context))));
+    }
 
+    private PaymentTransactionInfoPlugin doRefundPayment(final UUID kbAccountId, final UUID kbPaymentId, final UUID kbTransactionId, final BigDecimal amount, final Currency currency, final Iterable<PluginProperty> properties, final TossCallTimings timings, final CallContext context) throws PaymentPluginApiException {
         final TossResponsesRecord previousRecord;
         try {
             previousRecord = dao.getSuccessfulPurchaseResponse(kbPaymentId, context.getTenantId());
@@ -354,13 +938,19 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
             final Long cancelAmount = (amount != null && amount.compareTo(BigDecimal.ZERO) > 0) ? amount.longValue() : null;
             final String cancelReason = PluginProperties.getValue("cancelReason", "고객 요청에 의한 환불", properties);
 
-            final TossConfigProperties config = getConfigForTenant(context);
-            final String secretKey = config.getSecretKey();
+            final TossTenantRuntime runtime = getRuntimeForTenant(context);
+            final String secretKey = runtime.getSecretKey();
+            final TossClient client = clientFor(runtime);
 
             final PaymentCancelRequest request = new PaymentCancelRequest(cancelReason, cancelAmount);
             final String idempotencyKey = kbTransactionId.toString();
-            final TossPayment tossPayment = tossClient.cancelPayment(secretKey, paymentKey, request, idempotencyKey);
+            final TossPayment tossPayment = callToss(resolveLane(TossRequestLane.INTERACTIVE, properties),
+                                                     TossOperation.CANCEL_PAYMENT,
+                                                     context.getTenantId(),
+                                                     timings,
+                                                     () -> client.cancelPayment(secretKey, paymentKey, request, idempotencyKey));
 
+            final long decodeNanos = timings.now();
             final PaymentTransactionInfoPlugin response = buildRefundTransactionInfo(
                     kbPaymentId,
                     kbTransactionId,
@@ -368,18 +958,29 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
                     currency,
                     tossPayment
             );
+            final long persistNanos = timings.mark(TossCallTimings.Phase.RESPONSE_DECODE, decodeNanos);
 
             try {
                 dao.addResponse(kbAccountId, kbPaymentId, kbTransactionId, TransactionType.REFUND, amount, currency, paymentKey, tossPayment, null, clock.getUTCNow(), context.getTenantId());
+                timings.mark(TossCallTimings.Phase.DB_PERSIST, persistNanos);
             } catch (final SQLException dbError) {
-                logger.error("Failed to save refund response to database", dbError);
+                final TossResponseEntry entry = new TossResponseEntry(kbAccountId, kbPaymentId, kbTransactionId, TransactionType.REFUND, amount, currency, paymentKey, tossPayment, null, clock.getUTCNow(), context.getTenantId());
+                if (journalUnsavedResponse(entry)) {
+                    logger.warn("Refund succeeded but failed to save to DB, kept in the local journal until the DB recovers: paymentKey={}", paymentKey, dbError);
+                } else {
+                    logger.error("Failed to save refund response to database", dbError);
+                }
             }
 
             logger.info("refundPayment succeeded: paymentKey={}, cancelAmount={}", paymentKey, cancelAmount);
             return response;
 
+        } catch (final TossLaneRejectedException e) {
+            logger.warn("Refund not sent to Toss: paymentKey={}, {}", paymentKey, e.getMessage());
+            return buildLaneRejectedResponse(kbPaymentId, kbTransactionId, TransactionType.REFUND, amount, currency, e);
+
         } catch (final TossApplicationException e) {
-            logger.error("Toss API error during refund: code={}, message={}", e.getTossError().getCode(), e.getTossError().getMessage());
+            logger.error("Toss API error during refund: code={}, message={}", e.getTossError().getCode(), TossSensitiveDataMasker.masked(e.getTossError().getMessage()));
             final PaymentTransactionInfoPlugin errorResponse = buildErrorResponse(kbPaymentId, kbTransactionId, TransactionType.REFUND, amount, currency, e);
 
             try {
@@ -434,7 +1035,11 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
     @Override
     public List<PaymentTransactionInfoPlugin> getPaymentInfo(final UUID kbAccountId, final UUID kbPaymentId, final Iterable<PluginProperty> properties, final TenantContext context) throws PaymentPluginApiException {
         logger.info("getPaymentInfo called: kbPaymentId={}", kbPaymentId);
+        return recorded("get_payment_info", kbPaymentId,
+                        () -> paymentLocks.execute(kbPaymentId, () -> syncPaymentInfo(kbAccountId, kbPaymentId, properties, context)));
+    }
 
+    private List<PaymentTransactionInfoPlugin> syncPaymentInfo(final UUID kbAccountId, final UUID kbPaymentId, final Iterable<PluginProperty> properties, final TenantContext context) throws PaymentPluginApiException {
         // 1. Get existing transactions to find the correct kbTransactionId
         final List<PaymentTransactionInfoPlugin> transactions = super.getPaymentInfo(kbAccountId, kbPaymentId, properties, context);
         if (transactions.isEmpty()) {
@@ -450,6 +1055,12 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
         }
 
         final UUID kbTransactionId = lastTransaction.getKbTransactionPaymentId();
+        if (inFlightPurchases.isInFlight(kbTransactionId)) {
+            // The outcome of the call still running in the background will be persisted, no need to ask Toss
+            logger.info("Purchase still in flight, skipping Toss sync: kbTransactionId={}", kbTransactionId);
+            return transactions;
+        }
+
         String paymentKey = PluginProperties.findPluginPropertyValue("paymentKey", properties);
         
         // If not in properties, try to get from the transaction info
@@ -476,11 +1087,16 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
 
         try {
             // Get tenant configuration
-            final TossConfigProperties config = getConfigForTenant(context);
-            final String secretKey = config.getSecretKey();
+            final TossTenantRuntime runtime = getRuntimeForTenant(context);
+            final String secretKey = runtime.getSecretKey();
+            final TossClient client = clientFor(runtime);
 
-            // Call Toss API to get latest payment status
-            final TossPayment tossPayment = tossClient.getPayment(secretKey, paymentKey);
+            // Call Toss API to get latest payment status (Janitor syncs are unattended by default)
+            final String paymentKeyToSync = paymentKey;
+            final TossPayment tossPayment = requestLanes.execute(resolveLane(TossRequestLane.BACKGROUND, properties),
+                                                                 TossOperation.GET_PAYMENT,
+                                                                 context.getTenantId(),
+                                                                 () -> client.getPayment(secretKey, paymentKeyToSync));
 
             // REFUND transaction requires special handling:
             // If Toss status is DONE, it means the cancel request never reached Toss
@@ -522,7 +1138,7 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
             return updatedTransactions;
 
         } catch (final TossApplicationException e) {
-            logger.error("Toss API error in getPaymentInfo: code={}, message={}", e.getTossError().getCode(), e.getTossError().getMessage());
+            logger.error("Toss API error in getPaymentInfo: code={}, message={}", e.getTossError().getCode(), TossSensitiveDataMasker.masked(e.getTossError().getMessage()));
             
             final PaymentPluginStatus errorStatus = mapTossErrorToStatusForGetPaymentInfo(e);
             
@@ -544,7 +1160,7 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
                     lastTransaction.getAmount(),
                     lastTransaction.getCurrency(),
                     errorStatus,
-                    e.getTossError().getMessage(),
+                    TossSensitiveDataMasker.mask(e.getTossError().getMessage()),
                     e.getTossError().getCode(),
                     paymentKey,
                     null,
@@ -556,6 +1172,8 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
             final List<PaymentTransactionInfoPlugin> updatedTransactions = new ArrayList<>(transactions);
             updatedTransactions.set(transactions.size() - 1, errorResponse);
             return updatedTransactions;
+        } catch (final TossLaneRejectedException e) {
+            logger.warn("getPaymentInfo sync not sent to Toss: paymentKey={}, {}", paymentKey, e.getMessage());
         } catch (final IOException | InterruptedException e) {
             logger.error("Network error in getPaymentInfo", e);
         }
@@ -566,13 +1184,43 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
 
     @Override
     public Pagination<PaymentTransactionInfoPlugin> searchPayments(final String searchKey, final Long offset, final Long limit, final Iterable<PluginProperty> properties, final TenantContext context) throws PaymentPluginApiException {
-        return null;
+        // Matches the paymentKey, orderId, kbPaymentId or receipt URL prefix
+        final String key = searchKey == null ? "" : searchKey.trim();
+        final UUID kbTenantId = context.getTenantId();
+        final TossSearchPagination.Search<TossResponsesRecord> search = key.isEmpty() ? TossSearchPagination.nothing() : new TossSearchPagination.Search<TossResponsesRecord>() {
+            @Override
+            public List<TossResponsesRecord> load(final long afterRecordId, final int pageSize) throws SQLException {
+                return dao.searchResponses(key, afterRecordId, pageSize, kbTenantId);
+            }
+
+            @Override
+            public long count(final long cap) throws SQLException {
+                return dao.countResponses(key, cap, kbTenantId);
+            }
+
+            @Override
+            public Long recordIdAt(final long position) throws SQLException {
+                return dao.getResponseRecordIdAt(key, position, kbTenantId);
+            }
+        };
+        try {
+            return new TossSearchPagination<TossResponsesRecord, PaymentTransactionInfoPlugin>(offset, limit, search, record -> record.getRecordId().longValue(), this::buildPaymentTransactionInfoPlugin);
+        } catch (final SQLException e) {
+            logger.error("Database error during payment search", e);
+            throw new PaymentPluginApiException("DATABASE_ERROR", "Failed to search payments: " + e.getMessage());
+        }
     }
 
     @Override
     public void addPaymentMethod(final UUID kbAccountId, final UUID kbPaymentMethodId, final PaymentMethodPlugin paymentMethodProps, final boolean setDefault, final Iterable<PluginProperty> properties, final CallContext context) throws PaymentPluginApiException {
         logger.info("addPaymentMethod called: kbAccountId={}, kbPaymentMethodId={}", kbAccountId, kbPaymentMethodId);
+        recorded("add_payment_method", null, () -> {
+            doAddPaymentMethod(kbAccountId, kbPaymentMethodId, setDefault, properties, context);
+            return null;
+        });
+    }
 
+    private void doAddPaymentMethod(final UUID kbAccountId, final UUID kbPaymentMethodId, final boolean setDefault, final Iterable<PluginProperty> properties, final CallContext context) throws PaymentPluginApiException {
         final String authKey = PluginProperties.findPluginPropertyValue("authKey", properties);
         final String cardNumber = PluginProperties.findPluginPropertyValue("cardNumber", properties);
 
@@ -587,19 +1235,27 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
         final String customerKey = kbPaymentMethodId.toString();
 
         try {
-            final TossConfigProperties config = getConfigForTenant(context);
-            final String secretKey = config.getSecretKey();
+            final TossTenantRuntime runtime = getRuntimeForTenant(context);
+            final String secretKey = runtime.getSecretKey();
+            final TossClient client = clientFor(runtime);
 
             final BillingKeyRequest request = new BillingKeyRequest(customerKey, authKey);
-            final TossBilling tossBilling = tossClient.issueBillingKey(secretKey, request);
+            final TossBilling tossBilling = requestLanes.execute(resolveLane(TossRequestLane.INTERACTIVE, properties),
+                                                                 TossOperation.ISSUE_BILLING_KEY,
+                                                                 context.getTenantId(),
+                                                                 () -> client.issueBillingKey(secretKey, request));
 
             dao.addPaymentMethod(kbAccountId, kbPaymentMethodId, setDefault, tossBilling, clock.getUTCNow(), context.getTenantId());
 
             logger.info("addPaymentMethod succeeded: billingKey issued for kbPaymentMethodId={}", kbPaymentMethodId);
 
+        } catch (final TossLaneRejectedException e) {
+            logger.warn("Billing key issuance not sent to Toss: kbPaymentMethodId={}, {}", kbPaymentMethodId, e.getMessage());
+            throw new PaymentPluginApiException(TossLaneRejectedException.ERROR_CODE, e.getMessage());
+
         } catch (final TossApplicationException e) {
-            logger.error("Toss API error during billing key issuance: code={}, message={}", e.getTossError().getCode(), e.getTossError().getMessage());
-            throw new PaymentPluginApiException(e.getTossError().getCode(), e.getTossError().getMessage());
+            logger.error("Toss API error during billing key issuance: code={}, message={}", e.getTossError().getCode(), TossSensitiveDataMasker.masked(e.getTossError().getMessage()));
+            throw new PaymentPluginApiException(e.getTossError().getCode(), TossSensitiveDataMasker.mask(e.getTossError().getMessage()));
 
         } catch (final java.io.IOException | InterruptedException e) {
             logger.error("Network error during billing key issuance", e);
@@ -668,7 +1324,32 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
 
     @Override
     public Pagination<PaymentMethodPlugin> searchPaymentMethods(final String searchKey, final Long offset, final Long limit, final Iterable<PluginProperty> properties, final TenantContext context) throws PaymentPluginApiException {
-        return null;
+        // Matches the billingKey, customerKey or (masked) card number, optionally narrowed down by the cardIssuerCode property
+        final String key = searchKey == null ? "" : searchKey.trim();
+        final String cardIssuerCode = PluginProperties.findPluginPropertyValue("cardIssuerCode", properties);
+        final UUID kbTenantId = context.getTenantId();
+        final TossSearchPagination.Search<TossPaymentMethodsRecord> search = key.isEmpty() ? TossSearchPagination.nothing() : new TossSearchPagination.Search<TossPaymentMethodsRecord>() {
+            @Override
+            public List<TossPaymentMethodsRecord> load(final long afterRecordId, final int pageSize) throws SQLException {
+                return dao.searchPaymentMethods(key, cardIssuerCode, afterRecordId, pageSize, kbTenantId);
+            }
+
+            @Override
+            public long count(final long cap) throws SQLException {
+                return dao.countPaymentMethods(key, cardIssuerCode, cap, kbTenantId);
+            }
+
+            @Override
+            public Long recordIdAt(final long position) throws SQLException {
+                return dao.getPaymentMethodRecordIdAt(key, cardIssuerCode, position, kbTenantId);
+            }
+        };
+        try {
+            return new TossSearchPagination<TossPaymentMethodsRecord, PaymentMethodPlugin>(offset, limit, search, record -> record.getRecordId().longValue(), this::buildPaymentMethodPlugin);
+        } catch (final SQLException e) {
+            logger.error("Database error during payment method search", e);
+            throw new PaymentPluginApiException("DATABASE_ERROR", "Failed to search payment methods: " + e.getMessage());
+        }
     }
 
     @Override
@@ -720,12 +1401,12 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
     /**
      * Build successful payment response from Toss payment.
      */
-    private PaymentTransactionInfoPlugin buildPaymentTransactionInfo(final UUID kbPaymentId,
-                                                                      final UUID kbTransactionId,
-                                                                      final TransactionType transactionType,
-                                                                      final BigDecimal amount,
-                                                                      final Currency currency,
-                                                                      final TossPayment tossPayment) {
+    PaymentTransactionInfoPlugin buildPaymentTransactionInfo(final UUID kbPaymentId,
+                                                             final UUID kbTransactionId,
+                                                             final TransactionType transactionType,
+                                                             final BigDecimal amount,
+                                                             final Currency currency,
+                                                             final TossPayment tossPayment) {
         final PaymentPluginStatus status = mapTossStatusToKillBill(tossPayment.getStatus());
         final DateTime now = clock.getUTCNow();
 
@@ -774,18 +1455,16 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
     }
 
     private String extractLatestCancelTransactionKey(final TossPayment tossPayment) {
-        if (tossPayment.getCancels() == null || tossPayment.getCancels().isEmpty()) {
-            return null;
-        }
-        return tossPayment.getCancels().get(tossPayment.getCancels().size() - 1).getTransactionKey();
+        // Read from the summary, to not bind the whole cancels list
+        return TossPaymentSummary.of(tossPayment).getLatestCancelTransactionKey();
     }
 
-    private PaymentTransactionInfoPlugin buildErrorResponse(final UUID kbPaymentId,
-                                                            final UUID kbTransactionId,
-                                                            final TransactionType transactionType,
-                                                            final BigDecimal amount,
-                                                            final Currency currency,
-                                                            final TossApplicationException e) {
+    PaymentTransactionInfoPlugin buildErrorResponse(final UUID kbPaymentId,
+                                                    final UUID kbTransactionId,
+                                                    final TransactionType transactionType,
+                                                    final BigDecimal amount,
+                                                    final Currency currency,
+                                                    final TossApplicationException e) {
         final PaymentPluginStatus status = mapTossErrorToStatus(e);
         final DateTime now = clock.getUTCNow();
 
@@ -796,7 +1475,7 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
                 amount,
                 currency,
                 status,
-                e.getTossError().getMessage(),
+                TossSensitiveDataMasker.mask(e.getTossError().getMessage()),
                 e.getTossError().getCode(),
                 null, // firstPaymentReferenceId
                 null, // secondPaymentReferenceId
@@ -809,13 +1488,13 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
     /**
      * Build pending response for network errors.
      */
-    private PaymentTransactionInfoPlugin buildPendingResponse(final UUID kbPaymentId,
-                                                              final UUID kbTransactionId,
-                                                              final TransactionType transactionType,
-                                                              final BigDecimal amount,
-                                                              final Currency currency,
-                                                              final String paymentKey, // Add paymentKey
-                                                              final Exception e) {
+    PaymentTransactionInfoPlugin buildPendingResponse(final UUID kbPaymentId,
+                                                      final UUID kbTransactionId,
+                                                      final TransactionType transactionType,
+                                                      final BigDecimal amount,
+                                                      final Currency currency,
+                                                      final String paymentKey, // Add paymentKey
+                                                      final Exception e) {
         final DateTime now = clock.getUTCNow();
 
         return new TossPaymentTransactionInfoPlugin(
@@ -835,6 +1514,150 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
         );
     }
 
+    /**
+     * Build response for calls rejected by their lane. The request never reached Toss, so the transaction is CANCELED.
+     */
+    PaymentTransactionInfoPlugin buildLaneRejectedResponse(final UUID kbPaymentId,
+                                                           final UUID kbTransactionId,
+                                                           final TransactionType transactionType,
+                                                           final BigDecimal amount,
+                                                           final Currency currency,
+                                                           final TossLaneRejectedException e) {
+        final DateTime now = clock.getUTCNow();
+
+        return new TossPaymentTransactionInfoPlugin(
+                kbPaymentId,
+                kbTransactionId,
+                transactionType,
+                amount,
+                currency,
+                PaymentPluginStatus.CANCELED,
+                e.getMessage(),
+                TossLaneRejectedException.ERROR_CODE,
+                null,
+                null,
+                now,
+                now,
+                Collections.emptyList()
+        );
+    }
+
+    /**
+     * Resolve the lane of a Toss call: the {@value #PROPERTY_LANE} plugin property if set, the flow default otherwise.
+     */
+    TossRequestLane resolveLane(final TossRequestLane defaultLane, final Iterable<PluginProperty> properties) {
+        final String lane = PluginProperties.findPluginPropertyValue(PROPERTY_LANE, properties);
+        if (lane == null) {
+            return defaultLane;
+        }
+        try {
+            return TossRequestLane.valueOf(lane.trim().toUpperCase());
+        } catch (final IllegalArgumentException e) {
+            logger.warn("Invalid {} plugin property '{}', using {}", PROPERTY_LANE, lane, defaultLane);
+            return defaultLane;
+        }
+    }
+
+    /**
+     * Timings of a purchase or refund are returned if the {@value #PROPERTY_TIMINGS} plugin property is true,
+     * or if it is not set and the tenant has {@code timing_properties} enabled.
+     */
+    private TossCallTimings startTimings(final Iterable<PluginProperty> properties, final CallContext context) {
+        final String requested = PluginProperties.findPluginPropertyValue(PROPERTY_TIMINGS, properties);
+        final boolean enabled;
+        if (requested != null) {
+            enabled = Boolean.parseBoolean(requested);
+        } else {
+            final TossTenantRuntime runtime = getRuntimeForTenant(context);
+            enabled = runtime != null && runtime.getConfig().isTimingProperties();
+        }
+        return enabled ? TossCallTimings.start() : TossCallTimings.DISABLED;
+    }
+
+    /**
+     * Run a Toss call in its lane, recording the time queued and the call in the timings.
+     */
+    private <T> T callToss(final TossRequestLane lane,
+                           final TossOperation operation,
+                           final UUID kbTenantId,
+                           final TossCallTimings timings,
+                           final TossRequestLanes.TossCall<T> call) throws IOException, InterruptedException {
+        if (!timings.isEnabled()) {
+            return requestLanes.execute(lane, operation, kbTenantId, call);
+        }
+        final long queuedNanos = timings.now();
+        return requestLanes.execute(lane, operation, kbTenantId, () -> {
+            final long sentNanos = timings.mark(TossCallTimings.Phase.QUEUEING, queuedNanos);
+            try {
+                return call.call();
+            } finally {
+                timings.mark(TossCallTimings.Phase.TOSS_CALL, sentNanos);
+            }
+        });
+    }
+
+    /**
+     * Run a plugin entry point, emitting a {@link TossPluginOperationEvent} when recorded.
+     *
+     * @param flow the flow, e.g. {@code refund}
+     * @param kbPaymentId the payment, null if the entry point is not tied to a payment
+     */
+    private <T> T recorded(final String flow, @Nullable final UUID kbPaymentId, final TossPaymentLocks.PaymentOperation<T> operation) throws PaymentPluginApiException {
+        final TossPluginOperationEvent event = TossFlightRecorder.beginPluginOperation();
+        String outcome = TossMetrics.STATUS_ERROR;
+        try {
+            final T result = operation.run();
+            if (result instanceof PaymentTransactionInfoPlugin && ((PaymentTransactionInfoPlugin) result).getStatus() != null) {
+                outcome = ((PaymentTransactionInfoPlugin) result).getStatus().name();
+            } else {
+                outcome = TossMetrics.STATUS_OK;
+            }
+            return result;
+        } catch (final PaymentPluginApiException e) {
+            if (e.getErrorType() != null) {
+                outcome = e.getErrorType();
+            }
+            throw e;
+        } finally {
+            TossFlightRecorder.endPluginOperation(event, flow, kbPaymentId, outcome);
+        }
+    }
+
+    /**
+     * @return utilization and queueing statistics of the Toss call lanes
+     */
+    public TossRequestLanes getRequestLanes() {
+        return requestLanes;
+    }
+
+    /**
+     * @return contention statistics of the per-payment locks
+     */
+    public TossPaymentLocks getPaymentLocks() {
+        return paymentLocks;
+    }
+
+    /**
+     * @return the journal of the successful responses that could not be saved, null if disabled
+     */
+    public TossResponseJournal getResponseJournal() {
+        return responseJournal;
+    }
+
+    /**
+     * @return the number of purchases sent to Toss whose outcome is not persisted yet
+     */
+    public int getInFlightPurchaseCount() {
+        return inFlightPurchases.size();
+    }
+
+    /**
+     * @return the number of batch charge runs whose progress is tracked
+     */
+    public long getTrackedBatchCount() {
+        return batchChargeService.getTrackedBatchCount();
+    }
+
     /**
      * Map Toss payment status to Kill Bill status.
      *
@@ -936,8 +1759,8 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
     /**
      * Build PaymentTransactionInfoPlugin from database record.
      */
-    private PaymentTransactionInfoPlugin buildPaymentTransactionInfoFromRecord(final UUID kbPaymentId,
-                                                                                final TossResponsesRecord record) {
+    PaymentTransactionInfoPlugin buildPaymentTransactionInfoFromRecord(final UUID kbPaymentId,
+                                                                       final TossResponsesRecord record) {
         final PaymentPluginStatus status = mapTossStatusToKillBill(record.getTossPaymentStatus());
         final DateTime createdDate = new DateTime(
                 record.getCreatedDate().atZone(java.time.ZoneOffset.UTC).toInstant().toEpochMilli(),
@@ -961,13 +1784,6 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
         );
     }
 
-    private String maskSensitiveKey(final String key) {
-        if (key == null || key.length() <= 8) {
-            return "****";
-        }
-        return key.substring(0, 4) + "****" + key.substring(key.length() - 4);
-    }
-
     private PaymentTransactionInfoPlugin checkIdempotency(final UUID kbPaymentId,
                                                           final UUID kbTransactionId,
                                                           final CallContext context) throws PaymentPluginApiException {
@@ -984,37 +1800,20 @@ public class TossPaymentPluginApi extends PluginPaymentPluginApi<TossResponsesRe
         }
     }
 
-    private String resolveCustomerEmail(final UUID kbAccountId,
-                                         final Iterable<PluginProperty> properties,
-                                         final CallContext context) {
-        final String fromProperties = PluginProperties.findPluginPropertyValue("customerEmail", properties);
-        if (fromProperties != null) {
-            return fromProperties;
-        }
-
+    private Account getAccount(final UUID kbAccountId, final CallContext context) {
         try {
-            final Account account = killbillAPI.getAccountUserApi().getAccountById(kbAccountId, context);
-            return account.getEmail() != null ? account.getEmail() : "";
+            return killbillAPI.getAccountUserApi().getAccountById(kbAccountId, context);
         } catch (final AccountApiException e) {
-            logger.warn("Failed to retrieve account email, using empty value: kbAccountId={}", kbAccountId);
-            return "";
+            logger.warn("Failed to retrieve account, using empty customer email and name: kbAccountId={}", kbAccountId);
+            return null;
         }
     }
 
-    private String resolveCustomerName(final UUID kbAccountId,
-                                        final Iterable<PluginProperty> properties,
-                                        final CallContext context) {
-        final String fromProperties = PluginProperties.findPluginPropertyValue("customerName", properties);
-        if (fromProperties != null) {
-            return fromProperties;
-        }
-
-        try {
-            final Account account = killbillAPI.getAccountUserApi().getAccountById(kbAccountId, context);
-            return account.getName() != null ? account.getName() : "";
-        } catch (final AccountApiException e) {
-            logger.warn("Failed to retrieve account name, using empty value: kbAccountId={}", kbAccountId);
+    private static String accountValue(@Nullable final Account account, final Function<Account, String> getter) {
+        if (account == null) {
             return "";
         }
+        final String value = getter.apply(account);
+        return value != null ? value : "";
     }
 }
@@ -0,0 +1,49 @@
+package org.killbill.billing.plugin.toss.api;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossPaymentMethodsRecord;
+
+/**
+ * Results of the lookups run concurrently before a billing key purchase.
+ */
+class TossPurchaseLookups {
+
+    private final PaymentTransactionInfoPlugin existingTransaction;
+    private final TossPaymentMethodsRecord paymentMethod;
+    private final String customerEmail;
+    private final String customerName;
+
+    TossPurchaseLookups(@Nullable final PaymentTransactionInfoPlugin existingTransaction,
+                        @Nullable final TossPaymentMethodsRecord paymentMethod,
+                        final String customerEmail,
+                        final String customerName) {
+        this.existingTransaction = existingTransaction;
+        this.paymentMethod = paymentMethod;
+        this.customerEmail = customerEmail;
+        this.customerName = customerName;
+    }
+
+    /**
+     * @return the result of the transaction if it was already processed, null otherwise
+     */
+    PaymentTransactionInfoPlugin getExistingTransaction() {
+        return existingTransaction;
+    }
+
+    /**
+     * @return the stored payment method, null if not looked up or not found
+     */
+    TossPaymentMethodsRecord getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    String getCustomerEmail() {
+        return customerEmail;
+    }
+
+    String getCustomerName() {
+        return customerName;
+    }
+}
@@ -0,0 +1,31 @@
+package org.killbill.billing.plugin.toss.api;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.toss.dao.TossResponseEntry;
+
+/**
+ * Result of a Toss purchase call: what to return to Kill Bill and what to persist.
+ */
+class TossPurchaseOutcome {
+
+    private final PaymentTransactionInfoPlugin info;
+    private final TossResponseEntry entry;
+
+    TossPurchaseOutcome(final PaymentTransactionInfoPlugin info, @Nullable final TossResponseEntry entry) {
+        this.info = info;
+        this.entry = entry;
+    }
+
+    PaymentTransactionInfoPlugin getInfo() {
+        return info;
+    }
+
+    /**
+     * @return the response to persist, null when the request never reached Toss
+     */
+    TossResponseEntry getEntry() {
+        return entry;
+    }
+}
@@ -0,0 +1,206 @@
+package org.killbill.billing.plugin.toss.api;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.util.entity.Pagination;
+
+/**
+ * Search results, read from the database page by page as they are iterated (keyset pagination on record_id).
+ *
+ * <p>The offset is a row offset, as Kill Bill expects: the next page starts at {@code offset + limit}. It is
+ * turned into a record_id once, by seeking to the row before the offset, and the rows are then read by record_id.
+ * Only one database page is held in memory at a time, whatever the limit. The results can be iterated once.</p>
+ *
+ * <p>The matching rows are counted up to {@link #COUNT_CAP}, so that a broad search does not scan all of them.</p>
+ *
+ * @param <R> database record
+ * @param <T> search result
+ */
+final class TossSearchPagination<R, T> implements Pagination<T> {
+
+    /** Number of rows read per query */
+    static final int PAGE_SIZE = 100;
+
+    /** Maximum number of matching rows counted */
+    static final long COUNT_CAP = 10000;
+
+    /**
+     * Queries of a search, over the matching rows ordered by record_id.
+     */
+    interface Search<R> {
+
+        List<R> load(long afterRecordId, int pageSize) throws SQLException;
+
+        /**
+         * @return the number of matching rows, at most {@code cap}
+         */
+        long count(long cap) throws SQLException;
+
+        /**
+         * @return the record_id of the matching row at this position (from 0), null if fewer rows match
+         */
+        @Nullable
+        Long recordIdAt(long position) throws SQLException;
+    }
+
+    private final long currentOffset;
+    private final long limit;
+    private final Search<R> search;
+    private final Function<R, Long> recordIdFunction;
+    private final Function<R, T> converter;
+    private final long totalNbRecords;
+    private final Long nextOffset;
+
+    private long lastRecordId;
+    private long returned;
+    private boolean endReached;
+    private boolean iterated;
+
+    /**
+     * @throws SQLException if the count or the seek to the offset fails
+     */
+    TossSearchPagination(final Long offset,
+                         final Long limit,
+                         final Search<R> search,
+                         final Function<R, Long> recordIdFunction,
+                         final Function<R, T> converter) throws SQLException {
+        this.currentOffset = offset == null ? 0 : Math.max(0, offset);
+        this.limit = limit == null ? Long.MAX_VALUE : Math.max(0, limit);
+        this.search = search;
+        this.recordIdFunction = recordIdFunction;
+        this.converter = converter;
+        this.totalNbRecords = search.count(COUNT_CAP);
+
+        if (currentOffset >= totalNbRecords && totalNbRecords < COUNT_CAP) {
+            endReached = true;
+        } else if (currentOffset > 0) {
+            final Long recordIdBeforeOffset = search.recordIdAt(currentOffset - 1);
+            endReached = recordIdBeforeOffset == null;
+            lastRecordId = endReached ? 0 : recordIdBeforeOffset;
+        }
+        this.nextOffset = computeNextOffset();
+    }
+
+    /**
+     * @return a search matching nothing
+     */
+    static <R> Search<R> nothing() {
+        return new Search<R>() {
+            @Override
+            public List<R> load(final long afterRecordId, final int pageSize) {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public long count(final long cap) {
+                return 0;
+            }
+
+            @Override
+            public Long recordIdAt(final long position) {
+                return null;
+            }
+        };
+    }
+
+    @Nullable
+    private Long computeNextOffset() throws SQLException {
+        if (endReached || limit == Long.MAX_VALUE) {
+            return null;
+        }
+        final long next = currentOffset + limit;
+        if (totalNbRecords < COUNT_CAP) {
+            return next < totalNbRecords ? next : null;
+        }
+        // Beyond the count: look for the first row of the next page
+        return search.recordIdAt(next) == null ? null : next;
+    }
+
+    @Override
+    public Long getCurrentOffset() {
+        return currentOffset;
+    }
+
+    /**
+     * @return {@code offset + limit}, null if there are no more results
+     */
+    @Override
+    public Long getNextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * @return the number of matching rows, at most {@link #COUNT_CAP}
+     */
+    @Override
+    public Long getMaxNbRecords() {
+        return totalNbRecords;
+    }
+
+    /**
+     * @return the number of matching rows, at most {@link #COUNT_CAP}
+     */
+    @Override
+    public Long getTotalNbRecords() {
+        return totalNbRecords;
+    }
+
+    @Override
+    public synchronized Iterator<T> iterator() {
+        if (iterated) {
+            throw new IllegalStateException("Search results can only be iterated once");
+        }
+        iterated = true;
+        return new PageIterator();
+    }
+
+    public void close() {
+        // Nothing held between pages
+    }
+
+    private final class PageIterator implements Iterator<T> {
+
+        private Iterator<R> page = Collections.emptyIterator();
+
+        @Override
+        public boolean hasNext() {
+            if (page.hasNext()) {
+                return true;
+            }
+            if (endReached || returned >= limit) {
+                return false;
+            }
+
+            final int pageSize = (int) Math.min(PAGE_SIZE, limit - returned);
+            final List<R> records;
+            try {
+                records = search.load(lastRecordId, pageSize);
+            } catch (final SQLException e) {
+                throw new RuntimeException("Failed to read search results after record " + lastRecordId, e);
+            }
+            if (records.size() < pageSize) {
+                endReached = true;
+            }
+            page = records.iterator();
+            return page.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final R record = page.next();
+            lastRecordId = recordIdFunction.apply(record);
+            returned++;
+            return converter.apply(record);
+        }
+    }
+}
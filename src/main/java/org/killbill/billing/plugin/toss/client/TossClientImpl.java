@@ -4,11 +4,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.killbill.billing.plugin.toss.client.exception.TossApplicationException;
 import org.killbill.billing.plugin.toss.client.model.BillingKeyPaymentRequest;
 import org.killbill.billing.plugin.toss.client.model.BillingKeyRequest;
+import org.killbill.billing.plugin.toss.client.model.LazyTossPayment;
 import org.killbill.billing.plugin.toss.client.model.PaymentCancelRequest;
 import org.killbill.billing.plugin.toss.client.model.PaymentConfirmRequest;
 import org.killbill.billing.plugin.toss.client.model.TossBilling;
 import org.killbill.billing.plugin.toss.client.model.TossError;
 import org.killbill.billing.plugin.toss.client.model.TossPayment;
+import org.killbill.billing.plugin.toss.metrics.TossFlightRecorder;
+import org.killbill.billing.plugin.toss.metrics.TossHttpCallEvent;
+import org.killbill.billing.plugin.toss.metrics.TossOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,18 +21,35 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
 
 public class TossClientImpl implements TossClient {
 
     private static final Logger logger = LoggerFactory.getLogger(TossClientImpl.class);
-    private static final String DEFAULT_BASE_URL = "https://api.tosspayments.com/v1";
+    public static final String DEFAULT_BASE_URL = "https://api.tosspayments.com/v1";
 
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
     private final String baseUrl;
+    private final Duration requestTimeout;
+    private final TossTrafficRecorder trafficRecorder;
+
+    // Authorization header of the last secret key used: clients are per tenant, so it rarely changes
+    private volatile Authorization authorization;
 
     public TossClientImpl() {
         this(DEFAULT_BASE_URL);
@@ -40,46 +61,73 @@ public class TossClientImpl implements TossClient {
                 .build();
         this.objectMapper = new ObjectMapper();
         this.baseUrl = baseUrl;
+        this.requestTimeout = null;
+        this.trafficRecorder = null;
+    }
+
+    /**
+     * @param connectTimeoutMillis connection timeout
+     * @param readTimeoutMillis maximum time to wait for the response of a request, 0 for no limit
+     */
+    public TossClientImpl(String baseUrl, int connectTimeoutMillis, int readTimeoutMillis) {
+        this(baseUrl, connectTimeoutMillis, readTimeoutMillis, null);
+    }
+
+    /**
+     * @param connectTimeoutMillis connection timeout
+     * @param readTimeoutMillis maximum time to wait for the response of a request, 0 for no limit
+     * @param trafficRecorder where the calls are recorded, null not to record them
+     */
+    public TossClientImpl(String baseUrl, int connectTimeoutMillis, int readTimeoutMillis, @Nullable TossTrafficRecorder trafficRecorder) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .build();
+        this.objectMapper = new ObjectMapper();
+        this.baseUrl = baseUrl;
+        this.requestTimeout = readTimeoutMillis > 0 ? Duration.ofMillis(readTimeoutMillis) : null;
+        this.trafficRecorder = trafficRecorder;
     }
 
     public TossClientImpl(HttpClient httpClient, ObjectMapper objectMapper, String baseUrl) {
         this.httpClient = httpClient;
         this.objectMapper = objectMapper;
         this.baseUrl = baseUrl;
+        this.requestTimeout = null;
+        this.trafficRecorder = null;
     }
 
     @Override
     public TossPayment confirmPayment(final String secretKey, final PaymentConfirmRequest request, final String idempotencyKey) throws IOException, InterruptedException {
         final String requestBody = objectMapper.writeValueAsString(request);
         final HttpRequest httpRequest = buildRequest(secretKey, "/payments/confirm", "POST", requestBody, idempotencyKey);
-        return execute(httpRequest, TossPayment.class);
+        return executePayment(httpRequest, TossOperation.CONFIRM_PAYMENT);
     }
 
     @Override
     public TossPayment cancelPayment(final String secretKey, final String paymentKey, final PaymentCancelRequest request, final String idempotencyKey) throws IOException, InterruptedException {
         final String requestBody = objectMapper.writeValueAsString(request);
         final HttpRequest httpRequest = buildRequest(secretKey, "/payments/" + paymentKey + "/cancel", "POST", requestBody, idempotencyKey);
-        return execute(httpRequest, TossPayment.class);
+        return executePayment(httpRequest, TossOperation.CANCEL_PAYMENT);
     }
 
     @Override
     public TossPayment getPayment(String secretKey, String paymentKey) throws IOException, InterruptedException {
         HttpRequest httpRequest = buildRequest(secretKey, "/payments/" + paymentKey, "GET", null);
-        return execute(httpRequest, TossPayment.class);
+        return executePayment(httpRequest, TossOperation.GET_PAYMENT);
     }
 
     @Override
     public TossBilling issueBillingKey(String secretKey, BillingKeyRequest request) throws IOException, InterruptedException {
         String requestBody = objectMapper.writeValueAsString(request);
         HttpRequest httpRequest = buildRequest(secretKey, "/billing/authorizations/issue", "POST", requestBody);
-        return execute(httpRequest, TossBilling.class);
+        return execute(httpRequest, TossOperation.ISSUE_BILLING_KEY, TossBilling.class);
     }
 
     @Override
     public TossPayment executeBillingKeyPayment(final String secretKey, final String billingKey, final BillingKeyPaymentRequest request, final String idempotencyKey) throws IOException, InterruptedException {
         final String requestBody = objectMapper.writeValueAsString(request);
         final HttpRequest httpRequest = buildRequest(secretKey, "/billing/" + billingKey, "POST", requestBody, idempotencyKey);
-        return execute(httpRequest, TossPayment.class);
+        return executePayment(httpRequest, TossOperation.BILLING_KEY_PAYMENT);
     }
 
     private HttpRequest buildRequest(final String secretKey, final String path, final String method, final String jsonBody) {
@@ -87,12 +135,15 @@ public class TossClientImpl implements TossClient {
     }
 
     private HttpRequest buildRequest(final String secretKey, final String path, final String method, final String jsonBody, final String idempotencyKey) {
-        final String authHeader = "Basic " + Base64.getEncoder().encodeToString((secretKey + ":").getBytes(StandardCharsets.UTF_8));
         final HttpRequest.Builder builder = HttpRequest.newBuilder()
                 .uri(URI.create(baseUrl + path))
-                .header("Authorization", authHeader)
+                .header("Authorization", authorizationHeader(secretKey))
                 .header("Content-Type", "application/json");
 
+        if (requestTimeout != null) {
+            builder.timeout(requestTimeout);
+        }
+
         if (idempotencyKey != null) {
             builder.header("Idempotency-Key", idempotencyKey);
         }
@@ -106,21 +157,178 @@ public class TossClientImpl implements TossClient {
         return builder.build();
     }
 
-    private <T> T execute(HttpRequest request, Class<T> clazz) throws IOException, InterruptedException {
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    private String authorizationHeader(final String secretKey) {
+        Authorization current = authorization;
+        if (current == null || !Objects.equals(current.secretKey, secretKey)) {
+            current = new Authorization(secretKey);
+            authorization = current;
+        }
+        return current.header;
+    }
+
+    private <T> T execute(HttpRequest request, TossOperation operation, Class<T> clazz) throws IOException, InterruptedException {
+        final byte[] body = send(request, operation);
+        return objectMapper.readValue(body, clazz);
+    }
+
+    /**
+     * Payments are only partially bound: the hot paths read a handful of fields, and the raw
+     * bytes are kept so that the full object graph can be built on demand.
+     */
+    private TossPayment executePayment(HttpRequest request, TossOperation operation) throws IOException, InterruptedException {
+        final byte[] body = send(request, operation);
+        return LazyTossPayment.parse(body, objectMapper);
+    }
+
+    /**
+     * The JFR event is tagged with the operation rather than the path, which contains the payment or billing key.
+     */
+    private byte[] send(HttpRequest request, TossOperation operation) throws IOException, InterruptedException {
+        final TossHttpCallEvent event = TossFlightRecorder.beginHttpCall();
+        final long startEpochMicros = trafficRecorder == null ? 0 : TossTrafficRecorder.nowEpochMicros();
+        final long startNanos = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = requestTimeout == null ? httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray()) : sendWithDeadline(request);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            TossFlightRecorder.endHttpCall(event, operation, 0, 0);
+            recordTraffic(request, operation, startEpochMicros, startNanos, TossTrafficRecorder.outcomeOf(e), 0, 0);
+            throw e;
+        }
+        TossFlightRecorder.endHttpCall(event, operation, response.statusCode(), response.body().length);
+        recordTraffic(request, operation, startEpochMicros, startNanos,
+                      TossTrafficRecorder.outcomeOf(response.statusCode()), response.statusCode(), response.body().length);
 
         if (response.statusCode() >= 200 && response.statusCode() < 300) {
-            return objectMapper.readValue(response.body(), clazz);
+            return response.body();
         } else {
             TossError tossError;
             try {
                 tossError = objectMapper.readValue(response.body(), TossError.class);
             } catch (Exception e) {
                 // Return generic error if parsing fails
-                logger.warn("Failed to parse error response: {}", response.body());
-                tossError = new TossError("UNKNOWN_ERROR", "Unknown error occurred: " + response.body());
+                final String body = new String(response.body(), StandardCharsets.UTF_8);
+                logger.warn("Failed to parse error response: {}", body);
+                tossError = new TossError("UNKNOWN_ERROR", "Unknown error occurred: " + body);
             }
             throw new TossApplicationException(tossError, response.statusCode());
         }
     }
+
+    /**
+     * Only sizes and timings are recorded, never the URI (which contains the payment or billing key) nor the bodies.
+     */
+    private void recordTraffic(HttpRequest request,
+                               TossOperation operation,
+                               long startEpochMicros,
+                               long startNanos,
+                               TossTrafficRecorder.Outcome outcome,
+                               int httpStatus,
+                               int responseBytes) {
+        if (trafficRecorder == null) {
+            return;
+        }
+        final long requestBytes = request.bodyPublisher().map(HttpRequest.BodyPublisher::contentLength).orElse(0L);
+        trafficRecorder.record(new TossTrafficRecorder.Entry(startEpochMicros,
+                                                             operation,
+                                                             outcome,
+                                                             httpStatus,
+                                                             (int) Math.max(requestBytes, 0),
+                                                             responseBytes,
+                                                             (int) Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos), Integer.MAX_VALUE)));
+    }
+
+    /**
+     * The request timeout only bounds the wait for the response headers: a body trickled by Toss would hold the
+     * calling thread past it. The whole exchange is bounded instead. On expiry, the subscription of the body is
+     * cancelled, which closes its connection: cancelling the future of {@code sendAsync} does not stop the exchange.
+     */
+    private HttpResponse<byte[]> sendWithDeadline(HttpRequest request) throws IOException, InterruptedException {
+        final AbortableBodyHandler bodyHandler = new AbortableBodyHandler();
+        final CompletableFuture<HttpResponse<byte[]>> future = httpClient.sendAsync(request, bodyHandler);
+        try {
+            return future.get(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            bodyHandler.abort();
+            future.cancel(true);
+            throw new HttpTimeoutException("Toss response not complete within " + requestTimeout.toMillis() + "ms");
+        } catch (InterruptedException e) {
+            bodyHandler.abort();
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Reads the body as a byte array, until aborted. Before the headers, the request timeout (same duration) ends
+     * the exchange.
+     */
+    private static final class AbortableBodyHandler implements HttpResponse.BodyHandler<byte[]> {
+
+        private final AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+        private volatile boolean aborted;
+
+        @Override
+        public HttpResponse.BodySubscriber<byte[]> apply(HttpResponse.ResponseInfo responseInfo) {
+            final HttpResponse.BodySubscriber<byte[]> body = HttpResponse.BodySubscribers.ofByteArray();
+            return new HttpResponse.BodySubscriber<byte[]>() {
+                @Override
+                public CompletionStage<byte[]> getBody() {
+                    return body.getBody();
+                }
+
+                @Override
+                public void onSubscribe(Flow.Subscription bodySubscription) {
+                    subscription.set(bodySubscription);
+                    body.onSubscribe(bodySubscription);
+                    // Aborted while the headers were being read
+                    if (aborted) {
+                        bodySubscription.cancel();
+                    }
+                }
+
+                @Override
+                public void onNext(List<ByteBuffer> items) {
+                    body.onNext(items);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    body.onError(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    body.onComplete();
+                }
+            };
+        }
+
+        void abort() {
+            aborted = true;
+            final Flow.Subscription bodySubscription = subscription.get();
+            if (bodySubscription != null) {
+                bodySubscription.cancel();
+            }
+        }
+    }
+
+    private static final class Authorization {
+
+        private final String secretKey;
+        private final String header;
+
+        private Authorization(String secretKey) {
+            this.secretKey = secretKey;
+            this.header = "Basic " + Base64.getEncoder().encodeToString((secretKey + ":").getBytes(StandardCharsets.UTF_8));
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package org.killbill.billing.plugin.toss.client;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.plugin.toss.metrics.TossOperation;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A Toss call admitted to its lane and not completed yet.
+ */
+public class TossInFlightCall {
+
+    private final TossRequestLane lane;
+    private final TossOperation operation;
+    private final UUID kbTenantId;
+    private final String threadName;
+    private final long startNanos;
+
+    TossInFlightCall(final TossRequestLane lane, final TossOperation operation, final UUID kbTenantId, final String threadName, final long startNanos) {
+        this.lane = lane;
+        this.operation = operation;
+        this.kbTenantId = kbTenantId;
+        this.threadName = threadName;
+        this.startNanos = startNanos;
+    }
+
+    @JsonProperty
+    public TossRequestLane getLane() {
+        return lane;
+    }
+
+    /**
+     * @return the Toss endpoint called, null if not known
+     */
+    @JsonProperty
+    public String getOperation() {
+        return operation == null ? null : operation.getTag();
+    }
+
+    @JsonProperty
+    public UUID getKbTenantId() {
+        return kbTenantId;
+    }
+
+    /**
+     * @return the thread making the call, to find it in a thread dump
+     */
+    @JsonProperty
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * @return time elapsed since the call was admitted
+     */
+    @JsonProperty
+    public long getAgeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "TossInFlightCall{" +
+                "lane=" + lane +
+                ", operation=" + getOperation() +
+                ", kbTenantId=" + kbTenantId +
+                ", threadName=" + threadName +
+                ", ageMillis=" + getAgeMillis() +
+                '}';
+    }
+}
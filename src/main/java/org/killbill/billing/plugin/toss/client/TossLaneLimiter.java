@@ -0,0 +1,108 @@
+package org.killbill.billing.plugin.toss.client;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.killbill.billing.plugin.toss.client.exception.TossLaneRejectedException;
+
+/**
+ * Admission control for a single {@link TossRequestLane}: at most {@code maxConcurrent} calls in flight,
+ * at most {@code maxQueued} callers waiting, each for at most {@code maxWaitMillis}.
+ */
+public class TossLaneLimiter {
+
+    private final TossRequestLane lane;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxWaitMillis;
+
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalQueueNanos = new LongAdder();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+
+    public TossLaneLimiter(final TossRequestLane lane, final int maxConcurrent, final int maxQueued, final long maxWaitMillis) {
+        this.lane = lane;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.maxWaitMillis = Math.max(0, maxWaitMillis);
+        this.permits = new Semaphore(this.maxConcurrent, true);
+    }
+
+    /**
+     * Wait for a slot in the lane. Callers must {@link #release()} it once the call completes.
+     *
+     * @throws TossLaneRejectedException if the queue is full or no slot frees up in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        // Honors fairness: does not barge ahead of queued callers
+        if (permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+            admitted.increment();
+            return;
+        }
+
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejected.increment();
+            throw new TossLaneRejectedException(lane, lane + " lane queue is full (" + maxQueued + " waiting)");
+        }
+
+        final long startNanos = System.nanoTime();
+        final boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } finally {
+            queued.decrementAndGet();
+            recordQueueTime(System.nanoTime() - startNanos);
+        }
+
+        if (!acquired) {
+            rejected.increment();
+            throw new TossLaneRejectedException(lane, lane + " lane saturated, no slot within " + maxWaitMillis + "ms");
+        }
+        admitted.increment();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    private void recordQueueTime(final long nanos) {
+        totalQueueNanos.add(nanos);
+        long currentMax = maxQueueNanos.get();
+        while (nanos > currentMax && !maxQueueNanos.compareAndSet(currentMax, nanos)) {
+            currentMax = maxQueueNanos.get();
+        }
+    }
+
+    public TossLaneStats getStats() {
+        final int inFlight = maxConcurrent - permits.availablePermits();
+        final long admittedCount = admitted.sum();
+        return new TossLaneStats(lane,
+                                 maxConcurrent,
+                                 maxQueued,
+                                 inFlight,
+                                 queued.get(),
+                                 admittedCount,
+                                 rejected.sum(),
+                                 admittedCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalQueueNanos.sum()) / admittedCount,
+                                 TimeUnit.NANOSECONDS.toMicros(maxQueueNanos.get()));
+    }
+
+    /**
+     * @return the maximum number of calls in flight or waiting at once
+     */
+    public int getCapacity() {
+        return maxConcurrent + maxQueued;
+    }
+
+    public TossRequestLane getLane() {
+        return lane;
+    }
+}
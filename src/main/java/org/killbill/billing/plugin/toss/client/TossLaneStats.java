@@ -0,0 +1,108 @@
+package org.killbill.billing.plugin.toss.client;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Point-in-time utilization and queueing statistics of a {@link TossRequestLane}.
+ */
+public class TossLaneStats {
+
+    private final TossRequestLane lane;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final int inFlight;
+    private final int queued;
+    private final long admitted;
+    private final long rejected;
+    private final long avgQueueTimeMicros;
+    private final long maxQueueTimeMicros;
+
+    public TossLaneStats(final TossRequestLane lane,
+                         final int maxConcurrent,
+                         final int maxQueued,
+                         final int inFlight,
+                         final int queued,
+                         final long admitted,
+                         final long rejected,
+                         final long avgQueueTimeMicros,
+                         final long maxQueueTimeMicros) {
+        this.lane = lane;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.inFlight = inFlight;
+        this.queued = queued;
+        this.admitted = admitted;
+        this.rejected = rejected;
+        this.avgQueueTimeMicros = avgQueueTimeMicros;
+        this.maxQueueTimeMicros = maxQueueTimeMicros;
+    }
+
+    @JsonProperty
+    public TossRequestLane getLane() {
+        return lane;
+    }
+
+    @JsonProperty
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    @JsonProperty
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    @JsonProperty
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    @JsonProperty
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * @return fraction of the lane capacity currently in use, between 0 and 1
+     */
+    @JsonProperty
+    public double getUtilization() {
+        return (double) inFlight / maxConcurrent;
+    }
+
+    @JsonProperty
+    public long getAdmitted() {
+        return admitted;
+    }
+
+    @JsonProperty
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return average time spent waiting for a slot, over all admitted calls (calls admitted immediately count as zero)
+     */
+    @JsonProperty
+    public long getAvgQueueTimeMicros() {
+        return avgQueueTimeMicros;
+    }
+
+    @JsonProperty
+    public long getMaxQueueTimeMicros() {
+        return maxQueueTimeMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "TossLaneStats{" +
+                "lane=" + lane +
+                ", inFlight=" + inFlight + "/" + maxConcurrent +
+                ", queued=" + queued + "/" + maxQueued +
+                ", admitted=" + admitted +
+                ", rejected=" + rejected +
+                ", avgQueueTimeMicros=" + avgQueueTimeMicros +
+                ", maxQueueTimeMicros=" + maxQueueTimeMicros +
+                '}';
+    }
+}
@@ -0,0 +1,16 @@
+package org.killbill.billing.plugin.toss.client;
+
+/**
+ * Concurrency lanes for calls to the Toss API.
+ *
+ * <p>Each lane has its own concurrency limit and queue, so that a renewal run saturating the
+ * {@link #BACKGROUND} lane cannot delay a customer waiting at checkout on the {@link #INTERACTIVE} lane.</p>
+ */
+public enum TossRequestLane {
+
+    /** A customer is waiting on the result (checkout confirms, billing key registration, refunds) */
+    INTERACTIVE,
+
+    /** Unattended calls (stored billing key renewals, batch charges, status syncs) */
+    BACKGROUND
+}
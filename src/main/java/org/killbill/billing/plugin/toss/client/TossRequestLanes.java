@@ -0,0 +1,155 @@
+package org.killbill.billing.plugin.toss.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.plugin.toss.client.exception.TossLaneRejectedException;
+import org.killbill.billing.plugin.toss.client.model.TossPayment;
+import org.killbill.billing.plugin.toss.metrics.TossMetrics;
+import org.killbill.billing.plugin.toss.metrics.TossOperation;
+
+/**
+ * Runs Toss calls through per-{@link TossRequestLane} limiters.
+ *
+ * <p>The interactive lane capacity is reserved: background calls never use it, however many are queued.</p>
+ */
+public class TossRequestLanes {
+
+    public static final int DEFAULT_INTERACTIVE_CONCURRENCY = 32;
+    public static final int DEFAULT_INTERACTIVE_QUEUE = 64;
+    public static final int DEFAULT_INTERACTIVE_MAX_WAIT_MILLIS = 2000;
+    public static final int DEFAULT_BACKGROUND_CONCURRENCY = 8;
+    public static final int DEFAULT_BACKGROUND_QUEUE = 512;
+    public static final int DEFAULT_BACKGROUND_MAX_WAIT_MILLIS = 60000;
+
+    /**
+     * A call to the Toss API.
+     */
+    @FunctionalInterface
+    public interface TossCall<T> {
+
+        T call() throws IOException, InterruptedException;
+    }
+
+    private final Map<TossRequestLane, TossLaneLimiter> limiters = new EnumMap<>(TossRequestLane.class);
+    private final TossMetrics metrics;
+    private final Set<TossInFlightCall> inFlightCalls = ConcurrentHashMap.newKeySet();
+
+    public TossRequestLanes() {
+        this(new TossLaneLimiter(TossRequestLane.INTERACTIVE, DEFAULT_INTERACTIVE_CONCURRENCY, DEFAULT_INTERACTIVE_QUEUE, DEFAULT_INTERACTIVE_MAX_WAIT_MILLIS),
+             new TossLaneLimiter(TossRequestLane.BACKGROUND, DEFAULT_BACKGROUND_CONCURRENCY, DEFAULT_BACKGROUND_QUEUE, DEFAULT_BACKGROUND_MAX_WAIT_MILLIS));
+    }
+
+    public TossRequestLanes(final TossLaneLimiter interactive, final TossLaneLimiter background) {
+        this(interactive, background, new TossMetrics());
+    }
+
+    /**
+     * @param metrics where the latency of the calls is recorded
+     */
+    public TossRequestLanes(final TossLaneLimiter interactive, final TossLaneLimiter background, final TossMetrics metrics) {
+        limiters.put(TossRequestLane.INTERACTIVE, interactive);
+        limiters.put(TossRequestLane.BACKGROUND, background);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Run a call once a slot is available in the lane.
+     *
+     * @param lane the lane to run the call in
+     * @param call the Toss call
+     * @return the result of the call
+     * @throws TossLaneRejectedException if the call could not be admitted, the request was not sent
+     * @throws IOException if an I/O error occurs
+     * @throws InterruptedException if interrupted while queued or during the call
+     */
+    public <T> T execute(final TossRequestLane lane, final TossCall<T> call) throws IOException, InterruptedException {
+        return execute(lane, null, null, call);
+    }
+
+    /**
+     * Run a call once a slot is available in the lane, and record its latency (excluding the time queued).
+     *
+     * @param lane the lane to run the call in
+     * @param operation the Toss endpoint called, null to not record the call
+     * @param kbTenantId the tenant the call is made for
+     * @param call the Toss call
+     * @return the result of the call
+     * @throws TossLaneRejectedException if the call could not be admitted, the request was not sent
+     * @throws IOException if an I/O error occurs
+     * @throws InterruptedException if interrupted while queued or during the call
+     */
+    public <T> T execute(final TossRequestLane lane,
+                         @Nullable final TossOperation operation,
+                         @Nullable final UUID kbTenantId,
+                         final TossCall<T> call) throws IOException, InterruptedException {
+        final TossLaneLimiter limiter = limiters.get(lane);
+        limiter.acquire();
+        final long startNanos = System.nanoTime();
+        final TossInFlightCall inFlightCall = new TossInFlightCall(lane, operation, kbTenantId, Thread.currentThread().getName(), startNanos);
+        inFlightCalls.add(inFlightCall);
+        try {
+            final T result = call.call();
+            if (operation != null) {
+                metrics.recordSuccess(operation, kbTenantId, statusOf(result), System.nanoTime() - startNanos);
+            }
+            return result;
+        } catch (final IOException | InterruptedException | RuntimeException e) {
+            if (operation != null) {
+                metrics.recordFailure(operation, kbTenantId, e, System.nanoTime() - startNanos);
+            }
+            throw e;
+        } finally {
+            inFlightCalls.remove(inFlightCall);
+            limiter.release();
+        }
+    }
+
+    /**
+     * @return the calls admitted and not completed yet, oldest first
+     */
+    public List<TossInFlightCall> getInFlightCalls() {
+        final List<TossInFlightCall> calls = new ArrayList<>(inFlightCalls);
+        calls.sort(Comparator.comparingLong(TossInFlightCall::getStartNanos));
+        return calls;
+    }
+
+    private static String statusOf(@Nullable final Object result) {
+        if (result instanceof TossPayment && ((TossPayment) result).getStatus() != null) {
+            return ((TossPayment) result).getStatus();
+        }
+        return TossMetrics.STATUS_OK;
+    }
+
+    /**
+     * @return the maximum number of calls in flight or waiting at once, all lanes included
+     */
+    public int getCapacity() {
+        int capacity = 0;
+        for (final TossLaneLimiter limiter : limiters.values()) {
+            capacity += limiter.getCapacity();
+        }
+        return capacity;
+    }
+
+    public TossLaneStats getStats(final TossRequestLane lane) {
+        return limiters.get(lane).getStats();
+    }
+
+    public List<TossLaneStats> getStats() {
+        final List<TossLaneStats> stats = new ArrayList<>();
+        for (final TossLaneLimiter limiter : limiters.values()) {
+            stats.add(limiter.getStats());
+        }
+        return stats;
+    }
+}
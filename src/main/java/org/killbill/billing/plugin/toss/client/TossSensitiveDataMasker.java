@@ -0,0 +1,223 @@
+package org.killbill.billing.plugin.toss.client;
+
+import javax.annotation.Nullable;
+
+/**
+ * Masks card numbers, billing keys and secret keys in free text (Toss error messages, log arguments).
+ *
+ * <p>The text is scanned once, without regular expressions, and is returned as is (no copy) when there
+ * is nothing to mask, which is the common case on error storms.</p>
+ *
+ * <ul>
+ *     <li>any run of {@value #MIN_CARD_DIGITS} digits or more, optionally separated by single spaces or dashes,
+ *     has all its digits masked: runs longer than 19 digits are masked too, so that a PAN cannot hide in them;</li>
+ *     <li>secret keys ({@code test_sk_}, {@code live_sk_}, {@code test_gsk_}, {@code live_gsk_}) keep their prefix only;</li>
+ *     <li>values labelled {@code billingKey} (as in {@code billingKey=...} or {@code "billingKey":"..."}) are masked
+ *     with {@link #maskKey(String)};</li>
+ *     <li>{@code Basic} credentials, which encode the secret key, are masked entirely.</li>
+ * </ul>
+ */
+public final class TossSensitiveDataMasker {
+
+    public static final int MIN_CARD_DIGITS = 13;
+
+    private static final String MASK = "****";
+    private static final char MASK_CHAR = '*';
+    private static final int KEY_VISIBLE_CHARS = 4;
+
+    private static final String[] SECRET_KEY_PREFIXES = {"test_sk_", "live_sk_", "test_gsk_", "live_gsk_"};
+    private static final String BILLING_KEY_LABEL = "billingKey";
+    private static final String BASIC_CREDENTIALS = "Basic ";
+
+    private TossSensitiveDataMasker() {
+    }
+
+    /**
+     * @return the message with all sensitive data masked, or the message itself if it contains none
+     */
+    public static String mask(@Nullable final String message) {
+        if (message == null) {
+            return null;
+        }
+
+        final int length = message.length();
+        StringBuilder masked = null;
+        // Index up to which the message was copied to masked
+        int copied = 0;
+        int i = 0;
+        while (i < length) {
+            final char c = message.charAt(i);
+            if (isDigit(c)) {
+                final int end = cardNumberEnd(message, i);
+                if (end > 0) {
+                    masked = copy(masked, message, copied, i);
+                    for (int j = i; j < end; j++) {
+                        final char d = message.charAt(j);
+                        masked.append(isDigit(d) ? MASK_CHAR : d);
+                    }
+                    copied = end;
+                    i = end;
+                } else {
+                    // Skip the whole run: its tail is not a card number either
+                    i = digitRunEnd(message, i);
+                }
+                continue;
+            }
+
+            if (c == 't' || c == 'l') {
+                final int prefixEnd = secretKeyPrefixEnd(message, i);
+                final int end = prefixEnd > 0 ? tokenEnd(message, prefixEnd) : -1;
+                if (end > prefixEnd) {
+                    masked = copy(masked, message, copied, prefixEnd).append(MASK);
+                    copied = end;
+                    i = end;
+                    continue;
+                }
+            } else if (c == 'b' || c == 'B') {
+                final int valueStart = labelledValueStart(message, i);
+                final int end = valueStart > 0 ? tokenEnd(message, valueStart) : -1;
+                if (end > valueStart) {
+                    masked = copy(masked, message, copied, valueStart).append(maskKey(message.substring(valueStart, end)));
+                    copied = end;
+                    i = end;
+                    continue;
+                }
+                if (message.startsWith(BASIC_CREDENTIALS, i)) {
+                    final int credentialsStart = i + BASIC_CREDENTIALS.length();
+                    final int credentialsEnd = tokenEnd(message, credentialsStart);
+                    if (credentialsEnd > credentialsStart) {
+                        masked = copy(masked, message, copied, credentialsStart).append(MASK);
+                        copied = credentialsEnd;
+                        i = credentialsEnd;
+                        continue;
+                    }
+                }
+            }
+            i++;
+        }
+
+        if (masked == null) {
+            return message;
+        }
+        return masked.append(message, copied, length).toString();
+    }
+
+    /**
+     * Mask a key known to be sensitive (billing key, customer key, ...), keeping its first and last characters
+     * for troubleshooting.
+     */
+    public static String maskKey(@Nullable final String key) {
+        if (key == null || key.length() <= 2 * KEY_VISIBLE_CHARS) {
+            return MASK;
+        }
+        return key.substring(0, KEY_VISIBLE_CHARS) + MASK + key.substring(key.length() - KEY_VISIBLE_CHARS);
+    }
+
+    /**
+     * Wrap a log argument: it is only converted to a (masked) string if the log statement is enabled.
+     */
+    public static Object masked(@Nullable final Object argument) {
+        return new MaskedArgument(argument);
+    }
+
+    // Returns the end of the card number starting at start, -1 if the digit run is too short
+    private static int cardNumberEnd(final String message, final int start) {
+        final int length = message.length();
+        int digits = 0;
+        int end = start;
+        int i = start;
+        while (i < length) {
+            final char c = message.charAt(i);
+            if (isDigit(c)) {
+                digits++;
+                i++;
+                end = i;
+            } else if (isSeparator(c) && i + 1 < length && isDigit(message.charAt(i + 1))) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return digits >= MIN_CARD_DIGITS ? end : -1;
+    }
+
+    private static int digitRunEnd(final String message, final int start) {
+        int i = start;
+        while (i < message.length() && isDigit(message.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int secretKeyPrefixEnd(final String message, final int start) {
+        for (final String prefix : SECRET_KEY_PREFIXES) {
+            if (message.startsWith(prefix, start)) {
+                return start + prefix.length();
+            }
+        }
+        return -1;
+    }
+
+    // Returns the start of the value of billingKey=..., "billingKey": "...", ... or -1 if there is no such label
+    private static int labelledValueStart(final String message, final int start) {
+        if (!message.regionMatches(true, start, BILLING_KEY_LABEL, 0, BILLING_KEY_LABEL.length())) {
+            return -1;
+        }
+        boolean assigned = false;
+        int i = start + BILLING_KEY_LABEL.length();
+        while (i < message.length()) {
+            final char c = message.charAt(i);
+            if (c == '=' || c == ':') {
+                if (assigned) {
+                    return -1;
+                }
+                assigned = true;
+            } else if (c != ' ' && c != '"' && c != '\'') {
+                break;
+            }
+            i++;
+        }
+        return assigned ? i : -1;
+    }
+
+    // Billing and secret keys are base64 (URL safe or not) strings
+    private static int tokenEnd(final String message, final int start) {
+        int i = start;
+        while (i < message.length()) {
+            final char c = message.charAt(i);
+            if (!isDigit(c) && !(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z') &&
+                c != '_' && c != '-' && c != '+' && c != '/' && c != '=') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static StringBuilder copy(@Nullable final StringBuilder masked, final String message, final int from, final int to) {
+        final StringBuilder builder = masked == null ? new StringBuilder(message.length()) : masked;
+        return builder.append(message, from, to);
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSeparator(final char c) {
+        return c == ' ' || c == '-';
+    }
+
+    private static final class MaskedArgument {
+
+        private final Object argument;
+
+        private MaskedArgument(@Nullable final Object argument) {
+            this.argument = argument;
+        }
+
+        @Override
+        public String toString() {
+            return argument == null ? "null" : mask(argument.toString());
+        }
+    }
+}
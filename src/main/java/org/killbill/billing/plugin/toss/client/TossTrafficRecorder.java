@@ -0,0 +1,330 @@
+package org.killbill.billing.plugin.toss.client;
+
+import org.killbill.billing.plugin.toss.metrics.TossOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Opt-in recording of the Toss traffic, to replay the arrival pattern of a peak day against a stub (capacity planning).
+ *
+ * <p>Each call is a fixed-size record: start time, operation, HTTP status, outcome, request and response sizes
+ * and latency. Neither the keys, the amounts nor the bodies are recorded, so the file holds no secret or card data.
+ * The file is a memory-mapped ring of {@code capacity} records: once full, the oldest records are overwritten.</p>
+ */
+public class TossTrafficRecorder implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TossTrafficRecorder.class);
+
+    private static final long MAGIC = 0x544F535354524146L; // TOSSTRAF
+    private static final int VERSION = 1;
+    // magic, version, capacity, number of records written
+    private static final int HEADER_SIZE = 24;
+    private static final int COUNT_OFFSET = 16;
+    // start (epoch micros), latency (micros), request bytes, response bytes, HTTP status, operation, outcome
+    private static final int RECORD_SIZE = 24;
+
+    // Codes of the operations in the file: append only
+    private static final TossOperation[] OPERATIONS = {TossOperation.CONFIRM_PAYMENT,
+                                                       TossOperation.CANCEL_PAYMENT,
+                                                       TossOperation.GET_PAYMENT,
+                                                       TossOperation.ISSUE_BILLING_KEY,
+                                                       TossOperation.BILLING_KEY_PAYMENT};
+
+    /**
+     * How a call ended. Codes in the file are the ordinals: append only.
+     */
+    public enum Outcome {
+
+        /** 2xx */
+        SUCCESS,
+        /** 4xx, e.g. a declined card */
+        CLIENT_ERROR,
+        /** 5xx */
+        SERVER_ERROR,
+        /** no complete response within the read timeout */
+        TIMEOUT,
+        /** connection failure or reset */
+        IO_ERROR,
+        /** the calling thread was interrupted */
+        INTERRUPTED
+    }
+
+    /**
+     * A recorded call.
+     */
+    public static final class Entry {
+
+        private final long startEpochMicros;
+        private final TossOperation operation;
+        private final Outcome outcome;
+        private final int httpStatus;
+        private final int requestBytes;
+        private final int responseBytes;
+        private final int latencyMicros;
+
+        public Entry(final long startEpochMicros,
+                     final TossOperation operation,
+                     final Outcome outcome,
+                     final int httpStatus,
+                     final int requestBytes,
+                     final int responseBytes,
+                     final int latencyMicros) {
+            this.startEpochMicros = startEpochMicros;
+            this.operation = operation;
+            this.outcome = outcome;
+            this.httpStatus = httpStatus;
+            this.requestBytes = requestBytes;
+            this.responseBytes = responseBytes;
+            this.latencyMicros = latencyMicros;
+        }
+
+        public long getStartEpochMicros() {
+            return startEpochMicros;
+        }
+
+        public TossOperation getOperation() {
+            return operation;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * @return the HTTP status, 0 if no response was received
+         */
+        public int getHttpStatus() {
+            return httpStatus;
+        }
+
+        public int getRequestBytes() {
+            return requestBytes;
+        }
+
+        public int getResponseBytes() {
+            return responseBytes;
+        }
+
+        public int getLatencyMicros() {
+            return latencyMicros;
+        }
+
+        @Override
+        public String toString() {
+            return Instant.EPOCH.plus(startEpochMicros, ChronoUnit.MICROS) + " " + operation.getTag() + " " + outcome + " " + httpStatus +
+                   " " + requestBytes + "B/" + responseBytes + "B " + latencyMicros + "us";
+        }
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    // Guards the buffer content and the count
+    private final ReentrantLock lock = new ReentrantLock();
+    private long count;
+    private volatile boolean failed;
+
+    private TossTrafficRecorder(final Path file, final FileChannel channel, final MappedByteBuffer buffer, final int capacity, final long count) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.count = count;
+    }
+
+    /**
+     * Open (or create) a recording. An existing recording of the same capacity is continued.
+     *
+     * @param file the recording file
+     * @param capacity number of records kept
+     * @throws IOException if the file cannot be mapped, or is a recording of another capacity
+     */
+    public static TossTrafficRecorder open(final Path file, final int capacity) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // Checked before mapping, which would grow the file
+            final boolean created = channel.size() == 0;
+            if (!created) {
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                if (channel.read(header, 0) < HEADER_SIZE || header.getLong(0) != MAGIC || header.getInt(8) != VERSION || header.getInt(12) != capacity) {
+                    throw new IOException("Not a Toss traffic recording of " + capacity + " records: " + file);
+                }
+            }
+
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+            final long count;
+            if (created) {
+                buffer.putLong(0, MAGIC);
+                buffer.putInt(8, VERSION);
+                buffer.putInt(12, capacity);
+                buffer.putLong(COUNT_OFFSET, 0);
+                count = 0;
+            } else {
+                count = buffer.getLong(COUNT_OFFSET);
+            }
+            return new TossTrafficRecorder(file, channel, buffer, capacity, count);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read a recording.
+     *
+     * @return the recorded calls, oldest first
+     * @throws IOException if the file cannot be read, or is not a recording
+     */
+    public static List<Entry> read(final Path file) throws IOException {
+        final byte[] bytes = Files.readAllBytes(file);
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length < HEADER_SIZE || buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION) {
+            throw new IOException("Not a Toss traffic recording: " + file);
+        }
+        final int capacity = buffer.getInt(12);
+        final long count = buffer.getLong(COUNT_OFFSET);
+        if (capacity <= 0 || bytes.length < HEADER_SIZE + (long) capacity * RECORD_SIZE) {
+            throw new IOException("Truncated Toss traffic recording: " + file);
+        }
+
+        final int size = (int) Math.min(count, capacity);
+        final List<Entry> entries = new ArrayList<>(size);
+        for (long sequence = count - size; sequence < count; sequence++) {
+            final int position = HEADER_SIZE + (int) (sequence % capacity) * RECORD_SIZE;
+            final int operation = buffer.get(position + 22);
+            final int outcome = buffer.get(position + 23);
+            if (operation < 0 || operation >= OPERATIONS.length || outcome < 0 || outcome >= Outcome.values().length) {
+                // Written by a newer version
+                continue;
+            }
+            entries.add(new Entry(buffer.getLong(position),
+                                  OPERATIONS[operation],
+                                  Outcome.values()[outcome],
+                                  buffer.getShort(position + 20) & 0xFFFF,
+                                  buffer.getInt(position + 12),
+                                  buffer.getInt(position + 16),
+                                  buffer.getInt(position + 8)));
+        }
+        // Calls are recorded when they end
+        entries.sort((a, b) -> Long.compare(a.getStartEpochMicros(), b.getStartEpochMicros()));
+        return entries;
+    }
+
+    /**
+     * Record a call. Never throws: a recording failure is logged once and the recording stops.
+     */
+    public void record(final Entry entry) {
+        if (failed) {
+            return;
+        }
+        final int code = operationCode(entry.getOperation());
+        if (code < 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            final int position = HEADER_SIZE + (int) (count % capacity) * RECORD_SIZE;
+            buffer.putLong(position, entry.getStartEpochMicros());
+            buffer.putInt(position + 8, entry.getLatencyMicros());
+            buffer.putInt(position + 12, entry.getRequestBytes());
+            buffer.putInt(position + 16, entry.getResponseBytes());
+            buffer.putShort(position + 20, (short) entry.getHttpStatus());
+            buffer.put(position + 22, (byte) code);
+            buffer.put(position + 23, (byte) entry.getOutcome().ordinal());
+            // Written last: the record is only read back once counted
+            buffer.putLong(COUNT_OFFSET, ++count);
+        } catch (final RuntimeException e) {
+            failed = true;
+            logger.warn("Failed to record Toss traffic, recording stopped: file={}", file, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the outcome of a call that failed with {@code e}
+     */
+    public static Outcome outcomeOf(final Exception e) {
+        if (e instanceof HttpTimeoutException) {
+            return Outcome.TIMEOUT;
+        } else if (e instanceof InterruptedException) {
+            return Outcome.INTERRUPTED;
+        }
+        return Outcome.IO_ERROR;
+    }
+
+    /**
+     * @return the outcome of a call answered with {@code httpStatus}
+     */
+    public static Outcome outcomeOf(final int httpStatus) {
+        if (httpStatus >= 500) {
+            return Outcome.SERVER_ERROR;
+        } else if (httpStatus >= 400) {
+            return Outcome.CLIENT_ERROR;
+        }
+        return Outcome.SUCCESS;
+    }
+
+    /**
+     * @return the current time, as recorded
+     */
+    public static long nowEpochMicros() {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return number of calls recorded since the file was created (the file keeps the last {@code capacity})
+     */
+    public long getCount() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            buffer.force();
+        } finally {
+            lock.unlock();
+        }
+        channel.close();
+    }
+
+    private static int operationCode(final TossOperation operation) {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            if (OPERATIONS[i] == operation) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
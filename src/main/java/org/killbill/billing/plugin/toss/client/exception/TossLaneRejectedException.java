@@ -0,0 +1,23 @@
+package org.killbill.billing.plugin.toss.client.exception;
+
+import org.killbill.billing.plugin.toss.client.TossRequestLane;
+
+/**
+ * Thrown when a call is not admitted to its lane (queue full or maximum wait elapsed).
+ * The request was never sent to Toss, so it is always safe to retry.
+ */
+public class TossLaneRejectedException extends RuntimeException {
+
+    public static final String ERROR_CODE = "LANE_SATURATED";
+
+    private final TossRequestLane lane;
+
+    public TossLaneRejectedException(final TossRequestLane lane, final String message) {
+        super(message);
+        this.lane = lane;
+    }
+
+    public TossRequestLane getLane() {
+        return lane;
+    }
+}
@@ -1,5 +1,6 @@
 package org.killbill.billing.plugin.toss.client.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -37,12 +38,13 @@ public class BillingKeyPaymentRequest {
         this(amount, orderId, orderName, customerKey, null, null);
     }
 
-    public BillingKeyPaymentRequest(final Long amount,
-                                    final String orderId,
-                                    final String orderName,
-                                    final String customerKey,
-                                    final String customerEmail,
-                                    final String customerName) {
+    @JsonCreator
+    public BillingKeyPaymentRequest(@JsonProperty("amount") final Long amount,
+                                    @JsonProperty("orderId") final String orderId,
+                                    @JsonProperty("orderName") final String orderName,
+                                    @JsonProperty("customerKey") final String customerKey,
+                                    @JsonProperty("customerEmail") final String customerEmail,
+                                    @JsonProperty("customerName") final String customerName) {
         this.amount = amount;
         this.orderId = orderId;
         this.orderName = orderName;
@@ -0,0 +1,117 @@
+package org.killbill.billing.plugin.toss.client.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * A Toss payment response backed by its raw bytes.
+ *
+ * The fields of the {@link TossPaymentSummary} are available right away; the full object graph
+ * (card, easyPay, cancels, ...) is bound from the raw bytes on first access of any other field.
+ */
+public class LazyTossPayment extends TossPayment {
+
+    private final TossPaymentSummary summary;
+    private final byte[] rawResponse;
+    private final ObjectMapper objectMapper;
+
+    private volatile TossPayment full;
+
+    public LazyTossPayment(TossPaymentSummary summary, byte[] rawResponse, ObjectMapper objectMapper) {
+        super(null,
+              summary.getPaymentKey(),
+              null,
+              summary.getOrderId(),
+              null,
+              null,
+              summary.getCurrency(),
+              summary.getMethod(),
+              summary.getTotalAmount(),
+              null,
+              summary.getStatus(),
+              null,
+              null,
+              null,
+              null,
+              null,
+              null,
+              null,
+              null,
+              null,
+              null,
+              null,
+              null,
+              null);
+        this.summary = summary;
+        this.rawResponse = rawResponse;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Parse a Toss payment response, binding only its summary.
+     */
+    public static LazyTossPayment parse(byte[] rawResponse, ObjectMapper objectMapper) throws IOException {
+        return new LazyTossPayment(TossPaymentSummary.parse(rawResponse), rawResponse, objectMapper);
+    }
+
+    @JsonIgnore
+    public TossPaymentSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * @return the response body, exactly as sent by Toss (not to be modified)
+     */
+    @JsonIgnore
+    public byte[] getRawResponse() {
+        return rawResponse;
+    }
+
+    /**
+     * @return true if the full object graph has been bound
+     */
+    @JsonIgnore
+    public boolean isMaterialized() {
+        return full != null;
+    }
+
+    private TossPayment full() {
+        TossPayment payment = full;
+        if (payment == null) {
+            synchronized (this) {
+                payment = full;
+                if (payment == null) {
+                    try {
+                        payment = objectMapper.readValue(rawResponse, TossPayment.class);
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException("Failed to parse Toss payment " + summary.getPaymentKey(), e);
+                    }
+                    full = payment;
+                }
+            }
+        }
+        return payment;
+    }
+
+    @Override public String getVersion() { return full().getVersion(); }
+    @Override public String getType() { return full().getType(); }
+    @Override public String getOrderName() { return full().getOrderName(); }
+    @Override public String getMId() { return full().getMId(); }
+    @Override public Long getBalanceAmount() { return full().getBalanceAmount(); }
+    @Override public String getRequestedAt() { return full().getRequestedAt(); }
+    @Override public String getApprovedAt() { return full().getApprovedAt(); }
+    @Override public Boolean getUseEscrow() { return full().getUseEscrow(); }
+    @Override public String getTransactionKey() { return full().getTransactionKey(); }
+    @Override public String getLastTransactionKey() { return full().getLastTransactionKey(); }
+    @Override public Long getSuppliedAmount() { return full().getSuppliedAmount(); }
+    @Override public Long getVat() { return full().getVat(); }
+    @Override public Long getTaxFreeAmount() { return full().getTaxFreeAmount(); }
+    @Override public List<TossCancel> getCancels() { return full().getCancels(); }
+    @Override public TossCard getCard() { return full().getCard(); }
+    @Override public TossReceipt getReceipt() { return full().getReceipt(); }
+    @Override public TossEasyPay getEasyPay() { return full().getEasyPay(); }
+    @Override public TossError getFailure() { return full().getFailure(); }
+}
@@ -0,0 +1,184 @@
+package org.killbill.billing.plugin.toss.client.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The few fields of a Toss payment read on the purchase, refund and sync paths.
+ *
+ * Parsed with a streaming parser straight from the response bytes: nested objects other than
+ * receipt, card and cancels are skipped without being bound.
+ */
+public class TossPaymentSummary {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String paymentKey;
+    private final String orderId;
+    private final String status;
+    private final String method;
+    private final Long totalAmount;
+    private final String currency;
+    private final String receiptUrl;
+    private final String latestCancelTransactionKey;
+
+    public TossPaymentSummary(String paymentKey,
+                              String orderId,
+                              String status,
+                              String method,
+                              Long totalAmount,
+                              String currency,
+                              String receiptUrl,
+                              String latestCancelTransactionKey) {
+        this.paymentKey = paymentKey;
+        this.orderId = orderId;
+        this.status = status;
+        this.method = method;
+        this.totalAmount = totalAmount;
+        this.currency = currency;
+        this.receiptUrl = receiptUrl;
+        this.latestCancelTransactionKey = latestCancelTransactionKey;
+    }
+
+    /**
+     * Summary of a payment, without materializing the full object graph of a {@link LazyTossPayment}.
+     */
+    public static TossPaymentSummary of(TossPayment payment) {
+        if (payment instanceof LazyTossPayment) {
+            return ((LazyTossPayment) payment).getSummary();
+        }
+
+        String receiptUrl = null;
+        if (payment.getReceipt() != null) {
+            receiptUrl = payment.getReceipt().getUrl();
+        } else if (payment.getCard() != null) {
+            receiptUrl = payment.getCard().getReceiptUrl();
+        }
+        final List<TossPayment.TossCancel> cancels = payment.getCancels();
+        final String latestCancelTransactionKey = cancels == null || cancels.isEmpty() ? null : cancels.get(cancels.size() - 1).getTransactionKey();
+
+        return new TossPaymentSummary(payment.getPaymentKey(),
+                                      payment.getOrderId(),
+                                      payment.getStatus(),
+                                      payment.getMethod(),
+                                      payment.getTotalAmount(),
+                                      payment.getCurrency(),
+                                      receiptUrl,
+                                      latestCancelTransactionKey);
+    }
+
+    /**
+     * Parse the summary of a Toss payment response.
+     *
+     * @param json the response body
+     * @return the summary
+     * @throws IOException if the body is not a JSON object
+     */
+    public static TossPaymentSummary parse(byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object for a Toss payment");
+            }
+
+            String paymentKey = null;
+            String orderId = null;
+            String status = null;
+            String method = null;
+            Long totalAmount = null;
+            String currency = null;
+            String receiptUrl = null;
+            String cardReceiptUrl = null;
+            String latestCancelTransactionKey = null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.getCurrentName();
+                final JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "paymentKey":
+                        paymentKey = parser.getValueAsString();
+                        break;
+                    case "orderId":
+                        orderId = parser.getValueAsString();
+                        break;
+                    case "status":
+                        status = parser.getValueAsString();
+                        break;
+                    case "method":
+                        method = parser.getValueAsString();
+                        break;
+                    case "totalAmount":
+                        totalAmount = token == JsonToken.VALUE_NULL ? null : parser.getValueAsLong();
+                        break;
+                    case "currency":
+                        currency = parser.getValueAsString();
+                        break;
+                    case "receipt":
+                        receiptUrl = readStringField(parser, "url");
+                        break;
+                    case "card":
+                        cardReceiptUrl = readStringField(parser, "receiptUrl");
+                        break;
+                    case "cancels":
+                        if (token == JsonToken.START_ARRAY) {
+                            JsonToken element;
+                            while ((element = parser.nextToken()) != JsonToken.END_ARRAY && element != null) {
+                                if (element == JsonToken.START_OBJECT) {
+                                    latestCancelTransactionKey = readObjectField(parser, "transactionKey");
+                                } else {
+                                    parser.skipChildren();
+                                }
+                            }
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+
+            return new TossPaymentSummary(paymentKey,
+                                          orderId,
+                                          status,
+                                          method,
+                                          totalAmount,
+                                          currency,
+                                          receiptUrl != null ? receiptUrl : cardReceiptUrl,
+                                          latestCancelTransactionKey);
+        }
+    }
+
+    // Parser on the value of a field: string field of that value if it is an object, null otherwise
+    private static String readStringField(JsonParser parser, String name) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        return readObjectField(parser, name);
+    }
+
+    // Parser on START_OBJECT: consumes the object and returns the string value of the given field
+    private static String readObjectField(JsonParser parser, String name) throws IOException {
+        String value = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+            if (name.equals(field)) {
+                value = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return value;
+    }
+
+    public String getPaymentKey() { return paymentKey; }
+    public String getOrderId() { return orderId; }
+    public String getStatus() { return status; }
+    public String getMethod() { return method; }
+    public Long getTotalAmount() { return totalAmount; }
+    public String getCurrency() { return currency; }
+    public String getReceiptUrl() { return receiptUrl; }
+    public String getLatestCancelTransactionKey() { return latestCancelTransactionKey; }
+}
@@ -1,19 +1,42 @@
 package org.killbill.billing.plugin.toss.core;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
 import java.util.Hashtable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServlet;
 
 import org.killbill.billing.osgi.api.Healthcheck;
 import org.killbill.billing.osgi.api.OSGIPluginProperties;
 import org.killbill.billing.osgi.libs.killbill.KillbillActivatorBase;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
+import org.killbill.billing.plugin.api.notification.PluginConfigurationEventHandler;
+import org.killbill.billing.plugin.core.resources.jooby.PluginApp;
+import org.killbill.billing.plugin.core.resources.jooby.PluginAppBuilder;
+import org.killbill.billing.plugin.toss.api.TossPaymentLocks;
 import org.killbill.billing.plugin.toss.api.TossPaymentPluginApi;
 import org.killbill.billing.plugin.toss.client.TossClient;
 import org.killbill.billing.plugin.toss.client.TossClientImpl;
+import org.killbill.billing.plugin.toss.client.TossLaneLimiter;
+import org.killbill.billing.plugin.toss.client.TossRequestLane;
+import org.killbill.billing.plugin.toss.client.TossRequestLanes;
+import org.killbill.billing.plugin.toss.client.TossTrafficRecorder;
 import org.killbill.billing.plugin.toss.dao.TossDao;
+import org.killbill.billing.plugin.toss.dao.TossResponseJournal;
+import org.killbill.billing.plugin.toss.metrics.TossMetrics;
 import org.osgi.framework.BundleContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 public class TossActivator extends KillbillActivatorBase {
 
     private static final Logger logger = LoggerFactory.getLogger(TossActivator.class);
@@ -21,37 +44,233 @@ public class TossActivator extends KillbillActivatorBase {
     public static final String PLUGIN_NAME = "killbill-toss";
 
     private TossConfigurationHandler configurationHandler;
+    private TossPaymentPluginApi pluginApi;
+    private TossResponseJournal responseJournal;
+    private TossTrafficRecorder trafficRecorder;
+    private ScheduledExecutorService journalReplayExecutor;
+    private ScheduledExecutorService healthProbeExecutor;
+    private TossMetrics metrics;
 
     @Override
     public void start(final BundleContext context) throws Exception {
         super.start(context);
         logger.info("TossPluginActivator starting");
 
-        configurationHandler = new TossConfigurationHandler(PLUGIN_NAME, killbillAPI);
+        // Process-wide, like the journal: read from the global configuration before the tenant clients are built
+        trafficRecorder = openTrafficRecorder(new TossConfigProperties(configProperties.getProperties()));
+
+        // Each tenant configuration gets its own client, with its own timeouts
+        configurationHandler = new TossConfigurationHandler(PLUGIN_NAME,
+                                                            killbillAPI,
+                                                            config -> new TossClientImpl(config.getBaseUrl(),
+                                                                                         config.getConnectionTimeout(),
+                                                                                         config.getReadTimeout(),
+                                                                                         trafficRecorder));
 
         final TossConfigProperties globalConfiguration =
             configurationHandler.createConfigurable(configProperties.getProperties());
         configurationHandler.setDefaultConfigurable(globalConfiguration);
+        // Reloads the configuration (and runtime) of a tenant on TENANT_CONFIG_CHANGE and TENANT_CONFIG_DELETION
+        dispatcher.registerEventHandlers(new PluginConfigurationEventHandler(configurationHandler));
+
+        metrics = new TossMetrics();
+        registerMetrics(context, metrics);
 
-        final TossDao dao = new TossDao(dataSource.getDataSource());
-        final TossClient tossClient = new TossClientImpl();
+        final TossDao dao = new TossDao(dataSource.getDataSource(),
+                                        globalConfiguration.isStoreRawResponses(),
+                                        globalConfiguration.isCompressRawResponses(),
+                                        metrics);
+        // Same timeouts as TossClientImpl(baseUrl): 10s to connect, no read timeout
+        final TossClient tossClient = new TossClientImpl(globalConfiguration.getBaseUrl(), 10000, 0, trafficRecorder);
+        final TossRequestLanes requestLanes = new TossRequestLanes(
+            new TossLaneLimiter(TossRequestLane.INTERACTIVE,
+                                globalConfiguration.getInteractiveLaneConcurrency(),
+                                globalConfiguration.getInteractiveLaneQueue(),
+                                globalConfiguration.getInteractiveLaneMaxWait()),
+            new TossLaneLimiter(TossRequestLane.BACKGROUND,
+                                globalConfiguration.getBackgroundLaneConcurrency(),
+                                globalConfiguration.getBackgroundLaneQueue(),
+                                globalConfiguration.getBackgroundLaneMaxWait()),
+            metrics);
+        final TossPaymentLocks paymentLocks = new TossPaymentLocks(globalConfiguration.getPaymentLockTimeout(),
+                                                                   globalConfiguration.isDistributedLockEnabled() ? dao : null);
+        if (paymentLocks.isDistributed()) {
+            // Each operation holds a connection for its advisory lock while it waits for its lane and calls Toss
+            logger.info("Distributed payment locks enabled: the database pool must allow more than {} connections (capacity of the request lanes)",
+                        requestLanes.getCapacity());
+        }
 
-        final TossHealthcheck healthcheck = new TossHealthcheck(configurationHandler);
+        responseJournal = openResponseJournal(globalConfiguration);
+        if (responseJournal != null) {
+            // Replay the responses that could not be saved, including those left by a previous run
+            final TossDao replayDao = dao;
+            journalReplayExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("toss-journal-replay-%d")
+                                                                                                         .setDaemon(true)
+                                                                                                         .build());
+            journalReplayExecutor.scheduleWithFixedDelay(() -> {
+                                                             if (responseJournal.getDepth() > 0) {
+                                                                 responseJournal.replay(replayDao);
+                                                             }
+                                                         },
+                                                         0,
+                                                         globalConfiguration.getJournalReplayInterval(),
+                                                         TimeUnit.MILLISECONDS);
+        }
+
+        final TossHealthProber healthProber = startHealthProber(globalConfiguration, dao);
+        final TossHealthcheck healthcheck = new TossHealthcheck(configurationHandler, responseJournal, healthProber);
         registerHealthcheck(context, healthcheck);
 
-        final TossPaymentPluginApi pluginApi = new TossPaymentPluginApi(
-            killbillAPI, configProperties, clock.getClock(), dao, configurationHandler, tossClient);
+        pluginApi = new TossPaymentPluginApi(
+            killbillAPI, configProperties, clock.getClock(), dao, configurationHandler, tossClient, requestLanes, paymentLocks, responseJournal);
         registerPaymentPluginApi(context, pluginApi);
 
+        // Complete the first purchases interrupted by a previous shutdown, without delaying the startup
+        pluginApi.startBillingIntentRecovery(clock.getClock().getUTCNow());
+
+        final PluginApp pluginApp = new PluginAppBuilder(PLUGIN_NAME,
+                                                         killbillAPI,
+                                                         dataSource,
+                                                         super.clock,
+                                                         configProperties).withRouteClass(TossBatchChargeServlet.class)
+                                                                          .withRouteClass(TossRequestLanesServlet.class)
+                                                                          .withRouteClass(TossPaymentLocksServlet.class)
+                                                                          .withRouteClass(TossMetricsServlet.class)
+                                                                          .withService(pluginApi)
+                                                                          .withService(requestLanes)
+                                                                          .withService(paymentLocks)
+                                                                          .withService(metrics)
+                                                                          .withService(configurationHandler)
+                                                                          .withService(clock)
+                                                                          .build();
+        final HttpServlet httpServlet = PluginApp.createServlet(pluginApp);
+        registerServlet(context, httpServlet);
+
         logger.info("TossPluginActivator started successfully");
     }
 
+    @Override
+    public void stop(final BundleContext context) throws Exception {
+        if (pluginApi != null) {
+            // Before the journal and the recorder are closed: purchases in flight may still write to them
+            pluginApi.close();
+        }
+        if (journalReplayExecutor != null) {
+            journalReplayExecutor.shutdownNow();
+        }
+        if (healthProbeExecutor != null) {
+            healthProbeExecutor.shutdownNow();
+        }
+        if (responseJournal != null) {
+            responseJournal.close();
+        }
+        if (trafficRecorder != null) {
+            trafficRecorder.close();
+        }
+        if (metrics != null) {
+            unregisterMetricsMBean();
+        }
+        super.stop(context);
+    }
+
+    private TossTrafficRecorder openTrafficRecorder(final TossConfigProperties config) {
+        if (config.getTrafficRecordingFile() == null || config.getTrafficRecordingCapacity() <= 0) {
+            return null;
+        }
+        try {
+            final TossTrafficRecorder recorder = TossTrafficRecorder.open(Paths.get(config.getTrafficRecordingFile()), config.getTrafficRecordingCapacity());
+            logger.info("Toss traffic recording opened: file={}, recorded={}", recorder.getFile(), recorder.getCount());
+            return recorder;
+        } catch (final IOException e) {
+            logger.error("Failed to open Toss traffic recording, continuing without it: file={}", config.getTrafficRecordingFile(), e);
+            return null;
+        }
+    }
+
+    private TossResponseJournal openResponseJournal(final TossConfigProperties config) {
+        if (config.getJournalFile() == null || config.getJournalCapacity() <= 0) {
+            logger.warn("Toss response journal disabled: responses that fail to save require manual intervention");
+            return null;
+        }
+        try {
+            final TossResponseJournal journal = TossResponseJournal.open(Paths.get(config.getJournalFile()), config.getJournalCapacity());
+            logger.info("Toss response journal opened: file={}, depth={}", journal.getFile(), journal.getDepth());
+            return journal;
+        } catch (final IOException e) {
+            logger.error("Failed to open Toss response journal, continuing without it: file={}", config.getJournalFile(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Probe Toss and the database in the background, so that the healthcheck only returns the latest result.
+     */
+    private TossHealthProber startHealthProber(final TossConfigProperties config, final TossDao dao) {
+        if (config.getHealthProbeInterval() <= 0) {
+            logger.warn("Toss health probes disabled: the healthcheck only validates the configuration");
+            return null;
+        }
+        // Without the traffic recorder: the probes are not traffic to replay
+        final TossHealthProber prober = new TossHealthProber(configurationHandler,
+                                                             dao,
+                                                             metrics,
+                                                             probed -> new TossClientImpl(probed.getBaseUrl(),
+                                                                                          probed.getConnectionTimeout(),
+                                                                                          probed.getReadTimeout()));
+        healthProbeExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("toss-health-probe-%d")
+                                                                                                   .setDaemon(true)
+                                                                                                   .build());
+        healthProbeExecutor.scheduleWithFixedDelay(() -> {
+                                                       try {
+                                                           prober.probe();
+                                                       } catch (final RuntimeException e) {
+                                                           // Would cancel the next probes
+                                                           logger.error("Toss health probe failed", e);
+                                                       }
+                                                   },
+                                                   0,
+                                                   config.getHealthProbeInterval(),
+                                                   TimeUnit.MILLISECONDS);
+        return prober;
+    }
+
+    private void registerMetrics(final BundleContext context, final TossMetrics metrics) {
+        final Hashtable<String, String> props = new Hashtable<String, String>();
+        props.put(OSGIPluginProperties.PLUGIN_NAME_PROP, PLUGIN_NAME);
+        registrar.registerService(context, TossMetrics.class, metrics, props);
+
+        try {
+            // Left behind if the previous instance of the bundle did not stop cleanly
+            unregisterMetricsMBean();
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(TossMetrics.OBJECT_NAME));
+        } catch (final JMException e) {
+            logger.warn("Failed to register the Toss metrics MBean", e);
+        }
+    }
+
+    private void unregisterMetricsMBean() {
+        try {
+            final ObjectName name = new ObjectName(TossMetrics.OBJECT_NAME);
+            if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            }
+        } catch (final JMException e) {
+            logger.warn("Failed to unregister the Toss metrics MBean", e);
+        }
+    }
+
     private void registerPaymentPluginApi(final BundleContext context, final PaymentPluginApi api) {
         final Hashtable<String, String> props = new Hashtable<String, String>();
         props.put(OSGIPluginProperties.PLUGIN_NAME_PROP, PLUGIN_NAME);
         registrar.registerService(context, PaymentPluginApi.class, api, props);
     }
 
+    private void registerServlet(final BundleContext context, final Servlet servlet) {
+        final Hashtable<String, String> props = new Hashtable<String, String>();
+        props.put(OSGIPluginProperties.PLUGIN_NAME_PROP, PLUGIN_NAME);
+        registrar.registerService(context, Servlet.class, servlet, props);
+    }
+
     private void registerHealthcheck(final BundleContext context, final Healthcheck healthcheck) {
         final Hashtable<String, String> props = new Hashtable<String, String>();
         props.put(OSGIPluginProperties.PLUGIN_NAME_PROP, PLUGIN_NAME);
@@ -0,0 +1,131 @@
+package org.killbill.billing.plugin.toss.core;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jooby.MediaType;
+import org.jooby.Result;
+import org.jooby.Results;
+import org.jooby.Status;
+import org.jooby.mvc.Body;
+import org.jooby.mvc.GET;
+import org.jooby.mvc.Local;
+import org.jooby.mvc.POST;
+import org.jooby.mvc.Path;
+import org.killbill.billing.osgi.libs.killbill.OSGIKillbillClock;
+import org.killbill.billing.plugin.api.PluginCallContext;
+import org.killbill.billing.plugin.toss.api.TossBatchChargeItem;
+import org.killbill.billing.plugin.toss.api.TossBatchChargeService;
+import org.killbill.billing.plugin.toss.api.TossBatchProgress;
+import org.killbill.billing.plugin.toss.api.TossPaymentPluginApi;
+import org.killbill.billing.tenant.api.Tenant;
+import org.killbill.billing.util.callcontext.CallContext;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Batch billing-key charges, for subscription renewal runs.
+ *
+ * <ul>
+ *   <li>{@code POST /plugins/killbill-toss/batch-charges} with {@code {"batchId": "...", "items": [...]}}:
+ *   starts charging the items in the background and returns {@code 202} with the batch id and progress
+ *   ({@code 400} if the request is malformed or an item is invalid, {@code 409} if a run of this batch is still in
+ *   flight). Submitting the same batch again resumes it.</li>
+ *   <li>{@code GET /plugins/killbill-toss/batch-charges/{batchId}}: progress of a run, with the per-item results
+ *   once it has finished</li>
+ * </ul>
+ */
+@Singleton
+@Path("/batch-charges")
+public class TossBatchChargeServlet {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final OSGIKillbillClock clock;
+    private final TossPaymentPluginApi pluginApi;
+
+    @Inject
+    public TossBatchChargeServlet(final OSGIKillbillClock clock,
+                                  final TossPaymentPluginApi pluginApi) {
+        this.clock = clock;
+        this.pluginApi = pluginApi;
+    }
+
+    @POST
+    public Result charge(@Body final String body,
+                         @Local @Named("killbill_tenant") final Optional<Tenant> tenant) throws IOException {
+        if (tenant.isEmpty()) {
+            return Results.with(Status.UNAUTHORIZED);
+        }
+
+        final BatchChargeRequest request;
+        try {
+            request = objectMapper.readValue(body, BatchChargeRequest.class);
+        } catch (final JsonProcessingException e) {
+            return Results.with("Invalid batch charge request: " + e.getOriginalMessage(), Status.BAD_REQUEST);
+        }
+        if (request == null) {
+            return Results.with("Invalid batch charge request: empty body", Status.BAD_REQUEST);
+        }
+        // Before anything is prefetched or charged
+        final String invalid = TossBatchChargeService.validate(request.items);
+        if (invalid != null) {
+            return Results.with(invalid, Status.BAD_REQUEST);
+        }
+
+        final String batchId = request.batchId == null ? UUID.randomUUID().toString() : request.batchId;
+        final CallContext context = new PluginCallContext(TossActivator.PLUGIN_NAME, clock.getClock().getUTCNow(), null, tenant.get().getId());
+        final TossBatchProgress progress = pluginApi.startBatch(batchId, request.items, Collections.emptyList(), context);
+        if (progress == null) {
+            return Results.with("batch " + batchId + " is still running", Status.CONFLICT);
+        }
+
+        final Map<String, Object> response = new LinkedHashMap<>();
+        response.put("batchId", batchId);
+        response.put("progress", progress);
+        return Results.with(objectMapper.writeValueAsString(response), Status.ACCEPTED)
+                      .type(MediaType.json);
+    }
+
+    @GET
+    @Path("/:batchId")
+    public Result progress(@Named("batchId") final String batchId,
+                          @Local @Named("killbill_tenant") final Optional<Tenant> tenant) throws IOException {
+        if (tenant.isEmpty()) {
+            return Results.with(Status.UNAUTHORIZED);
+        }
+
+        final TossBatchProgress progress = pluginApi.getBatchProgress(batchId);
+        if (progress == null || !tenant.get().getId().equals(progress.getTenantId())) {
+            return Results.with(Status.NOT_FOUND);
+        }
+        return Results.with(objectMapper.writeValueAsString(progress), Status.OK)
+                      .type(MediaType.json);
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static final class BatchChargeRequest {
+
+        private final String batchId;
+        private final List<TossBatchChargeItem> items;
+
+        @JsonCreator
+        public BatchChargeRequest(@JsonProperty("batchId") final String batchId,
+                                  @JsonProperty("items") final List<TossBatchChargeItem> items) {
+            this.batchId = batchId;
+            this.items = items;
+        }
+    }
+}
@@ -18,6 +18,9 @@ package org.killbill.billing.plugin.toss.core;
 
 import java.util.Properties;
 
+import org.killbill.billing.plugin.toss.api.TossPaymentLocks;
+import org.killbill.billing.plugin.toss.client.TossClientImpl;
+import org.killbill.billing.plugin.toss.client.TossRequestLanes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,10 +41,61 @@ public class TossConfigProperties {
     /** Default read timeout in milliseconds */
     public static final int DEFAULT_READ_TIMEOUT = 5000;
 
+    /** Default number of concurrent Toss calls for a batch charge run */
+    public static final int DEFAULT_BATCH_PARALLELISM = 8;
+
+    /** Default time in milliseconds allowed for the database and account lookups preceding a Toss call */
+    public static final int DEFAULT_LOOKUP_TIMEOUT = 5000;
+
+    /** Default size in bytes of the local journal of responses that failed to save */
+    public static final int DEFAULT_JOURNAL_CAPACITY = 16 * 1024 * 1024;
+
+    /** Default interval in milliseconds between two replays of the journal into the database */
+    public static final int DEFAULT_JOURNAL_REPLAY_INTERVAL = 10000;
+
+    /** Default number of calls kept by the traffic recording (24 bytes each) */
+    public static final int DEFAULT_TRAFFIC_RECORDING_CAPACITY = 1000000;
+
+    /** Default interval in milliseconds between two health probes */
+    public static final int DEFAULT_HEALTH_PROBE_INTERVAL = 30000;
+
+    /** Default latency in milliseconds 99% of the Toss calls must not exceed for the plugin to be healthy */
+    public static final int DEFAULT_HEALTH_TOSS_LATENCY_SLO = 3000;
+
+    /** Default latency in milliseconds 99% of the database queries must not exceed for the plugin to be healthy */
+    public static final int DEFAULT_HEALTH_DB_LATENCY_SLO = 500;
+
+    /** Default percentage of failed Toss calls or database queries above which the plugin is unhealthy */
+    public static final int DEFAULT_HEALTH_MAX_ERROR_RATE = 20;
+
     private final String secretKey;
+    private final String baseUrl;
     private final int connectionTimeout;
     private final int readTimeout;
     private final boolean testMode;
+    private final int batchParallelism;
+    private final int purchaseDeadline;
+    private final int lookupTimeout;
+    private final boolean timingProperties;
+    private final int paymentLockTimeout;
+    private final boolean distributedLockEnabled;
+    private final boolean storeRawResponses;
+    private final boolean compressRawResponses;
+    private final String journalFile;
+    private final int journalCapacity;
+    private final int journalReplayInterval;
+    private final String trafficRecordingFile;
+    private final int trafficRecordingCapacity;
+    private final int healthProbeInterval;
+    private final int healthTossLatencySlo;
+    private final int healthDbLatencySlo;
+    private final int healthMaxErrorRate;
+    private final int interactiveLaneConcurrency;
+    private final int interactiveLaneQueue;
+    private final int interactiveLaneMaxWait;
+    private final int backgroundLaneConcurrency;
+    private final int backgroundLaneQueue;
+    private final int backgroundLaneMaxWait;
 
     /**
      * Creates a TossConfigProperties from the given properties.
@@ -50,9 +104,33 @@ public class TossConfigProperties {
      */
     public TossConfigProperties(final Properties properties) {
         this.secretKey = properties.getProperty(PROPERTY_PREFIX + "secret_key");
+        this.baseUrl = properties.getProperty(PROPERTY_PREFIX + "base_url", TossClientImpl.DEFAULT_BASE_URL);
         this.connectionTimeout = parseIntProperty(properties, "connection_timeout", DEFAULT_CONNECTION_TIMEOUT);
         this.readTimeout = parseIntProperty(properties, "read_timeout", DEFAULT_READ_TIMEOUT);
         this.testMode = Boolean.parseBoolean(properties.getProperty(PROPERTY_PREFIX + "test_mode", "false"));
+        this.batchParallelism = parseIntProperty(properties, "batch_parallelism", DEFAULT_BATCH_PARALLELISM);
+        this.purchaseDeadline = parseIntProperty(properties, "purchase_deadline", 0);
+        this.lookupTimeout = parseIntProperty(properties, "lookup_timeout", DEFAULT_LOOKUP_TIMEOUT);
+        this.timingProperties = Boolean.parseBoolean(properties.getProperty(PROPERTY_PREFIX + "timing_properties", "false"));
+        this.paymentLockTimeout = parseIntProperty(properties, "payment_lock_timeout", TossPaymentLocks.DEFAULT_TIMEOUT_MILLIS);
+        this.distributedLockEnabled = Boolean.parseBoolean(properties.getProperty(PROPERTY_PREFIX + "distributed_lock_enabled", "false"));
+        this.storeRawResponses = Boolean.parseBoolean(properties.getProperty(PROPERTY_PREFIX + "store_raw_responses", "false"));
+        this.compressRawResponses = Boolean.parseBoolean(properties.getProperty(PROPERTY_PREFIX + "compress_raw_responses", "false"));
+        this.journalFile = properties.getProperty(PROPERTY_PREFIX + "journal_file");
+        this.journalCapacity = parseIntProperty(properties, "journal_capacity", DEFAULT_JOURNAL_CAPACITY);
+        this.journalReplayInterval = parseIntProperty(properties, "journal_replay_interval", DEFAULT_JOURNAL_REPLAY_INTERVAL);
+        this.trafficRecordingFile = properties.getProperty(PROPERTY_PREFIX + "traffic_recording_file");
+        this.trafficRecordingCapacity = parseIntProperty(properties, "traffic_recording_capacity", DEFAULT_TRAFFIC_RECORDING_CAPACITY);
+        this.healthProbeInterval = parseIntProperty(properties, "health_probe_interval", DEFAULT_HEALTH_PROBE_INTERVAL);
+        this.healthTossLatencySlo = parseIntProperty(properties, "health_toss_latency_slo", DEFAULT_HEALTH_TOSS_LATENCY_SLO);
+        this.healthDbLatencySlo = parseIntProperty(properties, "health_db_latency_slo", DEFAULT_HEALTH_DB_LATENCY_SLO);
+        this.healthMaxErrorRate = parseIntProperty(properties, "health_max_error_rate", DEFAULT_HEALTH_MAX_ERROR_RATE);
+        this.interactiveLaneConcurrency = parseIntProperty(properties, "interactive_lane_concurrency", TossRequestLanes.DEFAULT_INTERACTIVE_CONCURRENCY);
+        this.interactiveLaneQueue = parseIntProperty(properties, "interactive_lane_queue", TossRequestLanes.DEFAULT_INTERACTIVE_QUEUE);
+        this.interactiveLaneMaxWait = parseIntProperty(properties, "interactive_lane_max_wait", TossRequestLanes.DEFAULT_INTERACTIVE_MAX_WAIT_MILLIS);
+        this.backgroundLaneConcurrency = parseIntProperty(properties, "background_lane_concurrency", TossRequestLanes.DEFAULT_BACKGROUND_CONCURRENCY);
+        this.backgroundLaneQueue = parseIntProperty(properties, "background_lane_queue", TossRequestLanes.DEFAULT_BACKGROUND_QUEUE);
+        this.backgroundLaneMaxWait = parseIntProperty(properties, "background_lane_max_wait", TossRequestLanes.DEFAULT_BACKGROUND_MAX_WAIT_MILLIS);
 
         if (secretKey == null || secretKey.trim().isEmpty()) {
             logger.warn("Toss Payments secret key is not configured. " +
@@ -81,6 +159,13 @@ public class TossConfigProperties {
         return secretKey;
     }
 
+    /**
+     * @return base URL of the Toss API, e.g. to point a test environment at a local stub
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
     /**
      * @return HTTP connection timeout in milliseconds
      */
@@ -102,13 +187,217 @@ public class TossConfigProperties {
         return testMode;
     }
 
+    /**
+     * @return maximum number of concurrent Toss calls for a batch charge run
+     */
+    public int getBatchParallelism() {
+        return batchParallelism;
+    }
+
+    /**
+     * @return maximum time in milliseconds purchasePayment waits for Toss before returning PENDING
+     * and completing the payment in the background, 0 to always wait
+     */
+    public int getPurchaseDeadline() {
+        return purchaseDeadline;
+    }
+
+    /**
+     * @return maximum time in milliseconds for the lookups (idempotency, payment method, account) run concurrently
+     * before a Toss purchase call
+     */
+    public int getLookupTimeout() {
+        return lookupTimeout;
+    }
+
+    /**
+     * @return true to return the time spent in each phase of the purchases and refunds (lookups, queueing, Toss call,
+     * decoding, storage) as plugin properties of their result, unless overridden by the {@code tossTimings} plugin property
+     */
+    public boolean isTimingProperties() {
+        return timingProperties;
+    }
+
+    /**
+     * Process-wide: only the value of the global configuration is used.
+     *
+     * @return maximum time in milliseconds an operation waits for another operation on the same payment
+     */
+    public int getPaymentLockTimeout() {
+        return paymentLockTimeout;
+    }
+
+    /**
+     * Process-wide: only the value of the global configuration is used.
+     *
+     * <p>Each payment operation then holds a database connection for its lock: the pool must be larger than the
+     * capacity (concurrency plus queue) of the request lanes.</p>
+     *
+     * @return true if operations on a payment are also serialized across nodes with database advisory locks
+     * (PostgreSQL and MySQL only)
+     */
+    public boolean isDistributedLockEnabled() {
+        return distributedLockEnabled;
+    }
+
+    /**
+     * Process-wide: only the value of the global configuration is used.
+     *
+     * @return true to store the Toss response bodies verbatim in toss_responses.additional_data
+     */
+    public boolean isStoreRawResponses() {
+        return storeRawResponses;
+    }
+
+    /**
+     * @return true to gzip the stored raw response bodies
+     */
+    public boolean isCompressRawResponses() {
+        return compressRawResponses;
+    }
+
+    /**
+     * Journal settings are process-wide: only the values of the global configuration are used.
+     *
+     * @return the local file keeping the successful Toss responses that could not be saved to the database,
+     * until they are replayed (should be on persistent storage); null (the default) to disable the journal
+     */
+    public String getJournalFile() {
+        return journalFile;
+    }
+
+    /**
+     * @return size of the journal file in bytes, 0 to disable the journal
+     */
+    public int getJournalCapacity() {
+        return journalCapacity;
+    }
+
+    /**
+     * @return interval in milliseconds between two attempts to replay the journal into the database
+     */
+    public int getJournalReplayInterval() {
+        return journalReplayInterval;
+    }
+
+    /**
+     * Traffic recording settings are process-wide: only the values of the global configuration are used.
+     *
+     * @return the local file recording the timing, size and outcome of each Toss call, for capacity planning;
+     * null (the default) not to record the calls
+     */
+    public String getTrafficRecordingFile() {
+        return trafficRecordingFile;
+    }
+
+    /**
+     * @return number of calls kept by the traffic recording, the oldest being overwritten
+     */
+    public int getTrafficRecordingCapacity() {
+        return trafficRecordingCapacity;
+    }
+
+    /**
+     * Health settings are process-wide: only the values of the global configuration are used.
+     *
+     * @return interval in milliseconds between two probes of Toss and the database, 0 to disable the probes
+     */
+    public int getHealthProbeInterval() {
+        return healthProbeInterval;
+    }
+
+    /**
+     * @return latency in milliseconds 99% of the Toss calls since the previous probe must not exceed
+     */
+    public int getHealthTossLatencySlo() {
+        return healthTossLatencySlo;
+    }
+
+    /**
+     * @return latency in milliseconds 99% of the database queries since the previous probe must not exceed
+     */
+    public int getHealthDbLatencySlo() {
+        return healthDbLatencySlo;
+    }
+
+    /**
+     * @return percentage of failed Toss calls (network and Toss server errors) or database queries since the previous probe
+     * above which the plugin is unhealthy
+     */
+    public int getHealthMaxErrorRate() {
+        return healthMaxErrorRate;
+    }
+
+    /**
+     * Lane settings are process-wide: only the values of the global configuration are used.
+     *
+     * @return maximum number of concurrent Toss calls in the interactive lane
+     */
+    public int getInteractiveLaneConcurrency() {
+        return interactiveLaneConcurrency;
+    }
+
+    /**
+     * @return maximum number of calls waiting for a slot in the interactive lane
+     */
+    public int getInteractiveLaneQueue() {
+        return interactiveLaneQueue;
+    }
+
+    /**
+     * @return maximum time in milliseconds a call waits for a slot in the interactive lane
+     */
+    public int getInteractiveLaneMaxWait() {
+        return interactiveLaneMaxWait;
+    }
+
+    /**
+     * @return maximum number of concurrent Toss calls in the background lane
+     */
+    public int getBackgroundLaneConcurrency() {
+        return backgroundLaneConcurrency;
+    }
+
+    /**
+     * @return maximum number of calls waiting for a slot in the background lane
+     */
+    public int getBackgroundLaneQueue() {
+        return backgroundLaneQueue;
+    }
+
+    /**
+     * @return maximum time in milliseconds a call waits for a slot in the background lane
+     */
+    public int getBackgroundLaneMaxWait() {
+        return backgroundLaneMaxWait;
+    }
+
     @Override
     public String toString() {
         return "TossConfigProperties{" +
                 "secretKey=" + maskSecretKey(secretKey) +
+                ", baseUrl=" + baseUrl +
                 ", connectionTimeout=" + connectionTimeout +
                 ", readTimeout=" + readTimeout +
                 ", testMode=" + testMode +
+                ", batchParallelism=" + batchParallelism +
+                ", purchaseDeadline=" + purchaseDeadline +
+                ", lookupTimeout=" + lookupTimeout +
+                ", timingProperties=" + timingProperties +
+                ", paymentLockTimeout=" + paymentLockTimeout +
+                ", distributedLockEnabled=" + distributedLockEnabled +
+                ", storeRawResponses=" + storeRawResponses +
+                ", compressRawResponses=" + compressRawResponses +
+                ", journalFile=" + (journalFile == null ? "[DISABLED]" : journalFile) +
+                ", journalCapacity=" + journalCapacity +
+                ", journalReplayInterval=" + journalReplayInterval +
+                ", trafficRecordingFile=" + (trafficRecordingFile == null ? "[DISABLED]" : trafficRecordingFile) +
+                ", trafficRecordingCapacity=" + trafficRecordingCapacity +
+                ", healthProbeInterval=" + healthProbeInterval +
+                ", healthLatencySlo=" + healthTossLatencySlo + "/" + healthDbLatencySlo + "ms" +
+                ", healthMaxErrorRate=" + healthMaxErrorRate + "%" +
+                ", interactiveLane=" + interactiveLaneConcurrency + "/" + interactiveLaneQueue + "/" + interactiveLaneMaxWait + "ms" +
+                ", backgroundLane=" + backgroundLaneConcurrency + "/" + backgroundLaneQueue + "/" + backgroundLaneMaxWait + "ms" +
                 '}';
     }
 
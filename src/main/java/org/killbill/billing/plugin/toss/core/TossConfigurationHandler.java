@@ -16,26 +16,117 @@
 
 package org.killbill.billing.plugin.toss.core;
 
+import java.util.Map;
 import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
 
 import org.killbill.billing.osgi.libs.killbill.OSGIKillbillAPI;
 import org.killbill.billing.plugin.api.notification.PluginTenantConfigurableConfigurationHandler;
+import org.killbill.billing.plugin.toss.client.TossClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Configuration handler for the Toss Payments plugin.
  *
- * Manages per-tenant configuration by extending PluginTenantConfigurableConfigurationHandler.
- * Kill Bill's OSGi framework automatically handles TENANT_CONFIG_CHANGE and
- * TENANT_CONFIG_DELETION events to reload configuration.
+ * Manages per-tenant configuration by extending PluginTenantConfigurableConfigurationHandler. The activator
+ * registers it with a PluginConfigurationEventHandler, so that TENANT_CONFIG_CHANGE and TENANT_CONFIG_DELETION
+ * events reload the configuration of the tenant.
+ *
+ * A {@link TossTenantRuntime} is built from the configuration on first use, and kept per tenant: a call finds it
+ * with a single map lookup. Reloading the configuration of a tenant drops its runtime, and changing the default
+ * configuration drops them all, so that the next call builds them again from the new configuration.
+ *
+ * The request lanes and payment locks stay process-wide: a per-tenant limiter or circuit breaker is out of scope.
  */
 public class TossConfigurationHandler extends PluginTenantConfigurableConfigurationHandler<TossConfigProperties> {
 
+    private static final Logger logger = LoggerFactory.getLogger(TossConfigurationHandler.class);
+
+    // Key of the default configuration, ConcurrentHashMap does not allow null keys
+    private static final UUID DEFAULT_TENANT = new UUID(0, 0);
+
+    private final Map<UUID, TossTenantRuntime> runtimes = new ConcurrentHashMap<>();
+    private final Function<TossConfigProperties, TossClient> clientFactory;
+
     public TossConfigurationHandler(final String pluginName, final OSGIKillbillAPI osgiKillbillAPI) {
+        this(pluginName, osgiKillbillAPI, null);
+    }
+
+    /**
+     * @param clientFactory builds the Toss client of a configuration, null to use the plugin's shared client
+     */
+    public TossConfigurationHandler(final String pluginName,
+                                    final OSGIKillbillAPI osgiKillbillAPI,
+                                    @Nullable final Function<TossConfigProperties, TossClient> clientFactory) {
         super(pluginName, osgiKillbillAPI);
+        this.clientFactory = clientFactory;
     }
 
     @Override
     protected TossConfigProperties createConfigurable(final Properties properties) {
         return new TossConfigProperties(properties);
     }
+
+    @Override
+    public void configure(@Nullable final UUID kbTenantId) {
+        super.configure(kbTenantId);
+        if (kbTenantId == null) {
+            runtimes.clear();
+        } else {
+            runtimes.remove(kbTenantId);
+        }
+    }
+
+    @Override
+    public void setDefaultConfigurable(final TossConfigProperties defaultConfigurable) {
+        super.setDefaultConfigurable(defaultConfigurable);
+        // Tenants without their own configuration use the default one
+        runtimes.clear();
+    }
+
+    /**
+     * @return the runtime of the tenant configuration (or of the default one), null if there is none
+     */
+    public TossTenantRuntime getRuntime(@Nullable final UUID kbTenantId) {
+        final UUID key = kbTenantId == null ? DEFAULT_TENANT : kbTenantId;
+        final TossTenantRuntime runtime = runtimes.get(key);
+        if (runtime != null) {
+            return runtime;
+        }
+
+        // Loads the configuration of the tenant on first use
+        final TossConfigProperties config = getConfigurable(kbTenantId);
+        if (config == null) {
+            return null;
+        }
+        // No configuration of its own: shares the runtime of the default configuration
+        final TossTenantRuntime defaultRuntime = kbTenantId != null && config == getConfigurable(null) ? getRuntime(null) : null;
+        final TossTenantRuntime built = runtimes.computeIfAbsent(key, k -> defaultRuntime != null ? defaultRuntime : buildRuntime(config));
+        if (built.getConfig() != getConfigurable(kbTenantId)) {
+            // Reloaded meanwhile: built from the previous configuration
+            runtimes.remove(key, built);
+            return getRuntime(kbTenantId);
+        }
+        return built;
+    }
+
+    /**
+     * @return the number of tenants with a runtime, including the default one
+     */
+    public long getRuntimeCount() {
+        return runtimes.size();
+    }
+
+    private TossTenantRuntime buildRuntime(final TossConfigProperties config) {
+        final TossTenantRuntime runtime = new TossTenantRuntime(config, clientFactory == null ? null : clientFactory.apply(config));
+        if (!runtime.isSecretKeyValid() && config.getSecretKey() != null) {
+            logger.warn("{}: Toss will reject calls made with this configuration", runtime.getSecretKeyError());
+        }
+        return runtime;
+    }
 }
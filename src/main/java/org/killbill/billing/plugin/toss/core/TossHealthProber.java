@@ -0,0 +1,234 @@
+package org.killbill.billing.plugin.toss.core;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.plugin.toss.client.TossClient;
+import org.killbill.billing.plugin.toss.client.exception.TossApplicationException;
+import org.killbill.billing.plugin.toss.dao.TossDao;
+import org.killbill.billing.plugin.toss.metrics.TossHistogramSnapshot;
+import org.killbill.billing.plugin.toss.metrics.TossMetricSeries;
+import org.killbill.billing.plugin.toss.metrics.TossMetrics;
+import org.killbill.billing.plugin.toss.metrics.TossOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Probes the dependencies of the plugin in the background, so that {@link TossHealthcheck} never does I/O:
+ *
+ * <ul>
+ *   <li>Toss: an authenticated lookup of a payment which does not exist, with the global secret key
+ *   (a 404 means that Toss is reachable and accepts the key)</li>
+ *   <li>the database: a round-trip query</li>
+ *   <li>the Toss calls and database queries since the previous probe, from {@link TossMetrics}: failure rate and
+ *   share of the calls within the latency SLO</li>
+ * </ul>
+ *
+ * <p>{@link #probe()} is not thread safe: it is only run by the probe thread.</p>
+ */
+public class TossHealthProber {
+
+    private static final Logger logger = LoggerFactory.getLogger(TossHealthProber.class);
+
+    static final String PROBE_PAYMENT_KEY = "killbill-toss-health-probe";
+
+    // Share of the calls which must complete within the latency SLO
+    static final double LATENCY_SLO_PERCENT = 99d;
+
+    // Below this, a window is too small to judge its failure rate and latencies
+    static final int MIN_WINDOW_CALLS = 20;
+
+    // Toss codes of its own failures: the other Toss errors (declined card, invalid request...) are not a health issue
+    private static final String[] TOSS_SERVER_ERROR_CODES = {"FAILED_INTERNAL_SYSTEM_PROCESSING",
+                                                             "FAILED_PAYMENT_INTERNAL_SYSTEM_PROCESSING",
+                                                             "UNKNOWN_PAYMENT_ERROR",
+                                                             "UNKNOWN_ERROR"};
+
+    private final TossConfigurationHandler configurationHandler;
+    private final TossDao dao;
+    private final TossMetrics metrics;
+    private final Function<TossConfigProperties, TossClient> probeClientFactory;
+    private final Map<TossMetricSeries, long[]> previousCounts = new HashMap<>();
+
+    // Client of the global configuration it was built for, rebuilt when the configuration changes
+    private TossConfigProperties probeClientConfig;
+    private TossClient probeClient;
+
+    private volatile TossHealthProbeResult lastResult;
+
+    public TossHealthProber(final TossConfigurationHandler configurationHandler, final TossDao dao, final TossMetrics metrics) {
+        this(configurationHandler, dao, metrics, null);
+    }
+
+    /**
+     * @param probeClientFactory builds the client of the Toss probes, e.g. without the traffic recorder so that
+     * the probes are not recorded as traffic; null to probe with the client of the global configuration
+     */
+    public TossHealthProber(final TossConfigurationHandler configurationHandler,
+                            final TossDao dao,
+                            final TossMetrics metrics,
+                            @Nullable final Function<TossConfigProperties, TossClient> probeClientFactory) {
+        this.configurationHandler = configurationHandler;
+        this.dao = dao;
+        this.metrics = metrics;
+        this.probeClientFactory = probeClientFactory;
+    }
+
+    /**
+     * @return the result of the latest probe, null if none completed yet
+     */
+    @Nullable
+    public TossHealthProbeResult getLastResult() {
+        return lastResult;
+    }
+
+    public TossHealthProbeResult probe() {
+        final TossConfigProperties config = configurationHandler.getConfigurable(null);
+        final List<String> problems = new ArrayList<>();
+        final List<String> summary = new ArrayList<>();
+
+        probeToss(problems, summary);
+        probeDatabase(problems, summary);
+        evaluateWindow(TossOperation.Kind.TOSS, "Toss calls", config.getHealthTossLatencySlo(), config.getHealthMaxErrorRate(), problems, summary);
+        evaluateWindow(TossOperation.Kind.DATABASE, "database queries", config.getHealthDbLatencySlo(), config.getHealthMaxErrorRate(), problems, summary);
+
+        final TossHealthProbeResult result = new TossHealthProbeResult(problems, String.join(", ", summary), System.currentTimeMillis());
+        if (!result.isHealthy()) {
+            logger.warn("Toss health probe failed: {}", result.getMessage());
+        } else if (lastResult != null && !lastResult.isHealthy()) {
+            logger.info("Toss health probe recovered: {}", result.getSummary());
+        }
+        lastResult = result;
+        return result;
+    }
+
+    private void probeToss(final List<String> problems, final List<String> summary) {
+        final TossTenantRuntime runtime = configurationHandler.getRuntime(null);
+        if (runtime == null || !runtime.isSecretKeyValid() || runtime.getClient() == null) {
+            summary.add("toss=not probed (no global secret key)");
+            return;
+        }
+
+        final long startNanos = System.nanoTime();
+        try {
+            probeClient(runtime).getPayment(runtime.getSecretKey(), PROBE_PAYMENT_KEY);
+            summary.add("toss=" + elapsedMillis(startNanos) + "ms");
+        } catch (final TossApplicationException e) {
+            if (e.getStatusCode() == 404) {
+                summary.add("toss=" + elapsedMillis(startNanos) + "ms");
+            } else if (e.getStatusCode() == 401 || e.getStatusCode() == 403) {
+                problems.add("Toss rejected the secret key: HTTP " + e.getStatusCode());
+            } else {
+                problems.add("Toss probe failed: HTTP " + e.getStatusCode());
+            }
+        } catch (final IOException e) {
+            problems.add("Toss unreachable: " + e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            problems.add("Toss probe interrupted");
+        }
+    }
+
+    private TossClient probeClient(final TossTenantRuntime runtime) {
+        if (probeClientFactory == null) {
+            return runtime.getClient();
+        }
+        if (probeClient == null || probeClientConfig != runtime.getConfig()) {
+            probeClient = probeClientFactory.apply(runtime.getConfig());
+            probeClientConfig = runtime.getConfig();
+        }
+        return probeClient;
+    }
+
+    private void probeDatabase(final List<String> problems, final List<String> summary) {
+        final long startNanos = System.nanoTime();
+        try {
+            dao.ping();
+            summary.add("db=" + elapsedMillis(startNanos) + "ms");
+        } catch (final SQLException | RuntimeException e) {
+            problems.add("Database unreachable: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Evaluate the calls recorded since the previous probe.
+     */
+    private void evaluateWindow(final TossOperation.Kind kind,
+                                final String name,
+                                final int latencySloMillis,
+                                final int maxErrorRate,
+                                final List<String> problems,
+                                final List<String> summary) {
+        final long latencySloMicros = TimeUnit.MILLISECONDS.toMicros(latencySloMillis);
+        long calls = 0;
+        long failures = 0;
+        long withinSlo = 0;
+        for (final TossMetricSeries series : metrics.getSeries()) {
+            if (series.getOperation().getKind() != kind) {
+                continue;
+            }
+            final TossHistogramSnapshot snapshot = series.getHistogram().snapshot();
+            final long[] counts = {snapshot.getCount(), snapshot.getCountAtOrBelow(latencySloMicros)};
+            final long[] previous = previousCounts.put(series, counts);
+            final long seriesCalls = counts[0] - (previous == null ? 0 : previous[0]);
+            calls += seriesCalls;
+            withinSlo += counts[1] - (previous == null ? 0 : previous[1]);
+            if (isFailure(series)) {
+                failures += seriesCalls;
+            }
+        }
+
+        if (calls < MIN_WINDOW_CALLS) {
+            summary.add(name + "=" + calls);
+            return;
+        }
+        final double failureRate = 100d * failures / calls;
+        final double withinSloRate = 100d * withinSlo / calls;
+        summary.add(String.format(Locale.ROOT, "%s=%d (%.1f%% failed, %.1f%% within %dms)", name, calls, failureRate, withinSloRate, latencySloMillis));
+        if (failureRate > maxErrorRate) {
+            problems.add(String.format(Locale.ROOT, "%.1f%% of the %s failed since the previous probe", failureRate, name));
+        }
+        if (withinSloRate < LATENCY_SLO_PERCENT) {
+            problems.add(String.format(Locale.ROOT, "%.1f%% of the %s took more than %dms since the previous probe", 100d - withinSloRate, name, latencySloMillis));
+        }
+    }
+
+    /**
+     * @return true for database failures, and Toss calls which failed because of the network or of Toss itself
+     */
+    static boolean isFailure(final TossMetricSeries series) {
+        if (!TossMetrics.STATUS_ERROR.equals(series.getStatus())) {
+            return false;
+        }
+        if (series.getOperation().getKind() == TossOperation.Kind.DATABASE) {
+            return true;
+        }
+        final String errorCode = series.getErrorCode();
+        if (errorCode == null) {
+            return true;
+        }
+        // Network errors are tagged with the exception name
+        if (errorCode.endsWith("Exception") || errorCode.startsWith("HTTP_5")) {
+            return true;
+        }
+        for (final String serverErrorCode : TOSS_SERVER_ERROR_CODES) {
+            if (serverErrorCode.equals(errorCode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long elapsedMillis(final long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
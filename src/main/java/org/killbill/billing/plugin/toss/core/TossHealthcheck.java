@@ -6,29 +6,77 @@ import java.util.UUID;
 import javax.annotation.Nullable;
 
 import org.killbill.billing.osgi.api.Healthcheck;
+import org.killbill.billing.plugin.toss.dao.TossResponseJournal;
 import org.killbill.billing.tenant.api.Tenant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Health of the plugin, from in-memory state only: the reachability of Toss and of the database, and the failure rate
+ * and latencies of the recent calls, are those of the latest {@link TossHealthProber} run.
+ */
 public class TossHealthcheck implements Healthcheck {
 
     private static final Logger logger = LoggerFactory.getLogger(TossHealthcheck.class);
 
+    // Probes missed before the last result is considered stale, e.g. if the probe thread is stuck
+    static final int STALE_PROBE_INTERVALS = 3;
+
     private final TossConfigurationHandler configurationHandler;
+    private final TossResponseJournal responseJournal;
+    private final TossHealthProber prober;
 
     public TossHealthcheck(final TossConfigurationHandler configurationHandler) {
+        this(configurationHandler, null);
+    }
+
+    public TossHealthcheck(final TossConfigurationHandler configurationHandler, @Nullable final TossResponseJournal responseJournal) {
+        this(configurationHandler, responseJournal, null);
+    }
+
+    public TossHealthcheck(final TossConfigurationHandler configurationHandler,
+                           @Nullable final TossResponseJournal responseJournal,
+                           @Nullable final TossHealthProber prober) {
         this.configurationHandler = configurationHandler;
+        this.responseJournal = responseJournal;
+        this.prober = prober;
     }
 
     @Override
     public HealthStatus getHealthStatus(@Nullable final Tenant tenant, @Nullable final Map properties) {
+        if (responseJournal != null && responseJournal.hasOverflowed()) {
+            logger.warn("Healthcheck failed: Toss response journal full, depth={}", responseJournal.getDepth());
+            return HealthStatus.unHealthy("Toss response journal full: " + responseJournal.getDepth() + " response(s) waiting for the database");
+        }
+        final TossHealthProbeResult probe = prober == null ? null : prober.getLastResult();
+        if (probe != null) {
+            if (!probe.isHealthy()) {
+                return HealthStatus.unHealthy(probe.getMessage());
+            }
+            final long probeInterval = configurationHandler.getConfigurable(null).getHealthProbeInterval();
+            final long ageMillis = System.currentTimeMillis() - probe.getProbedAtMillis();
+            if (probeInterval > 0 && ageMillis > STALE_PROBE_INTERVALS * probeInterval) {
+                logger.warn("Healthcheck failed: last Toss health probe {}ms ago", ageMillis);
+                return HealthStatus.unHealthy("Toss health probe stale: last completed " + ageMillis + "ms ago");
+            }
+        }
         if (tenant == null) {
-            return HealthStatus.healthy("Toss plugin running");
+            return HealthStatus.healthy("Toss plugin running" + probeSummary(probe) + journalDepth());
         }
-        return checkTenantConfiguration(tenant.getId());
+        return checkTenantConfiguration(tenant.getId(), probe);
     }
 
-    private HealthStatus checkTenantConfiguration(final UUID tenantId) {
+    private static String probeSummary(@Nullable final TossHealthProbeResult probe) {
+        return probe == null ? "" : ", " + probe.getSummary();
+    }
+
+    // Responses waiting in the journal are not a failure: they are replayed once the database recovers
+    private String journalDepth() {
+        final int depth = responseJournal == null ? 0 : responseJournal.getDepth();
+        return depth == 0 ? "" : ", " + depth + " response(s) waiting in the journal for the database";
+    }
+
+    private HealthStatus checkTenantConfiguration(final UUID tenantId, @Nullable final TossHealthProbeResult probe) {
         try {
             final TossConfigProperties config = configurationHandler.getConfigurable(tenantId);
             
@@ -37,30 +85,18 @@ public class TossHealthcheck implements Healthcheck {
                 return HealthStatus.unHealthy("Toss configuration not found for tenant");
             }
 
-            final String secretKey = config.getSecretKey();
-            if (secretKey == null || secretKey.isEmpty()) {
-                logger.warn("Healthcheck failed: Secret key not configured for tenant {}", tenantId);
-                return HealthStatus.unHealthy("Toss secretKey not configured");
-            }
-
-            if (!isValidSecretKeyFormat(secretKey)) {
-                logger.warn("Healthcheck failed: Invalid secret key format for tenant {}", tenantId);
-                return HealthStatus.unHealthy("Invalid Toss secretKey format");
+            final String secretKeyError = TossTenantRuntime.validateSecretKey(config.getSecretKey());
+            if (secretKeyError != null) {
+                logger.warn("Healthcheck failed: {} for tenant {}", secretKeyError, tenantId);
+                return HealthStatus.unHealthy(secretKeyError);
             }
 
             logger.debug("Healthcheck passed for tenant {}", tenantId);
-            return HealthStatus.healthy("Toss OK");
+            return HealthStatus.healthy("Toss OK" + probeSummary(probe) + journalDepth());
 
         } catch (final Exception e) {
             logger.error("Healthcheck error for tenant {}", tenantId, e);
             return HealthStatus.unHealthy("Toss error: " + e.getMessage());
         }
     }
-
-    private boolean isValidSecretKeyFormat(final String secretKey) {
-        return secretKey.startsWith("test_sk") || 
-               secretKey.startsWith("live_sk") ||
-               secretKey.startsWith("test_gsk") ||
-               secretKey.startsWith("live_gsk");
-    }
 }
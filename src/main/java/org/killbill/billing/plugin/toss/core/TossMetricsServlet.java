@@ -0,0 +1,232 @@
+package org.killbill.billing.plugin.toss.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jooby.MediaType;
+import org.jooby.Result;
+import org.jooby.Results;
+import org.jooby.Status;
+import org.jooby.mvc.GET;
+import org.jooby.mvc.Local;
+import org.jooby.mvc.Path;
+import org.killbill.billing.plugin.toss.api.TossPaymentLockStats;
+import org.killbill.billing.plugin.toss.api.TossPaymentPluginApi;
+import org.killbill.billing.plugin.toss.client.TossInFlightCall;
+import org.killbill.billing.plugin.toss.client.TossLaneStats;
+import org.killbill.billing.plugin.toss.dao.TossResponseJournal;
+import org.killbill.billing.plugin.toss.metrics.TossHistogramSnapshot;
+import org.killbill.billing.plugin.toss.metrics.TossMetricSeries;
+import org.killbill.billing.plugin.toss.metrics.TossMetrics;
+import org.killbill.billing.tenant.api.Tenant;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Operational data, for dashboards and incidents.
+ *
+ * <ul>
+ *   <li>{@code GET /plugins/killbill-toss/metrics}: Prometheus metrics (latencies, lanes, locks, caches, recovery journal)</li>
+ *   <li>{@code GET /plugins/killbill-toss/metrics/in-flight}: the Toss calls in flight, oldest first, with their age and thread</li>
+ * </ul>
+ *
+ * <p>The lanes are the only limiters of the Toss calls: the plugin has no circuit breaker.</p>
+ *
+ * <p>Both require an authenticated tenant; the calls in flight are those of this tenant only.</p>
+ */
+@Singleton
+@Path("/metrics")
+public class TossMetricsServlet {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double MICROS_PER_SECOND = 1_000_000d;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final TossMetrics metrics;
+    private final TossPaymentPluginApi pluginApi;
+    private final TossConfigurationHandler configurationHandler;
+
+    @Inject
+    public TossMetricsServlet(final TossMetrics metrics,
+                              final TossPaymentPluginApi pluginApi,
+                              final TossConfigurationHandler configurationHandler) {
+        this.metrics = metrics;
+        this.pluginApi = pluginApi;
+        this.configurationHandler = configurationHandler;
+    }
+
+    @GET
+    public Result prometheus(@Local @Named("killbill_tenant") final Optional<Tenant> tenant) {
+        if (tenant.isEmpty()) {
+            return Results.with(Status.UNAUTHORIZED);
+        }
+
+        return Results.with(render(), Status.OK)
+                      .type(MediaType.plain);
+    }
+
+    @GET
+    @Path("/in-flight")
+    public Result inFlight(@Local @Named("killbill_tenant") final Optional<Tenant> tenant) throws IOException {
+        if (tenant.isEmpty()) {
+            return Results.with(Status.UNAUTHORIZED);
+        }
+
+        final List<TossInFlightCall> calls = new ArrayList<>();
+        for (final TossInFlightCall call : pluginApi.getRequestLanes().getInFlightCalls()) {
+            if (tenant.get().getId().equals(call.getKbTenantId())) {
+                calls.add(call);
+            }
+        }
+        return Results.with(objectMapper.writeValueAsString(calls), Status.OK)
+                      .type(MediaType.json);
+    }
+
+    String render() {
+        final TossPrometheusWriter writer = new TossPrometheusWriter();
+        writeLatencies(writer);
+        writeLanes(writer);
+        writeInFlightCalls(writer);
+        writePaymentLocks(writer);
+        writeOccupancy(writer);
+        return writer.toString();
+    }
+
+    private void writeLatencies(final TossPrometheusWriter writer) {
+        final List<TossMetricSeries> allSeries = metrics.getSeries();
+        final Map<TossMetricSeries, TossHistogramSnapshot> snapshots = new HashMap<>();
+        for (final TossMetricSeries series : allSeries) {
+            snapshots.put(series, series.getHistogram().snapshot());
+        }
+
+        writer.family("toss_operation_duration_seconds", "summary", "Latency of the Toss API calls and database queries");
+        for (final TossMetricSeries series : allSeries) {
+            final TossHistogramSnapshot snapshot = snapshots.get(series);
+            for (final double quantile : QUANTILES) {
+                writer.sample("toss_operation_duration_seconds", snapshot.getValueAtPercentile(quantile * 100) / MICROS_PER_SECOND,
+                              labels(series, "quantile", Double.toString(quantile)));
+            }
+            writer.sample("toss_operation_duration_seconds_sum", snapshot.getSumMicros() / MICROS_PER_SECOND, labels(series));
+            writer.sample("toss_operation_duration_seconds_count", snapshot.getCount(), labels(series));
+        }
+
+        writer.family("toss_operation_duration_max_seconds", "gauge", "Largest latency of the Toss API calls and database queries");
+        for (final TossMetricSeries series : allSeries) {
+            writer.sample("toss_operation_duration_max_seconds", snapshots.get(series).getMaxMicros() / MICROS_PER_SECOND, labels(series));
+        }
+
+        writer.family("toss_metrics_dropped_recordings_total", "counter", "Recordings dropped because the maximum number of series was reached")
+              .sample("toss_metrics_dropped_recordings_total", metrics.getDroppedRecordings());
+    }
+
+    private static String[] labels(final TossMetricSeries series, final String... extra) {
+        final String[] labels = new String[10 + extra.length];
+        labels[0] = "kind";
+        labels[1] = series.getOperation().getKind().name().toLowerCase(Locale.ROOT);
+        labels[2] = "operation";
+        labels[3] = series.getOperation().getTag();
+        labels[4] = "tenant";
+        labels[5] = series.getKbTenantId() == null ? null : series.getKbTenantId().toString();
+        labels[6] = "status";
+        labels[7] = series.getStatus();
+        labels[8] = "error_code";
+        labels[9] = series.getErrorCode();
+        System.arraycopy(extra, 0, labels, 10, extra.length);
+        return labels;
+    }
+
+    private void writeLanes(final TossPrometheusWriter writer) {
+        final List<TossLaneStats> lanes = pluginApi.getRequestLanes().getStats();
+
+        writer.family("toss_lane_max_concurrent", "gauge", "Maximum number of concurrent Toss calls of the lane");
+        for (final TossLaneStats lane : lanes) {
+            writer.sample("toss_lane_max_concurrent", lane.getMaxConcurrent(), "lane", lane.getLane().name());
+        }
+        writer.family("toss_lane_in_flight", "gauge", "Toss calls of the lane in flight");
+        for (final TossLaneStats lane : lanes) {
+            writer.sample("toss_lane_in_flight", lane.getInFlight(), "lane", lane.getLane().name());
+        }
+        writer.family("toss_lane_max_queued", "gauge", "Maximum number of Toss calls waiting for a slot in the lane");
+        for (final TossLaneStats lane : lanes) {
+            writer.sample("toss_lane_max_queued", lane.getMaxQueued(), "lane", lane.getLane().name());
+        }
+        writer.family("toss_lane_queued", "gauge", "Toss calls waiting for a slot in the lane");
+        for (final TossLaneStats lane : lanes) {
+            writer.sample("toss_lane_queued", lane.getQueued(), "lane", lane.getLane().name());
+        }
+        writer.family("toss_lane_admitted_total", "counter", "Toss calls admitted to the lane");
+        for (final TossLaneStats lane : lanes) {
+            writer.sample("toss_lane_admitted_total", lane.getAdmitted(), "lane", lane.getLane().name());
+        }
+        writer.family("toss_lane_rejected_total", "counter", "Toss calls rejected by the lane (queue full or maximum wait elapsed)");
+        for (final TossLaneStats lane : lanes) {
+            writer.sample("toss_lane_rejected_total", lane.getRejected(), "lane", lane.getLane().name());
+        }
+        writer.family("toss_lane_queue_time_max_seconds", "gauge", "Longest wait for a slot in the lane");
+        for (final TossLaneStats lane : lanes) {
+            writer.sample("toss_lane_queue_time_max_seconds", lane.getMaxQueueTimeMicros() / MICROS_PER_SECOND, "lane", lane.getLane().name());
+        }
+    }
+
+    private void writeInFlightCalls(final TossPrometheusWriter writer) {
+        // Oldest first
+        final List<TossInFlightCall> calls = pluginApi.getRequestLanes().getInFlightCalls();
+        final Map<String, Integer> callsPerTenantAndLane = new HashMap<>();
+        final Map<String, Long> oldestAgePerLane = new HashMap<>();
+        for (final TossInFlightCall call : calls) {
+            final String tenant = call.getKbTenantId() == null ? "" : call.getKbTenantId().toString();
+            callsPerTenantAndLane.merge(call.getLane().name() + '\n' + tenant, 1, Integer::sum);
+            oldestAgePerLane.putIfAbsent(call.getLane().name(), call.getAgeMillis());
+        }
+
+        writer.family("toss_in_flight_calls", "gauge", "Toss calls in flight, per tenant");
+        for (final Map.Entry<String, Integer> entry : callsPerTenantAndLane.entrySet()) {
+            final String[] laneAndTenant = entry.getKey().split("\n", 2);
+            writer.sample("toss_in_flight_calls", entry.getValue(), "lane", laneAndTenant[0], "tenant", laneAndTenant[1]);
+        }
+        writer.family("toss_in_flight_call_oldest_age_seconds", "gauge", "Age of the oldest Toss call in flight");
+        for (final Map.Entry<String, Long> entry : oldestAgePerLane.entrySet()) {
+            writer.sample("toss_in_flight_call_oldest_age_seconds", entry.getValue() / 1000d, "lane", entry.getKey());
+        }
+    }
+
+    private void writePaymentLocks(final TossPrometheusWriter writer) {
+        final TossPaymentLockStats locks = pluginApi.getPaymentLocks().getStats();
+        writer.family("toss_payment_locked_payments", "gauge", "Payments whose lock is held or waited for")
+              .sample("toss_payment_locked_payments", locks.getLockedPayments());
+        writer.family("toss_payment_lock_acquisitions_total", "counter", "Operations run under a payment lock")
+              .sample("toss_payment_lock_acquisitions_total", locks.getAcquisitions());
+        writer.family("toss_payment_lock_contended_total", "counter", "Operations which had to wait for a payment lock")
+              .sample("toss_payment_lock_contended_total", locks.getContended());
+        writer.family("toss_payment_lock_timeouts_total", "counter", "Operations which could not acquire a payment lock in time")
+              .sample("toss_payment_lock_timeouts_total", locks.getTimeouts());
+        writer.family("toss_payment_lock_wait_max_seconds", "gauge", "Longest wait for a payment lock")
+              .sample("toss_payment_lock_wait_max_seconds", locks.getMaxWaitMicros() / MICROS_PER_SECOND);
+    }
+
+    private void writeOccupancy(final TossPrometheusWriter writer) {
+        writer.family("toss_tenant_runtimes", "gauge", "Tenant configurations with a cached runtime (client, validated secret key)")
+              .sample("toss_tenant_runtimes", configurationHandler.getRuntimeCount());
+        writer.family("toss_in_flight_purchases", "gauge", "Purchases sent to Toss whose outcome is not persisted yet")
+              .sample("toss_in_flight_purchases", pluginApi.getInFlightPurchaseCount());
+        writer.family("toss_batch_progress_tracked", "gauge", "Batch charge runs whose progress is cached")
+              .sample("toss_batch_progress_tracked", pluginApi.getTrackedBatchCount());
+
+        final TossResponseJournal journal = pluginApi.getResponseJournal();
+        if (journal != null) {
+            writer.family("toss_response_journal_depth", "gauge", "Toss responses waiting in the recovery journal for the database")
+                  .sample("toss_response_journal_depth", journal.getDepth());
+            writer.family("toss_response_journal_overflowed", "gauge", "1 if a response could not be journaled since the journal was last emptied")
+                  .sample("toss_response_journal_overflowed", journal.hasOverflowed() ? 1 : 0);
+        }
+    }
+}
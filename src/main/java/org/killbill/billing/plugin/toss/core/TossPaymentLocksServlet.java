@@ -0,0 +1,47 @@
+package org.killbill.billing.plugin.toss.core;
+
+import java.io.IOException;
+import java.util.Optional;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jooby.MediaType;
+import org.jooby.Result;
+import org.jooby.Results;
+import org.jooby.Status;
+import org.jooby.mvc.GET;
+import org.jooby.mvc.Local;
+import org.jooby.mvc.Path;
+import org.killbill.billing.plugin.toss.api.TossPaymentLocks;
+import org.killbill.billing.tenant.api.Tenant;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@code GET /plugins/killbill-toss/payment-locks}: how often operations on the same payment had to queue.
+ * Requires an authenticated tenant.
+ */
+@Singleton
+@Path("/payment-locks")
+public class TossPaymentLocksServlet {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final TossPaymentLocks paymentLocks;
+
+    @Inject
+    public TossPaymentLocksServlet(final TossPaymentLocks paymentLocks) {
+        this.paymentLocks = paymentLocks;
+    }
+
+    @GET
+    public Result stats(@Local @Named("killbill_tenant") final Optional<Tenant> tenant) throws IOException {
+        if (tenant.isEmpty()) {
+            return Results.with(Status.UNAUTHORIZED);
+        }
+
+        return Results.with(objectMapper.writeValueAsString(paymentLocks.getStats()), Status.OK)
+                      .type(MediaType.json);
+    }
+}
@@ -0,0 +1,74 @@
+package org.killbill.billing.plugin.toss.core;
+
+/**
+ * Writes metrics in the Prometheus text exposition format (version 0.0.4).
+ */
+final class TossPrometheusWriter {
+
+    private final StringBuilder out = new StringBuilder(8192);
+
+    /**
+     * Start a metric family. Its samples must follow, before the next family.
+     *
+     * @param name the family name
+     * @param type counter, gauge or summary
+     * @param help description of the metric
+     */
+    TossPrometheusWriter family(final String name, final String type, final String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    /**
+     * @param name the sample name
+     * @param value the value
+     * @param labels label names and values, alternately; null values are written as empty strings
+     */
+    TossPrometheusWriter sample(final String name, final double value, final String... labels) {
+        out.append(name);
+        if (labels.length > 0) {
+            out.append('{');
+            for (int i = 0; i + 1 < labels.length; i += 2) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.append(labels[i]).append("=\"");
+                appendEscaped(labels[i + 1]);
+                out.append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+        return this;
+    }
+
+    private void appendEscaped(final String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '\\') {
+                out.append("\\\\");
+            } else if (c == '"') {
+                out.append("\\\"");
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
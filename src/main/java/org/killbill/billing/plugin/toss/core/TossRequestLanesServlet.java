@@ -0,0 +1,47 @@
+package org.killbill.billing.plugin.toss.core;
+
+import java.io.IOException;
+import java.util.Optional;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jooby.MediaType;
+import org.jooby.Result;
+import org.jooby.Results;
+import org.jooby.Status;
+import org.jooby.mvc.GET;
+import org.jooby.mvc.Local;
+import org.jooby.mvc.Path;
+import org.killbill.billing.plugin.toss.client.TossRequestLanes;
+import org.killbill.billing.tenant.api.Tenant;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@code GET /plugins/killbill-toss/lanes}: utilization and queueing time of the Toss call lanes.
+ * Requires an authenticated tenant.
+ */
+@Singleton
+@Path("/lanes")
+public class TossRequestLanesServlet {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final TossRequestLanes requestLanes;
+
+    @Inject
+    public TossRequestLanesServlet(final TossRequestLanes requestLanes) {
+        this.requestLanes = requestLanes;
+    }
+
+    @GET
+    public Result stats(@Local @Named("killbill_tenant") final Optional<Tenant> tenant) throws IOException {
+        if (tenant.isEmpty()) {
+            return Results.with(Status.UNAUTHORIZED);
+        }
+
+        return Results.with(objectMapper.writeValueAsString(requestLanes.getStats()), Status.OK)
+                      .type(MediaType.json);
+    }
+}
@@ -0,0 +1,69 @@
+package org.killbill.billing.plugin.toss.core;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.plugin.toss.client.TossClient;
+
+/**
+ * Everything a plugin call needs for a tenant, derived once from its {@link TossConfigProperties}.
+ *
+ * <p>Built by {@link TossConfigurationHandler} when the configuration is loaded or changes, and replaced as a
+ * whole: callers get a consistent snapshot without re-reading or re-validating the configuration.</p>
+ */
+public final class TossTenantRuntime {
+
+    private static final String[] SECRET_KEY_PREFIXES = {"test_sk", "live_sk", "test_gsk", "live_gsk"};
+
+    private final TossConfigProperties config;
+    private final String secretKey;
+    private final String secretKeyError;
+    private final TossClient client;
+
+    public TossTenantRuntime(final TossConfigProperties config, @Nullable final TossClient client) {
+        this.config = config;
+        this.secretKey = config.getSecretKey() == null ? null : config.getSecretKey().trim();
+        this.secretKeyError = validateSecretKey(secretKey);
+        this.client = client;
+    }
+
+    /**
+     * @return the reason why the secret key cannot be used, null if it looks valid
+     */
+    public static String validateSecretKey(@Nullable final String secretKey) {
+        if (secretKey == null || secretKey.isEmpty()) {
+            return "Toss secretKey not configured";
+        }
+        for (final String prefix : SECRET_KEY_PREFIXES) {
+            if (secretKey.startsWith(prefix)) {
+                return null;
+            }
+        }
+        return "Invalid Toss secretKey format";
+    }
+
+    public TossConfigProperties getConfig() {
+        return config;
+    }
+
+    /**
+     * @return the trimmed secret key
+     */
+    public String getSecretKey() {
+        return secretKey;
+    }
+
+    public boolean isSecretKeyValid() {
+        return secretKeyError == null;
+    }
+
+    public String getSecretKeyError() {
+        return secretKeyError;
+    }
+
+    /**
+     * @return the client built for this configuration, null to use the plugin's shared client
+     */
+    public TossClient getClient() {
+        return client;
+    }
+}
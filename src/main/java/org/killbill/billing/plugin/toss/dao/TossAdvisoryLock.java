@@ -0,0 +1,79 @@
+package org.killbill.billing.plugin.toss.dao;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A database advisory lock held by this node, on a connection dedicated to the lock until it is released.
+ *
+ * <p>Closing the connection does not release a lock: a pooled connection goes back to the pool with its session,
+ * and the session-level locks it holds. If the release fails, the physical connection is aborted instead, which ends
+ * the session (and releases its locks) and makes the pool discard it.</p>
+ */
+public class TossAdvisoryLock implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TossAdvisoryLock.class);
+
+    /**
+     * Releases the lock on the given connection.
+     */
+    interface Release {
+
+        /**
+         * @return false if the lock was not released
+         */
+        boolean release(Connection connection) throws SQLException;
+    }
+
+    private final Connection connection;
+    private final Release release;
+    private final String name;
+
+    TossAdvisoryLock(final Connection connection, final Release release, final String name) {
+        this.connection = connection;
+        this.release = release;
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void close() {
+        try {
+            boolean released;
+            try {
+                released = release.release(connection);
+                if (!released) {
+                    logger.warn("Advisory lock {} was not released", name);
+                }
+            } catch (final SQLException | RuntimeException e) {
+                // jOOQ throws DataAccessException
+                logger.warn("Failed to release advisory lock {}", name, e);
+                released = false;
+            }
+            if (!released) {
+                abort();
+            }
+        } finally {
+            try {
+                connection.close();
+            } catch (final SQLException e) {
+                logger.warn("Failed to close connection of advisory lock {}", name, e);
+            }
+        }
+    }
+
+    private void abort() {
+        try {
+            connection.abort(Runnable::run);
+        } catch (final SQLException | RuntimeException e) {
+            logger.error("Failed to abort the connection of advisory lock {}: the payment stays locked until the connection is recycled", name, e);
+        }
+    }
+}
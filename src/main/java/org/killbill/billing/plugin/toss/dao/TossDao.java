@@ -1,32 +1,59 @@
 package org.killbill.billing.plugin.toss.dao;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import javax.annotation.Nullable;
 import javax.sql.DataSource;
 
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.google.common.collect.Iterables;
 import org.joda.time.DateTime;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
+import org.jooq.types.ULong;
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.payment.api.TransactionType;
 import org.killbill.billing.plugin.dao.payment.PluginPaymentDao;
+import org.killbill.billing.plugin.toss.client.TossSensitiveDataMasker;
 import org.killbill.billing.plugin.toss.client.exception.TossApplicationException;
+import org.killbill.billing.plugin.toss.client.model.BillingKeyPaymentRequest;
+import org.killbill.billing.plugin.toss.client.model.LazyTossPayment;
 import org.killbill.billing.plugin.toss.client.model.TossPayment;
+import org.killbill.billing.plugin.toss.client.model.TossPaymentSummary;
 import org.killbill.billing.plugin.toss.dao.gen.tables.TossPaymentMethods;
 import org.killbill.billing.plugin.toss.dao.gen.tables.TossResponses;
+import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossBillingIntentsRecord;
 import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossPaymentMethodsRecord;
 import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossResponsesRecord;
+import org.killbill.billing.plugin.toss.metrics.TossDaoOperationEvent;
+import org.killbill.billing.plugin.toss.metrics.TossFlightRecorder;
+import org.killbill.billing.plugin.toss.metrics.TossMetrics;
+import org.killbill.billing.plugin.toss.metrics.TossOperation;
 
 import org.killbill.billing.plugin.toss.client.model.TossBilling;
 
+import static org.killbill.billing.plugin.toss.dao.gen.tables.TossBillingIntents.TOSS_BILLING_INTENTS;
 import static org.killbill.billing.plugin.toss.dao.gen.tables.TossPaymentMethods.TOSS_PAYMENT_METHODS;
 import static org.killbill.billing.plugin.toss.dao.gen.tables.TossResponses.TOSS_RESPONSES;
 
@@ -35,10 +62,78 @@ public class TossDao extends PluginPaymentDao<TossResponsesRecord, TossResponses
     public static final short TRUE = 1;
     public static final short FALSE = 0;
 
+    // Keep IN lists well below the limits of the supported databases
+    private static final int MAX_IN_CLAUSE_SIZE = 500;
+
+    // First key of the PostgreSQL two-key advisory locks taken by this plugin ("TOSS")
+    private static final int ADVISORY_LOCK_NAMESPACE = 0x544F5353;
+    private static final String ADVISORY_LOCK_PREFIX = "killbill-toss-";
+    private static final long ADVISORY_LOCK_MAX_POLL_MILLIS = 100;
+
+    private static final char LIKE_ESCAPE = '!';
+
+    // Masked card number, as quoted by a customer or returned by Toss (e.g. 4330-12**-****-1234, 43301234****123*)
+    private static final Pattern MASKED_CARD_NUMBER = Pattern.compile("[0-9*]*[0-9][0-9*]{3}");
+
+    // Prefix of compressed additional_data: base64 of the gzipped JSON
+    private static final String GZIP_PREFIX = "gzip:";
+
+    private final boolean storeRawResponses;
+    private final boolean compressRawResponses;
+    private final TossMetrics metrics;
+
     public TossDao(final DataSource dataSource) throws SQLException {
+        this(dataSource, false, false);
+    }
+
+    /**
+     * @param dataSource the data source
+     * @param storeRawResponses store the Toss response bytes as-is in additional_data, instead of re-serializing the TossPayment
+     * @param compressRawResponses gzip the raw responses (additional_data is then {@code gzip:<base64>})
+     */
+    public TossDao(final DataSource dataSource,
+                   final boolean storeRawResponses,
+                   final boolean compressRawResponses) throws SQLException {
+        this(dataSource, storeRawResponses, compressRawResponses, new TossMetrics());
+    }
+
+    /**
+     * @param dataSource the data source
+     * @param storeRawResponses store the Toss response bytes as-is in additional_data, instead of re-serializing the TossPayment
+     * @param compressRawResponses gzip the raw responses (additional_data is then {@code gzip:<base64>})
+     * @param metrics where the latency of the queries is recorded
+     */
+    public TossDao(final DataSource dataSource,
+                   final boolean storeRawResponses,
+                   final boolean compressRawResponses,
+                   final TossMetrics metrics) throws SQLException {
         super(new TossResponses(), new TossPaymentMethods(), dataSource);
         // Save space in the database
         objectMapper.setSerializationInclusion(Include.NON_EMPTY);
+        this.storeRawResponses = storeRawResponses;
+        this.compressRawResponses = compressRawResponses;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Run a query on a pooled connection, recording its latency (including the wait for the connection)
+     * and a JFR event.
+     */
+    private <T> T execute(final TossOperation operation,
+                          @Nullable final UUID kbTenantId,
+                          final WithConnectionCallback<T> callback) throws SQLException {
+        final TossDaoOperationEvent event = TossFlightRecorder.beginDaoOperation();
+        final long startNanos = System.nanoTime();
+        try {
+            final T result = execute(dataSource.getConnection(), callback);
+            metrics.recordSuccess(operation, kbTenantId, TossMetrics.STATUS_OK, System.nanoTime() - startNanos);
+            TossFlightRecorder.endDaoOperation(event, operation, result, null);
+            return result;
+        } catch (final SQLException | RuntimeException e) {
+            metrics.recordFailure(operation, kbTenantId, e, System.nanoTime() - startNanos);
+            TossFlightRecorder.endDaoOperation(event, operation, null, e);
+            throw e;
+        }
     }
 
     /**
@@ -69,54 +164,115 @@ public class TossDao extends PluginPaymentDao<TossResponsesRecord, TossResponses
                                            @Nullable final TossApplicationException tossException,
                                            final DateTime utcNow,
                                            final UUID kbTenantId) throws SQLException {
-        final Map<String, Object> additionalDataMap;
-        if (tossPayment != null) {
-            additionalDataMap = toAdditionalDataMap(tossPayment);
-        } else if (tossException != null) {
-            additionalDataMap = toAdditionalDataMap(tossException);
-        } else {
-            additionalDataMap = Collections.emptyMap();
-        }
+        final TossResponseEntry entry = new TossResponseEntry(kbAccountId,
+                                                              kbPaymentId,
+                                                              kbPaymentTransactionId,
+                                                              transactionType,
+                                                              amount,
+                                                              currency,
+                                                              paymentKey,
+                                                              tossPayment,
+                                                              tossException,
+                                                              utcNow,
+                                                              kbTenantId);
 
-        return execute(dataSource.getConnection(),
+        return execute(TossOperation.ADD_RESPONSE, kbTenantId,
                        conn -> DSL.using(conn, dialect, settings).transactionResult(configuration -> {
                            final DSLContext dslContext = DSL.using(configuration);
-                           dslContext.insertInto(TOSS_RESPONSES,
-                                                 TOSS_RESPONSES.KB_ACCOUNT_ID,
-                                                 TOSS_RESPONSES.KB_PAYMENT_ID,
-                                                 TOSS_RESPONSES.KB_PAYMENT_TRANSACTION_ID,
-                                                 TOSS_RESPONSES.TRANSACTION_TYPE,
-                                                 TOSS_RESPONSES.AMOUNT,
-                                                 TOSS_RESPONSES.CURRENCY,
-                                                 TOSS_RESPONSES.PAYMENT_KEY,
-                                                 TOSS_RESPONSES.ORDER_ID,
-                                                 TOSS_RESPONSES.TOSS_PAYMENT_STATUS,
-                                                 TOSS_RESPONSES.TOSS_METHOD,
-                                                 TOSS_RESPONSES.TOSS_RECEIPT_URL,
-                                                 TOSS_RESPONSES.ADDITIONAL_DATA,
-                                                 TOSS_RESPONSES.CREATED_DATE,
-                                                 TOSS_RESPONSES.KB_TENANT_ID)
-                                      .values(kbAccountId.toString(),
-                                              kbPaymentId.toString(),
-                                   kbPaymentTransactionId == null ? null : kbPaymentTransactionId.toString(),
-                                              transactionType.toString(),
-                                              amount,
-                                              currency == null ? null : currency.name(),
-                                              paymentKey,
-                                              tossPayment == null ? null : tossPayment.getOrderId(),
-                                              tossPayment == null ? null : tossPayment.getStatus(),
-                                              tossPayment == null ? null : tossPayment.getMethod(),
-                                              extractReceiptUrl(tossPayment),
-                                              asString(additionalDataMap),
-                                              toLocalDateTime(utcNow),
-                                              kbTenantId.toString())
-                                      .execute();
+                           insertResponses(dslContext, Collections.singletonList(entry));
                            return dslContext.fetchOne(
                                    TOSS_RESPONSES,
                                    TOSS_RESPONSES.RECORD_ID.eq(TOSS_RESPONSES.RECORD_ID.getDataType().convert(dslContext.lastID())));
                        }));
     }
 
+    /**
+     * Add several response records in a single transaction, using multi-row inserts.
+     * Used by batch charge runs to persist progress in chunks instead of one commit per payment.
+     *
+     * @param entries the responses to persist
+     * @throws SQLException if a database error occurs
+     */
+    public void addResponses(final List<TossResponseEntry> entries) throws SQLException {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        execute(TossOperation.ADD_RESPONSES, entries.get(0).getKbTenantId(),
+                conn -> DSL.using(conn, dialect, settings).transactionResult(configuration -> {
+                    insertResponses(DSL.using(configuration), entries);
+                    return null;
+                }));
+    }
+
+    private void insertResponses(final DSLContext dslContext, final List<TossResponseEntry> entries) {
+        var insert = dslContext.insertInto(TOSS_RESPONSES,
+                                           TOSS_RESPONSES.KB_ACCOUNT_ID,
+                                           TOSS_RESPONSES.KB_PAYMENT_ID,
+                                           TOSS_RESPONSES.KB_PAYMENT_TRANSACTION_ID,
+                                           TOSS_RESPONSES.TRANSACTION_TYPE,
+                                           TOSS_RESPONSES.AMOUNT,
+                                           TOSS_RESPONSES.CURRENCY,
+                                           TOSS_RESPONSES.PAYMENT_KEY,
+                                           TOSS_RESPONSES.ORDER_ID,
+                                           TOSS_RESPONSES.TOSS_PAYMENT_STATUS,
+                                           TOSS_RESPONSES.TOSS_METHOD,
+                                           TOSS_RESPONSES.TOSS_RECEIPT_URL,
+                                           TOSS_RESPONSES.ADDITIONAL_DATA,
+                                           TOSS_RESPONSES.CREATED_DATE,
+                                           TOSS_RESPONSES.KB_TENANT_ID);
+        for (final TossResponseEntry entry : entries) {
+            final TossPayment tossPayment = entry.getTossPayment();
+            // Read through the summary, to not materialize lazily parsed payments
+            final TossPaymentSummary summary = tossPayment == null ? null : TossPaymentSummary.of(tossPayment);
+            insert = insert.values(entry.getKbAccountId().toString(),
+                                   entry.getKbPaymentId().toString(),
+                                   entry.getKbPaymentTransactionId() == null ? null : entry.getKbPaymentTransactionId().toString(),
+                                   entry.getTransactionType().toString(),
+                                   entry.getAmount(),
+                                   entry.getCurrency() == null ? null : entry.getCurrency().name(),
+                                   entry.getPaymentKey(),
+                                   summary == null ? null : summary.getOrderId(),
+                                   summary == null ? null : summary.getStatus(),
+                                   summary == null ? null : summary.getMethod(),
+                                   summary == null ? null : summary.getReceiptUrl(),
+                                   toAdditionalData(entry),
+                                   toLocalDateTime(entry.getUtcNow()),
+                                   entry.getKbTenantId().toString());
+        }
+        insert.execute();
+    }
+
+    String toAdditionalData(final TossResponseEntry entry) {
+        if (storeRawResponses && entry.getTossPayment() instanceof LazyTossPayment) {
+            // Exact copy of what Toss sent, including the fields unknown to TossPayment
+            final byte[] rawResponse = ((LazyTossPayment) entry.getTossPayment()).getRawResponse();
+            return compressRawResponses ? GZIP_PREFIX + Base64.getEncoder().encodeToString(gzip(rawResponse))
+                                        : new String(rawResponse, StandardCharsets.UTF_8);
+        }
+        return asString(toAdditionalDataMap(entry));
+    }
+
+    private static byte[] gzip(final byte[] bytes) {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (final OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(bytes);
+        } catch (final IOException e) {
+            throw new RuntimeException("Failed to compress Toss response", e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private Map<String, Object> toAdditionalDataMap(final TossResponseEntry entry) {
+        if (entry.getTossPayment() != null) {
+            return toAdditionalDataMap(entry.getTossPayment());
+        } else if (entry.getTossException() != null) {
+            return toAdditionalDataMap(entry.getTossException());
+        } else {
+            return Collections.emptyMap();
+        }
+    }
+
     /**
      * Convert TossPayment to additional data map for JSON storage.
      */
@@ -137,7 +293,7 @@ public class TossDao extends PluginPaymentDao<TossResponsesRecord, TossResponses
         try {
             final Map<String, Object> map = new java.util.HashMap<>();
             map.put("errorCode", tossException.getTossError().getCode());
-            map.put("errorMessage", maskSensitiveData(tossException.getTossError().getMessage()));
+            map.put("errorMessage", TossSensitiveDataMasker.mask(tossException.getTossError().getMessage()));
             map.put("statusCode", tossException.getStatusCode());
             return map;
         } catch (final Exception e) {
@@ -146,33 +302,25 @@ public class TossDao extends PluginPaymentDao<TossResponsesRecord, TossResponses
     }
 
     /**
-     * Extract receipt URL from TossPayment, handling null values.
-     */
-    private String extractReceiptUrl(@Nullable final TossPayment tossPayment) {
-        if (tossPayment == null) {
-            return null;
-        }
-        if (tossPayment.getReceipt() != null) {
-            return tossPayment.getReceipt().getUrl();
-        }
-        if (tossPayment.getCard() != null) {
-            return tossPayment.getCard().getReceiptUrl();
-        }
-        return null;
-    }
-
-    /**
-     * Mask sensitive data in error messages (credit card numbers, etc.).
+     * Delete the PENDING placeholder of a transaction, persisted when Toss did not answer in time, once it is known
+     * that nothing was sent to Toss: the transaction can then be retried, instead of staying PENDING.
+     *
+     * @param kbTransactionId the Kill Bill payment transaction ID
+     * @param kbTenantId the Kill Bill tenant ID
+     * @return the number of rows deleted
+     * @throws SQLException if a database error occurs
      */
-    private String maskSensitiveData(final String message) {
-        if (message == null) {
-            return null;
-        }
-        // Mask credit card numbers (16 digits)
-        String masked = message.replaceAll("\\b\\d{4}[\\s-]?\\d{4}[\\s-]?\\d{4}[\\s-]?\\d{4}\\b", "****-****-****-****");
-        // Mask any other long numeric sequences (potential card numbers)
-        masked = masked.replaceAll("\\b\\d{13,19}\\b", "****");
-        return masked;
+    public int deletePendingResponse(final UUID kbTransactionId,
+                                     final UUID kbTenantId) throws SQLException {
+        return execute(TossOperation.DELETE_PENDING_RESPONSE, kbTenantId,
+                       conn -> DSL.using(conn, dialect, settings)
+                                  .deleteFrom(TOSS_RESPONSES)
+                                  .where(TOSS_RESPONSES.KB_PAYMENT_TRANSACTION_ID.equal(kbTransactionId.toString()))
+                                  .and(TOSS_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                  .and(TOSS_RESPONSES.PAYMENT_KEY.isNull())
+                                  .and(TOSS_RESPONSES.TOSS_PAYMENT_STATUS.isNull())
+                                  .and(TOSS_RESPONSES.ADDITIONAL_DATA.isNull().or(TOSS_RESPONSES.ADDITIONAL_DATA.equal("{}")))
+                                  .execute());
     }
 
     /**
@@ -187,7 +335,7 @@ public class TossDao extends PluginPaymentDao<TossResponsesRecord, TossResponses
      */
     public TossResponsesRecord getResponse(final UUID kbTransactionId,
                                            final UUID kbTenantId) throws SQLException {
-        return execute(dataSource.getConnection(),
+        return execute(TossOperation.GET_RESPONSE, kbTenantId,
                        new WithConnectionCallback<TossResponsesRecord>() {
                            @Override
                            public TossResponsesRecord withConnection(final Connection conn) throws SQLException {
@@ -212,7 +360,7 @@ public class TossDao extends PluginPaymentDao<TossResponsesRecord, TossResponses
      */
     public TossResponsesRecord getResponseByPaymentId(final UUID kbPaymentId,
                                                       final UUID kbTenantId) throws SQLException {
-        return execute(dataSource.getConnection(),
+        return execute(TossOperation.GET_RESPONSE_BY_PAYMENT, kbTenantId,
                        new WithConnectionCallback<TossResponsesRecord>() {
                            @Override
                            public TossResponsesRecord withConnection(final Connection conn) throws SQLException {
@@ -238,7 +386,7 @@ public class TossDao extends PluginPaymentDao<TossResponsesRecord, TossResponses
      */
     public TossResponsesRecord getSuccessfulPurchaseResponse(final UUID kbPaymentId,
                                                              final UUID kbTenantId) throws SQLException {
-        return execute(dataSource.getConnection(),
+        return execute(TossOperation.GET_SUCCESSFUL_PURCHASE, kbTenantId,
                        new WithConnectionCallback<TossResponsesRecord>() {
                            @Override
                            public TossResponsesRecord withConnection(final Connection conn) throws SQLException {
@@ -255,6 +403,118 @@ public class TossDao extends PluginPaymentDao<TossResponsesRecord, TossResponses
                        });
     }
 
+    /**
+     * Get the most recent response of each of the given transactions, in bulk.
+     * Used by batch charge runs to prefetch idempotency state in a few queries.
+     *
+     * @param kbTransactionIds the Kill Bill payment transaction IDs
+     * @param kbTenantId the Kill Bill tenant ID
+     * @return the most recent TossResponsesRecord per transaction ID (transactions without a response are absent)
+     * @throws SQLException if a database error occurs
+     */
+    public Map<UUID, TossResponsesRecord> getResponsesByTransactionIds(final Collection<UUID> kbTransactionIds,
+                                                                       final UUID kbTenantId) throws SQLException {
+        final Map<UUID, TossResponsesRecord> responses = new HashMap<>();
+        for (final List<String> chunk : Iterables.partition(toStrings(kbTransactionIds), MAX_IN_CLAUSE_SIZE)) {
+            final List<TossResponsesRecord> records = execute(TossOperation.GET_RESPONSES_BY_TRANSACTIONS, kbTenantId,
+                                                              conn -> DSL.using(conn, dialect, settings)
+                                                                         .selectFrom(TOSS_RESPONSES)
+                                                                         .where(TOSS_RESPONSES.KB_PAYMENT_TRANSACTION_ID.in(chunk))
+                                                                         .and(TOSS_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                                                         .orderBy(TOSS_RESPONSES.RECORD_ID.asc())
+                                                                         .fetch());
+            // Ordered by record_id, so the most recent response of a transaction wins
+            for (final TossResponsesRecord record : records) {
+                responses.put(UUID.fromString(record.getKbPaymentTransactionId()), record);
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Search responses, one page at a time (keyset pagination on record_id).
+     * The search key is matched exactly against the paymentKey, orderId and kbPaymentId, and as a prefix
+     * against the receipt URL when it looks like a URL. Every predicate is backed by an index.
+     *
+     * @param searchKey the search key
+     * @param afterRecordId only return responses with a greater record_id
+     * @param pageSize maximum number of responses to return
+     * @param kbTenantId the Kill Bill tenant ID
+     * @return the matching responses, ordered by record_id
+     * @throws SQLException if a database error occurs
+     */
+    public List<TossResponsesRecord> searchResponses(final String searchKey,
+                                                     final long afterRecordId,
+                                                     final int pageSize,
+                                                     final UUID kbTenantId) throws SQLException {
+        final Condition condition = responsesMatching(searchKey, kbTenantId);
+        return execute(TossOperation.SEARCH_RESPONSES, kbTenantId,
+                       conn -> DSL.using(conn, dialect, settings)
+                                  .selectFrom(TOSS_RESPONSES)
+                                  .where(condition)
+                                  .and(TOSS_RESPONSES.RECORD_ID.greaterThan(ULong.valueOf(afterRecordId)))
+                                  .orderBy(TOSS_RESPONSES.RECORD_ID.asc())
+                                  .limit(pageSize)
+                                  .fetch());
+    }
+
+    /**
+     * @param searchKey the search key, see {@link #searchResponses}
+     * @param cap maximum number of responses to count
+     * @param kbTenantId the Kill Bill tenant ID
+     * @return the number of matching responses, at most {@code cap}
+     * @throws SQLException if a database error occurs
+     */
+    public long countResponses(final String searchKey,
+                               final long cap,
+                               final UUID kbTenantId) throws SQLException {
+        final Condition condition = responsesMatching(searchKey, kbTenantId);
+        return execute(TossOperation.SEARCH_RESPONSES, kbTenantId,
+                       conn -> (long) DSL.using(conn, dialect, settings)
+                                         .fetchCount(DSL.selectOne()
+                                                        .from(TOSS_RESPONSES)
+                                                        .where(condition)
+                                                        .limit(cap)));
+    }
+
+    /**
+     * @param searchKey the search key, see {@link #searchResponses}
+     * @param position position of the response among the matching responses ordered by record_id, from 0
+     * @param kbTenantId the Kill Bill tenant ID
+     * @return the record_id of the response at this position, null if fewer responses match
+     * @throws SQLException if a database error occurs
+     */
+    @Nullable
+    public Long getResponseRecordIdAt(final String searchKey,
+                                      final long position,
+                                      final UUID kbTenantId) throws SQLException {
+        final Condition condition = responsesMatching(searchKey, kbTenantId);
+        return execute(TossOperation.SEARCH_RESPONSES, kbTenantId,
+                       conn -> {
+                           final ULong recordId = DSL.using(conn, dialect, settings)
+                                                     .select(TOSS_RESPONSES.RECORD_ID)
+                                                     .from(TOSS_RESPONSES)
+                                                     .where(condition)
+                                                     .orderBy(TOSS_RESPONSES.RECORD_ID.asc())
+                                                     .limit(1)
+                                                     .offset(position)
+                                                     .fetchOne(TOSS_RESPONSES.RECORD_ID);
+                           return recordId == null ? null : recordId.longValue();
+                       });
+    }
+
+    private static Condition responsesMatching(final String searchKey, final UUID kbTenantId) {
+        Condition matches = TOSS_RESPONSES.PAYMENT_KEY.equal(searchKey)
+                                                      .or(TOSS_RESPONSES.ORDER_ID.equal(searchKey));
+        if (isUUID(searchKey)) {
+            matches = matches.or(TOSS_RESPONSES.KB_PAYMENT_ID.equal(searchKey));
+        }
+        if (searchKey.startsWith("http")) {
+            matches = matches.or(TOSS_RESPONSES.TOSS_RECEIPT_URL.like(escapeLike(searchKey) + "%", LIKE_ESCAPE));
+        }
+        return matches.and(TOSS_RESPONSES.KB_TENANT_ID.equal(kbTenantId.toString()));
+    }
+
     /**
      * Deserialize additional data from JSON string to Map.
      */
@@ -264,52 +524,317 @@ public class TossDao extends PluginPaymentDao<TossResponsesRecord, TossResponses
         }
 
         try {
-            return objectMapper.readValue(additionalData, Map.class);
+            return objectMapper.readValue(decodeAdditionalData(additionalData), Map.class);
         } catch (final IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * @return the JSON of additional data, decompressed if needed
+     */
+    public static String decodeAdditionalData(final String additionalData) {
+        if (!additionalData.startsWith(GZIP_PREFIX)) {
+            return additionalData;
+        }
+
+        final byte[] compressed = Base64.getDecoder().decode(additionalData.substring(GZIP_PREFIX.length()));
+        try (final InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            throw new RuntimeException("Failed to decompress additional data", e);
+        }
+    }
+
     public void addPaymentMethod(final UUID kbAccountId,
                                  final UUID kbPaymentMethodId,
                                  final boolean isDefault,
                                  final TossBilling tossBilling,
                                  final DateTime utcNow,
                                  final UUID kbTenantId) throws SQLException {
-        final Map<String, Object> additionalDataMap = toAdditionalDataMap(tossBilling);
-
-        execute(dataSource.getConnection(),
+        execute(TossOperation.ADD_PAYMENT_METHOD, kbTenantId,
                 conn -> DSL.using(conn, dialect, settings).transactionResult(configuration -> {
-                    final DSLContext dslContext = DSL.using(configuration);
-                    dslContext.insertInto(TOSS_PAYMENT_METHODS,
-                                          TOSS_PAYMENT_METHODS.KB_ACCOUNT_ID,
-                                          TOSS_PAYMENT_METHODS.KB_PAYMENT_METHOD_ID,
-                                          TOSS_PAYMENT_METHODS.BILLING_KEY,
-                                          TOSS_PAYMENT_METHODS.CUSTOMER_KEY,
-                                          TOSS_PAYMENT_METHODS.IS_DEFAULT,
-                                          TOSS_PAYMENT_METHODS.IS_DELETED,
-                                          TOSS_PAYMENT_METHODS.ADDITIONAL_DATA,
-                                          TOSS_PAYMENT_METHODS.CREATED_DATE,
-                                          TOSS_PAYMENT_METHODS.UPDATED_DATE,
-                                          TOSS_PAYMENT_METHODS.KB_TENANT_ID)
-                               .values(kbAccountId.toString(),
-                                       kbPaymentMethodId.toString(),
-                                       tossBilling.getBillingKey(),
-                                       tossBilling.getCustomerKey(),
-                                       isDefault ? TRUE : FALSE,
-                                       FALSE,
-                                       asString(additionalDataMap),
-                                       toLocalDateTime(utcNow),
-                                       toLocalDateTime(utcNow),
-                                       kbTenantId.toString())
-                               .execute();
+                    insertPaymentMethod(DSL.using(configuration), kbAccountId, kbPaymentMethodId, isDefault, tossBilling, utcNow, kbTenantId);
                     return null;
                 }));
     }
 
+    private void insertPaymentMethod(final DSLContext dslContext,
+                                     final UUID kbAccountId,
+                                     final UUID kbPaymentMethodId,
+                                     final boolean isDefault,
+                                     final TossBilling tossBilling,
+                                     final DateTime utcNow,
+                                     final UUID kbTenantId) {
+        final Map<String, Object> additionalDataMap = toAdditionalDataMap(tossBilling);
+
+        dslContext.insertInto(TOSS_PAYMENT_METHODS,
+                              TOSS_PAYMENT_METHODS.KB_ACCOUNT_ID,
+                              TOSS_PAYMENT_METHODS.KB_PAYMENT_METHOD_ID,
+                              TOSS_PAYMENT_METHODS.BILLING_KEY,
+                              TOSS_PAYMENT_METHODS.CUSTOMER_KEY,
+                              TOSS_PAYMENT_METHODS.CARD_ISSUER_CODE,
+                              TOSS_PAYMENT_METHODS.CARD_LAST4,
+                              TOSS_PAYMENT_METHODS.IS_DEFAULT,
+                              TOSS_PAYMENT_METHODS.IS_DELETED,
+                              TOSS_PAYMENT_METHODS.ADDITIONAL_DATA,
+                              TOSS_PAYMENT_METHODS.CREATED_DATE,
+                              TOSS_PAYMENT_METHODS.UPDATED_DATE,
+                              TOSS_PAYMENT_METHODS.KB_TENANT_ID)
+                  .values(kbAccountId.toString(),
+                          kbPaymentMethodId.toString(),
+                          tossBilling.getBillingKey(),
+                          tossBilling.getCustomerKey(),
+                          extractCardIssuerCode(tossBilling),
+                          extractCardLast4(tossBilling),
+                          isDefault ? TRUE : FALSE,
+                          FALSE,
+                          asString(additionalDataMap),
+                          toLocalDateTime(utcNow),
+                          toLocalDateTime(utcNow),
+                          kbTenantId.toString())
+                  .execute();
+    }
+
+    /**
+     * Record a billing key issued for a first purchase, before the purchase is sent to Toss.
+     *
+     * <p>The intent holds everything needed to store the payment method and to send the purchase again. It is deleted by
+     * {@link #completeBillingIntent} once both are persisted: an intent left behind denotes an interrupted flow.</p>
+     *
+     * @param kbAccountId the Kill Bill account ID
+     * @param kbPaymentId the Kill Bill payment ID
+     * @param kbPaymentTransactionId the Kill Bill payment transaction ID (also the Toss idempotency key of the purchase)
+     * @param kbPaymentMethodId the Kill Bill payment method ID
+     * @param amount the payment amount
+     * @param currency the payment currency
+     * @param isDefault whether the payment method is the default one of the account
+     * @param tossBilling the issued billing key
+     * @param paymentRequest the purchase request sent with the billing key
+     * @param utcNow the current UTC time
+     * @param kbTenantId the Kill Bill tenant ID
+     * @return the created TossBillingIntentsRecord
+     * @throws SQLException if a database error occurs
+     */
+    public TossBillingIntentsRecord addBillingIntent(final UUID kbAccountId,
+                                                     final UUID kbPaymentId,
+                                                     final UUID kbPaymentTransactionId,
+                                                     final UUID kbPaymentMethodId,
+                                                     final BigDecimal amount,
+                                                     final Currency currency,
+                                                     final boolean isDefault,
+                                                     final TossBilling tossBilling,
+                                                     final BillingKeyPaymentRequest paymentRequest,
+                                                     final DateTime utcNow,
+                                                     final UUID kbTenantId) throws SQLException {
+        final String billingResponse;
+        final String serializedPaymentRequest;
+        try {
+            billingResponse = objectMapper.writeValueAsString(tossBilling);
+            serializedPaymentRequest = objectMapper.writeValueAsString(paymentRequest);
+        } catch (final IOException e) {
+            throw new RuntimeException("Failed to serialize billing intent", e);
+        }
+
+        return execute(TossOperation.ADD_BILLING_INTENT, kbTenantId,
+                       conn -> DSL.using(conn, dialect, settings).transactionResult(configuration -> {
+                           final DSLContext dslContext = DSL.using(configuration);
+                           dslContext.insertInto(TOSS_BILLING_INTENTS,
+                                                 TOSS_BILLING_INTENTS.KB_ACCOUNT_ID,
+                                                 TOSS_BILLING_INTENTS.KB_PAYMENT_ID,
+                                                 TOSS_BILLING_INTENTS.KB_PAYMENT_TRANSACTION_ID,
+                                                 TOSS_BILLING_INTENTS.KB_PAYMENT_METHOD_ID,
+                                                 TOSS_BILLING_INTENTS.AMOUNT,
+                                                 TOSS_BILLING_INTENTS.CURRENCY,
+                                                 TOSS_BILLING_INTENTS.IS_DEFAULT,
+                                                 TOSS_BILLING_INTENTS.BILLING_KEY,
+                                                 TOSS_BILLING_INTENTS.BILLING_RESPONSE,
+                                                 TOSS_BILLING_INTENTS.PAYMENT_REQUEST,
+                                                 TOSS_BILLING_INTENTS.CREATED_DATE,
+                                                 TOSS_BILLING_INTENTS.KB_TENANT_ID)
+                                     .values(kbAccountId.toString(),
+                                             kbPaymentId.toString(),
+                                             kbPaymentTransactionId.toString(),
+                                             kbPaymentMethodId.toString(),
+                                             amount,
+                                             currency == null ? null : currency.name(),
+                                             isDefault ? TRUE : FALSE,
+                                             tossBilling.getBillingKey(),
+                                             billingResponse,
+                                             serializedPaymentRequest,
+                                             toLocalDateTime(utcNow),
+                                             kbTenantId.toString())
+                                     .execute();
+                           return dslContext.fetchOne(
+                                   TOSS_BILLING_INTENTS,
+                                   TOSS_BILLING_INTENTS.RECORD_ID.eq(TOSS_BILLING_INTENTS.RECORD_ID.getDataType().convert(dslContext.lastID())));
+                       }));
+    }
+
+    /**
+     * @return the billing intents of all tenants, oldest first
+     * @throws SQLException if a database error occurs
+     */
+    public List<TossBillingIntentsRecord> getBillingIntents() throws SQLException {
+        return execute(TossOperation.GET_BILLING_INTENTS, null,
+                       conn -> DSL.using(conn, dialect, settings)
+                                  .selectFrom(TOSS_BILLING_INTENTS)
+                                  .orderBy(TOSS_BILLING_INTENTS.RECORD_ID.asc())
+                                  .fetch());
+    }
+
+    /**
+     * Store the payment method of a billing intent and, if any, the response of its purchase, and delete the intent,
+     * in a single transaction.
+     *
+     * @param intent the billing intent
+     * @param entry the purchase response, null if the purchase never reached Toss
+     * @param utcNow the current UTC time
+     * @return false if the intent had already been completed, in which case nothing is stored
+     * @throws SQLException if a database error occurs
+     */
+    public boolean completeBillingIntent(final TossBillingIntentsRecord intent,
+                                         @Nullable final TossResponseEntry entry,
+                                         final DateTime utcNow) throws SQLException {
+        final TossBilling tossBilling = toTossBilling(intent);
+
+        return execute(TossOperation.COMPLETE_BILLING_INTENT, UUID.fromString(intent.getKbTenantId()),
+                       conn -> DSL.using(conn, dialect, settings).transactionResult(configuration -> {
+                           final DSLContext dslContext = DSL.using(configuration);
+                           // Deleted first: whoever deletes the intent stores its payment method
+                           final int deleted = dslContext.deleteFrom(TOSS_BILLING_INTENTS)
+                                                         .where(TOSS_BILLING_INTENTS.RECORD_ID.equal(intent.getRecordId()))
+                                                         .execute();
+                           if (deleted == 0) {
+                               return false;
+                           }
+                           insertPaymentMethod(dslContext,
+                                               UUID.fromString(intent.getKbAccountId()),
+                                               UUID.fromString(intent.getKbPaymentMethodId()),
+                                               intent.getIsDefault() != null && intent.getIsDefault() == TRUE,
+                                               tossBilling,
+                                               utcNow,
+                                               UUID.fromString(intent.getKbTenantId()));
+                           if (entry != null) {
+                               insertResponses(dslContext, Collections.singletonList(entry));
+                           }
+                           return true;
+                       }));
+    }
+
+    public static TossBilling toTossBilling(final TossBillingIntentsRecord intent) {
+        try {
+            return objectMapper.readValue(intent.getBillingResponse(), TossBilling.class);
+        } catch (final IOException e) {
+            throw new RuntimeException("Failed to deserialize billing response of intent " + intent.getRecordId(), e);
+        }
+    }
+
+    public static BillingKeyPaymentRequest toPaymentRequest(final TossBillingIntentsRecord intent) {
+        try {
+            return objectMapper.readValue(intent.getPaymentRequest(), BillingKeyPaymentRequest.class);
+        } catch (final IOException e) {
+            throw new RuntimeException("Failed to deserialize payment request of intent " + intent.getRecordId(), e);
+        }
+    }
+
+    /**
+     * Search (non deleted) payment methods, one page at a time (keyset pagination on record_id).
+     * The search key is matched exactly against the billingKey and customerKey and, when it looks like a
+     * (masked) card number, against the last four digits of the card. Every predicate is backed by an index.
+     *
+     * @param searchKey the search key
+     * @param cardIssuerCode optional Toss issuer code of the card (e.g. {@code 61}), to narrow down a card number search
+     * @param afterRecordId only return payment methods with a greater record_id
+     * @param pageSize maximum number of payment methods to return
+     * @param kbTenantId the Kill Bill tenant ID
+     * @return the matching payment methods, ordered by record_id
+     * @throws SQLException if a database error occurs
+     */
+    public List<TossPaymentMethodsRecord> searchPaymentMethods(final String searchKey,
+                                                               @Nullable final String cardIssuerCode,
+                                                               final long afterRecordId,
+                                                               final int pageSize,
+                                                               final UUID kbTenantId) throws SQLException {
+        final Condition condition = paymentMethodsMatching(searchKey, cardIssuerCode, kbTenantId);
+        return execute(TossOperation.SEARCH_PAYMENT_METHODS, kbTenantId,
+                       conn -> DSL.using(conn, dialect, settings)
+                                  .selectFrom(TOSS_PAYMENT_METHODS)
+                                  .where(condition)
+                                  .and(TOSS_PAYMENT_METHODS.RECORD_ID.greaterThan(ULong.valueOf(afterRecordId)))
+                                  .orderBy(TOSS_PAYMENT_METHODS.RECORD_ID.asc())
+                                  .limit(pageSize)
+                                  .fetch());
+    }
+
+    /**
+     * @param searchKey the search key, see {@link #searchPaymentMethods}
+     * @param cardIssuerCode optional Toss issuer code of the card
+     * @param cap maximum number of payment methods to count
+     * @param kbTenantId the Kill Bill tenant ID
+     * @return the number of matching payment methods, at most {@code cap}
+     * @throws SQLException if a database error occurs
+     */
+    public long countPaymentMethods(final String searchKey,
+                                    @Nullable final String cardIssuerCode,
+                                    final long cap,
+                                    final UUID kbTenantId) throws SQLException {
+        final Condition condition = paymentMethodsMatching(searchKey, cardIssuerCode, kbTenantId);
+        return execute(TossOperation.SEARCH_PAYMENT_METHODS, kbTenantId,
+                       conn -> (long) DSL.using(conn, dialect, settings)
+                                         .fetchCount(DSL.selectOne()
+                                                        .from(TOSS_PAYMENT_METHODS)
+                                                        .where(condition)
+                                                        .limit(cap)));
+    }
+
+    /**
+     * @param searchKey the search key, see {@link #searchPaymentMethods}
+     * @param cardIssuerCode optional Toss issuer code of the card
+     * @param position position of the payment method among the matching ones ordered by record_id, from 0
+     * @param kbTenantId the Kill Bill tenant ID
+     * @return the record_id of the payment method at this position, null if fewer payment methods match
+     * @throws SQLException if a database error occurs
+     */
+    @Nullable
+    public Long getPaymentMethodRecordIdAt(final String searchKey,
+                                           @Nullable final String cardIssuerCode,
+                                           final long position,
+                                           final UUID kbTenantId) throws SQLException {
+        final Condition condition = paymentMethodsMatching(searchKey, cardIssuerCode, kbTenantId);
+        return execute(TossOperation.SEARCH_PAYMENT_METHODS, kbTenantId,
+                       conn -> {
+                           final ULong recordId = DSL.using(conn, dialect, settings)
+                                                     .select(TOSS_PAYMENT_METHODS.RECORD_ID)
+                                                     .from(TOSS_PAYMENT_METHODS)
+                                                     .where(condition)
+                                                     .orderBy(TOSS_PAYMENT_METHODS.RECORD_ID.asc())
+                                                     .limit(1)
+                                                     .offset(position)
+                                                     .fetchOne(TOSS_PAYMENT_METHODS.RECORD_ID);
+                           return recordId == null ? null : recordId.longValue();
+                       });
+    }
+
+    private static Condition paymentMethodsMatching(final String searchKey, @Nullable final String cardIssuerCode, final UUID kbTenantId) {
+        Condition matches = TOSS_PAYMENT_METHODS.BILLING_KEY.equal(searchKey)
+                                                            .or(TOSS_PAYMENT_METHODS.CUSTOMER_KEY.equal(searchKey));
+        final String last4 = cardLast4(searchKey);
+        if (last4 != null) {
+            // Toss sometimes masks the last digit too
+            Condition cardMatches = TOSS_PAYMENT_METHODS.CARD_LAST4.in(last4, last4.substring(0, 3) + "*");
+            if (cardIssuerCode != null) {
+                cardMatches = cardMatches.and(TOSS_PAYMENT_METHODS.CARD_ISSUER_CODE.equal(cardIssuerCode));
+            }
+            matches = matches.or(cardMatches);
+        }
+        return matches.and(TOSS_PAYMENT_METHODS.KB_TENANT_ID.equal(kbTenantId.toString()))
+                      .and(TOSS_PAYMENT_METHODS.IS_DELETED.equal(FALSE));
+    }
+
     public TossPaymentMethodsRecord getPaymentMethod(final UUID kbPaymentMethodId,
                                                      final UUID kbTenantId) throws SQLException {
-        return execute(dataSource.getConnection(),
+        return execute(TossOperation.GET_PAYMENT_METHOD, kbTenantId,
                        conn -> DSL.using(conn, dialect, settings)
                                   .selectFrom(TOSS_PAYMENT_METHODS)
                                   .where(TOSS_PAYMENT_METHODS.KB_PAYMENT_METHOD_ID.equal(kbPaymentMethodId.toString()))
@@ -318,9 +843,35 @@ public class TossDao extends PluginPaymentDao<TossResponsesRecord, TossResponses
                                   .fetchOne());
     }
 
+    /**
+     * Get the (non deleted) payment methods with the given IDs, in bulk.
+     *
+     * @param kbPaymentMethodIds the Kill Bill payment method IDs
+     * @param kbTenantId the Kill Bill tenant ID
+     * @return the TossPaymentMethodsRecord per payment method ID (unknown or deleted payment methods are absent)
+     * @throws SQLException if a database error occurs
+     */
+    public Map<UUID, TossPaymentMethodsRecord> getPaymentMethodsByIds(final Collection<UUID> kbPaymentMethodIds,
+                                                                      final UUID kbTenantId) throws SQLException {
+        final Map<UUID, TossPaymentMethodsRecord> paymentMethods = new HashMap<>();
+        for (final List<String> chunk : Iterables.partition(toStrings(kbPaymentMethodIds), MAX_IN_CLAUSE_SIZE)) {
+            final List<TossPaymentMethodsRecord> records = execute(TossOperation.GET_PAYMENT_METHODS_BY_IDS, kbTenantId,
+                                                                   conn -> DSL.using(conn, dialect, settings)
+                                                                              .selectFrom(TOSS_PAYMENT_METHODS)
+                                                                              .where(TOSS_PAYMENT_METHODS.KB_PAYMENT_METHOD_ID.in(chunk))
+                                                                              .and(TOSS_PAYMENT_METHODS.KB_TENANT_ID.equal(kbTenantId.toString()))
+                                                                              .and(TOSS_PAYMENT_METHODS.IS_DELETED.equal(FALSE))
+                                                                              .fetch());
+            for (final TossPaymentMethodsRecord record : records) {
+                paymentMethods.put(UUID.fromString(record.getKbPaymentMethodId()), record);
+            }
+        }
+        return paymentMethods;
+    }
+
     public List<TossPaymentMethodsRecord> getPaymentMethods(final UUID kbAccountId,
                                                             final UUID kbTenantId) throws SQLException {
-        return execute(dataSource.getConnection(),
+        return execute(TossOperation.GET_PAYMENT_METHODS, kbTenantId,
                        conn -> DSL.using(conn, dialect, settings)
                                   .selectFrom(TOSS_PAYMENT_METHODS)
                                   .where(TOSS_PAYMENT_METHODS.KB_ACCOUNT_ID.equal(kbAccountId.toString()))
@@ -331,7 +882,7 @@ public class TossDao extends PluginPaymentDao<TossResponsesRecord, TossResponses
 
     public void deletePaymentMethod(final UUID kbPaymentMethodId,
                                     final UUID kbTenantId) throws SQLException {
-        execute(dataSource.getConnection(),
+        execute(TossOperation.DELETE_PAYMENT_METHOD, kbTenantId,
                 conn -> DSL.using(conn, dialect, settings)
                            .update(TOSS_PAYMENT_METHODS)
                            .set(TOSS_PAYMENT_METHODS.IS_DELETED, TRUE)
@@ -343,7 +894,7 @@ public class TossDao extends PluginPaymentDao<TossResponsesRecord, TossResponses
     public void setDefaultPaymentMethod(final UUID kbPaymentMethodId,
                                         final UUID kbAccountId,
                                         final UUID kbTenantId) throws SQLException {
-        execute(dataSource.getConnection(),
+        execute(TossOperation.SET_DEFAULT_PAYMENT_METHOD, kbTenantId,
                 conn -> DSL.using(conn, dialect, settings).transactionResult(configuration -> {
                     final DSLContext dslContext = DSL.using(configuration);
                     dslContext.update(TOSS_PAYMENT_METHODS)
@@ -360,6 +911,169 @@ public class TossDao extends PluginPaymentDao<TossResponsesRecord, TossResponses
                 }));
     }
 
+    /**
+     * Round-trip to the database, for the health probe.
+     *
+     * @throws SQLException if the database cannot be reached
+     */
+    public void ping() throws SQLException {
+        execute(TossOperation.PING, null,
+                new WithConnectionCallback<Integer>() {
+                    @Override
+                    public Integer withConnection(final Connection conn) throws SQLException {
+                        return DSL.using(conn, dialect, settings)
+                                  .selectOne()
+                                  .fetchOne(0, Integer.class);
+                    }
+                });
+    }
+
+    /**
+     * @return true if the database supports the advisory locks of {@link #tryAdvisoryLock} (PostgreSQL, MySQL, MariaDB)
+     */
+    public boolean supportsAdvisoryLocks() {
+        return dialect.family() == SQLDialect.POSTGRES || dialect.family() == SQLDialect.MYSQL || dialect.family() == SQLDialect.MARIADB;
+    }
+
+    /**
+     * Acquire the cluster-wide advisory lock of a payment, waiting at most {@code timeoutMillis}.
+     * Uses the session-level {@code pg_try_advisory_lock} on PostgreSQL and {@code GET_LOCK} on MySQL and MariaDB,
+     * in autocommit, so that no transaction stays open while the lock is held.
+     *
+     * <p>The lock holds a pooled connection of its own until it is closed, in addition to the connections of the
+     * queries run under it: the pool must be larger than the number of payment operations running at once (the
+     * capacity of the request lanes), or these queries wait for a connection held by a lock.</p>
+     *
+     * @param kbPaymentId the Kill Bill payment ID
+     * @param timeoutMillis maximum time to wait for the lock
+     * @return the lock, to be closed once the operation completes, or null if it could not be acquired in time
+     * @throws SQLException if a database error occurs
+     * @throws InterruptedException if interrupted while waiting
+     * @throws UnsupportedOperationException if the database does not support advisory locks
+     */
+    public TossAdvisoryLock tryAdvisoryLock(final UUID kbPaymentId, final long timeoutMillis) throws SQLException, InterruptedException {
+        if (!supportsAdvisoryLocks()) {
+            throw new UnsupportedOperationException("Advisory locks are not supported on " + dialect);
+        }
+
+        final Connection connection = dataSource.getConnection();
+        boolean acquired = false;
+        try {
+            // Session-level locks, in autocommit: no transaction stays open (idle in transaction) while a lock is held
+            if (!connection.getAutoCommit()) {
+                connection.setAutoCommit(true);
+            }
+            final TossAdvisoryLock lock = dialect.family() == SQLDialect.POSTGRES
+                                          ? tryPostgresAdvisoryLock(connection, kbPaymentId, timeoutMillis)
+                                          : tryMySQLAdvisoryLock(connection, kbPaymentId, timeoutMillis);
+            acquired = lock != null;
+            return lock;
+        } finally {
+            if (!acquired) {
+                connection.close();
+            }
+        }
+    }
+
+    private TossAdvisoryLock tryPostgresAdvisoryLock(final Connection connection, final UUID kbPaymentId, final long timeoutMillis) throws SQLException, InterruptedException {
+        final DSLContext dslContext = DSL.using(connection, dialect, settings);
+        // Collisions of the 32 bit key only make unrelated payments wait on each other
+        final int key = kbPaymentId.hashCode();
+        final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long pollMillis = 5;
+        // pg_advisory_lock cannot time out, poll pg_try_advisory_lock instead
+        while (!Boolean.TRUE.equals(dslContext.fetchValue("select pg_try_advisory_lock(?, ?)", ADVISORY_LOCK_NAMESPACE, key))) {
+            final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            if (remainingMillis <= 0) {
+                return null;
+            }
+            Thread.sleep(Math.min(pollMillis, remainingMillis));
+            pollMillis = Math.min(pollMillis * 2, ADVISORY_LOCK_MAX_POLL_MILLIS);
+        }
+        // Session-level: TossAdvisoryLock aborts the connection if the release fails
+        return new TossAdvisoryLock(connection,
+                                    conn -> Boolean.TRUE.equals(DSL.using(conn, dialect, settings).fetchValue("select pg_advisory_unlock(?, ?)", ADVISORY_LOCK_NAMESPACE, key)),
+                                    ADVISORY_LOCK_NAMESPACE + ":" + key);
+    }
+
+    private TossAdvisoryLock tryMySQLAdvisoryLock(final Connection connection, final UUID kbPaymentId, final long timeoutMillis) throws SQLException {
+        final String name = ADVISORY_LOCK_PREFIX + kbPaymentId;
+        // GET_LOCK waits in whole seconds: 1 when acquired, 0 on timeout, NULL on error
+        final long timeoutSeconds = (timeoutMillis + 999) / 1000;
+        final Object result = DSL.using(connection, dialect, settings).fetchValue("select get_lock(?, ?)", name, timeoutSeconds);
+        if (result == null || ((Number) result).intValue() != 1) {
+            return null;
+        }
+        // GET_LOCK is session-level: TossAdvisoryLock aborts the connection if the release fails
+        return new TossAdvisoryLock(connection,
+                                    conn -> {
+                                        // 1 when released, 0 if not held by this session, NULL if unknown
+                                        final Object released = DSL.using(conn, dialect, settings).fetchValue("select release_lock(?)", name);
+                                        return released != null && ((Number) released).intValue() == 1;
+                                    },
+                                    name);
+    }
+
+    private static List<String> toStrings(final Collection<UUID> ids) {
+        final List<String> strings = new ArrayList<>(ids.size());
+        for (final UUID id : ids) {
+            strings.add(id.toString());
+        }
+        return strings;
+    }
+
+    /**
+     * @return the issuer code of the card, stable unlike the (localized) card company name which stays in additional_data
+     */
+    @Nullable
+    private static String extractCardIssuerCode(final TossBilling tossBilling) {
+        return tossBilling.getCard() == null ? null : tossBilling.getCard().getIssuerCode();
+    }
+
+    @Nullable
+    private static String extractCardLast4(final TossBilling tossBilling) {
+        if (tossBilling.getCardNumber() != null) {
+            return cardLast4(tossBilling.getCardNumber());
+        }
+        return tossBilling.getCard() == null ? null : cardLast4(tossBilling.getCard().getNumber());
+    }
+
+    /**
+     * @return the last four characters of a (masked) card number, null if the value is not a card number
+     */
+    @Nullable
+    static String cardLast4(@Nullable final String cardNumber) {
+        if (cardNumber == null) {
+            return null;
+        }
+        final String digits = cardNumber.replace("-", "").replace(" ", "");
+        if (!MASKED_CARD_NUMBER.matcher(digits).matches()) {
+            return null;
+        }
+        return digits.substring(digits.length() - 4);
+    }
+
+    private static boolean isUUID(final String value) {
+        try {
+            return UUID.fromString(value).toString().equalsIgnoreCase(value);
+        } catch (final IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Literal prefix for LIKE, so that only a trailing wildcard is used (range scan of the index)
+    private static String escapeLike(final String value) {
+        final StringBuilder escaped = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
     private Map<String, Object> toAdditionalDataMap(final TossBilling tossBilling) {
         try {
             final String json = objectMapper.writeValueAsString(tossBilling);
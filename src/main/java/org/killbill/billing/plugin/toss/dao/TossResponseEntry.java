@@ -0,0 +1,98 @@
+package org.killbill.billing.plugin.toss.dao;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.plugin.toss.client.exception.TossApplicationException;
+import org.killbill.billing.plugin.toss.client.model.TossPayment;
+
+/**
+ * A pending row of toss_responses, used to persist several responses in a single batched insert.
+ * Fields mirror the parameters of {@link TossDao#addResponse}.
+ */
+public class TossResponseEntry {
+
+    private final UUID kbAccountId;
+    private final UUID kbPaymentId;
+    private final UUID kbPaymentTransactionId;
+    private final TransactionType transactionType;
+    private final BigDecimal amount;
+    private final Currency currency;
+    private final String paymentKey;
+    private final TossPayment tossPayment;
+    private final TossApplicationException tossException;
+    private final DateTime utcNow;
+    private final UUID kbTenantId;
+
+    public TossResponseEntry(final UUID kbAccountId,
+                             final UUID kbPaymentId,
+                             final UUID kbPaymentTransactionId,
+                             final TransactionType transactionType,
+                             final BigDecimal amount,
+                             final Currency currency,
+                             @Nullable final String paymentKey,
+                             @Nullable final TossPayment tossPayment,
+                             @Nullable final TossApplicationException tossException,
+                             final DateTime utcNow,
+                             final UUID kbTenantId) {
+        this.kbAccountId = kbAccountId;
+        this.kbPaymentId = kbPaymentId;
+        this.kbPaymentTransactionId = kbPaymentTransactionId;
+        this.transactionType = transactionType;
+        this.amount = amount;
+        this.currency = currency;
+        this.paymentKey = paymentKey;
+        this.tossPayment = tossPayment;
+        this.tossException = tossException;
+        this.utcNow = utcNow;
+        this.kbTenantId = kbTenantId;
+    }
+
+    public UUID getKbAccountId() {
+        return kbAccountId;
+    }
+
+    public UUID getKbPaymentId() {
+        return kbPaymentId;
+    }
+
+    public UUID getKbPaymentTransactionId() {
+        return kbPaymentTransactionId;
+    }
+
+    public TransactionType getTransactionType() {
+        return transactionType;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public String getPaymentKey() {
+        return paymentKey;
+    }
+
+    public TossPayment getTossPayment() {
+        return tossPayment;
+    }
+
+    public TossApplicationException getTossException() {
+        return tossException;
+    }
+
+    public DateTime getUtcNow() {
+        return utcNow;
+    }
+
+    public UUID getKbTenantId() {
+        return kbTenantId;
+    }
+}
@@ -0,0 +1,431 @@
+package org.killbill.billing.plugin.toss.dao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.plugin.toss.client.model.LazyTossPayment;
+import org.killbill.billing.plugin.toss.client.model.TossPayment;
+import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossResponsesRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Local, crash-safe journal of the successful Toss responses that could not be saved to toss_responses.
+ *
+ * <p>The journal is an append-only memory-mapped file. Each record is {@code [length][crc32][state][payload]}:
+ * a record with a bad checksum is a torn write and ends the journal when it is reopened. Appends are durable
+ * when {@link #append} returns; concurrent appends share a single {@code force()} (group commit), so a burst
+ * of database failures does not pay one fsync per response.</p>
+ *
+ * <p>{@link #replay} inserts the pending records into toss_responses (skipping those already there, e.g. when
+ * the failed insert had in fact been committed) and marks them replayed. Once every record is replayed, the
+ * journal starts over from the beginning of the file.</p>
+ */
+public class TossResponseJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TossResponseJournal.class);
+
+    private static final long MAGIC = 0x544F53534A524E4CL; // TOSSJRNL
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    // length, crc32, state
+    private static final int RECORD_HEADER_SIZE = 9;
+    private static final byte PENDING = 0;
+    private static final byte REPLAYED = 1;
+    private static final byte PAYLOAD_VERSION = 1;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    // Guards the buffer content, the write position and the pending records
+    private final ReentrantLock lock = new ReentrantLock();
+    // Serializes the replays
+    private final ReentrantLock replayLock = new ReentrantLock();
+    private final List<Integer> pending = new ArrayList<>();
+    private int writePosition;
+    private boolean overflowed;
+
+    // Group commit: sequence number of the last write to the buffer, and of the last write forced to disk
+    private volatile long writtenSequence;
+    private volatile long syncedSequence;
+    private final Object syncLock = new Object();
+
+    private TossResponseJournal(final Path file, final FileChannel channel, final MappedByteBuffer buffer) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Open (or create) a journal.
+     *
+     * @param file the journal file
+     * @param capacity size of the file in bytes
+     * @return the journal, with the records left pending by a previous run
+     * @throws IOException if the file cannot be mapped, or is not a journal
+     */
+    public static TossResponseJournal open(final Path file, final int capacity) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // A journal written with a larger capacity is kept whole
+            final int size = (int) Math.max(capacity, Math.min(channel.size(), Integer.MAX_VALUE));
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            final TossResponseJournal journal = new TossResponseJournal(file, channel, buffer);
+            journal.load();
+            return journal;
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void load() throws IOException {
+        if (buffer.getLong(0) == 0) {
+            buffer.putLong(0, MAGIC);
+            buffer.putInt(8, VERSION);
+            buffer.putInt(HEADER_SIZE, 0);
+            buffer.force();
+        } else if (buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION) {
+            throw new IOException("Not a Toss response journal: " + file);
+        }
+
+        int position = HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+            final int length = buffer.getInt(position);
+            if (length <= 0 || length > buffer.capacity() - position - RECORD_HEADER_SIZE) {
+                break;
+            }
+            final byte[] payload = new byte[length];
+            getBytes(position + RECORD_HEADER_SIZE, payload);
+            if (crc(payload) != buffer.getInt(position + 4)) {
+                logger.warn("Torn record in Toss response journal, truncating: file={}, position={}", file, position);
+                break;
+            }
+            if (buffer.get(position + 8) == PENDING) {
+                pending.add(position);
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        writePosition = position;
+        if (!pending.isEmpty()) {
+            logger.warn("Toss response journal has {} response(s) to replay: file={}", pending.size(), file);
+        }
+    }
+
+    /**
+     * Append a successful response, durably.
+     *
+     * @param entry the response, which must hold a Toss payment
+     * @return false if the journal is full
+     * @throws IOException if the response cannot be written
+     */
+    public boolean append(final TossResponseEntry entry) throws IOException {
+        final byte[] payload = encode(entry);
+        final int recordSize = RECORD_HEADER_SIZE + payload.length;
+
+        final long sequence;
+        lock.lock();
+        try {
+            if (writePosition + recordSize > buffer.capacity()) {
+                overflowed = true;
+                return false;
+            }
+            final int position = writePosition;
+            putBytes(position + RECORD_HEADER_SIZE, payload);
+            buffer.putInt(position + 4, crc(payload));
+            buffer.put(position + 8, PENDING);
+            // End marker, so that stale records from before a reset are never read back
+            if (position + recordSize + 4 <= buffer.capacity()) {
+                buffer.putInt(position + recordSize, 0);
+            }
+            // Written last: the record only exists once its length is set
+            buffer.putInt(position, payload.length);
+            writePosition = position + recordSize;
+            pending.add(position);
+            sequence = ++writtenSequence;
+        } finally {
+            lock.unlock();
+        }
+
+        awaitDurable(sequence);
+        return true;
+    }
+
+    private void awaitDurable(final long sequence) {
+        if (syncedSequence >= sequence) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedSequence >= sequence) {
+                // Forced by another appender in the meantime
+                return;
+            }
+            // Everything written so far is covered by this force
+            final long target = writtenSequence;
+            buffer.force();
+            syncedSequence = target;
+        }
+    }
+
+    /**
+     * Insert the pending responses into toss_responses, oldest first. Stops at the first database error.
+     *
+     * @param dao the DAO
+     * @return the number of responses replayed
+     */
+    public int replay(final TossDao dao) {
+        if (!replayLock.tryLock()) {
+            return 0;
+        }
+        try {
+            final List<Integer> positions;
+            lock.lock();
+            try {
+                positions = new ArrayList<>(pending);
+            } finally {
+                lock.unlock();
+            }
+
+            int replayed = 0;
+            for (final Integer position : positions) {
+                final TossResponseEntry entry;
+                try {
+                    entry = decode(read(position));
+                } catch (final IOException e) {
+                    // Checksummed, so only a bug can get us here: keep the record for investigation
+                    logger.error("Unreadable record in Toss response journal, skipping: file={}, position={}", file, position, e);
+                    continue;
+                }
+
+                try {
+                    if (!isAlreadySaved(dao, entry)) {
+                        dao.addResponses(Collections.singletonList(entry));
+                    }
+                } catch (final SQLException | RuntimeException e) {
+                    logger.warn("Database still unavailable, {} response(s) left in the Toss response journal: {}", getDepth(), e.toString());
+                    break;
+                }
+
+                markReplayed(position);
+                replayed++;
+                logger.info("Replayed Toss response from journal: kbPaymentId={}, kbTransactionId={}, paymentKey={}",
+                            entry.getKbPaymentId(), entry.getKbPaymentTransactionId(), entry.getPaymentKey());
+            }
+
+            resetIfReplayed();
+            return replayed;
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
+    private static boolean isAlreadySaved(final TossDao dao, final TossResponseEntry entry) throws SQLException {
+        if (entry.getKbPaymentTransactionId() == null) {
+            return false;
+        }
+        final TossResponsesRecord existing = dao.getResponse(entry.getKbPaymentTransactionId(), entry.getKbTenantId());
+        return existing != null &&
+               Objects.equals(existing.getPaymentKey(), entry.getPaymentKey()) &&
+               Objects.equals(existing.getTossPaymentStatus(), entry.getTossPayment().getStatus());
+    }
+
+    private byte[] read(final int position) {
+        lock.lock();
+        try {
+            final byte[] payload = new byte[buffer.getInt(position)];
+            getBytes(position + RECORD_HEADER_SIZE, payload);
+            return payload;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Through a positioned duplicate: the absolute bulk get(int, byte[]) and put(int, byte[]) need JDK 13 and 16
+    private void getBytes(final int position, final byte[] bytes) {
+        buffer.duplicate().position(position).get(bytes);
+    }
+
+    private void putBytes(final int position, final byte[] bytes) {
+        buffer.duplicate().position(position).put(bytes);
+    }
+
+    private void markReplayed(final int position) {
+        final long sequence;
+        lock.lock();
+        try {
+            buffer.put(position + 8, REPLAYED);
+            pending.remove(Integer.valueOf(position));
+            sequence = ++writtenSequence;
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(sequence);
+    }
+
+    private void resetIfReplayed() {
+        final long sequence;
+        lock.lock();
+        try {
+            if (!pending.isEmpty() || writePosition == HEADER_SIZE) {
+                return;
+            }
+            buffer.putInt(HEADER_SIZE, 0);
+            writePosition = HEADER_SIZE;
+            overflowed = false;
+            sequence = ++writtenSequence;
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(sequence);
+    }
+
+    /**
+     * @return the number of responses waiting to be replayed
+     */
+    public int getDepth() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true if a response could not be journaled since the journal was last emptied
+     */
+    public boolean hasOverflowed() {
+        lock.lock();
+        try {
+            return overflowed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private byte[] encode(final TossResponseEntry entry) throws IOException {
+        final TossPayment tossPayment = Objects.requireNonNull(entry.getTossPayment(), "Only successful responses are journaled");
+        final byte[] response = tossPayment instanceof LazyTossPayment ? ((LazyTossPayment) tossPayment).getRawResponse()
+                                                                        : objectMapper.writeValueAsBytes(tossPayment);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + response.length);
+        try (final DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(PAYLOAD_VERSION);
+            writeUUID(out, entry.getKbAccountId());
+            writeUUID(out, entry.getKbPaymentId());
+            writeUUID(out, entry.getKbPaymentTransactionId());
+            writeUUID(out, entry.getKbTenantId());
+            out.writeUTF(entry.getTransactionType().name());
+            writeString(out, entry.getAmount() == null ? null : entry.getAmount().toPlainString());
+            writeString(out, entry.getCurrency() == null ? null : entry.getCurrency().name());
+            writeString(out, entry.getPaymentKey());
+            out.writeLong(entry.getUtcNow().getMillis());
+            out.writeInt(response.length);
+            out.write(response);
+        }
+        return bytes.toByteArray();
+    }
+
+    private TossResponseEntry decode(final byte[] payload) throws IOException {
+        try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            final byte version = in.readByte();
+            if (version != PAYLOAD_VERSION) {
+                throw new IOException("Unsupported journal record version " + version);
+            }
+            final UUID kbAccountId = readUUID(in);
+            final UUID kbPaymentId = readUUID(in);
+            final UUID kbTransactionId = readUUID(in);
+            final UUID kbTenantId = readUUID(in);
+            final TransactionType transactionType = TransactionType.valueOf(in.readUTF());
+            final String amount = readString(in);
+            final String currency = readString(in);
+            final String paymentKey = readString(in);
+            final DateTime utcNow = new DateTime(in.readLong(), DateTimeZone.UTC);
+            final byte[] response = new byte[in.readInt()];
+            in.readFully(response);
+
+            return new TossResponseEntry(kbAccountId,
+                                         kbPaymentId,
+                                         kbTransactionId,
+                                         transactionType,
+                                         amount == null ? null : new BigDecimal(amount),
+                                         currency == null ? null : Currency.valueOf(currency),
+                                         paymentKey,
+                                         LazyTossPayment.parse(response, objectMapper),
+                                         null,
+                                         utcNow,
+                                         kbTenantId);
+        }
+    }
+
+    private static void writeUUID(final DataOutputStream out, @Nullable final UUID uuid) throws IOException {
+        out.writeBoolean(uuid != null);
+        if (uuid != null) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    private static UUID readUUID(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+    }
+
+    private static void writeString(final DataOutputStream out, @Nullable final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static int crc(final byte[] payload) {
+        final CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
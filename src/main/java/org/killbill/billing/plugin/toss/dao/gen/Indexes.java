@@ -26,10 +26,14 @@ public class Indexes {
     public static final Index TOSS_NOTIFICATIONS_TOSS_NOTIFICATIONS_PROCESSED = Indexes0.TOSS_NOTIFICATIONS_TOSS_NOTIFICATIONS_PROCESSED;
     public static final Index TOSS_NOTIFICATIONS_TOSS_NOTIFICATIONS_KB_TENANT_ID = Indexes0.TOSS_NOTIFICATIONS_TOSS_NOTIFICATIONS_KB_TENANT_ID;
     public static final Index TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_BILLING_KEY = Indexes0.TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_BILLING_KEY;
+    public static final Index TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_CUSTOMER_KEY = Indexes0.TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_CUSTOMER_KEY;
+    public static final Index TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_CARD_LAST4 = Indexes0.TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_CARD_LAST4;
     public static final Index TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_KB_TENANT_ID = Indexes0.TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_KB_TENANT_ID;
     public static final Index TOSS_RESPONSES_TOSS_RESPONSES_KB_PAYMENT_ID = Indexes0.TOSS_RESPONSES_TOSS_RESPONSES_KB_PAYMENT_ID;
     public static final Index TOSS_RESPONSES_TOSS_RESPONSES_KB_PAYMENT_TRANSACTION_ID = Indexes0.TOSS_RESPONSES_TOSS_RESPONSES_KB_PAYMENT_TRANSACTION_ID;
     public static final Index TOSS_RESPONSES_TOSS_RESPONSES_PAYMENT_KEY = Indexes0.TOSS_RESPONSES_TOSS_RESPONSES_PAYMENT_KEY;
+    public static final Index TOSS_RESPONSES_TOSS_RESPONSES_ORDER_ID = Indexes0.TOSS_RESPONSES_TOSS_RESPONSES_ORDER_ID;
+    public static final Index TOSS_RESPONSES_TOSS_RESPONSES_TOSS_RECEIPT_URL = Indexes0.TOSS_RESPONSES_TOSS_RESPONSES_TOSS_RECEIPT_URL;
     public static final Index TOSS_RESPONSES_TOSS_RESPONSES_KB_TENANT_ID = Indexes0.TOSS_RESPONSES_TOSS_RESPONSES_KB_TENANT_ID;
 
     // -------------------------------------------------------------------------
@@ -41,10 +45,14 @@ public class Indexes {
         public static Index TOSS_NOTIFICATIONS_TOSS_NOTIFICATIONS_PROCESSED = Internal.createIndex("toss_notifications_processed", TossNotifications.TOSS_NOTIFICATIONS, new OrderField[] { TossNotifications.TOSS_NOTIFICATIONS.PROCESSED }, false);
         public static Index TOSS_NOTIFICATIONS_TOSS_NOTIFICATIONS_KB_TENANT_ID = Internal.createIndex("toss_notifications_kb_tenant_id", TossNotifications.TOSS_NOTIFICATIONS, new OrderField[] { TossNotifications.TOSS_NOTIFICATIONS.KB_TENANT_ID }, false);
         public static Index TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_BILLING_KEY = Internal.createIndex("toss_payment_methods_billing_key", TossPaymentMethods.TOSS_PAYMENT_METHODS, new OrderField[] { TossPaymentMethods.TOSS_PAYMENT_METHODS.BILLING_KEY }, false);
+        public static Index TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_CUSTOMER_KEY = Internal.createIndex("toss_payment_methods_customer_key", TossPaymentMethods.TOSS_PAYMENT_METHODS, new OrderField[] { TossPaymentMethods.TOSS_PAYMENT_METHODS.CUSTOMER_KEY }, false);
+        public static Index TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_CARD_LAST4 = Internal.createIndex("toss_payment_methods_card_last4", TossPaymentMethods.TOSS_PAYMENT_METHODS, new OrderField[] { TossPaymentMethods.TOSS_PAYMENT_METHODS.CARD_LAST4, TossPaymentMethods.TOSS_PAYMENT_METHODS.CARD_ISSUER_CODE }, false);
         public static Index TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_KB_TENANT_ID = Internal.createIndex("toss_payment_methods_kb_tenant_id", TossPaymentMethods.TOSS_PAYMENT_METHODS, new OrderField[] { TossPaymentMethods.TOSS_PAYMENT_METHODS.KB_TENANT_ID }, false);
         public static Index TOSS_RESPONSES_TOSS_RESPONSES_KB_PAYMENT_ID = Internal.createIndex("toss_responses_kb_payment_id", TossResponses.TOSS_RESPONSES, new OrderField[] { TossResponses.TOSS_RESPONSES.KB_PAYMENT_ID }, false);
         public static Index TOSS_RESPONSES_TOSS_RESPONSES_KB_PAYMENT_TRANSACTION_ID = Internal.createIndex("toss_responses_kb_payment_transaction_id", TossResponses.TOSS_RESPONSES, new OrderField[] { TossResponses.TOSS_RESPONSES.KB_PAYMENT_TRANSACTION_ID }, false);
         public static Index TOSS_RESPONSES_TOSS_RESPONSES_PAYMENT_KEY = Internal.createIndex("toss_responses_payment_key", TossResponses.TOSS_RESPONSES, new OrderField[] { TossResponses.TOSS_RESPONSES.PAYMENT_KEY }, false);
+        public static Index TOSS_RESPONSES_TOSS_RESPONSES_ORDER_ID = Internal.createIndex("toss_responses_order_id", TossResponses.TOSS_RESPONSES, new OrderField[] { TossResponses.TOSS_RESPONSES.ORDER_ID }, false);
+        public static Index TOSS_RESPONSES_TOSS_RESPONSES_TOSS_RECEIPT_URL = Internal.createIndex("toss_responses_toss_receipt_url", TossResponses.TOSS_RESPONSES, new OrderField[] { TossResponses.TOSS_RESPONSES.TOSS_RECEIPT_URL }, false);
         public static Index TOSS_RESPONSES_TOSS_RESPONSES_KB_TENANT_ID = Internal.createIndex("toss_responses_kb_tenant_id", TossResponses.TOSS_RESPONSES, new OrderField[] { TossResponses.TOSS_RESPONSES.KB_TENANT_ID }, false);
     }
 }
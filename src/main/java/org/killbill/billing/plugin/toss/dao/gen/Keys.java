@@ -9,9 +9,11 @@ import org.jooq.TableField;
 import org.jooq.UniqueKey;
 import org.jooq.impl.Internal;
 import org.jooq.types.ULong;
+import org.killbill.billing.plugin.toss.dao.gen.tables.TossBillingIntents;
 import org.killbill.billing.plugin.toss.dao.gen.tables.TossNotifications;
 import org.killbill.billing.plugin.toss.dao.gen.tables.TossPaymentMethods;
 import org.killbill.billing.plugin.toss.dao.gen.tables.TossResponses;
+import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossBillingIntentsRecord;
 import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossNotificationsRecord;
 import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossPaymentMethodsRecord;
 import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossResponsesRecord;
@@ -28,6 +30,7 @@ public class Keys {
     // IDENTITY definitions
     // -------------------------------------------------------------------------
 
+    public static final Identity<TossBillingIntentsRecord, ULong> IDENTITY_TOSS_BILLING_INTENTS = Identities0.IDENTITY_TOSS_BILLING_INTENTS;
     public static final Identity<TossNotificationsRecord, ULong> IDENTITY_TOSS_NOTIFICATIONS = Identities0.IDENTITY_TOSS_NOTIFICATIONS;
     public static final Identity<TossPaymentMethodsRecord, ULong> IDENTITY_TOSS_PAYMENT_METHODS = Identities0.IDENTITY_TOSS_PAYMENT_METHODS;
     public static final Identity<TossResponsesRecord, ULong> IDENTITY_TOSS_RESPONSES = Identities0.IDENTITY_TOSS_RESPONSES;
@@ -36,6 +39,9 @@ public class Keys {
     // UNIQUE and PRIMARY KEY definitions
     // -------------------------------------------------------------------------
 
+    public static final UniqueKey<TossBillingIntentsRecord> KEY_TOSS_BILLING_INTENTS_PRIMARY = UniqueKeys0.KEY_TOSS_BILLING_INTENTS_PRIMARY;
+    public static final UniqueKey<TossBillingIntentsRecord> KEY_TOSS_BILLING_INTENTS_RECORD_ID = UniqueKeys0.KEY_TOSS_BILLING_INTENTS_RECORD_ID;
+    public static final UniqueKey<TossBillingIntentsRecord> KEY_TOSS_BILLING_INTENTS_TOSS_BILLING_INTENTS_KB_PAYMENT_TRANSACTION_ID = UniqueKeys0.KEY_TOSS_BILLING_INTENTS_TOSS_BILLING_INTENTS_KB_PAYMENT_TRANSACTION_ID;
     public static final UniqueKey<TossNotificationsRecord> KEY_TOSS_NOTIFICATIONS_PRIMARY = UniqueKeys0.KEY_TOSS_NOTIFICATIONS_PRIMARY;
     public static final UniqueKey<TossNotificationsRecord> KEY_TOSS_NOTIFICATIONS_RECORD_ID = UniqueKeys0.KEY_TOSS_NOTIFICATIONS_RECORD_ID;
     public static final UniqueKey<TossPaymentMethodsRecord> KEY_TOSS_PAYMENT_METHODS_PRIMARY = UniqueKeys0.KEY_TOSS_PAYMENT_METHODS_PRIMARY;
@@ -54,12 +60,16 @@ public class Keys {
     // -------------------------------------------------------------------------
 
     private static class Identities0 {
+        public static Identity<TossBillingIntentsRecord, ULong> IDENTITY_TOSS_BILLING_INTENTS = Internal.createIdentity(TossBillingIntents.TOSS_BILLING_INTENTS, TossBillingIntents.TOSS_BILLING_INTENTS.RECORD_ID);
         public static Identity<TossNotificationsRecord, ULong> IDENTITY_TOSS_NOTIFICATIONS = Internal.createIdentity(TossNotifications.TOSS_NOTIFICATIONS, TossNotifications.TOSS_NOTIFICATIONS.RECORD_ID);
         public static Identity<TossPaymentMethodsRecord, ULong> IDENTITY_TOSS_PAYMENT_METHODS = Internal.createIdentity(TossPaymentMethods.TOSS_PAYMENT_METHODS, TossPaymentMethods.TOSS_PAYMENT_METHODS.RECORD_ID);
         public static Identity<TossResponsesRecord, ULong> IDENTITY_TOSS_RESPONSES = Internal.createIdentity(TossResponses.TOSS_RESPONSES, TossResponses.TOSS_RESPONSES.RECORD_ID);
     }
 
     private static class UniqueKeys0 {
+        public static final UniqueKey<TossBillingIntentsRecord> KEY_TOSS_BILLING_INTENTS_PRIMARY = Internal.createUniqueKey(TossBillingIntents.TOSS_BILLING_INTENTS, "KEY_toss_billing_intents_PRIMARY", new TableField[] { TossBillingIntents.TOSS_BILLING_INTENTS.RECORD_ID }, true);
+        public static final UniqueKey<TossBillingIntentsRecord> KEY_TOSS_BILLING_INTENTS_RECORD_ID = Internal.createUniqueKey(TossBillingIntents.TOSS_BILLING_INTENTS, "KEY_toss_billing_intents_record_id", new TableField[] { TossBillingIntents.TOSS_BILLING_INTENTS.RECORD_ID }, true);
+        public static final UniqueKey<TossBillingIntentsRecord> KEY_TOSS_BILLING_INTENTS_TOSS_BILLING_INTENTS_KB_PAYMENT_TRANSACTION_ID = Internal.createUniqueKey(TossBillingIntents.TOSS_BILLING_INTENTS, "KEY_toss_billing_intents_toss_billing_intents_kb_payment_transaction_id", new TableField[] { TossBillingIntents.TOSS_BILLING_INTENTS.KB_PAYMENT_TRANSACTION_ID }, true);
         public static final UniqueKey<TossNotificationsRecord> KEY_TOSS_NOTIFICATIONS_PRIMARY = Internal.createUniqueKey(TossNotifications.TOSS_NOTIFICATIONS, "KEY_toss_notifications_PRIMARY", new TableField[] { TossNotifications.TOSS_NOTIFICATIONS.RECORD_ID }, true);
         public static final UniqueKey<TossNotificationsRecord> KEY_TOSS_NOTIFICATIONS_RECORD_ID = Internal.createUniqueKey(TossNotifications.TOSS_NOTIFICATIONS, "KEY_toss_notifications_record_id", new TableField[] { TossNotifications.TOSS_NOTIFICATIONS.RECORD_ID }, true);
         public static final UniqueKey<TossPaymentMethodsRecord> KEY_TOSS_PAYMENT_METHODS_PRIMARY = Internal.createUniqueKey(TossPaymentMethods.TOSS_PAYMENT_METHODS, "KEY_toss_payment_methods_PRIMARY", new TableField[] { TossPaymentMethods.TOSS_PAYMENT_METHODS.RECORD_ID }, true);
@@ -10,6 +10,7 @@ import java.util.List;
 import org.jooq.Catalog;
 import org.jooq.Table;
 import org.jooq.impl.SchemaImpl;
+import org.killbill.billing.plugin.toss.dao.gen.tables.TossBillingIntents;
 import org.killbill.billing.plugin.toss.dao.gen.tables.TossNotifications;
 import org.killbill.billing.plugin.toss.dao.gen.tables.TossPaymentMethods;
 import org.killbill.billing.plugin.toss.dao.gen.tables.TossResponses;
@@ -28,6 +29,11 @@ public class Killbill extends SchemaImpl {
      */
     public static final Killbill KILLBILL = new Killbill();
 
+    /**
+     * The table <code>killbill.toss_billing_intents</code>.
+     */
+    public final TossBillingIntents TOSS_BILLING_INTENTS = TossBillingIntents.TOSS_BILLING_INTENTS;
+
     /**
      * The table <code>killbill.toss_notifications</code>.
      */
@@ -59,6 +65,7 @@ public class Killbill extends SchemaImpl {
     @Override
     public final List<Table<?>> getTables() {
         return Arrays.<Table<?>>asList(
+            TossBillingIntents.TOSS_BILLING_INTENTS,
             TossNotifications.TOSS_NOTIFICATIONS,
             TossPaymentMethods.TOSS_PAYMENT_METHODS,
             TossResponses.TOSS_RESPONSES);
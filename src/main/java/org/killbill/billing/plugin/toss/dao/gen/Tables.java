@@ -4,6 +4,7 @@
 package org.killbill.billing.plugin.toss.dao.gen;
 
 
+import org.killbill.billing.plugin.toss.dao.gen.tables.TossBillingIntents;
 import org.killbill.billing.plugin.toss.dao.gen.tables.TossNotifications;
 import org.killbill.billing.plugin.toss.dao.gen.tables.TossPaymentMethods;
 import org.killbill.billing.plugin.toss.dao.gen.tables.TossResponses;
@@ -15,6 +16,11 @@ import org.killbill.billing.plugin.toss.dao.gen.tables.TossResponses;
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
 public class Tables {
 
+    /**
+     * The table <code>killbill.toss_billing_intents</code>.
+     */
+    public static final TossBillingIntents TOSS_BILLING_INTENTS = TossBillingIntents.TOSS_BILLING_INTENTS;
+
     /**
      * The table <code>killbill.toss_notifications</code>.
      */
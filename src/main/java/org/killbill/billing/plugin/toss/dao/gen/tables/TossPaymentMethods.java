@@ -14,7 +14,7 @@ import org.jooq.Identity;
 import org.jooq.Index;
 import org.jooq.Name;
 import org.jooq.Record;
-import org.jooq.Row11;
+import org.jooq.Row13;
 import org.jooq.Schema;
 import org.jooq.Table;
 import org.jooq.TableField;
@@ -35,7 +35,7 @@ import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossPaymentMethod
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
 public class TossPaymentMethods extends TableImpl<TossPaymentMethodsRecord> {
 
-    private static final long serialVersionUID = -18202213;
+    private static final long serialVersionUID = 1766013854;
 
     /**
      * The reference instance of <code>killbill.toss_payment_methods</code>
@@ -75,6 +75,16 @@ public class TossPaymentMethods extends TableImpl<TossPaymentMethodsRecord> {
      */
     public final TableField<TossPaymentMethodsRecord, String> CUSTOMER_KEY = createField(DSL.name("customer_key"), org.jooq.impl.SQLDataType.VARCHAR(255), this, "");
 
+    /**
+     * The column <code>killbill.toss_payment_methods.card_issuer_code</code>.
+     */
+    public final TableField<TossPaymentMethodsRecord, String> CARD_ISSUER_CODE = createField(DSL.name("card_issuer_code"), org.jooq.impl.SQLDataType.VARCHAR(10), this, "");
+
+    /**
+     * The column <code>killbill.toss_payment_methods.card_last4</code>.
+     */
+    public final TableField<TossPaymentMethodsRecord, String> CARD_LAST4 = createField(DSL.name("card_last4"), org.jooq.impl.SQLDataType.VARCHAR(4), this, "");
+
     /**
      * The column <code>killbill.toss_payment_methods.is_default</code>.
      */
@@ -145,7 +155,7 @@ public class TossPaymentMethods extends TableImpl<TossPaymentMethodsRecord> {
 
     @Override
     public List<Index> getIndexes() {
-        return Arrays.<Index>asList(Indexes.TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_BILLING_KEY, Indexes.TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_KB_TENANT_ID);
+        return Arrays.<Index>asList(Indexes.TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_BILLING_KEY, Indexes.TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_CUSTOMER_KEY, Indexes.TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_CARD_LAST4, Indexes.TOSS_PAYMENT_METHODS_TOSS_PAYMENT_METHODS_KB_TENANT_ID);
     }
 
     @Override
@@ -190,11 +200,11 @@ public class TossPaymentMethods extends TableImpl<TossPaymentMethodsRecord> {
     }
 
     // -------------------------------------------------------------------------
-    // Row11 type methods
+    // Row13 type methods
     // -------------------------------------------------------------------------
 
     @Override
-    public Row11<ULong, String, String, String, String, Short, Short, String, LocalDateTime, LocalDateTime, String> fieldsRow() {
-        return (Row11) super.fieldsRow();
+    public Row13<ULong, String, String, String, String, String, String, Short, Short, String, LocalDateTime, LocalDateTime, String> fieldsRow() {
+        return (Row13) super.fieldsRow();
     }
 }
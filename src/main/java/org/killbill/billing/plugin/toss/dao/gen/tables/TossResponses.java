@@ -166,7 +166,7 @@ public class TossResponses extends TableImpl<TossResponsesRecord> {
 
     @Override
     public List<Index> getIndexes() {
-        return Arrays.<Index>asList(Indexes.TOSS_RESPONSES_TOSS_RESPONSES_KB_PAYMENT_ID, Indexes.TOSS_RESPONSES_TOSS_RESPONSES_KB_PAYMENT_TRANSACTION_ID, Indexes.TOSS_RESPONSES_TOSS_RESPONSES_PAYMENT_KEY, Indexes.TOSS_RESPONSES_TOSS_RESPONSES_KB_TENANT_ID);
+        return Arrays.<Index>asList(Indexes.TOSS_RESPONSES_TOSS_RESPONSES_KB_PAYMENT_ID, Indexes.TOSS_RESPONSES_TOSS_RESPONSES_KB_PAYMENT_TRANSACTION_ID, Indexes.TOSS_RESPONSES_TOSS_RESPONSES_PAYMENT_KEY, Indexes.TOSS_RESPONSES_TOSS_RESPONSES_ORDER_ID, Indexes.TOSS_RESPONSES_TOSS_RESPONSES_TOSS_RECEIPT_URL, Indexes.TOSS_RESPONSES_TOSS_RESPONSES_KB_TENANT_ID);
     }
 
     @Override
@@ -8,8 +8,8 @@ import java.time.LocalDateTime;
 
 import org.jooq.Field;
 import org.jooq.Record1;
-import org.jooq.Record11;
-import org.jooq.Row11;
+import org.jooq.Record13;
+import org.jooq.Row13;
 import org.jooq.impl.UpdatableRecordImpl;
 import org.jooq.types.ULong;
 import org.killbill.billing.plugin.toss.dao.gen.tables.TossPaymentMethods;
@@ -19,9 +19,9 @@ import org.killbill.billing.plugin.toss.dao.gen.tables.TossPaymentMethods;
  * This class is generated by jOOQ.
  */
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
-public class TossPaymentMethodsRecord extends UpdatableRecordImpl<TossPaymentMethodsRecord> implements Record11<ULong, String, String, String, String, Short, Short, String, LocalDateTime, LocalDateTime, String> {
+public class TossPaymentMethodsRecord extends UpdatableRecordImpl<TossPaymentMethodsRecord> implements Record13<ULong, String, String, String, String, String, String, Short, Short, String, LocalDateTime, LocalDateTime, String> {
 
-    private static final long serialVersionUID = 1159142458;
+    private static final long serialVersionUID = -1402785019;
 
     /**
      * Setter for <code>killbill.toss_payment_methods.record_id</code>.
@@ -93,88 +93,116 @@ public class TossPaymentMethodsRecord extends UpdatableRecordImpl<TossPaymentMet
         return (String) get(4);
     }
 
+    /**
+     * Setter for <code>killbill.toss_payment_methods.card_issuer_code</code>.
+     */
+    public void setCardIssuerCode(String value) {
+        set(5, value);
+    }
+
+    /**
+     * Getter for <code>killbill.toss_payment_methods.card_issuer_code</code>.
+     */
+    public String getCardIssuerCode() {
+        return (String) get(5);
+    }
+
+    /**
+     * Setter for <code>killbill.toss_payment_methods.card_last4</code>.
+     */
+    public void setCardLast4(String value) {
+        set(6, value);
+    }
+
+    /**
+     * Getter for <code>killbill.toss_payment_methods.card_last4</code>.
+     */
+    public String getCardLast4() {
+        return (String) get(6);
+    }
+
     /**
      * Setter for <code>killbill.toss_payment_methods.is_default</code>.
      */
     public void setIsDefault(Short value) {
-        set(5, value);
+        set(7, value);
     }
 
     /**
      * Getter for <code>killbill.toss_payment_methods.is_default</code>.
      */
     public Short getIsDefault() {
-        return (Short) get(5);
+        return (Short) get(7);
     }
 
     /**
      * Setter for <code>killbill.toss_payment_methods.is_deleted</code>.
      */
     public void setIsDeleted(Short value) {
-        set(6, value);
+        set(8, value);
     }
 
     /**
      * Getter for <code>killbill.toss_payment_methods.is_deleted</code>.
      */
     public Short getIsDeleted() {
-        return (Short) get(6);
+        return (Short) get(8);
     }
 
     /**
      * Setter for <code>killbill.toss_payment_methods.additional_data</code>.
      */
     public void setAdditionalData(String value) {
-        set(7, value);
+        set(9, value);
     }
 
     /**
      * Getter for <code>killbill.toss_payment_methods.additional_data</code>.
      */
     public String getAdditionalData() {
-        return (String) get(7);
+        return (String) get(9);
     }
 
     /**
      * Setter for <code>killbill.toss_payment_methods.created_date</code>.
      */
     public void setCreatedDate(LocalDateTime value) {
-        set(8, value);
+        set(10, value);
     }
 
     /**
      * Getter for <code>killbill.toss_payment_methods.created_date</code>.
      */
     public LocalDateTime getCreatedDate() {
-        return (LocalDateTime) get(8);
+        return (LocalDateTime) get(10);
     }
 
     /**
      * Setter for <code>killbill.toss_payment_methods.updated_date</code>.
      */
     public void setUpdatedDate(LocalDateTime value) {
-        set(9, value);
+        set(11, value);
     }
 
     /**
      * Getter for <code>killbill.toss_payment_methods.updated_date</code>.
      */
     public LocalDateTime getUpdatedDate() {
-        return (LocalDateTime) get(9);
+        return (LocalDateTime) get(11);
     }
 
     /**
      * Setter for <code>killbill.toss_payment_methods.kb_tenant_id</code>.
      */
     public void setKbTenantId(String value) {
-        set(10, value);
+        set(12, value);
     }
 
     /**
      * Getter for <code>killbill.toss_payment_methods.kb_tenant_id</code>.
      */
     public String getKbTenantId() {
-        return (String) get(10);
+        return (String) get(12);
     }
 
     // -------------------------------------------------------------------------
@@ -187,17 +215,17 @@ public class TossPaymentMethodsRecord extends UpdatableRecordImpl<TossPaymentMet
     }
 
     // -------------------------------------------------------------------------
-    // Record11 type implementation
+    // Record13 type implementation
     // -------------------------------------------------------------------------
 
     @Override
-    public Row11<ULong, String, String, String, String, Short, Short, String, LocalDateTime, LocalDateTime, String> fieldsRow() {
-        return (Row11) super.fieldsRow();
+    public Row13<ULong, String, String, String, String, String, String, Short, Short, String, LocalDateTime, LocalDateTime, String> fieldsRow() {
+        return (Row13) super.fieldsRow();
     }
 
     @Override
-    public Row11<ULong, String, String, String, String, Short, Short, String, LocalDateTime, LocalDateTime, String> valuesRow() {
-        return (Row11) super.valuesRow();
+    public Row13<ULong, String, String, String, String, String, String, Short, Short, String, LocalDateTime, LocalDateTime, String> valuesRow() {
+        return (Row13) super.valuesRow();
     }
 
     @Override
@@ -226,32 +254,42 @@ public class TossPaymentMethodsRecord extends UpdatableRecordImpl<TossPaymentMet
     }
 
     @Override
-    public Field<Short> field6() {
+    public Field<String> field6() {
+        return TossPaymentMethods.TOSS_PAYMENT_METHODS.CARD_ISSUER_CODE;
+    }
+
+    @Override
+    public Field<String> field7() {
+        return TossPaymentMethods.TOSS_PAYMENT_METHODS.CARD_LAST4;
+    }
+
+    @Override
+    public Field<Short> field8() {
         return TossPaymentMethods.TOSS_PAYMENT_METHODS.IS_DEFAULT;
     }
 
     @Override
-    public Field<Short> field7() {
+    public Field<Short> field9() {
         return TossPaymentMethods.TOSS_PAYMENT_METHODS.IS_DELETED;
     }
 
     @Override
-    public Field<String> field8() {
+    public Field<String> field10() {
         return TossPaymentMethods.TOSS_PAYMENT_METHODS.ADDITIONAL_DATA;
     }
 
     @Override
-    public Field<LocalDateTime> field9() {
+    public Field<LocalDateTime> field11() {
         return TossPaymentMethods.TOSS_PAYMENT_METHODS.CREATED_DATE;
     }
 
     @Override
-    public Field<LocalDateTime> field10() {
+    public Field<LocalDateTime> field12() {
         return TossPaymentMethods.TOSS_PAYMENT_METHODS.UPDATED_DATE;
     }
 
     @Override
-    public Field<String> field11() {
+    public Field<String> field13() {
         return TossPaymentMethods.TOSS_PAYMENT_METHODS.KB_TENANT_ID;
     }
 
@@ -281,32 +319,42 @@ public class TossPaymentMethodsRecord extends UpdatableRecordImpl<TossPaymentMet
     }
 
     @Override
-    public Short component6() {
+    public String component6() {
+        return getCardIssuerCode();
+    }
+
+    @Override
+    public String component7() {
+        return getCardLast4();
+    }
+
+    @Override
+    public Short component8() {
         return getIsDefault();
     }
 
     @Override
-    public Short component7() {
+    public Short component9() {
         return getIsDeleted();
     }
 
     @Override
-    public String component8() {
+    public String component10() {
         return getAdditionalData();
     }
 
     @Override
-    public LocalDateTime component9() {
+    public LocalDateTime component11() {
         return getCreatedDate();
     }
 
     @Override
-    public LocalDateTime component10() {
+    public LocalDateTime component12() {
         return getUpdatedDate();
     }
 
     @Override
-    public String component11() {
+    public String component13() {
         return getKbTenantId();
     }
 
@@ -336,32 +384,42 @@ public class TossPaymentMethodsRecord extends UpdatableRecordImpl<TossPaymentMet
     }
 
     @Override
-    public Short value6() {
+    public String value6() {
+        return getCardIssuerCode();
+    }
+
+    @Override
+    public String value7() {
+        return getCardLast4();
+    }
+
+    @Override
+    public Short value8() {
         return getIsDefault();
     }
 
     @Override
-    public Short value7() {
+    public Short value9() {
         return getIsDeleted();
     }
 
     @Override
-    public String value8() {
+    public String value10() {
         return getAdditionalData();
     }
 
     @Override
-    public LocalDateTime value9() {
+    public LocalDateTime value11() {
         return getCreatedDate();
     }
 
     @Override
-    public LocalDateTime value10() {
+    public LocalDateTime value12() {
         return getUpdatedDate();
     }
 
     @Override
-    public String value11() {
+    public String value13() {
         return getKbTenantId();
     }
 
@@ -396,43 +454,55 @@ public class TossPaymentMethodsRecord extends UpdatableRecordImpl<TossPaymentMet
     }
 
     @Override
-    public TossPaymentMethodsRecord value6(Short value) {
+    public TossPaymentMethodsRecord value6(String value) {
+        setCardIssuerCode(value);
+        return this;
+    }
+
+    @Override
+    public TossPaymentMethodsRecord value7(String value) {
+        setCardLast4(value);
+        return this;
+    }
+
+    @Override
+    public TossPaymentMethodsRecord value8(Short value) {
         setIsDefault(value);
         return this;
     }
 
     @Override
-    public TossPaymentMethodsRecord value7(Short value) {
+    public TossPaymentMethodsRecord value9(Short value) {
         setIsDeleted(value);
         return this;
     }
 
     @Override
-    public TossPaymentMethodsRecord value8(String value) {
+    public TossPaymentMethodsRecord value10(String value) {
         setAdditionalData(value);
         return this;
     }
 
     @Override
-    public TossPaymentMethodsRecord value9(LocalDateTime value) {
+    public TossPaymentMethodsRecord value11(LocalDateTime value) {
         setCreatedDate(value);
         return this;
     }
 
     @Override
-    public TossPaymentMethodsRecord value10(LocalDateTime value) {
+    public TossPaymentMethodsRecord value12(LocalDateTime value) {
         setUpdatedDate(value);
         return this;
     }
 
     @Override
-    public TossPaymentMethodsRecord value11(String value) {
+    public TossPaymentMethodsRecord value13(String value) {
         setKbTenantId(value);
         return this;
     }
 
     @Override
-    public TossPaymentMethodsRecord values(ULong value1, String value2, String value3, String value4, String value5, Short value6, Short value7, String value8, LocalDateTime value9, LocalDateTime value10, String value11) {
+    public TossPaymentMethodsRecord values(ULong value1, String value2, String value3, String value4, String value5, String value6, String value7, Short value8, Short value9, String value10, LocalDateTime value11, LocalDateTime value12, String value13) {
         value1(value1);
         value2(value2);
         value3(value3);
@@ -444,6 +514,8 @@ public class TossPaymentMethodsRecord extends UpdatableRecordImpl<TossPaymentMet
         value9(value9);
         value10(value10);
         value11(value11);
+        value12(value12);
+        value13(value13);
         return this;
     }
 
@@ -461,7 +533,7 @@ public class TossPaymentMethodsRecord extends UpdatableRecordImpl<TossPaymentMet
     /**
      * Create a detached, initialised TossPaymentMethodsRecord
      */
-    public TossPaymentMethodsRecord(ULong recordId, String kbAccountId, String kbPaymentMethodId, String billingKey, String customerKey, Short isDefault, Short isDeleted, String additionalData, LocalDateTime createdDate, LocalDateTime updatedDate, String kbTenantId) {
+    public TossPaymentMethodsRecord(ULong recordId, String kbAccountId, String kbPaymentMethodId, String billingKey, String customerKey, String cardIssuerCode, String cardLast4, Short isDefault, Short isDeleted, String additionalData, LocalDateTime createdDate, LocalDateTime updatedDate, String kbTenantId) {
         super(TossPaymentMethods.TOSS_PAYMENT_METHODS);
 
         set(0, recordId);
@@ -469,11 +541,13 @@ public class TossPaymentMethodsRecord extends UpdatableRecordImpl<TossPaymentMet
         set(2, kbPaymentMethodId);
         set(3, billingKey);
         set(4, customerKey);
-        set(5, isDefault);
-        set(6, isDeleted);
-        set(7, additionalData);
-        set(8, createdDate);
-        set(9, updatedDate);
-        set(10, kbTenantId);
+        set(5, cardIssuerCode);
+        set(6, cardLast4);
+        set(7, isDefault);
+        set(8, isDeleted);
+        set(9, additionalData);
+        set(10, createdDate);
+        set(11, updatedDate);
+        set(12, kbTenantId);
     }
 }
@@ -0,0 +1,28 @@
+package org.killbill.billing.plugin.toss.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event of a query of the plugin tables, see {@link TossFlightRecorder}.
+ */
+@Name("org.killbill.billing.plugin.toss.TossDaoOperation")
+@Label("Toss DAO Operation")
+@Category({"Kill Bill", "Toss"})
+@Description("Query of the plugin tables, including the wait for a pooled connection")
+@StackTrace(false)
+public class TossDaoOperationEvent extends jdk.jfr.Event {
+
+    @Label("Query")
+    String query;
+
+    @Label("Rows")
+    @Description("Rows returned or updated, -1 if unknown or failed")
+    int rows;
+
+    @Label("Error Code")
+    String errorCode;
+}
@@ -0,0 +1,164 @@
+package org.killbill.billing.plugin.toss.metrics;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jdk.jfr.EventType;
+
+/**
+ * Emits the plugin JFR events: {@link TossHttpCallEvent}, {@link TossDaoOperationEvent} and {@link TossPluginOperationEvent}.
+ *
+ * <p>The events are disabled unless a recording enables them, e.g.
+ * {@code jcmd <pid> JFR.start settings=profile} or a custom .jfc file enabling the {@code org.killbill.billing.plugin.toss.*} events.
+ * When disabled, {@code begin*} returns null without allocating, and {@code end*} returns immediately.</p>
+ *
+ * <p>Callers only use this class, so that the plugin still works if jdk.jfr cannot be loaded
+ * (the bundle imports it optionally): events are then never emitted.</p>
+ *
+ * <p>Events carry no payment key, billing key nor Kill Bill payment id: Toss endpoints are identified by their operation tag,
+ * and payments by a hash of their id.</p>
+ */
+public final class TossFlightRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(TossFlightRecorder.class);
+
+    private static final boolean AVAILABLE = isJfrAvailable();
+
+    private static final EventType HTTP_CALL_TYPE = AVAILABLE ? EventType.getEventType(TossHttpCallEvent.class) : null;
+    private static final EventType DAO_OPERATION_TYPE = AVAILABLE ? EventType.getEventType(TossDaoOperationEvent.class) : null;
+    private static final EventType PLUGIN_OPERATION_TYPE = AVAILABLE ? EventType.getEventType(TossPluginOperationEvent.class) : null;
+
+    private TossFlightRecorder() {}
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, TossFlightRecorder.class.getClassLoader());
+            return true;
+        } catch (final ClassNotFoundException | LinkageError e) {
+            logger.info("JFR is not available, Toss events will not be recorded");
+            return false;
+        }
+    }
+
+    /**
+     * @return the started event, or null if the event is not recorded
+     */
+    @Nullable
+    public static TossHttpCallEvent beginHttpCall() {
+        if (!AVAILABLE || !HTTP_CALL_TYPE.isEnabled()) {
+            return null;
+        }
+        final TossHttpCallEvent event = new TossHttpCallEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param event the event returned by {@link #beginHttpCall()}
+     * @param operation the Toss API operation
+     * @param status the HTTP status, 0 if no response was received
+     * @param bytes size of the response body
+     */
+    public static void endHttpCall(@Nullable final TossHttpCallEvent event, final TossOperation operation, final int status, final long bytes) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.endpoint = operation.getTag();
+            event.status = status;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    @Nullable
+    public static TossDaoOperationEvent beginDaoOperation() {
+        if (!AVAILABLE || !DAO_OPERATION_TYPE.isEnabled()) {
+            return null;
+        }
+        final TossDaoOperationEvent event = new TossDaoOperationEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param event the event returned by {@link #beginDaoOperation()}
+     * @param operation the query
+     * @param result the query result, for its row count
+     * @param failure the exception thrown by the query, null if it succeeded
+     */
+    public static void endDaoOperation(@Nullable final TossDaoOperationEvent event,
+                                       final TossOperation operation,
+                                       @Nullable final Object result,
+                                       @Nullable final Throwable failure) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.query = operation.getTag();
+            event.rows = failure == null ? rowCount(result) : -1;
+            event.errorCode = failure == null ? null : TossMetrics.errorCode(failure);
+            event.commit();
+        }
+    }
+
+    static int rowCount(@Nullable final Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Map) {
+            return ((Map<?, ?>) result).size();
+        }
+        if (result instanceof Integer) {
+            // Update count
+            return (Integer) result;
+        }
+        if (result instanceof Boolean) {
+            return -1;
+        }
+        return 1;
+    }
+
+    @Nullable
+    public static TossPluginOperationEvent beginPluginOperation() {
+        if (!AVAILABLE || !PLUGIN_OPERATION_TYPE.isEnabled()) {
+            return null;
+        }
+        final TossPluginOperationEvent event = new TossPluginOperationEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param event the event returned by {@link #beginPluginOperation()}
+     * @param flow the flow, e.g. the purchase flow or refund
+     * @param kbPaymentId the payment, null if the operation is not tied to a payment
+     * @param outcome the Kill Bill payment status, or the error code
+     */
+    public static void endPluginOperation(@Nullable final TossPluginOperationEvent event,
+                                          final String flow,
+                                          @Nullable final UUID kbPaymentId,
+                                          final String outcome) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.flow = flow;
+            event.kbPaymentIdHash = kbPaymentId == null ? 0 : kbPaymentId.hashCode();
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.killbill.billing.plugin.toss.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram, in microseconds, with HDR-style log-linear buckets.
+ *
+ * <p>Each power of two range is split in {@value #SUB_BUCKETS} linear buckets, so that a recorded value is
+ * reported within about 3% of its actual value, from 1µs up to {@link #MAX_TRACKABLE_MICROS} (larger values
+ * are clamped). Recording is a few arithmetic operations and atomic increments: it never blocks nor allocates.</p>
+ */
+public class TossHistogram {
+
+    // 2^5 linear buckets per power of two
+    private static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // About 19 hours
+    public static final long MAX_TRACKABLE_MICROS = (1L << 36) - 1;
+
+    static final int BUCKETS = bucketIndex(MAX_TRACKABLE_MICROS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos the duration, in nanoseconds
+     */
+    public void recordNanos(final long nanos) {
+        recordMicros(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    public void recordMicros(final long micros) {
+        final long value = Math.min(Math.max(0, micros), MAX_TRACKABLE_MICROS);
+        counts.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sumMicros.add(value);
+        long currentMax = maxMicros.get();
+        while (value > currentMax && !maxMicros.compareAndSet(currentMax, value)) {
+            currentMax = maxMicros.get();
+        }
+    }
+
+    /**
+     * @return a copy of the histogram. Recordings made while copying may be partially included.
+     */
+    public TossHistogramSnapshot snapshot() {
+        final long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        return new TossHistogramSnapshot(snapshot, total, sumMicros.sum(), maxMicros.get());
+    }
+
+    /**
+     * @return the number of recordings, without taking a snapshot
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    static int bucketIndex(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // Position of the highest bit, at least SUB_BUCKET_BITS
+        final int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * @return the largest value recorded in the bucket
+     */
+    static long highestValueInBucket(final int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        final long subBucket = index - ((long) shift << SUB_BUCKET_BITS);
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
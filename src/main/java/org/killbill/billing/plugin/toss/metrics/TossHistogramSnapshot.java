@@ -0,0 +1,69 @@
+package org.killbill.billing.plugin.toss.metrics;
+
+/**
+ * Point-in-time copy of a {@link TossHistogram}, in microseconds.
+ */
+public class TossHistogramSnapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sumMicros;
+    private final long maxMicros;
+
+    TossHistogramSnapshot(final long[] counts, final long count, final long sumMicros, final long maxMicros) {
+        this.counts = counts;
+        this.count = count;
+        this.sumMicros = sumMicros;
+        this.maxMicros = maxMicros;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSumMicros() {
+        return sumMicros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    public long getMeanMicros() {
+        return count == 0 ? 0 : sumMicros / count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the value below which the given percentage of the recordings fall (0 if empty)
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(TossHistogram.highestValueInBucket(i), maxMicros);
+            }
+        }
+        return maxMicros;
+    }
+
+    /**
+     * @param upperBoundMicros an upper bound
+     * @return the number of recordings less than or equal to the bound, within the bucket precision
+     */
+    public long getCountAtOrBelow(final long upperBoundMicros) {
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (TossHistogram.highestValueInBucket(i) > upperBoundMicros) {
+                break;
+            }
+            seen += counts[i];
+        }
+        return seen;
+    }
+}
@@ -0,0 +1,30 @@
+package org.killbill.billing.plugin.toss.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event of an HTTP call to the Toss API, see {@link TossFlightRecorder}.
+ */
+@Name("org.killbill.billing.plugin.toss.TossHttpCall")
+@Label("Toss HTTP Call")
+@Category({"Kill Bill", "Toss"})
+@Description("Call to the Toss API, from sending the request to receiving the whole response")
+@StackTrace(false)
+public class TossHttpCallEvent extends jdk.jfr.Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("HTTP Status")
+    @Description("0 if no response was received")
+    int status;
+
+    @Label("Response Size")
+    @DataAmount
+    long bytes;
+}
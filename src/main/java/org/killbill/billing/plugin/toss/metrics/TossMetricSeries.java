@@ -0,0 +1,69 @@
+package org.killbill.billing.plugin.toss.metrics;
+
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+/**
+ * Latencies of an operation for one combination of tags.
+ */
+public class TossMetricSeries {
+
+    private final TossOperation operation;
+    private final UUID kbTenantId;
+    private final String status;
+    private final String errorCode;
+    private final TossHistogram histogram = new TossHistogram();
+
+    TossMetricSeries(final TossOperation operation, @Nullable final UUID kbTenantId, final String status, @Nullable final String errorCode) {
+        this.operation = operation;
+        this.kbTenantId = kbTenantId;
+        this.status = status;
+        this.errorCode = errorCode;
+    }
+
+    public TossOperation getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return the tenant, null for operations not tied to a tenant (e.g. startup recovery)
+     */
+    public UUID getKbTenantId() {
+        return kbTenantId;
+    }
+
+    /**
+     * @return the Toss payment status (e.g. {@code DONE}), {@link TossMetrics#STATUS_OK} or {@link TossMetrics#STATUS_ERROR}
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the Toss error code, SQL state or exception name of a failure, null on success
+     */
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public TossHistogram getHistogram() {
+        return histogram;
+    }
+
+    public TossMetricStats getStats() {
+        final TossHistogramSnapshot snapshot = histogram.snapshot();
+        return new TossMetricStats(operation.getKind(),
+                                   operation.getTag(),
+                                   kbTenantId == null ? null : kbTenantId.toString(),
+                                   status,
+                                   errorCode,
+                                   snapshot.getCount(),
+                                   snapshot.getMeanMicros(),
+                                   snapshot.getValueAtPercentile(50),
+                                   snapshot.getValueAtPercentile(90),
+                                   snapshot.getValueAtPercentile(99),
+                                   snapshot.getValueAtPercentile(99.9),
+                                   snapshot.getMaxMicros());
+    }
+}
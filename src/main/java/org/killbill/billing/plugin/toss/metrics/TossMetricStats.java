@@ -0,0 +1,122 @@
+package org.killbill.billing.plugin.toss.metrics;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Point-in-time latency statistics of a {@link TossMetricSeries}.
+ */
+public class TossMetricStats {
+
+    private final TossOperation.Kind kind;
+    private final String operation;
+    private final String kbTenantId;
+    private final String status;
+    private final String errorCode;
+    private final long count;
+    private final long meanMicros;
+    private final long p50Micros;
+    private final long p90Micros;
+    private final long p99Micros;
+    private final long p999Micros;
+    private final long maxMicros;
+
+    public TossMetricStats(final TossOperation.Kind kind,
+                           final String operation,
+                           final String kbTenantId,
+                           final String status,
+                           final String errorCode,
+                           final long count,
+                           final long meanMicros,
+                           final long p50Micros,
+                           final long p90Micros,
+                           final long p99Micros,
+                           final long p999Micros,
+                           final long maxMicros) {
+        this.kind = kind;
+        this.operation = operation;
+        this.kbTenantId = kbTenantId;
+        this.status = status;
+        this.errorCode = errorCode;
+        this.count = count;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p90Micros = p90Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    @JsonProperty
+    public String getKind() {
+        return kind.name();
+    }
+
+    @JsonProperty
+    public String getOperation() {
+        return operation;
+    }
+
+    @JsonProperty
+    public String getKbTenantId() {
+        return kbTenantId;
+    }
+
+    @JsonProperty
+    public String getStatus() {
+        return status;
+    }
+
+    @JsonProperty
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    @JsonProperty
+    public long getCount() {
+        return count;
+    }
+
+    @JsonProperty
+    public long getMeanMicros() {
+        return meanMicros;
+    }
+
+    @JsonProperty
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    @JsonProperty
+    public long getP90Micros() {
+        return p90Micros;
+    }
+
+    @JsonProperty
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    @JsonProperty
+    public long getP999Micros() {
+        return p999Micros;
+    }
+
+    @JsonProperty
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "TossMetricStats{" +
+                "operation=" + operation +
+                ", kbTenantId=" + kbTenantId +
+                ", status=" + status +
+                ", errorCode=" + errorCode +
+                ", count=" + count +
+                ", p50Micros=" + p50Micros +
+                ", p99Micros=" + p99Micros +
+                ", maxMicros=" + maxMicros +
+                '}';
+    }
+}
@@ -0,0 +1,190 @@
+package org.killbill.billing.plugin.toss.metrics;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.plugin.toss.client.exception.TossApplicationException;
+import org.killbill.billing.plugin.toss.client.exception.TossLaneRejectedException;
+
+/**
+ * Latency histograms and counts of the Toss API calls and database queries, tagged by operation, tenant,
+ * outcome status and error code.
+ *
+ * <p>Recording does not allocate once the series exists: the series is looked up with a per-thread mutable key,
+ * and histograms only use atomic counters. A series is created on the first recording of its tags.</p>
+ */
+public class TossMetrics implements TossMetricsMXBean {
+
+    public static final String OBJECT_NAME = "org.killbill.billing.plugin.toss:type=TossMetrics";
+
+    public static final String STATUS_OK = "OK";
+    public static final String STATUS_ERROR = "ERROR";
+
+    // Bounds the memory used if an unexpected tag (e.g. an error code) varies per call
+    public static final int DEFAULT_MAX_SERIES = 5000;
+
+    private final int maxSeries;
+    private final ConcurrentHashMap<SeriesKey, TossMetricSeries> series = new ConcurrentHashMap<>();
+    private final ThreadLocal<SeriesKey> lookupKeys = ThreadLocal.withInitial(SeriesKey::new);
+    private final LongAdder droppedRecordings = new LongAdder();
+
+    public TossMetrics() {
+        this(DEFAULT_MAX_SERIES);
+    }
+
+    public TossMetrics(final int maxSeries) {
+        this.maxSeries = maxSeries;
+    }
+
+    /**
+     * Record a successful operation.
+     *
+     * @param operation the operation
+     * @param kbTenantId the tenant, null if not tied to a tenant
+     * @param status the Toss payment status, or {@link #STATUS_OK}
+     * @param elapsedNanos duration of the operation
+     */
+    public void recordSuccess(final TossOperation operation, @Nullable final UUID kbTenantId, final String status, final long elapsedNanos) {
+        record(operation, kbTenantId, status, null, elapsedNanos);
+    }
+
+    /**
+     * Record a failed operation.
+     *
+     * @param operation the operation
+     * @param kbTenantId the tenant, null if not tied to a tenant
+     * @param failure the exception thrown by the operation
+     * @param elapsedNanos duration of the operation
+     */
+    public void recordFailure(final TossOperation operation, @Nullable final UUID kbTenantId, final Throwable failure, final long elapsedNanos) {
+        record(operation, kbTenantId, STATUS_ERROR, errorCode(failure), elapsedNanos);
+    }
+
+    public void record(final TossOperation operation,
+                       @Nullable final UUID kbTenantId,
+                       final String status,
+                       @Nullable final String errorCode,
+                       final long elapsedNanos) {
+        final SeriesKey lookupKey = lookupKeys.get().set(operation, kbTenantId, status, errorCode);
+        TossMetricSeries target = series.get(lookupKey);
+        if (target == null) {
+            target = createSeries(lookupKey);
+            if (target == null) {
+                droppedRecordings.increment();
+                return;
+            }
+        }
+        target.getHistogram().recordNanos(elapsedNanos);
+    }
+
+    private TossMetricSeries createSeries(final SeriesKey lookupKey) {
+        if (series.size() >= maxSeries) {
+            return null;
+        }
+        final SeriesKey key = new SeriesKey().set(lookupKey.operation, lookupKey.kbTenantId, lookupKey.status, lookupKey.errorCode);
+        return series.computeIfAbsent(key, k -> new TossMetricSeries(k.operation, k.kbTenantId, k.status, k.errorCode));
+    }
+
+    /**
+     * @return the error code of a failure: the Toss error code, the SQL state, or the exception name
+     */
+    static String errorCode(final Throwable failure) {
+        if (failure instanceof TossApplicationException) {
+            final TossApplicationException tossException = (TossApplicationException) failure;
+            if (tossException.getTossError() != null && tossException.getTossError().getCode() != null) {
+                return tossException.getTossError().getCode();
+            }
+            return "HTTP_" + tossException.getStatusCode();
+        }
+        if (failure instanceof TossLaneRejectedException) {
+            return TossLaneRejectedException.ERROR_CODE;
+        }
+        // jOOQ wraps the driver exceptions
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && ((SQLException) cause).getSQLState() != null) {
+                return ((SQLException) cause).getSQLState();
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return failure.getClass().getSimpleName();
+    }
+
+    /**
+     * @return all series, in no particular order
+     */
+    public List<TossMetricSeries> getSeries() {
+        return new ArrayList<>(series.values());
+    }
+
+    @Override
+    public List<TossMetricStats> getStats() {
+        final List<TossMetricStats> stats = new ArrayList<>(series.size());
+        for (final TossMetricSeries metricSeries : series.values()) {
+            stats.add(metricSeries.getStats());
+        }
+        return stats;
+    }
+
+    @Override
+    public int getSeriesCount() {
+        return series.size();
+    }
+
+    @Override
+    public long getDroppedRecordings() {
+        return droppedRecordings.sum();
+    }
+
+    private static final class SeriesKey {
+
+        private TossOperation operation;
+        private UUID kbTenantId;
+        private String status;
+        private String errorCode;
+        private int hash;
+
+        private SeriesKey set(final TossOperation operation, @Nullable final UUID kbTenantId, final String status, @Nullable final String errorCode) {
+            this.operation = operation;
+            this.kbTenantId = kbTenantId;
+            this.status = status;
+            this.errorCode = errorCode;
+            // Not Objects.hash: no varargs array
+            int h = operation.hashCode();
+            h = 31 * h + Objects.hashCode(kbTenantId);
+            h = 31 * h + Objects.hashCode(status);
+            h = 31 * h + Objects.hashCode(errorCode);
+            this.hash = h;
+            return this;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SeriesKey)) {
+                return false;
+            }
+            final SeriesKey that = (SeriesKey) o;
+            return hash == that.hash &&
+                   operation == that.operation &&
+                   Objects.equals(kbTenantId, that.kbTenantId) &&
+                   Objects.equals(status, that.status) &&
+                   Objects.equals(errorCode, that.errorCode);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
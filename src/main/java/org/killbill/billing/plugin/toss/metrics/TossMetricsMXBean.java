@@ -0,0 +1,24 @@
+package org.killbill.billing.plugin.toss.metrics;
+
+import java.util.List;
+
+/**
+ * JMX view of the {@link TossMetrics}, registered as {@value TossMetrics#OBJECT_NAME}.
+ */
+public interface TossMetricsMXBean {
+
+    /**
+     * @return the latency statistics of every series
+     */
+    List<TossMetricStats> getStats();
+
+    /**
+     * @return the number of series
+     */
+    int getSeriesCount();
+
+    /**
+     * @return the number of recordings dropped because the maximum number of series was reached
+     */
+    long getDroppedRecordings();
+}
@@ -0,0 +1,64 @@
+package org.killbill.billing.plugin.toss.metrics;
+
+/**
+ * Operations timed by {@link TossMetrics}: calls to the Toss API and queries of the plugin tables.
+ */
+public enum TossOperation {
+
+    CONFIRM_PAYMENT(Kind.TOSS, "confirm_payment"),
+    CANCEL_PAYMENT(Kind.TOSS, "cancel_payment"),
+    GET_PAYMENT(Kind.TOSS, "get_payment"),
+    ISSUE_BILLING_KEY(Kind.TOSS, "issue_billing_key"),
+    BILLING_KEY_PAYMENT(Kind.TOSS, "billing_key_payment"),
+
+    ADD_RESPONSE(Kind.DATABASE, "add_response"),
+    ADD_RESPONSES(Kind.DATABASE, "add_responses"),
+    DELETE_PENDING_RESPONSE(Kind.DATABASE, "delete_pending_response"),
+    GET_RESPONSE(Kind.DATABASE, "get_response"),
+    GET_RESPONSE_BY_PAYMENT(Kind.DATABASE, "get_response_by_payment"),
+    GET_SUCCESSFUL_PURCHASE(Kind.DATABASE, "get_successful_purchase"),
+    GET_RESPONSES_BY_TRANSACTIONS(Kind.DATABASE, "get_responses_by_transactions"),
+    SEARCH_RESPONSES(Kind.DATABASE, "search_responses"),
+    ADD_PAYMENT_METHOD(Kind.DATABASE, "add_payment_method"),
+    GET_PAYMENT_METHOD(Kind.DATABASE, "get_payment_method"),
+    GET_PAYMENT_METHODS(Kind.DATABASE, "get_payment_methods"),
+    GET_PAYMENT_METHODS_BY_IDS(Kind.DATABASE, "get_payment_methods_by_ids"),
+    SEARCH_PAYMENT_METHODS(Kind.DATABASE, "search_payment_methods"),
+    DELETE_PAYMENT_METHOD(Kind.DATABASE, "delete_payment_method"),
+    SET_DEFAULT_PAYMENT_METHOD(Kind.DATABASE, "set_default_payment_method"),
+    ADD_BILLING_INTENT(Kind.DATABASE, "add_billing_intent"),
+    GET_BILLING_INTENTS(Kind.DATABASE, "get_billing_intents"),
+    COMPLETE_BILLING_INTENT(Kind.DATABASE, "complete_billing_intent"),
+    PING(Kind.DATABASE, "ping");
+
+    /**
+     * Where the time is spent.
+     */
+    public enum Kind {
+
+        /** Toss API call, from the HTTP request to the parsed response (excluding the lane queueing) */
+        TOSS,
+
+        /** Database query, including the wait for a pooled connection */
+        DATABASE
+    }
+
+    private final Kind kind;
+    private final String tag;
+
+    TossOperation(final Kind kind, final String tag) {
+        this.kind = kind;
+        this.tag = tag;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the name of the operation in the exported metrics, e.g. {@code confirm_payment}
+     */
+    public String getTag() {
+        return tag;
+    }
+}
@@ -0,0 +1,27 @@
+package org.killbill.billing.plugin.toss.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of a call into the plugin by Kill Bill, see {@link TossFlightRecorder}.
+ */
+@Name("org.killbill.billing.plugin.toss.TossPluginOperation")
+@Label("Toss Plugin Operation")
+@Category({"Kill Bill", "Toss"})
+@Description("Payment plugin API call, including the wait for the payment lock")
+public class TossPluginOperationEvent extends jdk.jfr.Event {
+
+    @Label("Flow")
+    String flow;
+
+    @Label("Payment Hash")
+    @Description("Hash of the kbPaymentId, to correlate the events of a payment without recording it")
+    int kbPaymentIdHash;
+
+    @Label("Outcome")
+    @Description("Kill Bill payment status, or error code")
+    String outcome;
+}
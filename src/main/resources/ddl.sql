@@ -37,6 +37,8 @@ create table toss_responses (
 create index toss_responses_kb_payment_id on toss_responses(kb_payment_id);
 create index toss_responses_kb_payment_transaction_id on toss_responses(kb_payment_transaction_id);
 create index toss_responses_payment_key on toss_responses(payment_key);
+create index toss_responses_order_id on toss_responses(order_id);
+create index toss_responses_toss_receipt_url on toss_responses(toss_receipt_url);
 create index toss_responses_kb_tenant_id on toss_responses(kb_tenant_id);
 
 create table toss_payment_methods (
@@ -45,6 +47,8 @@ create table toss_payment_methods (
 , kb_payment_method_id char(36) not null
 , billing_key varchar(255) not null
 , customer_key varchar(255) default null
+, card_issuer_code varchar(10) default null
+, card_last4 varchar(4) default null
 , is_default smallint not null default 0
 , is_deleted smallint not null default 0
 , additional_data longtext default null
@@ -55,8 +59,28 @@ create table toss_payment_methods (
 ) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
 create unique index toss_payment_methods_kb_payment_method_id on toss_payment_methods(kb_payment_method_id);
 create index toss_payment_methods_billing_key on toss_payment_methods(billing_key);
+create index toss_payment_methods_customer_key on toss_payment_methods(customer_key);
+create index toss_payment_methods_card_last4 on toss_payment_methods(card_last4, card_issuer_code);
 create index toss_payment_methods_kb_tenant_id on toss_payment_methods(kb_tenant_id);
 
+create table toss_billing_intents (
+  record_id serial
+, kb_account_id char(36) not null
+, kb_payment_id char(36) not null
+, kb_payment_transaction_id char(36) not null
+, kb_payment_method_id char(36) not null
+, amount numeric(15,9)
+, currency char(3)
+, is_default smallint not null default 0
+, billing_key varchar(255) not null
+, billing_response longtext not null
+, payment_request longtext not null
+, created_date datetime not null
+, kb_tenant_id char(36) not null
+, primary key(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+create unique index toss_billing_intents_kb_payment_transaction_id on toss_billing_intents(kb_payment_transaction_id);
+
 create table toss_notifications (
   record_id serial
 , kb_account_id char(36) default null
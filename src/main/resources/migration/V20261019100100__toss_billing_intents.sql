@@ -0,0 +1,36 @@
+/*
+ * Copyright 2024 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+/*! SET default_storage_engine=INNODB */;
+
+/* Billing intents of first purchases, for installs created before the table was added to ddl.sql */
+create table toss_billing_intents (
+  record_id serial
+, kb_account_id char(36) not null
+, kb_payment_id char(36) not null
+, kb_payment_transaction_id char(36) not null
+, kb_payment_method_id char(36) not null
+, amount numeric(15,9)
+, currency char(3)
+, is_default smallint not null default 0
+, billing_key varchar(255) not null
+, billing_response longtext not null
+, payment_request longtext not null
+, created_date datetime not null
+, kb_tenant_id char(36) not null
+, primary key(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+create unique index toss_billing_intents_kb_payment_transaction_id on toss_billing_intents(kb_payment_transaction_id);
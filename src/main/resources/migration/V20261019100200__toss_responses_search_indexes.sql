@@ -0,0 +1,19 @@
+/*
+ * Copyright 2024 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+/* Indexes of searchPayments, for installs created before they were added to ddl.sql */
+create index toss_responses_order_id on toss_responses(order_id);
+create index toss_responses_toss_receipt_url on toss_responses(toss_receipt_url);
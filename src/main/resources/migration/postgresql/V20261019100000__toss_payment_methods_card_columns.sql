@@ -0,0 +1,37 @@
+/*
+ * Copyright 2024 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+/* Columns and indexes of searchPaymentMethods, for installs created before they were added to ddl-postgresql.sql */
+alter table toss_payment_methods add column card_issuer_code varchar(10) default null;
+alter table toss_payment_methods add column card_last4 varchar(4) default null;
+create index toss_payment_methods_customer_key on toss_payment_methods(customer_key);
+create index toss_payment_methods_card_last4 on toss_payment_methods(card_last4, card_issuer_code);
+
+/* Backfill from the billing key response kept in additional_data, as TossDao.addPaymentMethod extracts them */
+update toss_payment_methods
+set card_issuer_code = additional_data::json #>> '{card,issuerCode}'
+where additional_data is not null;
+
+update toss_payment_methods pm
+set card_last4 = right(n.card_number, 4)
+from (
+  select record_id
+  , replace(replace(coalesce(additional_data::json ->> 'cardNumber', additional_data::json #>> '{card,number}'), '-', ''), ' ', '') card_number
+  from toss_payment_methods
+  where additional_data is not null
+) n
+where n.record_id = pm.record_id
+and n.card_number ~ '^[0-9*]*[0-9][0-9*]{3}$';
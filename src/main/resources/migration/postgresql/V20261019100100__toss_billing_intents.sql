@@ -0,0 +1,34 @@
+/*
+ * Copyright 2024 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+/* Billing intents of first purchases, for installs created before the table was added to ddl-postgresql.sql */
+create table toss_billing_intents (
+  record_id bigserial
+, kb_account_id varchar(36) not null
+, kb_payment_id varchar(36) not null
+, kb_payment_transaction_id varchar(36) not null
+, kb_payment_method_id varchar(36) not null
+, amount numeric(15,9)
+, currency varchar(3)
+, is_default smallint not null default 0
+, billing_key varchar(255) not null
+, billing_response text not null
+, payment_request text not null
+, created_date timestamp not null
+, kb_tenant_id varchar(36) not null
+, primary key(record_id)
+);
+create unique index toss_billing_intents_kb_payment_transaction_id on toss_billing_intents(kb_payment_transaction_id);
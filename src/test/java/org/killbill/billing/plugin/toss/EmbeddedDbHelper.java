@@ -23,6 +23,7 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.util.stream.Collectors;
+import javax.sql.DataSource;
 
 import org.killbill.billing.plugin.toss.dao.TossDao;
 import org.killbill.commons.embeddeddb.h2.H2EmbeddedDB;
@@ -54,6 +55,14 @@ public class EmbeddedDbHelper {
         return new TossDao(embeddedDB.getDataSource());
     }
 
+    public TossDao getTossDao(final boolean storeRawResponses, final boolean compressRawResponses) throws IOException, SQLException {
+        return new TossDao(embeddedDB.getDataSource(), storeRawResponses, compressRawResponses);
+    }
+
+    public DataSource getDataSource() throws IOException {
+        return embeddedDB.getDataSource();
+    }
+
     public void resetDB() throws Exception {
         embeddedDB.cleanupAllTables();
     }
@@ -32,6 +32,7 @@ import org.killbill.billing.plugin.toss.dao.TossDao;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.clock.ClockMock;
 import org.mockito.Mockito;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.BeforeSuite;
@@ -88,6 +89,13 @@ public abstract class TestBase {
         tossConfigurationHandler.setDefaultConfigurable(tossConfigProperties);
     }
 
+    @AfterMethod(groups = {"slow"}, alwaysRun = true)
+    public void tearDown() throws Exception {
+        if (tossPaymentPluginApi != null) {
+            tossPaymentPluginApi.close();
+        }
+    }
+
     @BeforeSuite(groups = {"slow"})
     public void setUpBeforeSuite() throws Exception {
         EmbeddedDbHelper.instance().startDb();
@@ -0,0 +1,239 @@
+package org.killbill.billing.plugin.toss.api;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.toss.TestBase;
+import org.killbill.billing.plugin.toss.client.exception.TossApplicationException;
+import org.killbill.billing.plugin.toss.client.model.TossBilling;
+import org.killbill.billing.plugin.toss.client.model.TossError;
+import org.killbill.billing.plugin.toss.client.model.TossPayment;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TossBatchChargeServiceTest extends TestBase {
+
+    private static final String BILLING_KEY = "billing_key_batch";
+
+    @Test(groups = "slow")
+    public void testChargeBatch_ChargesEveryItemAndPersistsResponses() throws Exception {
+        addBillingKey();
+
+        final TossBatchChargeItem first = newItem(account.getPaymentMethodId());
+        final TossBatchChargeItem second = newItem(account.getPaymentMethodId());
+        mockCharge(first, "payment_key_batch_1");
+        mockCharge(second, "payment_key_batch_2");
+
+        final List<TossBatchChargeResult> results = tossPaymentPluginApi.chargeBatch("batch-1", ImmutableList.of(first, second), Collections.emptyList(), context);
+
+        Assert.assertEquals(results.size(), 2);
+        Assert.assertEquals(results.get(0).getKbTransactionId(), first.getKbTransactionId());
+        Assert.assertEquals(results.get(0).getStatus(), PaymentPluginStatus.PROCESSED);
+        Assert.assertEquals(results.get(0).getPaymentKey(), "payment_key_batch_1");
+        Assert.assertFalse(results.get(0).isAlreadyProcessed());
+        Assert.assertEquals(results.get(1).getKbTransactionId(), second.getKbTransactionId());
+        Assert.assertEquals(results.get(1).getPaymentKey(), "payment_key_batch_2");
+
+        final TossBatchProgress progress = tossPaymentPluginApi.getBatchProgress("batch-1");
+        Assert.assertEquals(progress.getProcessed(), 2);
+        Assert.assertEquals(progress.getPersisted(), 2);
+        Assert.assertEquals(progress.getCompleted(), 2);
+
+        // Responses are visible to the regular Kill Bill flow
+        final List<PaymentTransactionInfoPlugin> paymentInfo = tossPaymentPluginApi.getPaymentInfo(account.getId(), first.getKbPaymentId(), Collections.emptyList(), context);
+        Assert.assertEquals(paymentInfo.size(), 1);
+        Assert.assertEquals(paymentInfo.get(0).getFirstPaymentReferenceId(), "payment_key_batch_1");
+    }
+
+    @Test(groups = "slow")
+    public void testChargeBatch_Resubmitted_SkipsAlreadyProcessedItems() throws Exception {
+        addBillingKey();
+
+        final TossBatchChargeItem item = newItem(account.getPaymentMethodId());
+        mockCharge(item, "payment_key_batch_resume");
+
+        tossPaymentPluginApi.chargeBatch("batch-resume", ImmutableList.of(item), Collections.emptyList(), context);
+        Mockito.reset(tossClient);
+
+        final List<TossBatchChargeResult> results = tossPaymentPluginApi.chargeBatch("batch-resume", ImmutableList.of(item), Collections.emptyList(), context);
+
+        Assert.assertEquals(results.size(), 1);
+        Assert.assertTrue(results.get(0).isAlreadyProcessed());
+        Assert.assertEquals(results.get(0).getStatus(), PaymentPluginStatus.PROCESSED);
+        Assert.assertEquals(results.get(0).getPaymentKey(), "payment_key_batch_resume");
+        Assert.assertEquals(tossPaymentPluginApi.getBatchProgress("batch-resume").getAlreadyProcessed(), 1);
+        Mockito.verify(tossClient, Mockito.never()).executeBillingKeyPayment(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.anyString());
+    }
+
+    @Test(groups = "slow")
+    public void testChargeBatch_GatewayErrorAndMissingBillingKey() throws Exception {
+        addBillingKey();
+
+        final TossBatchChargeItem declined = newItem(account.getPaymentMethodId());
+        final TossBatchChargeItem noBillingKey = newItem(UUID.randomUUID());
+        final TossApplicationException exception = new TossApplicationException(new TossError("REJECT_CARD_PAYMENT", "한도초과 혹은 잔액부족으로 결제에 실패했습니다."), 403);
+        Mockito.when(tossClient.executeBillingKeyPayment(Mockito.anyString(), Mockito.eq(BILLING_KEY), Mockito.any(), Mockito.eq(declined.getKbTransactionId().toString())))
+               .thenThrow(exception);
+
+        final List<TossBatchChargeResult> results = tossPaymentPluginApi.chargeBatch("batch-errors", ImmutableList.of(declined, noBillingKey), Collections.emptyList(), context);
+
+        Assert.assertEquals(results.get(0).getStatus(), PaymentPluginStatus.ERROR);
+        Assert.assertEquals(results.get(0).getGatewayErrorCode(), "REJECT_CARD_PAYMENT");
+        Assert.assertEquals(results.get(1).getStatus(), PaymentPluginStatus.CANCELED);
+        Assert.assertEquals(results.get(1).getGatewayErrorCode(), "MISSING_BILLING_KEY");
+
+        final TossBatchProgress progress = tossPaymentPluginApi.getBatchProgress("batch-errors");
+        Assert.assertEquals(progress.getFailed(), 2);
+        Assert.assertEquals(progress.getPersisted(), 1);
+    }
+
+    @Test(groups = "slow")
+    public void testStartBatch_RunsInTheBackground() throws Exception {
+        addBillingKey();
+
+        final TossBatchChargeItem item = newItem(account.getPaymentMethodId());
+        final TossPayment payment = mockCharge(item, "payment_key_batch_background");
+        final CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(tossClient.executeBillingKeyPayment(Mockito.anyString(), Mockito.eq(BILLING_KEY), Mockito.any(), Mockito.eq(item.getKbTransactionId().toString())))
+               .thenAnswer(invocation -> {
+                   release.await();
+                   return payment;
+               });
+
+        final TossBatchProgress progress = tossPaymentPluginApi.startBatch("batch-background", ImmutableList.of(item), Collections.emptyList(), context);
+        Assert.assertNotNull(progress);
+        Assert.assertFalse(progress.isFinished());
+        Assert.assertNull(progress.getResults());
+        Assert.assertEquals(progress.getTenantId(), context.getTenantId());
+        // A run of the batch is in flight
+        Assert.assertNull(tossPaymentPluginApi.startBatch("batch-background", ImmutableList.of(item), Collections.emptyList(), context));
+
+        release.countDown();
+        awaitFinished(progress);
+        Assert.assertNull(progress.getError());
+        Assert.assertEquals(progress.getResults().size(), 1);
+        Assert.assertEquals(progress.getResults().get(0).getPaymentKey(), "payment_key_batch_background");
+        Assert.assertEquals(progress.getPersisted(), 1);
+
+        // Finished runs can be resumed
+        final TossBatchProgress resumed = tossPaymentPluginApi.startBatch("batch-background", ImmutableList.of(item), Collections.emptyList(), context);
+        Assert.assertNotNull(resumed);
+        Assert.assertSame(tossPaymentPluginApi.getBatchProgress("batch-background"), resumed);
+        awaitFinished(resumed);
+        Assert.assertTrue(resumed.getResults().get(0).isAlreadyProcessed());
+    }
+
+    @Test(groups = "slow")
+    public void testChargeBatch_InvalidItemsAreRejectedBeforeCharging() throws Exception {
+        addBillingKey();
+
+        final TossBatchChargeItem item = newItem(account.getPaymentMethodId());
+        final TossBatchChargeItem sameTransaction = new TossBatchChargeItem(account.getId(), item.getKbPaymentId(), item.getKbTransactionId(), account.getPaymentMethodId(), BigDecimal.valueOf(9900), Currency.KRW);
+        final TossBatchChargeItem noAmount = new TossBatchChargeItem(account.getId(), UUID.randomUUID(), UUID.randomUUID(), account.getPaymentMethodId(), null, Currency.KRW);
+        final TossBatchChargeItem negative = new TossBatchChargeItem(account.getId(), UUID.randomUUID(), UUID.randomUUID(), account.getPaymentMethodId(), BigDecimal.valueOf(-1), Currency.KRW);
+        final TossBatchChargeItem fractional = new TossBatchChargeItem(account.getId(), UUID.randomUUID(), UUID.randomUUID(), account.getPaymentMethodId(), new BigDecimal("9900.5"), Currency.KRW);
+        final TossBatchChargeItem noTransaction = new TossBatchChargeItem(account.getId(), UUID.randomUUID(), null, account.getPaymentMethodId(), BigDecimal.valueOf(9900), Currency.KRW);
+
+        Assert.assertNull(TossBatchChargeService.validate(ImmutableList.of(item, newItem(account.getPaymentMethodId()))));
+        Assert.assertNotNull(TossBatchChargeService.validate(ImmutableList.of(item, sameTransaction)));
+        Assert.assertNotNull(TossBatchChargeService.validate(ImmutableList.of(noAmount)));
+        Assert.assertNotNull(TossBatchChargeService.validate(ImmutableList.of(negative)));
+        Assert.assertNotNull(TossBatchChargeService.validate(ImmutableList.of(fractional)));
+        Assert.assertNotNull(TossBatchChargeService.validate(ImmutableList.of(noTransaction)));
+        Assert.assertNotNull(TossBatchChargeService.validate(ImmutableList.of()));
+
+        try {
+            tossPaymentPluginApi.chargeBatch("batch-invalid", ImmutableList.of(item, sameTransaction), Collections.emptyList(), context);
+            Assert.fail("Duplicate kbTransactionId should be rejected");
+        } catch (final PaymentPluginApiException e) {
+            Assert.assertEquals(e.getErrorType(), "INVALID_BATCH");
+        }
+        try {
+            tossPaymentPluginApi.startBatch("batch-invalid", ImmutableList.of(negative), Collections.emptyList(), context);
+            Assert.fail("Negative amount should be rejected");
+        } catch (final IllegalArgumentException expected) {
+        }
+        Assert.assertNull(tossPaymentPluginApi.getBatchProgress("batch-invalid"));
+        Mockito.verify(tossClient, Mockito.never()).executeBillingKeyPayment(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.anyString());
+    }
+
+    @Test(groups = "slow")
+    public void testChargeBatch_FailedRunPersistsChargesAlreadySent() throws Exception {
+        addBillingKey();
+
+        final TossBatchChargeItem failing = newItem(account.getPaymentMethodId());
+        final TossBatchChargeItem inFlight = newItem(account.getPaymentMethodId());
+        final TossPayment payment = mockCharge(inFlight, "payment_key_batch_in_flight");
+        final CountDownLatch inFlightStarted = new CountDownLatch(1);
+        Mockito.when(tossClient.executeBillingKeyPayment(Mockito.anyString(), Mockito.eq(BILLING_KEY), Mockito.any(), Mockito.eq(failing.getKbTransactionId().toString())))
+               .thenAnswer(invocation -> {
+                   inFlightStarted.await();
+                   throw new IllegalStateException("bug");
+               });
+        Mockito.when(tossClient.executeBillingKeyPayment(Mockito.anyString(), Mockito.eq(BILLING_KEY), Mockito.any(), Mockito.eq(inFlight.getKbTransactionId().toString())))
+               .thenAnswer(invocation -> {
+                   inFlightStarted.countDown();
+                   // Still running at Toss when the run fails
+                   Thread.sleep(200);
+                   return payment;
+               });
+
+        try {
+            tossPaymentPluginApi.chargeBatch("batch-failed", ImmutableList.of(failing, inFlight), Collections.emptyList(), context);
+            Assert.fail("The run should fail");
+        } catch (final PaymentPluginApiException e) {
+            Assert.assertEquals(e.getErrorType(), "BATCH_ERROR");
+        }
+
+        final TossBatchProgress progress = tossPaymentPluginApi.getBatchProgress("batch-failed");
+        Assert.assertEquals(progress.getProcessed(), 1);
+        Assert.assertEquals(progress.getPersisted(), 1);
+        final List<PaymentTransactionInfoPlugin> paymentInfo = tossPaymentPluginApi.getPaymentInfo(account.getId(), inFlight.getKbPaymentId(), Collections.emptyList(), context);
+        Assert.assertEquals(paymentInfo.size(), 1);
+        Assert.assertEquals(paymentInfo.get(0).getFirstPaymentReferenceId(), "payment_key_batch_in_flight");
+    }
+
+    private static void awaitFinished(final TossBatchProgress progress) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!progress.isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(progress.isFinished());
+    }
+
+    private void addBillingKey() throws Exception {
+        final TossBilling billing = Mockito.mock(TossBilling.class);
+        Mockito.when(billing.getBillingKey()).thenReturn(BILLING_KEY);
+        Mockito.when(billing.getCustomerKey()).thenReturn(account.getPaymentMethodId().toString());
+        Mockito.when(billing.getMethod()).thenReturn("CARD");
+        dao.addPaymentMethod(account.getId(), account.getPaymentMethodId(), true, billing, clock.getUTCNow(), context.getTenantId());
+    }
+
+    private TossBatchChargeItem newItem(final UUID kbPaymentMethodId) {
+        return new TossBatchChargeItem(account.getId(), UUID.randomUUID(), UUID.randomUUID(), kbPaymentMethodId, BigDecimal.valueOf(9900), Currency.KRW);
+    }
+
+    private TossPayment mockCharge(final TossBatchChargeItem item, final String paymentKey) throws Exception {
+        final TossPayment payment = Mockito.mock(TossPayment.class);
+        Mockito.when(payment.getPaymentKey()).thenReturn(paymentKey);
+        Mockito.when(payment.getOrderId()).thenReturn(item.getKbPaymentId().toString());
+        Mockito.when(payment.getTotalAmount()).thenReturn(9900L);
+        Mockito.when(payment.getStatus()).thenReturn("DONE");
+        Mockito.when(payment.getCurrency()).thenReturn("KRW");
+        Mockito.when(payment.getMethod()).thenReturn("CARD");
+        Mockito.when(tossClient.executeBillingKeyPayment(Mockito.anyString(), Mockito.eq(BILLING_KEY), Mockito.any(), Mockito.eq(item.getKbTransactionId().toString())))
+               .thenReturn(payment);
+        return payment;
+    }
+}
@@ -0,0 +1,68 @@
+package org.killbill.billing.plugin.toss.api;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.api.PluginProperties;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TossCallTimingsTest {
+
+    @Test(groups = "fast")
+    public void testPhasesSummedAndAttached() throws Exception {
+        final TossCallTimings timings = TossCallTimings.start();
+        final long first = timings.now();
+        Thread.sleep(5);
+        final long second = timings.mark(TossCallTimings.Phase.TOSS_CALL, first);
+        Thread.sleep(5);
+        timings.mark(TossCallTimings.Phase.TOSS_CALL, second);
+
+        final PaymentTransactionInfoPlugin info = newInfo();
+        final PaymentTransactionInfoPlugin withTimings = timings.attachTo(info);
+
+        Assert.assertEquals(withTimings.getStatus(), PaymentPluginStatus.PROCESSED);
+        Assert.assertEquals(withTimings.getFirstPaymentReferenceId(), "paymentKey");
+        Assert.assertEquals(PluginProperties.findPluginPropertyValue("existing", withTimings.getProperties()), "value");
+        Assert.assertTrue(Double.parseDouble(PluginProperties.findPluginPropertyValue("timing.tossCallMs", withTimings.getProperties())) >= 10);
+        Assert.assertTrue(Double.parseDouble(PluginProperties.findPluginPropertyValue(TossCallTimings.PROPERTY_TOTAL, withTimings.getProperties())) >= 10);
+        // Phases which did not run are left out
+        Assert.assertNull(PluginProperties.findPluginPropertyValue("timing.queueingMs", withTimings.getProperties()));
+    }
+
+    @Test(groups = "fast")
+    public void testDisabled() {
+        final TossCallTimings timings = TossCallTimings.DISABLED;
+        Assert.assertFalse(timings.isEnabled());
+        Assert.assertEquals(timings.now(), 0L);
+        Assert.assertEquals(timings.mark(TossCallTimings.Phase.TOSS_CALL, 0), 0L);
+
+        final PaymentTransactionInfoPlugin info = newInfo();
+        Assert.assertSame(timings.attachTo(info), info);
+    }
+
+    private static PaymentTransactionInfoPlugin newInfo() {
+        final DateTime now = DateTime.now();
+        return new TossPaymentTransactionInfoPlugin(UUID.randomUUID(),
+                                                    UUID.randomUUID(),
+                                                    TransactionType.PURCHASE,
+                                                    BigDecimal.TEN,
+                                                    Currency.KRW,
+                                                    PaymentPluginStatus.PROCESSED,
+                                                    null,
+                                                    null,
+                                                    "paymentKey",
+                                                    "orderId",
+                                                    now,
+                                                    now,
+                                                    ImmutableList.of(new PluginProperty("existing", "value", false)));
+    }
+}
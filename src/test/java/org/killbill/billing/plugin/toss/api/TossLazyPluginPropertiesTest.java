@@ -0,0 +1,34 @@
+package org.killbill.billing.plugin.toss.api;
+
+import java.util.List;
+
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.plugin.api.PluginProperties;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TossLazyPluginPropertiesTest {
+
+    @Test(groups = "fast")
+    public void testParsedOnFirstAccessOnly() {
+        final TossLazyPluginProperties properties = new TossLazyPluginProperties("{\"billingKey\":\"billing_key\",\"method\":\"CARD\"}");
+        Assert.assertFalse(properties.isParsed());
+
+        Assert.assertEquals(properties.size(), 2);
+        Assert.assertTrue(properties.isParsed());
+        Assert.assertEquals(PluginProperties.findPluginPropertyValue("billingKey", properties), "billing_key");
+        Assert.assertEquals(PluginProperties.findPluginPropertyValue("method", properties), "CARD");
+    }
+
+    @Test(groups = "fast")
+    public void testNoAdditionalData() {
+        final List<PluginProperty> properties = new TossLazyPluginProperties(null);
+
+        Assert.assertTrue(properties.isEmpty());
+    }
+
+    @Test(groups = "fast", expectedExceptions = UnsupportedOperationException.class)
+    public void testReadOnly() {
+        new TossLazyPluginProperties("{\"method\":\"CARD\"}").add(new PluginProperty("method", "TRANSFER", false));
+    }
+}
@@ -0,0 +1,166 @@
+package org.killbill.billing.plugin.toss.api;
+
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TossLookupScopeTest {
+
+    private ExecutorService executor;
+
+    @BeforeMethod(groups = "fast")
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterMethod(groups = "fast")
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test(groups = "fast")
+    public void testLookupsRunConcurrently() throws Exception {
+        // Each lookup waits for the other: only completes if they run at the same time
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        try (final TossLookupScope scope = new TossLookupScope(executor, 5000)) {
+            final TossLookupScope.Fork<String> first = scope.fork("first", () -> {
+                bothStarted.countDown();
+                Assert.assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+                return "a";
+            });
+            final TossLookupScope.Fork<Integer> second = scope.fork("second", () -> {
+                bothStarted.countDown();
+                Assert.assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+                return 1;
+            });
+
+            scope.join();
+
+            Assert.assertEquals(first.get(), "a");
+            Assert.assertEquals(second.get(), Integer.valueOf(1));
+            Assert.assertTrue(scope.timings().matches("first=\\d+ms, second=\\d+ms, total=\\d+ms"), scope.timings());
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testFirstFailureDoesNotWaitForOtherLookups() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        try (final TossLookupScope scope = new TossLookupScope(executor, 5000)) {
+            scope.fork("slow", () -> slowLookup(release, finished, interrupted));
+            scope.fork("failing", () -> {
+                throw new SQLException("connection refused");
+            });
+
+            try {
+                scope.join();
+                Assert.fail("Failure not propagated");
+            } catch (final ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof SQLException);
+            }
+        }
+
+        // Not interrupted, e.g. in the middle of a JDBC call: it completes and its result is discarded
+        release.countDown();
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS), "Slow lookup not completed");
+        Assert.assertFalse(interrupted.get(), "Slow lookup interrupted");
+    }
+
+    @Test(groups = "fast")
+    public void testLookupsNotStartedNeverRun() throws Exception {
+        final ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final AtomicBoolean queuedRan = new AtomicBoolean();
+        try (final TossLookupScope scope = new TossLookupScope(singleThread, 100)) {
+            scope.fork("slow", () -> slowLookup(release, finished, interrupted));
+            // Queued behind the slow lookup until the deadline
+            scope.fork("queued", () -> {
+                queuedRan.set(true);
+                return null;
+            });
+
+            Assert.assertThrows(TimeoutException.class, scope::join);
+        }
+
+        release.countDown();
+        singleThread.shutdown();
+        Assert.assertTrue(singleThread.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertFalse(queuedRan.get(), "Cancelled lookup started");
+        Assert.assertFalse(interrupted.get(), "Slow lookup interrupted");
+    }
+
+    @Test(groups = "fast")
+    public void testDeadline() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final long start = System.nanoTime();
+        try (final TossLookupScope scope = new TossLookupScope(executor, 100)) {
+            scope.fork("fast", () -> "done");
+            final TossLookupScope.Fork<Object> slow = scope.fork("slow", () -> slowLookup(release, finished, interrupted));
+
+            try {
+                scope.join();
+                Assert.fail("Deadline not enforced");
+            } catch (final TimeoutException e) {
+                Assert.assertTrue(e.getMessage().contains("slow="), e.getMessage());
+            }
+            Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+            Assert.assertThrows(IllegalStateException.class, slow::get);
+        }
+
+        release.countDown();
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS), "Slow lookup not completed");
+        Assert.assertFalse(interrupted.get(), "Slow lookup interrupted");
+    }
+
+    @Test(groups = "fast")
+    public void testSaturatedExecutorRejectsLookups() throws Exception {
+        final ExecutorService bounded = new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS, new SynchronousQueue<>());
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final AtomicBoolean rejectedRan = new AtomicBoolean();
+        try (final TossLookupScope scope = new TossLookupScope(bounded, 5000)) {
+            scope.fork("slow", () -> slowLookup(release, finished, interrupted));
+
+            // No thread left: rejected right away instead of growing the pool
+            Assert.assertThrows(RejectedExecutionException.class, () -> scope.fork("rejected", () -> {
+                rejectedRan.set(true);
+                return null;
+            }));
+        }
+
+        release.countDown();
+        bounded.shutdown();
+        Assert.assertTrue(bounded.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertFalse(rejectedRan.get(), "Rejected lookup started");
+        Assert.assertFalse(interrupted.get(), "Slow lookup interrupted");
+    }
+
+    private static Object slowLookup(final CountDownLatch release, final CountDownLatch finished, final AtomicBoolean interrupted) {
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            interrupted.set(true);
+        }
+        finished.countDown();
+        return null;
+    }
+}
@@ -0,0 +1,221 @@
+package org.killbill.billing.plugin.toss.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
+import org.killbill.billing.plugin.toss.dao.TossAdvisoryLock;
+import org.killbill.billing.plugin.toss.dao.TossDao;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TossPaymentLocksTest {
+
+    private ExecutorService executor;
+
+    @BeforeMethod(groups = "fast")
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterMethod(groups = "fast")
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test(groups = "fast")
+    public void testOperationsOnSamePaymentRunOneAtATime() throws Exception {
+        final TossPaymentLocks locks = new TossPaymentLocks();
+        final UUID kbPaymentId = UUID.randomUUID();
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        final List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> locks.execute(kbPaymentId, () -> {
+                final int current = running.incrementAndGet();
+                maxRunning.accumulateAndGet(current, Math::max);
+                sleep(10);
+                running.decrementAndGet();
+                return current;
+            })));
+        }
+        for (final Future<Integer> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        Assert.assertEquals(maxRunning.get(), 1);
+        final TossPaymentLockStats stats = locks.getStats();
+        Assert.assertEquals(stats.getAcquisitions(), 8);
+        Assert.assertTrue(stats.getContended() > 0);
+        Assert.assertTrue(stats.getContentionRate() > 0);
+    }
+
+    @Test(groups = "fast")
+    public void testOperationsOnDifferentPaymentsRunInParallel() throws Exception {
+        final TossPaymentLocks locks = new TossPaymentLocks();
+        final UUID first = UUID.randomUUID();
+        final UUID second = UUID.randomUUID();
+
+        final CountDownLatch firstRunning = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<String> firstOperation = executor.submit(() -> locks.execute(first, () -> {
+            firstRunning.countDown();
+            await(release);
+            return "first";
+        }));
+        Assert.assertTrue(firstRunning.await(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(locks.execute(second, () -> "second"), "second");
+        Assert.assertEquals(locks.getStats().getContended(), 0);
+        // Only the payment of the first operation is still locked
+        Assert.assertEquals(locks.getStats().getLockedPayments(), 1);
+
+        release.countDown();
+        Assert.assertEquals(firstOperation.get(5, TimeUnit.SECONDS), "first");
+        // Locks only exist while held or waited for
+        Assert.assertEquals(locks.getLockedPayments(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testTimeoutWhenPaymentIsBusy() throws Exception {
+        final TossPaymentLocks locks = new TossPaymentLocks(50);
+        final UUID kbPaymentId = UUID.randomUUID();
+
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> locks.execute(kbPaymentId, () -> {
+            running.countDown();
+            await(release);
+            return null;
+        }));
+        Assert.assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        try {
+            locks.execute(kbPaymentId, () -> "never");
+            Assert.fail("Should throw PaymentPluginApiException");
+        } catch (final PaymentPluginApiException e) {
+            Assert.assertEquals(e.getErrorType(), TossPaymentLocks.LOCK_TIMEOUT_ERROR_CODE);
+        } finally {
+            release.countDown();
+        }
+
+        Assert.assertEquals(locks.getStats().getTimeouts(), 1);
+        Assert.assertTrue(locks.getStats().getMaxWaitMicros() >= TimeUnit.MILLISECONDS.toMicros(50));
+    }
+
+    @Test(groups = "fast")
+    public void testDistributedLockHeldAroundOperation() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final TossAdvisoryLock advisoryLock = Mockito.mock(TossAdvisoryLock.class);
+        final TossDao dao = Mockito.mock(TossDao.class);
+        Mockito.when(dao.supportsAdvisoryLocks()).thenReturn(true);
+        Mockito.when(dao.tryAdvisoryLock(Mockito.eq(kbPaymentId), Mockito.anyLong())).thenReturn(advisoryLock);
+        final TossPaymentLocks locks = new TossPaymentLocks(1000, dao);
+
+        Assert.assertEquals(locks.execute(kbPaymentId, () -> {
+            Mockito.verify(advisoryLock, Mockito.never()).close();
+            return "done";
+        }), "done");
+
+        Mockito.verify(advisoryLock).close();
+        final TossPaymentLockStats stats = locks.getStats();
+        Assert.assertTrue(stats.isDistributed());
+        Assert.assertEquals(stats.getDistributedAcquisitions(), 1);
+        Assert.assertEquals(stats.getDistributedTimeouts(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testNestedOperationsOnlyLockOtherPayments() throws Exception {
+        final UUID outer = UUID.randomUUID();
+        final UUID inner = UUID.randomUUID();
+        final TossDao dao = Mockito.mock(TossDao.class);
+        Mockito.when(dao.supportsAdvisoryLocks()).thenReturn(true);
+        Mockito.when(dao.tryAdvisoryLock(Mockito.any(), Mockito.anyLong())).thenAnswer(invocation -> Mockito.mock(TossAdvisoryLock.class));
+        final TossPaymentLocks locks = new TossPaymentLocks(1000, dao);
+
+        Assert.assertEquals(locks.execute(outer, () -> locks.execute(outer, () -> locks.execute(inner, () -> "done"))), "done");
+
+        Mockito.verify(dao, Mockito.times(1)).tryAdvisoryLock(Mockito.eq(outer), Mockito.anyLong());
+        Mockito.verify(dao, Mockito.times(1)).tryAdvisoryLock(Mockito.eq(inner), Mockito.anyLong());
+        Assert.assertEquals(locks.getStats().getDistributedAcquisitions(), 2);
+        Assert.assertEquals(locks.getLockedPayments(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testLockIsReleasedWhenTheOperationFails() throws Exception {
+        final TossPaymentLocks locks = new TossPaymentLocks(50);
+        final UUID kbPaymentId = UUID.randomUUID();
+
+        try {
+            locks.execute(kbPaymentId, () -> {
+                throw new PaymentPluginApiException("FAILED", "failed");
+            });
+            Assert.fail("Should throw PaymentPluginApiException");
+        } catch (final PaymentPluginApiException e) {
+            Assert.assertEquals(e.getErrorType(), "FAILED");
+        }
+
+        Assert.assertEquals(locks.getLockedPayments(), 0);
+        Assert.assertEquals(executor.submit(() -> locks.execute(kbPaymentId, () -> "ok")).get(5, TimeUnit.SECONDS), "ok");
+    }
+
+    @Test(groups = "fast")
+    public void testTimeoutWhenPaymentIsBusyOnAnotherNode() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final TossDao dao = Mockito.mock(TossDao.class);
+        Mockito.when(dao.supportsAdvisoryLocks()).thenReturn(true);
+        Mockito.when(dao.tryAdvisoryLock(Mockito.eq(kbPaymentId), Mockito.anyLong())).thenReturn(null);
+        final TossPaymentLocks locks = new TossPaymentLocks(1000, dao);
+
+        try {
+            locks.execute(kbPaymentId, () -> "never");
+            Assert.fail("Should throw PaymentPluginApiException");
+        } catch (final PaymentPluginApiException e) {
+            Assert.assertEquals(e.getErrorType(), TossPaymentLocks.LOCK_TIMEOUT_ERROR_CODE);
+        }
+
+        Assert.assertEquals(locks.getStats().getDistributedTimeouts(), 1);
+        Mockito.when(dao.tryAdvisoryLock(Mockito.eq(kbPaymentId), Mockito.anyLong())).thenReturn(Mockito.mock(TossAdvisoryLock.class));
+        Assert.assertEquals(locks.execute(kbPaymentId, () -> "ok"), "ok");
+    }
+
+    @Test(groups = "fast")
+    public void testFallbackToLocalLockWithoutAdvisoryLocks() throws Exception {
+        final TossDao dao = Mockito.mock(TossDao.class);
+        Mockito.when(dao.supportsAdvisoryLocks()).thenReturn(false);
+        final TossPaymentLocks locks = new TossPaymentLocks(1000, dao);
+
+        Assert.assertFalse(locks.isDistributed());
+        Assert.assertEquals(locks.execute(UUID.randomUUID(), () -> "ok"), "ok");
+        Mockito.verify(dao, Mockito.never()).tryAdvisoryLock(Mockito.any(), Mockito.anyLong());
+    }
+
+    private static void sleep(final long millis) throws PaymentPluginApiException {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentPluginApiException("INTERRUPTED", e.getMessage());
+        }
+    }
+
+    private static void await(final CountDownLatch latch) throws PaymentPluginApiException {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentPluginApiException("INTERRUPTED", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2024 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.plugin.toss.api;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.osgi.libs.killbill.OSGIConfigPropertiesService;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.TestUtils;
+import org.killbill.billing.plugin.toss.TestBase;
+import org.killbill.billing.plugin.toss.client.TossClientImpl;
+import org.killbill.billing.plugin.toss.client.TossFaultStub;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Outcome of the payments against a misbehaving Toss, through a real {@link TossClientImpl}: anything that leaves
+ * the payment unknown is PENDING, so that it is synced later, and only a Toss decline is an ERROR.
+ */
+public class TossPaymentPluginApiFaultTest extends TestBase {
+
+    private static final int READ_TIMEOUT_MILLIS = 1000;
+
+    private TossFaultStub stub;
+
+    @BeforeMethod(groups = "slow")
+    public void setUpFaultStub() throws Exception {
+        stub = new TossFaultStub();
+        tossPaymentPluginApi.close();
+        tossPaymentPluginApi = new TossPaymentPluginApi(killbillApi,
+                                                        Mockito.mock(OSGIConfigPropertiesService.class),
+                                                        clock,
+                                                        dao,
+                                                        tossConfigurationHandler,
+                                                        new TossClientImpl(stub.getBaseUrl(), 1000, READ_TIMEOUT_MILLIS));
+        TestUtils.updateOSGIKillbillAPI(killbillApi, tossPaymentPluginApi);
+    }
+
+    @AfterMethod(groups = "slow", alwaysRun = true)
+    public void tearDownFaultStub() throws Exception {
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testDelayedHeaders_ReturnsPENDING() throws Exception {
+        stub.enqueue(TossFaultStub.delayedHeaders(5000, TossFaultStub.ok()));
+        assertPendingWithinReadTimeout();
+    }
+
+    @Test(groups = "slow")
+    public void testTrickledBody_ReturnsPENDING() throws Exception {
+        stub.enqueue(TossFaultStub.trickledBody(20, 100));
+        assertPendingWithinReadTimeout();
+    }
+
+    @Test(groups = "slow")
+    public void testResetBeforeResponse_ReturnsPENDING() throws Exception {
+        stub.enqueue(TossFaultStub.resetBeforeResponse());
+        assertPending(purchase("fault_reset_before"));
+    }
+
+    @Test(groups = "slow")
+    public void testResetMidBody_ReturnsPENDING() throws Exception {
+        stub.enqueue(TossFaultStub.resetMidBody());
+        assertPending(purchase("fault_reset_mid_body"));
+    }
+
+    @Test(groups = "slow")
+    public void testMalformedJson_ReturnsPENDING() throws Exception {
+        // Toss answered 200, but the payment could not be read: it may well be DONE
+        stub.enqueue(TossFaultStub.malformedJson());
+        assertPending(purchase("fault_malformed_json"));
+    }
+
+    @Test(groups = "slow")
+    public void testServerErrorBurst_ReturnsPENDINGThenPROCESSED() throws Exception {
+        stub.enqueue(TossFaultStub.serverErrors(3));
+        for (int i = 0; i < 3; i++) {
+            final PaymentTransactionInfoPlugin result = purchase("fault_server_error_" + i);
+            Assert.assertEquals(result.getStatus(), PaymentPluginStatus.PENDING);
+            Assert.assertEquals(result.getGatewayErrorCode(), "FAILED_INTERNAL_SYSTEM_PROCESSING");
+        }
+        Assert.assertEquals(purchase("fault_after_burst").getStatus(), PaymentPluginStatus.PROCESSED);
+        Assert.assertEquals(stub.getRequests(), 4);
+    }
+
+    @Test(groups = "slow")
+    public void testDecline_ReturnsERROR() throws Exception {
+        stub.enqueue(TossFaultStub.status(400, "{\"code\":\"REJECT_CARD_COMPANY\",\"message\":\"결제 승인이 거절되었습니다.\"}"));
+        final PaymentTransactionInfoPlugin result = purchase("fault_decline");
+        Assert.assertEquals(result.getStatus(), PaymentPluginStatus.ERROR);
+        Assert.assertEquals(result.getGatewayErrorCode(), "REJECT_CARD_COMPANY");
+    }
+
+    @Test(groups = "slow")
+    public void testPendingAfterFault_SyncedOnceTossRecovers() throws Exception {
+        stub.enqueue(TossFaultStub.resetMidBody());
+        final PaymentTransactionInfoPlugin purchase = purchase("fault_recovered");
+        assertPending(purchase);
+
+        // The stub answers with the DONE payment from now on
+        final List<PaymentTransactionInfoPlugin> transactions = tossPaymentPluginApi.getPaymentInfo(account.getId(),
+                                                                                                  purchase.getKbPaymentId(),
+                                                                                                  ImmutableList.of(),
+                                                                                                  context);
+        Assert.assertEquals(transactions.get(transactions.size() - 1).getStatus(), PaymentPluginStatus.PROCESSED);
+    }
+
+    private void assertPendingWithinReadTimeout() throws Exception {
+        final long start = System.nanoTime();
+        final PaymentTransactionInfoPlugin result = purchase("fault_timeout");
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertPending(result);
+        Assert.assertTrue(elapsedMillis < READ_TIMEOUT_MILLIS + 1000, elapsedMillis + "ms");
+    }
+
+    private void assertPending(final PaymentTransactionInfoPlugin result) throws Exception {
+        Assert.assertEquals(result.getStatus(), PaymentPluginStatus.PENDING);
+        Assert.assertEquals(result.getGatewayErrorCode(), "NETWORK_ERROR");
+        // The payment key is kept, so that the payment can be synced with Toss
+        Assert.assertEquals(result.getFirstPaymentReferenceId(), dao.getResponseByPaymentId(result.getKbPaymentId(), context.getTenantId()).getPaymentKey());
+    }
+
+    private PaymentTransactionInfoPlugin purchase(final String paymentKey) throws Exception {
+        return tossPaymentPluginApi.purchasePayment(account.getId(),
+                                                    UUID.randomUUID(),
+                                                    UUID.randomUUID(),
+                                                    account.getPaymentMethodId(),
+                                                    BigDecimal.valueOf(10000),
+                                                    Currency.KRW,
+                                                    ImmutableList.<PluginProperty>of(new PluginProperty("paymentKey", paymentKey, false)),
+                                                    context);
+    }
+}
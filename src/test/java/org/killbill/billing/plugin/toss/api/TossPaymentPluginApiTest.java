@@ -21,17 +21,28 @@ import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 
 import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.api.PaymentMethodPlugin;
 import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.api.TransactionType;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
 import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.api.PluginProperties;
 import org.killbill.billing.plugin.toss.TestBase;
+import org.killbill.billing.plugin.toss.client.TossRequestLane;
 import org.killbill.billing.plugin.toss.client.exception.TossApplicationException;
+import org.killbill.billing.plugin.toss.client.exception.TossLaneRejectedException;
+import org.killbill.billing.plugin.toss.client.model.BillingKeyPaymentRequest;
 import org.killbill.billing.plugin.toss.client.model.TossBilling;
 import org.killbill.billing.plugin.toss.client.model.TossError;
 import org.killbill.billing.plugin.toss.client.model.TossPayment;
+import org.killbill.billing.plugin.toss.core.TossConfigProperties;
+import org.killbill.billing.plugin.toss.dao.TossDao;
+import org.killbill.billing.util.entity.Pagination;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -158,6 +169,48 @@ public class TossPaymentPluginApiTest extends TestBase {
         Assert.assertEquals(result.getKbTransactionPaymentId(), kbTransactionId);
     }
 
+    @Test(groups = "slow")
+    public void testPurchasePayment_TimingProperties() throws Exception {
+        final TossPayment mockPayment = createMockTossPayment("test_payment_key_timings", "order-timings", 10000L, "DONE");
+        Mockito.when(tossClient.confirmPayment(Mockito.anyString(), Mockito.any(), Mockito.anyString()))
+               .thenReturn(mockPayment);
+
+        final PaymentTransactionInfoPlugin withTimings = tossPaymentPluginApi.purchasePayment(
+                account.getId(),
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                account.getPaymentMethodId(),
+                BigDecimal.valueOf(10000),
+                Currency.KRW,
+                ImmutableList.of(new PluginProperty("paymentKey", "test_payment_key_timings", false),
+                                 new PluginProperty(TossPaymentPluginApi.PROPERTY_TIMINGS, "true", false)),
+                context
+        );
+
+        Assert.assertEquals(withTimings.getStatus(), PaymentPluginStatus.PROCESSED);
+        for (final String phase : ImmutableList.of("idempotencyCheckMs", "queueingMs", "tossCallMs", "responseDecodeMs", "dbPersistMs", "totalMs")) {
+            final String value = PluginProperties.findPluginPropertyValue("timing." + phase, withTimings.getProperties());
+            Assert.assertNotNull(value, phase);
+            Assert.assertTrue(Double.parseDouble(value) >= 0, phase);
+        }
+        // No account lookup in this flow
+        Assert.assertNull(PluginProperties.findPluginPropertyValue("timing.accountLookupMs", withTimings.getProperties()));
+
+        final PaymentTransactionInfoPlugin withoutTimings = tossPaymentPluginApi.purchasePayment(
+                account.getId(),
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                account.getPaymentMethodId(),
+                BigDecimal.valueOf(10000),
+                Currency.KRW,
+                ImmutableList.of(new PluginProperty("paymentKey", "test_payment_key_timings", false)),
+                context
+        );
+
+        Assert.assertEquals(withoutTimings.getStatus(), PaymentPluginStatus.PROCESSED);
+        Assert.assertNull(PluginProperties.findPluginPropertyValue("timing.totalMs", withoutTimings.getProperties()));
+    }
+
     @Test(groups = "slow")
     public void testPurchasePayment_MissingPaymentKey_ThrowsError() throws Exception {
         final UUID kbPaymentId = UUID.randomUUID();
@@ -1203,6 +1256,8 @@ public class TossPaymentPluginApiTest extends TestBase {
         Assert.assertNotNull(paymentMethod);
         Assert.assertEquals(paymentMethod.getBillingKey(), billingKey);
         Assert.assertEquals(paymentMethod.getCustomerKey(), customerKey);
+        Assert.assertNotNull(dao.getResponse(kbTransactionId, context.getTenantId()));
+        Assert.assertTrue(dao.getBillingIntents().isEmpty(), "Intent should be deleted with the final commit");
     }
 
     @Test(groups = "slow")
@@ -1284,6 +1339,81 @@ public class TossPaymentPluginApiTest extends TestBase {
         Assert.assertEquals(paymentMethod.getBillingKey(), billingKey);
     }
 
+    @Test(groups = "slow")
+    public void testRecoverBillingIntents_ReplaysInterruptedPurchase() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        final String billingKey = "billing_key_interrupted";
+        final String customerKey = account.getPaymentMethodId().toString();
+        final String paymentKey = "payment_key_interrupted";
+        final BigDecimal amount = BigDecimal.valueOf(10000);
+
+        // Crash after the billing key was issued: only the intent is left
+        final BillingKeyPaymentRequest request = new BillingKeyPaymentRequest(10000L, kbPaymentId.toString(), "구독 결제", customerKey, "john@example.com", "John");
+        dao.addBillingIntent(account.getId(), kbPaymentId, kbTransactionId, account.getPaymentMethodId(), amount, Currency.KRW, true,
+                             createMockTossBilling(billingKey, customerKey), request, clock.getUTCNow().minusMinutes(1), context.getTenantId());
+        Assert.assertNull(dao.getPaymentMethod(account.getPaymentMethodId(), context.getTenantId()));
+
+        final TossPayment mockPayment = createMockTossPayment(paymentKey, kbPaymentId.toString(), 10000L, "DONE");
+        Mockito.when(tossClient.executeBillingKeyPayment(Mockito.anyString(), Mockito.eq(billingKey), Mockito.any(), Mockito.anyString()))
+               .thenReturn(mockPayment);
+
+        final int recovered = tossPaymentPluginApi.recoverBillingIntents(clock.getUTCNow().plusMinutes(1));
+
+        Assert.assertEquals(recovered, 1);
+        // Same idempotency key as the interrupted call: Toss does not charge twice
+        final ArgumentCaptor<BillingKeyPaymentRequest> replayedRequest = ArgumentCaptor.forClass(BillingKeyPaymentRequest.class);
+        Mockito.verify(tossClient).executeBillingKeyPayment(Mockito.anyString(), Mockito.eq(billingKey), replayedRequest.capture(), Mockito.eq(kbTransactionId.toString()));
+        Assert.assertEquals(replayedRequest.getValue().getCustomerEmail(), "john@example.com");
+        Assert.assertEquals(replayedRequest.getValue().getAmount(), Long.valueOf(10000L));
+
+        final var paymentMethod = dao.getPaymentMethod(account.getPaymentMethodId(), context.getTenantId());
+        Assert.assertNotNull(paymentMethod);
+        Assert.assertEquals(paymentMethod.getBillingKey(), billingKey);
+        Assert.assertEquals(paymentMethod.getIsDefault(), Short.valueOf(TossDao.TRUE));
+        Assert.assertEquals(dao.getResponse(kbTransactionId, context.getTenantId()).getPaymentKey(), paymentKey);
+        Assert.assertTrue(dao.getBillingIntents().isEmpty());
+
+        Assert.assertEquals(tossPaymentPluginApi.recoverBillingIntents(clock.getUTCNow().plusMinutes(1)), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testRecoverBillingIntents_PurchaseAlreadyStored() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        final String billingKey = "billing_key_stored";
+        final String customerKey = account.getPaymentMethodId().toString();
+        final BigDecimal amount = BigDecimal.valueOf(10000);
+
+        final BillingKeyPaymentRequest request = new BillingKeyPaymentRequest(10000L, kbPaymentId.toString(), "구독 결제", customerKey, "", "");
+        dao.addBillingIntent(account.getId(), kbPaymentId, kbTransactionId, account.getPaymentMethodId(), amount, Currency.KRW, false,
+                             createMockTossBilling(billingKey, customerKey), request, clock.getUTCNow().minusMinutes(1), context.getTenantId());
+        dao.addResponse(account.getId(), kbPaymentId, kbTransactionId, TransactionType.PURCHASE, amount, Currency.KRW, "payment_key_stored",
+                        createMockTossPayment("payment_key_stored", kbPaymentId.toString(), 10000L, "DONE"), null, clock.getUTCNow(), context.getTenantId());
+
+        Assert.assertEquals(tossPaymentPluginApi.recoverBillingIntents(clock.getUTCNow().plusMinutes(1)), 1);
+
+        Mockito.verify(tossClient, Mockito.never()).executeBillingKeyPayment(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.anyString());
+        Assert.assertNotNull(dao.getPaymentMethod(account.getPaymentMethodId(), context.getTenantId()));
+        Assert.assertTrue(dao.getBillingIntents().isEmpty());
+    }
+
+    @Test(groups = "slow")
+    public void testRecoverBillingIntents_SkipsIntentsInProgress() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final String customerKey = account.getPaymentMethodId().toString();
+        final BillingKeyPaymentRequest request = new BillingKeyPaymentRequest(10000L, kbPaymentId.toString(), "구독 결제", customerKey, "", "");
+        dao.addBillingIntent(account.getId(), kbPaymentId, UUID.randomUUID(), account.getPaymentMethodId(), BigDecimal.valueOf(10000), Currency.KRW, false,
+                             createMockTossBilling("billing_key_in_progress", customerKey), request, clock.getUTCNow(), context.getTenantId());
+
+        Assert.assertEquals(tossPaymentPluginApi.recoverBillingIntents(clock.getUTCNow().minusMinutes(1)), 0);
+        // Created before the cutoff, but its purchase may still be waiting for the payment lock or for Toss on another node
+        Assert.assertEquals(tossPaymentPluginApi.recoverBillingIntents(clock.getUTCNow().plusMinutes(1)), 0);
+
+        Assert.assertEquals(dao.getBillingIntents().size(), 1);
+        Mockito.verify(tossClient, Mockito.never()).executeBillingKeyPayment(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.anyString());
+    }
+
     @Test(groups = "slow")
     public void testPurchaseWithStoredBillingKey_Success() throws Exception {
         final UUID kbPaymentId = UUID.randomUUID();
@@ -1535,4 +1665,245 @@ public class TossPaymentPluginApiTest extends TestBase {
 
         Mockito.verify(tossClient, Mockito.times(2)).executeBillingKeyPayment(Mockito.anyString(), Mockito.eq(billingKey), Mockito.any(), Mockito.anyString());
     }
+
+    @Test(groups = "slow")
+    public void testPurchaseDeadline_SlowToss_ReturnsPendingAndCompletesInBackground() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        final String paymentKey = "test_payment_key_slow";
+
+        final java.util.Properties props = new java.util.Properties();
+        props.setProperty("org.killbill.billing.plugin.toss.secret_key", "test_sk_12345678");
+        props.setProperty("org.killbill.billing.plugin.toss.purchase_deadline", "200");
+        tossConfigurationHandler.setDefaultConfigurable(new TossConfigProperties(props));
+
+        final CountDownLatch tossAnswers = new CountDownLatch(1);
+        final TossPayment mockPayment = createMockTossPayment(paymentKey, kbPaymentId.toString(), 10000L, "DONE");
+        Mockito.when(tossClient.confirmPayment(Mockito.anyString(), Mockito.any(), Mockito.anyString()))
+               .thenAnswer(invocation -> {
+                   tossAnswers.await();
+                   return mockPayment;
+               });
+
+        final PaymentTransactionInfoPlugin result = tossPaymentPluginApi.purchasePayment(
+                account.getId(),
+                kbPaymentId,
+                kbTransactionId,
+                account.getPaymentMethodId(),
+                BigDecimal.valueOf(10000),
+                Currency.KRW,
+                ImmutableList.of(new PluginProperty("paymentKey", paymentKey, false)),
+                context
+        );
+
+        Assert.assertEquals(result.getStatus(), PaymentPluginStatus.PENDING);
+        Assert.assertEquals(result.getGatewayErrorCode(), "DEADLINE_EXCEEDED");
+        Assert.assertEquals(result.getFirstPaymentReferenceId(), paymentKey);
+
+        // Still in flight: no extra call to Toss
+        List<PaymentTransactionInfoPlugin> paymentInfo = tossPaymentPluginApi.getPaymentInfo(account.getId(), kbPaymentId, Collections.emptyList(), context);
+        Assert.assertEquals(paymentInfo.get(paymentInfo.size() - 1).getStatus(), PaymentPluginStatus.PENDING);
+
+        tossAnswers.countDown();
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        do {
+            Thread.sleep(50);
+            paymentInfo = tossPaymentPluginApi.getPaymentInfo(account.getId(), kbPaymentId, Collections.emptyList(), context);
+        } while (paymentInfo.get(paymentInfo.size() - 1).getStatus() != PaymentPluginStatus.PROCESSED && System.currentTimeMillis() < deadline);
+
+        Assert.assertEquals(paymentInfo.get(paymentInfo.size() - 1).getStatus(), PaymentPluginStatus.PROCESSED);
+        Assert.assertEquals(paymentInfo.get(paymentInfo.size() - 1).getFirstPaymentReferenceId(), paymentKey);
+        Mockito.verify(tossClient, Mockito.times(1)).confirmPayment(Mockito.anyString(), Mockito.any(), Mockito.anyString());
+        Mockito.verify(tossClient, Mockito.never()).getPayment(Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test(groups = "slow")
+    public void testPurchaseDeadline_LaneRejectedInBackground_DeletesPendingResponse() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        final String paymentKey = "test_payment_key_rejected";
+
+        final java.util.Properties props = new java.util.Properties();
+        props.setProperty("org.killbill.billing.plugin.toss.secret_key", "test_sk_12345678");
+        props.setProperty("org.killbill.billing.plugin.toss.purchase_deadline", "100");
+        tossConfigurationHandler.setDefaultConfigurable(new TossConfigProperties(props));
+
+        Mockito.when(tossClient.confirmPayment(Mockito.anyString(), Mockito.any(), Mockito.anyString()))
+               .thenAnswer(invocation -> {
+                   Thread.sleep(300);
+                   throw new TossLaneRejectedException(TossRequestLane.INTERACTIVE, "lane saturated");
+               });
+
+        final PaymentTransactionInfoPlugin result = tossPaymentPluginApi.purchasePayment(
+                account.getId(),
+                kbPaymentId,
+                kbTransactionId,
+                account.getPaymentMethodId(),
+                BigDecimal.valueOf(10000),
+                Currency.KRW,
+                ImmutableList.of(new PluginProperty("paymentKey", paymentKey, false)),
+                context
+        );
+        Assert.assertEquals(result.getGatewayErrorCode(), "DEADLINE_EXCEEDED");
+        Assert.assertNotNull(dao.getResponse(kbTransactionId, context.getTenantId()));
+
+        // Nothing was sent to Toss: the placeholder goes away, so that the transaction can be retried
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (dao.getResponse(kbTransactionId, context.getTenantId()) != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Assert.assertNull(dao.getResponse(kbTransactionId, context.getTenantId()));
+    }
+
+    @Test(groups = "slow")
+    public void testClose_WaitsForPurchasesCompletingInTheBackground() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        final String paymentKey = "test_payment_key_close";
+
+        final java.util.Properties props = new java.util.Properties();
+        props.setProperty("org.killbill.billing.plugin.toss.secret_key", "test_sk_12345678");
+        props.setProperty("org.killbill.billing.plugin.toss.purchase_deadline", "100");
+        tossConfigurationHandler.setDefaultConfigurable(new TossConfigProperties(props));
+
+        final TossPayment mockPayment = createMockTossPayment(paymentKey, kbPaymentId.toString(), 10000L, "DONE");
+        Mockito.when(tossClient.confirmPayment(Mockito.anyString(), Mockito.any(), Mockito.anyString()))
+               .thenAnswer(invocation -> {
+                   Thread.sleep(500);
+                   return mockPayment;
+               });
+
+        final PaymentTransactionInfoPlugin result = tossPaymentPluginApi.purchasePayment(
+                account.getId(),
+                kbPaymentId,
+                kbTransactionId,
+                account.getPaymentMethodId(),
+                BigDecimal.valueOf(10000),
+                Currency.KRW,
+                ImmutableList.of(new PluginProperty("paymentKey", paymentKey, false)),
+                context
+        );
+        Assert.assertEquals(result.getGatewayErrorCode(), "DEADLINE_EXCEEDED");
+
+        tossPaymentPluginApi.close();
+
+        // The outcome was persisted before close returned
+        final List<PaymentTransactionInfoPlugin> paymentInfo = tossPaymentPluginApi.getPaymentInfo(account.getId(), kbPaymentId, Collections.emptyList(), context);
+        Assert.assertEquals(paymentInfo.get(paymentInfo.size() - 1).getStatus(), PaymentPluginStatus.PROCESSED);
+        Mockito.verify(tossClient, Mockito.never()).getPayment(Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test(groups = "slow")
+    public void testPurchaseDeadline_FastToss_ReturnsOutcome() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        final String paymentKey = "test_payment_key_fast";
+
+        final java.util.Properties props = new java.util.Properties();
+        props.setProperty("org.killbill.billing.plugin.toss.secret_key", "test_sk_12345678");
+        props.setProperty("org.killbill.billing.plugin.toss.purchase_deadline", "5000");
+        tossConfigurationHandler.setDefaultConfigurable(new TossConfigProperties(props));
+
+        final TossPayment mockPayment = createMockTossPayment(paymentKey, kbPaymentId.toString(), 10000L, "DONE");
+        Mockito.when(tossClient.confirmPayment(Mockito.anyString(), Mockito.any(), Mockito.anyString()))
+               .thenReturn(mockPayment);
+
+        final PaymentTransactionInfoPlugin result = tossPaymentPluginApi.purchasePayment(
+                account.getId(),
+                kbPaymentId,
+                kbTransactionId,
+                account.getPaymentMethodId(),
+                BigDecimal.valueOf(10000),
+                Currency.KRW,
+                ImmutableList.of(new PluginProperty("paymentKey", paymentKey, false)),
+                context
+        );
+
+        Assert.assertEquals(result.getStatus(), PaymentPluginStatus.PROCESSED);
+        Assert.assertEquals(dao.getResponse(kbTransactionId, context.getTenantId()).getPaymentKey(), paymentKey);
+    }
+
+    @Test(groups = "slow")
+    public void testSearchPayments_ByPaymentKeyOrderIdPaymentIdAndReceiptUrl() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final TossPayment payment = createMockTossPayment("search_payment_key", "search_order_id", 10000L, "DONE");
+        final TossPayment.TossReceipt receipt = Mockito.mock(TossPayment.TossReceipt.class);
+        Mockito.when(receipt.getUrl()).thenReturn("https://dashboard.tosspayments.com/receipt/search_100%");
+        Mockito.when(payment.getReceipt()).thenReturn(receipt);
+        dao.addResponse(account.getId(), kbPaymentId, UUID.randomUUID(), TransactionType.PURCHASE, BigDecimal.valueOf(10000), Currency.KRW,
+                        "search_payment_key", payment, null, clock.getUTCNow(), context.getTenantId());
+        // Another payment, never matched
+        dao.addResponse(account.getId(), UUID.randomUUID(), UUID.randomUUID(), TransactionType.PURCHASE, BigDecimal.valueOf(10000), Currency.KRW,
+                        "other_payment_key", createMockTossPayment("other_payment_key", "other_order_id", 10000L, "DONE"), null, clock.getUTCNow(), context.getTenantId());
+
+        for (final String searchKey : ImmutableList.of("search_payment_key",
+                                                      "search_order_id",
+                                                      kbPaymentId.toString(),
+                                                      "https://dashboard.tosspayments.com/receipt/search_")) {
+            final List<PaymentTransactionInfoPlugin> results = ImmutableList.copyOf(tossPaymentPluginApi.searchPayments(searchKey, 0L, 10L, Collections.emptyList(), context));
+            Assert.assertEquals(results.size(), 1, searchKey);
+            Assert.assertEquals(results.get(0).getKbPaymentId(), kbPaymentId);
+            Assert.assertEquals(results.get(0).getFirstPaymentReferenceId(), "search_payment_key");
+        }
+
+        // LIKE wildcards in the search key are literals
+        Assert.assertFalse(tossPaymentPluginApi.searchPayments("https://dashboard.tosspayments.com/%", 0L, 10L, Collections.emptyList(), context).iterator().hasNext());
+        Assert.assertFalse(tossPaymentPluginApi.searchPayments("search_payment", 0L, 10L, Collections.emptyList(), context).iterator().hasNext());
+    }
+
+    @Test(groups = "slow")
+    public void testSearchPayments_KeysetPagination() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final int nbResponses = TossSearchPagination.PAGE_SIZE + 5;
+        for (int i = 0; i < nbResponses; i++) {
+            dao.addResponse(account.getId(), kbPaymentId, UUID.randomUUID(), TransactionType.PURCHASE, BigDecimal.valueOf(10000), Currency.KRW,
+                            "paged_payment_key", createMockTossPayment("paged_payment_key", kbPaymentId.toString(), 10000L, "DONE"), null, clock.getUTCNow(), context.getTenantId());
+        }
+
+        final Pagination<PaymentTransactionInfoPlugin> firstPage = tossPaymentPluginApi.searchPayments("paged_payment_key", 0L, (long) nbResponses - 3, Collections.emptyList(), context);
+        // Known before iterating, as Kill Bill builds the next page link first
+        Assert.assertEquals(firstPage.getNextOffset(), Long.valueOf(nbResponses - 3));
+        Assert.assertEquals(firstPage.getTotalNbRecords(), Long.valueOf(nbResponses));
+        Assert.assertEquals(ImmutableList.copyOf(firstPage).size(), nbResponses - 3);
+
+        // Row offsets: the next page starts right after the rows of the first one
+        final Pagination<PaymentTransactionInfoPlugin> secondPage = tossPaymentPluginApi.searchPayments("paged_payment_key", firstPage.getNextOffset(), 10L, Collections.emptyList(), context);
+        Assert.assertEquals(secondPage.getCurrentOffset(), Long.valueOf(nbResponses - 3));
+        Assert.assertNull(secondPage.getNextOffset());
+        Assert.assertEquals(ImmutableList.copyOf(secondPage).size(), 3);
+
+        final Pagination<PaymentTransactionInfoPlugin> pastTheEnd = tossPaymentPluginApi.searchPayments("paged_payment_key", (long) nbResponses, 10L, Collections.emptyList(), context);
+        Assert.assertNull(pastTheEnd.getNextOffset());
+        Assert.assertFalse(pastTheEnd.iterator().hasNext());
+    }
+
+    @Test(groups = "slow")
+    public void testSearchPaymentMethods_ByBillingKeyCustomerKeyAndCardNumber() throws Exception {
+        final UUID kbPaymentMethodId = UUID.randomUUID();
+        final TossBilling billing = Mockito.mock(TossBilling.class);
+        Mockito.when(billing.getBillingKey()).thenReturn("search_billing_key");
+        Mockito.when(billing.getCustomerKey()).thenReturn("search_customer_key");
+        Mockito.when(billing.getMethod()).thenReturn("CARD");
+        Mockito.when(billing.getCardCompany()).thenReturn("현대");
+        Mockito.when(billing.getCardNumber()).thenReturn("43301234****123*");
+        Mockito.when(billing.getCard()).thenReturn(new TossBilling.Card("61", "31", "43301234****123*", "신용", "개인"));
+        dao.addPaymentMethod(account.getId(), kbPaymentMethodId, true, billing, clock.getUTCNow(), context.getTenantId());
+
+        for (final String searchKey : ImmutableList.of("search_billing_key", "search_customer_key", "4330-12**-****-1234", "1234")) {
+            final List<PaymentMethodPlugin> results = ImmutableList.copyOf(tossPaymentPluginApi.searchPaymentMethods(searchKey, 0L, 10L, Collections.emptyList(), context));
+            Assert.assertEquals(results.size(), 1, searchKey);
+            Assert.assertEquals(results.get(0).getKbPaymentMethodId(), kbPaymentMethodId);
+            Assert.assertEquals(results.get(0).getExternalPaymentMethodId(), "search_billing_key");
+        }
+
+        final List<PluginProperty> sameIssuer = ImmutableList.of(new PluginProperty("cardIssuerCode", "61", false));
+        Assert.assertEquals(ImmutableList.copyOf(tossPaymentPluginApi.searchPaymentMethods("1234", 0L, 10L, sameIssuer, context)).size(), 1);
+        final List<PluginProperty> otherIssuer = ImmutableList.of(new PluginProperty("cardIssuerCode", "41", false));
+        Assert.assertFalse(tossPaymentPluginApi.searchPaymentMethods("1234", 0L, 10L, otherIssuer, context).iterator().hasNext());
+        Assert.assertFalse(tossPaymentPluginApi.searchPaymentMethods("5678", 0L, 10L, Collections.emptyList(), context).iterator().hasNext());
+
+        dao.deletePaymentMethod(kbPaymentMethodId, context.getTenantId());
+        Assert.assertFalse(tossPaymentPluginApi.searchPaymentMethods("search_billing_key", 0L, 10L, Collections.emptyList(), context).iterator().hasNext());
+    }
 }
@@ -0,0 +1,168 @@
+package org.killbill.billing.plugin.toss.client;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.killbill.billing.plugin.toss.client.exception.TossApplicationException;
+import org.killbill.billing.plugin.toss.client.model.PaymentConfirmRequest;
+import org.killbill.billing.plugin.toss.client.model.TossPayment;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Behavior of {@link TossClientImpl} against a misbehaving Toss, see {@link TossFaultStub}.
+ */
+public class TossClientFaultTest {
+
+    private static final int READ_TIMEOUT_MILLIS = 500;
+    // Scheduling slack on top of the read timeout
+    private static final long MARGIN_MILLIS = 400;
+
+    private TossFaultStub stub;
+    private TossClientImpl client;
+
+    @BeforeMethod(groups = "fast")
+    public void setUp() throws IOException {
+        stub = new TossFaultStub();
+        client = new TossClientImpl(stub.getBaseUrl(), 1000, READ_TIMEOUT_MILLIS);
+    }
+
+    @AfterMethod(groups = "fast")
+    public void tearDown() throws IOException {
+        stub.close();
+    }
+
+    @Test(groups = "fast")
+    public void testOk() throws Exception {
+        final TossPayment payment = confirm("fault_ok");
+        Assert.assertEquals(payment.getStatus(), "DONE");
+        Assert.assertEquals(payment.getPaymentKey(), "fault_ok");
+    }
+
+    @Test(groups = "fast")
+    public void testDelayedHeadersTimeOut() throws Exception {
+        stub.enqueue(TossFaultStub.delayedHeaders(3000, TossFaultStub.ok()));
+        assertTimesOut();
+    }
+
+    @Test(groups = "fast")
+    public void testTrickledBodyTimesOut() throws Exception {
+        // Headers right away, then the body over about 3 seconds: the timeout must cover the body too
+        stub.enqueue(TossFaultStub.trickledBody(20, 100));
+        assertTimesOut();
+        // The connection was dropped rather than read to the end
+        awaitZero(stub::getOpenConnections);
+        Assert.assertEquals(stub.getAbandonedResponses(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testResetBeforeResponse() {
+        stub.enqueue(TossFaultStub.resetBeforeResponse());
+        final Exception e = expectFailure();
+        Assert.assertTrue(e instanceof IOException, e.toString());
+    }
+
+    @Test(groups = "fast")
+    public void testResetMidBody() {
+        stub.enqueue(TossFaultStub.resetMidBody());
+        final Exception e = expectFailure();
+        Assert.assertTrue(e instanceof IOException, e.toString());
+    }
+
+    @Test(groups = "fast")
+    public void testMalformedJson() {
+        stub.enqueue(TossFaultStub.malformedJson());
+        final Exception e = expectFailure();
+        Assert.assertTrue(e instanceof JsonProcessingException, e.toString());
+    }
+
+    @Test(groups = "fast")
+    public void testServerErrorBurst() throws Exception {
+        stub.enqueue(TossFaultStub.serverErrors(3));
+        for (int i = 0; i < 3; i++) {
+            final Exception e = expectFailure();
+            Assert.assertTrue(e instanceof TossApplicationException, e.toString());
+            Assert.assertEquals(((TossApplicationException) e).getStatusCode(), 500);
+            Assert.assertEquals(((TossApplicationException) e).getTossError().getCode(), "FAILED_INTERNAL_SYSTEM_PROCESSING");
+        }
+        Assert.assertEquals(confirm("fault_after_burst").getStatus(), "DONE");
+        Assert.assertEquals(stub.getRequests(), 4);
+    }
+
+    @Test(groups = "fast")
+    public void testSlowResponsesDoNotHoldThreads() throws Exception {
+        final int callers = 16;
+        stub.setDefault(TossFaultStub.trickledBody(20, 100));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            final long start = System.nanoTime();
+            final List<Future<Exception>> calls = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                final String paymentKey = "fault_slow_" + i;
+                calls.add(executor.submit(() -> {
+                    try {
+                        confirm(paymentKey);
+                        return null;
+                    } catch (final Exception e) {
+                        return e;
+                    }
+                }));
+            }
+            for (final Future<Exception> call : calls) {
+                Assert.assertTrue(call.get(5, TimeUnit.SECONDS) instanceof HttpTimeoutException);
+            }
+            // All callers were released at the deadline, rather than one after another
+            Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < READ_TIMEOUT_MILLIS + MARGIN_MILLIS * 2);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(stub.getMaxOpenConnections(), callers);
+        // No exchange keeps reading its slow response in the background once its caller gave up
+        awaitZero(stub::getOpenConnections);
+        Assert.assertEquals(stub.getAbandonedResponses(), callers);
+    }
+
+    private void assertTimesOut() {
+        final long start = System.nanoTime();
+        final Exception e = expectFailure();
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertTrue(e instanceof HttpTimeoutException, e.toString());
+        Assert.assertTrue(elapsedMillis >= READ_TIMEOUT_MILLIS - 50, elapsedMillis + "ms");
+        Assert.assertTrue(elapsedMillis < READ_TIMEOUT_MILLIS + MARGIN_MILLIS, elapsedMillis + "ms");
+    }
+
+    private Exception expectFailure() {
+        try {
+            confirm("fault_payment_key");
+        } catch (final Exception e) {
+            return e;
+        }
+        Assert.fail("Toss call should have failed");
+        return null;
+    }
+
+    private TossPayment confirm(final String paymentKey) throws Exception {
+        return client.confirmPayment("test_sk_fault", new PaymentConfirmRequest(paymentKey, "fault_order_id", 10000L), paymentKey);
+    }
+
+    private static void awaitZero(final IntSupplier value) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (value.getAsInt() != 0 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+        Assert.assertEquals(value.getAsInt(), 0);
+    }
+}
@@ -0,0 +1,319 @@
+package org.killbill.billing.plugin.toss.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local Toss stand-in speaking HTTP/1.1 over raw sockets, so that it can misbehave below the HTTP layer:
+ * delayed headers, trickled bodies, connection resets, error bursts and malformed JSON.
+ *
+ * <p>Each request is answered by the next scripted {@link Fault} (see {@link #enqueue}), or by the default one
+ * (a {@code DONE} payment) once the script is exhausted. Connections are closed after each response.</p>
+ */
+public class TossFaultStub implements Closeable {
+
+    private static final Pattern PAYMENT_KEY = Pattern.compile("\"paymentKey\"\\s*:\\s*\"([^\"]*)\"");
+    private static final Pattern ORDER_ID = Pattern.compile("\"orderId\"\\s*:\\s*\"([^\"]*)\"");
+    private static final Pattern AMOUNT = Pattern.compile("\"(?:amount|cancelAmount)\"\\s*:\\s*(\\d+)");
+
+    /**
+     * Behavior of the stub for one request.
+     */
+    public interface Fault {
+
+        void respond(Request request, Socket socket) throws IOException, InterruptedException;
+    }
+
+    /**
+     * A request received by the stub.
+     */
+    public static final class Request {
+
+        private final String method;
+        private final String path;
+        private final String body;
+
+        Request(final String method, final String path, final String body) {
+            this.method = method;
+            this.path = path;
+            this.body = body;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        /**
+         * @return a {@code DONE} payment matching the request (payment key, order id and amount)
+         */
+        public String paymentJson() {
+            final String paymentKey = find(PAYMENT_KEY, path.startsWith("/v1/payments/") && !path.endsWith("/confirm") ? path.split("/")[3] : "fault_payment_key");
+            final String orderId = find(ORDER_ID, "fault_order_id");
+            final String amount = find(AMOUNT, "10000");
+            return "{\"mId\":\"tosspayments\",\"version\":\"2022-11-16\",\"type\":\"NORMAL\"," +
+                   "\"paymentKey\":\"" + paymentKey + "\",\"orderId\":\"" + orderId + "\",\"orderName\":\"Kill Bill\"," +
+                   "\"status\":\"DONE\",\"requestedAt\":\"2024-02-13T12:17:57+09:00\",\"approvedAt\":\"2024-02-13T12:18:14+09:00\"," +
+                   "\"currency\":\"KRW\",\"method\":\"카드\",\"totalAmount\":" + amount + ",\"balanceAmount\":" + amount + "," +
+                   "\"suppliedAmount\":" + amount + ",\"vat\":0,\"taxFreeAmount\":0," +
+                   "\"card\":{\"issuerCode\":\"61\",\"acquirerCode\":\"31\",\"number\":\"43301234****123*\",\"installmentPlanMonths\":0," +
+                   "\"approveNo\":\"00000000\",\"useCardPoint\":false,\"cardType\":\"신용\",\"ownerType\":\"개인\",\"acquireStatus\":\"READY\"," +
+                   "\"isInterestFree\":false,\"amount\":" + amount + "}," +
+                   "\"receipt\":{\"url\":\"https://dashboard.tosspayments.com/receipt/redirection?transactionId=fault\"}}";
+        }
+
+        private String find(final Pattern pattern, final String defaultValue) {
+            final Matcher matcher = pattern.matcher(body);
+            return matcher.find() ? matcher.group(1) : defaultValue;
+        }
+    }
+
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+    private final Queue<Fault> script = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger maxOpenConnections = new AtomicInteger();
+    private final AtomicInteger abandonedResponses = new AtomicInteger();
+
+    private volatile Fault defaultFault = ok();
+
+    public TossFaultStub() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        acceptor = new Thread(this::accept, "toss-fault-stub");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/v1";
+    }
+
+    /**
+     * Script the answers to the next requests, in order.
+     */
+    public TossFaultStub enqueue(final Fault... faults) {
+        for (final Fault fault : faults) {
+            script.add(fault);
+        }
+        return this;
+    }
+
+    /**
+     * @param fault answer to the requests once the script is exhausted
+     */
+    public TossFaultStub setDefault(final Fault fault) {
+        this.defaultFault = fault;
+        return this;
+    }
+
+    public int getRequests() {
+        return requests.get();
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    public int getMaxOpenConnections() {
+        return maxOpenConnections.get();
+    }
+
+    /**
+     * @return number of responses the client stopped reading (connection closed by the client while being written)
+     */
+    public int getAbandonedResponses() {
+        return abandonedResponses.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    // Faults
+
+    public static Fault ok() {
+        return (request, socket) -> write(socket, 200, request.paymentJson());
+    }
+
+    public static Fault status(final int status, final String json) {
+        return (request, socket) -> write(socket, status, json);
+    }
+
+    /**
+     * HTTP 500 {@code FAILED_INTERNAL_SYSTEM_PROCESSING}, e.g. {@code enqueue(serverErrors(5))} for a burst.
+     */
+    public static Fault[] serverErrors(final int count) {
+        final Fault[] faults = new Fault[count];
+        for (int i = 0; i < count; i++) {
+            faults[i] = status(500, "{\"code\":\"FAILED_INTERNAL_SYSTEM_PROCESSING\",\"message\":\"내부 시스템 처리 작업이 실패했습니다.\"}");
+        }
+        return faults;
+    }
+
+    /**
+     * Wait before sending anything, then answer as {@code then}.
+     */
+    public static Fault delayedHeaders(final long delayMillis, final Fault then) {
+        return (request, socket) -> {
+            TimeUnit.MILLISECONDS.sleep(delayMillis);
+            then.respond(request, socket);
+        };
+    }
+
+    /**
+     * Send the headers right away, then the payment body {@code chunkBytes} at a time every {@code intervalMillis}.
+     */
+    public static Fault trickledBody(final int chunkBytes, final long intervalMillis) {
+        return (request, socket) -> {
+            final byte[] body = request.paymentJson().getBytes(StandardCharsets.UTF_8);
+            final OutputStream out = socket.getOutputStream();
+            out.write(headers(200, body.length));
+            out.flush();
+            for (int offset = 0; offset < body.length; offset += chunkBytes) {
+                TimeUnit.MILLISECONDS.sleep(intervalMillis);
+                out.write(body, offset, Math.min(chunkBytes, body.length - offset));
+                out.flush();
+            }
+        };
+    }
+
+    /**
+     * Reset the connection without answering.
+     */
+    public static Fault resetBeforeResponse() {
+        return (request, socket) -> reset(socket);
+    }
+
+    /**
+     * Send the headers and half of the payment body, then reset the connection.
+     */
+    public static Fault resetMidBody() {
+        return (request, socket) -> {
+            final byte[] body = request.paymentJson().getBytes(StandardCharsets.UTF_8);
+            final OutputStream out = socket.getOutputStream();
+            out.write(headers(200, body.length));
+            out.write(body, 0, body.length / 2);
+            out.flush();
+            reset(socket);
+        };
+    }
+
+    /**
+     * A complete HTTP 200 whose body is cut in the middle of the JSON.
+     */
+    public static Fault malformedJson() {
+        return (request, socket) -> {
+            final String json = request.paymentJson();
+            write(socket, 200, json.substring(0, json.length() / 2));
+        };
+    }
+
+    private static void write(final Socket socket, final int status, final String json) throws IOException {
+        final byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        final OutputStream out = socket.getOutputStream();
+        out.write(headers(status, body.length));
+        out.write(body);
+        out.flush();
+    }
+
+    private static byte[] headers(final int status, final int contentLength) {
+        return String.format(Locale.ROOT,
+                             "HTTP/1.1 %d %s\r\nContent-Type: application/json\r\nContent-Length: %d\r\nConnection: close\r\n\r\n",
+                             status, status < 400 ? "OK" : "Error", contentLength).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void reset(final Socket socket) throws IOException {
+        // A zero linger time makes close() send a RST rather than a FIN
+        socket.setSoLinger(true, 0);
+        socket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (final IOException e) {
+                return;
+            }
+            final Thread handler = new Thread(() -> handle(socket), "toss-fault-stub-connection");
+            handler.setDaemon(true);
+            handler.start();
+        }
+    }
+
+    private void handle(final Socket socket) {
+        final int open = openConnections.incrementAndGet();
+        maxOpenConnections.accumulateAndGet(open, Math::max);
+        try (socket) {
+            final Request request = readRequest(socket.getInputStream());
+            if (request == null) {
+                return;
+            }
+            requests.incrementAndGet();
+            final Fault fault = script.poll();
+            (fault == null ? defaultFault : fault).respond(request, socket);
+        } catch (final IOException e) {
+            // The client gave up on the response
+            abandonedResponses.incrementAndGet();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            openConnections.decrementAndGet();
+        }
+    }
+
+    private static Request readRequest(final InputStream in) throws IOException {
+        final ByteArrayOutputStream head = new ByteArrayOutputStream();
+        // Last four bytes read, to find the blank line ending the headers
+        int last = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            head.write(b);
+            last = (last << 8) | b;
+            if (last == 0x0D0A0D0A) {
+                break;
+            }
+        }
+        if (last != 0x0D0A0D0A) {
+            return null;
+        }
+
+        final String[] lines = head.toString(StandardCharsets.US_ASCII).split("\r\n");
+        final String[] requestLine = lines[0].split(" ");
+        int contentLength = 0;
+        for (final String line : lines) {
+            final int colon = line.indexOf(':');
+            if (colon > 0 && "content-length".equalsIgnoreCase(line.substring(0, colon).trim())) {
+                contentLength = Integer.parseInt(line.substring(colon + 1).trim());
+            }
+        }
+        final String body = new String(in.readNBytes(contentLength), StandardCharsets.UTF_8);
+        return new Request(requestLine[0], requestLine[1], body);
+    }
+}
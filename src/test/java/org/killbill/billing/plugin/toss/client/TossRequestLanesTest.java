@@ -0,0 +1,178 @@
+package org.killbill.billing.plugin.toss.client;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.plugin.toss.client.exception.TossLaneRejectedException;
+import org.killbill.billing.plugin.toss.metrics.TossMetricStats;
+import org.killbill.billing.plugin.toss.metrics.TossMetrics;
+import org.killbill.billing.plugin.toss.metrics.TossOperation;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TossRequestLanesTest {
+
+    private ExecutorService executor;
+    private TossRequestLanes lanes;
+
+    @BeforeMethod(groups = "fast")
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+        lanes = new TossRequestLanes(new TossLaneLimiter(TossRequestLane.INTERACTIVE, 2, 1, 100),
+                                     new TossLaneLimiter(TossRequestLane.BACKGROUND, 1, 1, 100));
+    }
+
+    @AfterMethod(groups = "fast")
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test(groups = "fast")
+    public void testSaturatedBackgroundLaneDoesNotBlockInteractiveLane() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final Future<String> background = executor.submit(() -> lanes.execute(TossRequestLane.BACKGROUND, () -> {
+            started.countDown();
+            release.await();
+            return "background";
+        }));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(lanes.execute(TossRequestLane.INTERACTIVE, () -> "interactive"), "interactive");
+        Assert.assertEquals(lanes.getStats(TossRequestLane.BACKGROUND).getInFlight(), 1);
+        Assert.assertEquals(lanes.getStats(TossRequestLane.BACKGROUND).getUtilization(), 1.0);
+
+        release.countDown();
+        Assert.assertEquals(background.get(5, TimeUnit.SECONDS), "background");
+        Assert.assertEquals(lanes.getStats(TossRequestLane.BACKGROUND).getInFlight(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testCallRejectedWhenNoSlotWithinMaxWait() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.submit(() -> lanes.execute(TossRequestLane.BACKGROUND, () -> {
+            started.countDown();
+            release.await();
+            return null;
+        }));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        try {
+            lanes.execute(TossRequestLane.BACKGROUND, () -> "never");
+            Assert.fail("Should throw TossLaneRejectedException");
+        } catch (final TossLaneRejectedException e) {
+            Assert.assertEquals(e.getLane(), TossRequestLane.BACKGROUND);
+        } finally {
+            release.countDown();
+        }
+
+        final TossLaneStats stats = lanes.getStats(TossRequestLane.BACKGROUND);
+        Assert.assertEquals(stats.getRejected(), 1);
+        Assert.assertEquals(stats.getQueued(), 0);
+        Assert.assertTrue(stats.getMaxQueueTimeMicros() >= TimeUnit.MILLISECONDS.toMicros(100));
+    }
+
+    @Test(groups = "fast")
+    public void testCallRejectedWhenQueueIsFull() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final TossRequestLanes slowLanes = new TossRequestLanes(new TossLaneLimiter(TossRequestLane.INTERACTIVE, 1, 0, 10000),
+                                                                new TossLaneLimiter(TossRequestLane.BACKGROUND, 1, 0, 10000));
+        executor.submit(() -> slowLanes.execute(TossRequestLane.INTERACTIVE, () -> {
+            started.countDown();
+            release.await();
+            return null;
+        }));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        final long startNanos = System.nanoTime();
+        try {
+            slowLanes.execute(TossRequestLane.INTERACTIVE, () -> "never");
+            Assert.fail("Should throw TossLaneRejectedException");
+        } catch (final TossLaneRejectedException e) {
+            // Rejected right away rather than after the maximum wait
+            Assert.assertTrue(System.nanoTime() - startNanos < TimeUnit.SECONDS.toNanos(5));
+        } finally {
+            release.countDown();
+        }
+        Assert.assertEquals(slowLanes.getStats(TossRequestLane.INTERACTIVE).getAdmitted(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testSlotReleasedWhenCallFails() throws Exception {
+        try {
+            lanes.execute(TossRequestLane.BACKGROUND, () -> {
+                throw new IOException("connection reset");
+            });
+            Assert.fail("Should throw IOException");
+        } catch (final IOException e) {
+            Assert.assertEquals(e.getMessage(), "connection reset");
+        }
+
+        Assert.assertEquals(lanes.getStats(TossRequestLane.BACKGROUND).getInFlight(), 0);
+        Assert.assertEquals(lanes.execute(TossRequestLane.BACKGROUND, () -> "ok"), "ok");
+    }
+
+    @Test(groups = "fast")
+    public void testCallsRecordedInMetrics() throws Exception {
+        final TossMetrics metrics = new TossMetrics();
+        final TossRequestLanes meteredLanes = new TossRequestLanes(new TossLaneLimiter(TossRequestLane.INTERACTIVE, 1, 0, 100),
+                                                                   new TossLaneLimiter(TossRequestLane.BACKGROUND, 1, 0, 100),
+                                                                   metrics);
+        final UUID kbTenantId = UUID.randomUUID();
+
+        meteredLanes.execute(TossRequestLane.INTERACTIVE, TossOperation.ISSUE_BILLING_KEY, kbTenantId, () -> "billing");
+        try {
+            meteredLanes.execute(TossRequestLane.INTERACTIVE, TossOperation.CONFIRM_PAYMENT, kbTenantId, () -> {
+                throw new IOException("connection reset");
+            });
+            Assert.fail("Should throw IOException");
+        } catch (final IOException e) {
+            Assert.assertEquals(e.getMessage(), "connection reset");
+        }
+
+        Assert.assertEquals(metrics.getSeriesCount(), 2);
+        for (final TossMetricStats stats : metrics.getStats()) {
+            Assert.assertEquals(stats.getKbTenantId(), kbTenantId.toString());
+            Assert.assertEquals(stats.getCount(), 1);
+            if (TossOperation.CONFIRM_PAYMENT.getTag().equals(stats.getOperation())) {
+                Assert.assertEquals(stats.getStatus(), TossMetrics.STATUS_ERROR);
+                Assert.assertEquals(stats.getErrorCode(), "IOException");
+            } else {
+                Assert.assertEquals(stats.getStatus(), TossMetrics.STATUS_OK);
+            }
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testInFlightCalls() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final UUID kbTenantId = UUID.randomUUID();
+        final Future<String> call = executor.submit(() -> lanes.execute(TossRequestLane.BACKGROUND, TossOperation.GET_PAYMENT, kbTenantId, () -> {
+            started.countDown();
+            release.await();
+            return "done";
+        }));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(lanes.getInFlightCalls().size(), 1);
+        final TossInFlightCall inFlightCall = lanes.getInFlightCalls().get(0);
+        Assert.assertEquals(inFlightCall.getLane(), TossRequestLane.BACKGROUND);
+        Assert.assertEquals(inFlightCall.getOperation(), "get_payment");
+        Assert.assertEquals(inFlightCall.getKbTenantId(), kbTenantId);
+        Assert.assertTrue(inFlightCall.getAgeMillis() >= 0);
+
+        release.countDown();
+        Assert.assertEquals(call.get(5, TimeUnit.SECONDS), "done");
+        Assert.assertTrue(lanes.getInFlightCalls().isEmpty());
+    }
+}
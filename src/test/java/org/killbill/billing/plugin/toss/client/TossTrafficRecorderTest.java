@@ -0,0 +1,141 @@
+package org.killbill.billing.plugin.toss.client;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.killbill.billing.plugin.toss.client.model.PaymentCancelRequest;
+import org.killbill.billing.plugin.toss.client.model.PaymentConfirmRequest;
+import org.killbill.billing.plugin.toss.metrics.TossOperation;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TossTrafficRecorderTest {
+
+    private static final String SECRET_KEY = "test_sk_traffic_secret";
+    private static final String PAYMENT_KEY = "tgen_traffic_payment_key";
+    private static final String ORDER_ID = "traffic_order_id";
+
+    private Path directory;
+    private Path file;
+
+    @BeforeMethod(groups = "fast")
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("toss-traffic");
+        file = directory.resolve("traffic.rec");
+    }
+
+    @AfterMethod(groups = "fast")
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Test(groups = "fast")
+    public void testClientCallsAreRecordedWithoutSecrets() throws Exception {
+        try (final TossFaultStub stub = new TossFaultStub();
+             final TossTrafficRecorder recorder = TossTrafficRecorder.open(file, 100)) {
+            final TossClientImpl client = new TossClientImpl(stub.getBaseUrl(), 1000, 500, recorder);
+            stub.enqueue(TossFaultStub.ok());
+            stub.enqueue(TossFaultStub.serverErrors(1));
+            stub.enqueue(TossFaultStub.delayedHeaders(2000, TossFaultStub.ok()));
+            stub.enqueue(TossFaultStub.resetBeforeResponse());
+
+            final long startMicros = TossTrafficRecorder.nowEpochMicros();
+            client.confirmPayment(SECRET_KEY, new PaymentConfirmRequest(PAYMENT_KEY, ORDER_ID, 10000L), "idempotency-1");
+            for (int i = 0; i < 3; i++) {
+                try {
+                    client.cancelPayment(SECRET_KEY, PAYMENT_KEY, new PaymentCancelRequest("Customer request", 1000L), "idempotency-" + (i + 2));
+                    Assert.fail("Toss call should have failed");
+                } catch (final Exception expected) {
+                    // Recorded below
+                }
+            }
+            Assert.assertEquals(recorder.getCount(), 4);
+
+            final List<TossTrafficRecorder.Entry> entries = TossTrafficRecorder.read(file);
+            Assert.assertEquals(entries.size(), 4);
+
+            final TossTrafficRecorder.Entry confirm = entries.get(0);
+            Assert.assertEquals(confirm.getOperation(), TossOperation.CONFIRM_PAYMENT);
+            Assert.assertEquals(confirm.getOutcome(), TossTrafficRecorder.Outcome.SUCCESS);
+            Assert.assertEquals(confirm.getHttpStatus(), 200);
+            Assert.assertTrue(confirm.getRequestBytes() > 0);
+            Assert.assertTrue(confirm.getResponseBytes() > confirm.getRequestBytes());
+            Assert.assertTrue(confirm.getStartEpochMicros() >= startMicros);
+            Assert.assertTrue(confirm.getLatencyMicros() > 0);
+
+            Assert.assertEquals(entries.get(1).getOperation(), TossOperation.CANCEL_PAYMENT);
+            Assert.assertEquals(entries.get(1).getOutcome(), TossTrafficRecorder.Outcome.SERVER_ERROR);
+            Assert.assertEquals(entries.get(1).getHttpStatus(), 500);
+            Assert.assertEquals(entries.get(2).getOutcome(), TossTrafficRecorder.Outcome.TIMEOUT);
+            Assert.assertEquals(entries.get(2).getHttpStatus(), 0);
+            Assert.assertTrue(entries.get(2).getLatencyMicros() >= 500000);
+            Assert.assertEquals(entries.get(3).getOutcome(), TossTrafficRecorder.Outcome.IO_ERROR);
+        }
+
+        final String content = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+        Assert.assertFalse(content.contains(SECRET_KEY));
+        Assert.assertFalse(content.contains(PAYMENT_KEY));
+        Assert.assertFalse(content.contains(ORDER_ID));
+    }
+
+    @Test(groups = "fast")
+    public void testRingKeepsTheLatestCalls() throws Exception {
+        try (final TossTrafficRecorder recorder = TossTrafficRecorder.open(file, 10)) {
+            for (int i = 0; i < 25; i++) {
+                recorder.record(entry(i));
+            }
+            Assert.assertEquals(recorder.getCount(), 25);
+        }
+        Assert.assertEquals(Files.size(file), 24 + 10 * 24);
+
+        final List<TossTrafficRecorder.Entry> entries = TossTrafficRecorder.read(file);
+        Assert.assertEquals(entries.size(), 10);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(entries.get(i).getStartEpochMicros(), 15 + i);
+            Assert.assertEquals(entries.get(i).getRequestBytes(), 15 + i);
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testRecordingIsContinuedWhenReopened() throws Exception {
+        try (final TossTrafficRecorder recorder = TossTrafficRecorder.open(file, 10)) {
+            recorder.record(entry(1));
+        }
+        try (final TossTrafficRecorder recorder = TossTrafficRecorder.open(file, 10)) {
+            Assert.assertEquals(recorder.getCount(), 1);
+            recorder.record(entry(2));
+        }
+        Assert.assertEquals(TossTrafficRecorder.read(file).size(), 2);
+    }
+
+    @Test(groups = "fast")
+    public void testRecordingOfAnotherCapacityIsNotOverwritten() throws Exception {
+        try (final TossTrafficRecorder recorder = TossTrafficRecorder.open(file, 10)) {
+            recorder.record(entry(1));
+        }
+        try {
+            TossTrafficRecorder.open(file, 20);
+            Assert.fail("A recording of another capacity should not be opened");
+        } catch (final IOException expected) {
+            // The recording is left as is
+        }
+        Assert.assertEquals(Files.size(file), 24 + 10 * 24);
+        Assert.assertEquals(TossTrafficRecorder.read(file).size(), 1);
+    }
+
+    @Test(groups = "fast", expectedExceptions = IOException.class)
+    public void testReadRejectsOtherFiles() throws Exception {
+        Files.write(file, "not a recording, but long enough to hold a header".getBytes(StandardCharsets.UTF_8));
+        TossTrafficRecorder.read(file);
+    }
+
+    private static TossTrafficRecorder.Entry entry(final int i) {
+        return new TossTrafficRecorder.Entry(i, TossOperation.BILLING_KEY_PAYMENT, TossTrafficRecorder.Outcome.SUCCESS, 200, i, 1000, 50000);
+    }
+}
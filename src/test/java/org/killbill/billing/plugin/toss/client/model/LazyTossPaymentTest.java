@@ -0,0 +1,90 @@
+package org.killbill.billing.plugin.toss.client.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class LazyTossPaymentTest {
+
+    private static final String JSON = "{" +
+            "  \"mId\": \"tosspayments\"," +
+            "  \"paymentKey\": \"5EnNZRJGvaBX7zk2yd8ydw26XvwXkLrx9POLqKQjmAw4b0e1\"," +
+            "  \"orderId\": \"a4CWyWY5m89PNh7xJwhk1\"," +
+            "  \"status\": \"PARTIAL_CANCELED\"," +
+            "  \"method\": \"카드\"," +
+            "  \"totalAmount\": 1000," +
+            "  \"balanceAmount\": 500," +
+            "  \"currency\": \"KRW\"," +
+            "  \"unknownObject\": {\"nested\": [1, 2, {\"paymentKey\": \"nested\"}]}," +
+            "  \"card\": {" +
+            "    \"number\": \"12345678****000*\"," +
+            "    \"receiptUrl\": \"https://dashboard.tosspayments.com/card-receipt\"" +
+            "  }," +
+            "  \"cancels\": [" +
+            "    {\"cancelAmount\": 200, \"transactionKey\": \"first_cancel\"}," +
+            "    null," +
+            "    {\"cancelAmount\": 300, \"transactionKey\": \"latest_cancel\", \"extra\": {\"transactionKey\": \"nested\"}}" +
+            "  ]," +
+            "  \"receipt\": {" +
+            "    \"url\": \"https://dashboard.tosspayments.com/receipt\"" +
+            "  }," +
+            "  \"failure\": null" +
+            "}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test(groups = "fast")
+    public void testSummaryFieldsWithoutMaterializing() throws IOException {
+        final LazyTossPayment payment = LazyTossPayment.parse(JSON.getBytes(StandardCharsets.UTF_8), objectMapper);
+
+        Assert.assertEquals(payment.getPaymentKey(), "5EnNZRJGvaBX7zk2yd8ydw26XvwXkLrx9POLqKQjmAw4b0e1");
+        Assert.assertEquals(payment.getOrderId(), "a4CWyWY5m89PNh7xJwhk1");
+        Assert.assertEquals(payment.getStatus(), "PARTIAL_CANCELED");
+        Assert.assertEquals(payment.getMethod(), "카드");
+        Assert.assertEquals(payment.getTotalAmount(), Long.valueOf(1000));
+        Assert.assertEquals(payment.getCurrency(), "KRW");
+
+        final TossPaymentSummary summary = TossPaymentSummary.of(payment);
+        Assert.assertEquals(summary.getReceiptUrl(), "https://dashboard.tosspayments.com/receipt");
+        Assert.assertEquals(summary.getLatestCancelTransactionKey(), "latest_cancel");
+        Assert.assertFalse(payment.isMaterialized());
+    }
+
+    @Test(groups = "fast")
+    public void testFullObjectMaterializedOnDemand() throws IOException {
+        final byte[] raw = JSON.getBytes(StandardCharsets.UTF_8);
+        final LazyTossPayment payment = LazyTossPayment.parse(raw, objectMapper);
+
+        Assert.assertEquals(payment.getBalanceAmount(), Long.valueOf(500));
+        Assert.assertTrue(payment.isMaterialized());
+        Assert.assertEquals(payment.getMId(), "tosspayments");
+        Assert.assertEquals(payment.getCard().getNumber(), "12345678****000*");
+        Assert.assertEquals(payment.getCancels().size(), 3);
+        Assert.assertSame(payment.getRawResponse(), raw);
+    }
+
+    @Test(groups = "fast")
+    public void testSummaryMatchesFullyBoundPayment() throws IOException {
+        final TossPayment bound = objectMapper.readValue(JSON.replace("    null,", ""), TossPayment.class);
+        final TossPaymentSummary fromBound = TossPaymentSummary.of(bound);
+        final TossPaymentSummary parsed = TossPaymentSummary.parse(JSON.getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertEquals(parsed.getPaymentKey(), fromBound.getPaymentKey());
+        Assert.assertEquals(parsed.getTotalAmount(), fromBound.getTotalAmount());
+        Assert.assertEquals(parsed.getReceiptUrl(), fromBound.getReceiptUrl());
+        Assert.assertEquals(parsed.getLatestCancelTransactionKey(), fromBound.getLatestCancelTransactionKey());
+    }
+
+    @Test(groups = "fast")
+    public void testCardReceiptUrlWhenNoReceipt() throws IOException {
+        final TossPaymentSummary summary = TossPaymentSummary.parse(("{\"paymentKey\": \"pk\", \"receipt\": null, \"cancels\": null," +
+                                                                     " \"card\": {\"receiptUrl\": \"https://card\"}}").getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertEquals(summary.getReceiptUrl(), "https://card");
+        Assert.assertNull(summary.getLatestCancelTransactionKey());
+        Assert.assertNull(summary.getTotalAmount());
+    }
+}
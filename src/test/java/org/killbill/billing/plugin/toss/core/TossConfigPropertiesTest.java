@@ -18,6 +18,7 @@ package org.killbill.billing.plugin.toss.core;
 
 import java.util.Properties;
 
+import org.killbill.billing.plugin.toss.client.TossClientImpl;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -51,6 +52,13 @@ public class TossConfigPropertiesTest {
         Assert.assertEquals(config.getConnectionTimeout(), TossConfigProperties.DEFAULT_CONNECTION_TIMEOUT);
         Assert.assertEquals(config.getReadTimeout(), TossConfigProperties.DEFAULT_READ_TIMEOUT);
         Assert.assertFalse(config.isTestMode());
+        Assert.assertEquals(config.getLookupTimeout(), TossConfigProperties.DEFAULT_LOOKUP_TIMEOUT);
+        Assert.assertFalse(config.isTimingProperties());
+        Assert.assertEquals(config.getBaseUrl(), TossClientImpl.DEFAULT_BASE_URL);
+        Assert.assertEquals(config.getHealthProbeInterval(), TossConfigProperties.DEFAULT_HEALTH_PROBE_INTERVAL);
+        Assert.assertNull(config.getJournalFile());
+        Assert.assertNull(config.getTrafficRecordingFile());
+        Assert.assertEquals(config.getTrafficRecordingCapacity(), TossConfigProperties.DEFAULT_TRAFFIC_RECORDING_CAPACITY);
     }
 
     @Test(groups = "fast")
@@ -17,8 +17,10 @@
 package org.killbill.billing.plugin.toss.core;
 
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.killbill.billing.osgi.libs.killbill.OSGIKillbillAPI;
+import org.killbill.billing.plugin.toss.client.TossClient;
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
@@ -67,4 +69,51 @@ public class TossConfigurationHandlerTest {
     public void testHandlerInheritsFromPluginTenantConfigurableConfigurationHandler() {
         Assert.assertTrue(handler instanceof org.killbill.billing.plugin.api.notification.PluginTenantConfigurableConfigurationHandler);
     }
+
+    @Test(groups = "fast")
+    public void testRuntimeBuiltOncePerConfiguration() {
+        final AtomicInteger clientsBuilt = new AtomicInteger();
+        final TossClient client = Mockito.mock(TossClient.class);
+        final TossConfigurationHandler handlerWithClients = new TossConfigurationHandler(PLUGIN_NAME, killbillAPI, config -> {
+            clientsBuilt.incrementAndGet();
+            return client;
+        });
+
+        final Properties properties = new Properties();
+        properties.setProperty(PROPERTY_PREFIX + "secret_key", " test_sk_runtime123 ");
+        final TossConfigProperties config = handlerWithClients.createConfigurable(properties);
+        handlerWithClients.setDefaultConfigurable(config);
+        Assert.assertEquals(clientsBuilt.get(), 0);
+
+        final TossTenantRuntime runtime = handlerWithClients.getRuntime(null);
+        Assert.assertEquals(clientsBuilt.get(), 1);
+        Assert.assertSame(runtime.getConfig(), config);
+        Assert.assertSame(runtime.getClient(), client);
+        Assert.assertEquals(runtime.getSecretKey(), "test_sk_runtime123");
+        Assert.assertTrue(runtime.isSecretKeyValid());
+        Assert.assertSame(handlerWithClients.getRuntime(null), runtime);
+        Assert.assertEquals(clientsBuilt.get(), 1);
+
+        // Configuration change
+        properties.setProperty(PROPERTY_PREFIX + "secret_key", "live_sk_runtime456");
+        handlerWithClients.setDefaultConfigurable(handlerWithClients.createConfigurable(properties));
+
+        final TossTenantRuntime updatedRuntime = handlerWithClients.getRuntime(null);
+        Assert.assertNotSame(updatedRuntime, runtime);
+        Assert.assertEquals(updatedRuntime.getSecretKey(), "live_sk_runtime456");
+        Assert.assertEquals(clientsBuilt.get(), 2);
+    }
+
+    @Test(groups = "fast")
+    public void testRuntimeOfConfigurationSetDirectly() {
+        final Properties properties = new Properties();
+        properties.setProperty(PROPERTY_PREFIX + "secret_key", "invalid_key_format");
+        handler.setDefaultConfigurable(new TossConfigProperties(properties));
+
+        final TossTenantRuntime runtime = handler.getRuntime(null);
+        Assert.assertNull(runtime.getClient());
+        Assert.assertFalse(runtime.isSecretKeyValid());
+        Assert.assertEquals(runtime.getSecretKeyError(), "Invalid Toss secretKey format");
+        Assert.assertSame(handler.getRuntime(null), runtime);
+    }
 }
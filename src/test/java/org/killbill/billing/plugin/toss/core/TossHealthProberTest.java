@@ -0,0 +1,175 @@
+package org.killbill.billing.plugin.toss.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.killbill.billing.plugin.toss.client.TossClientImpl;
+import org.killbill.billing.plugin.toss.client.TossTrafficRecorder;
+import org.killbill.billing.plugin.toss.dao.TossDao;
+import org.killbill.billing.plugin.toss.metrics.TossMetrics;
+import org.killbill.billing.plugin.toss.metrics.TossOperation;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class TossHealthProberTest {
+
+    private HttpServer tossStub;
+    private final AtomicInteger stubStatus = new AtomicInteger(404);
+    private final AtomicReference<String> stubAuthorization = new AtomicReference<>();
+
+    private TossConfigProperties config;
+    private TossConfigurationHandler configurationHandler;
+    private TossDao dao;
+    private TossMetrics metrics;
+    private TossHealthProber prober;
+
+    @BeforeMethod(groups = "fast")
+    public void setUp() throws IOException {
+        tossStub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        tossStub.createContext("/v1/payments/", exchange -> {
+            stubAuthorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            final byte[] body = "{\"code\":\"NOT_FOUND_PAYMENT\",\"message\":\"not found\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(stubStatus.get(), body.length);
+            try (final OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        tossStub.start();
+
+        final Properties properties = new Properties();
+        properties.setProperty("org.killbill.billing.plugin.toss.secret_key", "test_sk_probe");
+        properties.setProperty("org.killbill.billing.plugin.toss.base_url", "http://127.0.0.1:" + tossStub.getAddress().getPort() + "/v1");
+        config = new TossConfigProperties(properties);
+
+        configurationHandler = Mockito.mock(TossConfigurationHandler.class);
+        Mockito.when(configurationHandler.getConfigurable(null)).thenReturn(config);
+        Mockito.when(configurationHandler.getRuntime(null))
+               .thenReturn(new TossTenantRuntime(config, new TossClientImpl(config.getBaseUrl(), 1000, 1000)));
+
+        dao = Mockito.mock(TossDao.class);
+        metrics = new TossMetrics();
+        prober = new TossHealthProber(configurationHandler, dao, metrics);
+    }
+
+    @AfterMethod(groups = "fast")
+    public void tearDown() {
+        tossStub.stop(0);
+    }
+
+    @Test(groups = "fast")
+    public void testHealthy() throws Exception {
+        Assert.assertNull(prober.getLastResult());
+
+        final TossHealthProbeResult result = prober.probe();
+
+        Assert.assertTrue(result.isHealthy(), result.getMessage());
+        Assert.assertTrue(result.getSummary().matches("toss=\\d+ms, db=\\d+ms, Toss calls=0, database queries=0"), result.getSummary());
+        Assert.assertTrue(stubAuthorization.get().startsWith("Basic "));
+        Assert.assertSame(prober.getLastResult(), result);
+        Mockito.verify(dao).ping();
+    }
+
+    @Test(groups = "fast")
+    public void testTossFailures() {
+        stubStatus.set(500);
+        TossHealthProbeResult result = prober.probe();
+        Assert.assertFalse(result.isHealthy());
+        Assert.assertEquals(result.getProblems().get(0), "Toss probe failed: HTTP 500");
+
+        stubStatus.set(401);
+        result = prober.probe();
+        Assert.assertFalse(result.isHealthy());
+        Assert.assertEquals(result.getProblems().get(0), "Toss rejected the secret key: HTTP 401");
+
+        tossStub.stop(0);
+        result = prober.probe();
+        Assert.assertFalse(result.isHealthy());
+        Assert.assertTrue(result.getProblems().get(0).startsWith("Toss unreachable"), result.getMessage());
+    }
+
+    @Test(groups = "fast")
+    public void testProbesAreNotRecordedAsTraffic() throws Exception {
+        final Path recording = Files.createTempFile("toss-traffic", ".rec");
+        Files.delete(recording);
+        try (final TossTrafficRecorder recorder = TossTrafficRecorder.open(recording, 100)) {
+            Mockito.when(configurationHandler.getRuntime(null))
+                   .thenReturn(new TossTenantRuntime(config, new TossClientImpl(config.getBaseUrl(), 1000, 1000, recorder)));
+            final AtomicInteger clientsBuilt = new AtomicInteger();
+            prober = new TossHealthProber(configurationHandler, dao, metrics, probed -> {
+                clientsBuilt.incrementAndGet();
+                return new TossClientImpl(probed.getBaseUrl(), 1000, 1000);
+            });
+
+            Assert.assertTrue(prober.probe().isHealthy());
+            Assert.assertTrue(prober.probe().isHealthy());
+
+            Assert.assertEquals(recorder.getCount(), 0);
+            // Reused until the configuration changes
+            Assert.assertEquals(clientsBuilt.get(), 1);
+        } finally {
+            Files.deleteIfExists(recording);
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testDatabaseUnreachable() throws Exception {
+        Mockito.doThrow(new SQLException("Connection refused")).when(dao).ping();
+
+        final TossHealthProbeResult result = prober.probe();
+
+        Assert.assertFalse(result.isHealthy());
+        Assert.assertEquals(result.getMessage(), "Database unreachable: Connection refused");
+    }
+
+    @Test(groups = "fast")
+    public void testFailureRateSincePreviousProbe() {
+        final UUID kbTenantId = UUID.randomUUID();
+        for (int i = 0; i < 20; i++) {
+            metrics.recordSuccess(TossOperation.CONFIRM_PAYMENT, kbTenantId, "DONE", TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        for (int i = 0; i < 10; i++) {
+            metrics.recordFailure(TossOperation.CONFIRM_PAYMENT, kbTenantId, new java.net.http.HttpTimeoutException("timed out"), TimeUnit.MILLISECONDS.toNanos(100));
+            // Declined cards are not a health issue
+            metrics.record(TossOperation.CONFIRM_PAYMENT, kbTenantId, TossMetrics.STATUS_ERROR, "REJECT_CARD_COMPANY", TimeUnit.MILLISECONDS.toNanos(100));
+        }
+
+        TossHealthProbeResult result = prober.probe();
+        Assert.assertFalse(result.isHealthy());
+        Assert.assertEquals(result.getMessage(), "25.0% of the Toss calls failed since the previous probe");
+
+        // Only the calls since the previous probe are evaluated
+        for (int i = 0; i < 30; i++) {
+            metrics.recordSuccess(TossOperation.CONFIRM_PAYMENT, kbTenantId, "DONE", TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        result = prober.probe();
+        Assert.assertTrue(result.isHealthy(), result.getMessage());
+        Assert.assertTrue(result.getSummary().contains("Toss calls=30 (0.0% failed, 100.0% within 3000ms)"), result.getSummary());
+    }
+
+    @Test(groups = "fast")
+    public void testLatencySlo() {
+        for (int i = 0; i < 50; i++) {
+            metrics.recordSuccess(TossOperation.ADD_RESPONSE, UUID.randomUUID(), TossMetrics.STATUS_OK, TimeUnit.MILLISECONDS.toNanos(i < 45 ? 5 : 2000));
+        }
+
+        final TossHealthProbeResult result = prober.probe();
+
+        Assert.assertFalse(result.isHealthy());
+        Assert.assertEquals(result.getMessage(), "10.0% of the database queries took more than 500ms since the previous probe");
+    }
+}
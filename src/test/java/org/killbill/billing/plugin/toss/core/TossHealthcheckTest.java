@@ -1,10 +1,12 @@
 package org.killbill.billing.plugin.toss.core;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
 
 import org.killbill.billing.osgi.api.Healthcheck.HealthStatus;
+import org.killbill.billing.plugin.toss.dao.TossResponseJournal;
 import org.killbill.billing.tenant.api.Tenant;
 import org.mockito.Mockito;
 import org.testng.Assert;
@@ -97,4 +99,53 @@ public class TossHealthcheckTest {
         final HealthStatus status = healthcheck.getHealthStatus(tenant, null);
         Assert.assertTrue(status.isHealthy());
     }
+
+    @Test
+    public void testHealthcheckWithResponsesInJournal() {
+        final TossResponseJournal journal = Mockito.mock(TossResponseJournal.class);
+        Mockito.when(journal.getDepth()).thenReturn(3);
+        healthcheck = new TossHealthcheck(configHandler, journal);
+
+        // Replayed once the database is back: not a reason to take the node out of rotation
+        final HealthStatus status = healthcheck.getHealthStatus(null, null);
+        Assert.assertTrue(status.isHealthy());
+    }
+
+    @Test
+    public void testHealthcheckWithJournalFull() {
+        final TossResponseJournal journal = Mockito.mock(TossResponseJournal.class);
+        Mockito.when(journal.hasOverflowed()).thenReturn(true);
+        healthcheck = new TossHealthcheck(configHandler, journal);
+
+        final HealthStatus status = healthcheck.getHealthStatus(null, null);
+        Assert.assertFalse(status.isHealthy());
+    }
+
+    @Test
+    public void testHealthcheckWithFailedProbe() {
+        final TossHealthProber prober = Mockito.mock(TossHealthProber.class);
+        Mockito.when(prober.getLastResult()).thenReturn(new TossHealthProbeResult(List.of("Database unreachable: Connection refused"), "toss=80ms", System.currentTimeMillis()));
+        healthcheck = new TossHealthcheck(configHandler, null, prober);
+
+        final HealthStatus status = healthcheck.getHealthStatus(null, null);
+        Assert.assertFalse(status.isHealthy());
+    }
+
+    @Test
+    public void testHealthcheckWithProbe() {
+        Mockito.when(configHandler.getConfigurable(null)).thenReturn(new TossConfigProperties(new Properties()));
+        final TossHealthProber prober = Mockito.mock(TossHealthProber.class);
+        healthcheck = new TossHealthcheck(configHandler, null, prober);
+
+        // No probe completed yet
+        Assert.assertTrue(healthcheck.getHealthStatus(null, null).isHealthy());
+
+        Mockito.when(prober.getLastResult()).thenReturn(new TossHealthProbeResult(List.of(), "toss=80ms, db=2ms", System.currentTimeMillis()));
+        Assert.assertTrue(healthcheck.getHealthStatus(null, null).isHealthy());
+
+        // The probe thread stopped
+        final long staleMillis = System.currentTimeMillis() - (TossHealthcheck.STALE_PROBE_INTERVALS + 1) * TossConfigProperties.DEFAULT_HEALTH_PROBE_INTERVAL;
+        Mockito.when(prober.getLastResult()).thenReturn(new TossHealthProbeResult(List.of(), "toss=80ms, db=2ms", staleMillis));
+        Assert.assertFalse(healthcheck.getHealthStatus(null, null).isHealthy());
+    }
 }
@@ -0,0 +1,76 @@
+package org.killbill.billing.plugin.toss.core;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import org.jooby.Status;
+
+import org.killbill.billing.plugin.toss.api.TossPaymentLocks;
+import org.killbill.billing.plugin.toss.api.TossPaymentPluginApi;
+import org.killbill.billing.plugin.toss.client.TossRequestLanes;
+import org.killbill.billing.plugin.toss.metrics.TossMetrics;
+import org.killbill.billing.plugin.toss.metrics.TossOperation;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TossMetricsServletTest {
+
+    @Test(groups = "fast")
+    public void testPrometheusFormat() {
+        final TossMetrics metrics = new TossMetrics();
+        final UUID kbTenantId = UUID.randomUUID();
+        metrics.recordSuccess(TossOperation.CONFIRM_PAYMENT, kbTenantId, "DONE", 250_000_000);
+        metrics.recordFailure(TossOperation.GET_RESPONSE, kbTenantId, new RuntimeException("message with \"quotes\""), 1_000_000);
+
+        final TossPaymentPluginApi pluginApi = Mockito.mock(TossPaymentPluginApi.class);
+        Mockito.when(pluginApi.getRequestLanes()).thenReturn(new TossRequestLanes());
+        Mockito.when(pluginApi.getPaymentLocks()).thenReturn(new TossPaymentLocks());
+        Mockito.when(pluginApi.getInFlightPurchaseCount()).thenReturn(3);
+        final TossConfigurationHandler configurationHandler = Mockito.mock(TossConfigurationHandler.class);
+        Mockito.when(configurationHandler.getRuntimeCount()).thenReturn(2L);
+
+        final String output = new TossMetricsServlet(metrics, pluginApi, configurationHandler).render();
+
+        Assert.assertTrue(output.contains("# TYPE toss_operation_duration_seconds summary\n"), output);
+        Assert.assertTrue(output.contains("toss_operation_duration_seconds_count{kind=\"toss\",operation=\"confirm_payment\",tenant=\"" + kbTenantId +
+                                          "\",status=\"DONE\",error_code=\"\"} 1\n"), output);
+        Assert.assertTrue(output.contains("toss_operation_duration_seconds_sum{kind=\"database\",operation=\"get_response\",tenant=\"" + kbTenantId +
+                                          "\",status=\"ERROR\",error_code=\"RuntimeException\"} 0.001\n"), output);
+        Assert.assertTrue(output.contains("toss_lane_max_concurrent{lane=\"INTERACTIVE\"} " + TossRequestLanes.DEFAULT_INTERACTIVE_CONCURRENCY + "\n"), output);
+        Assert.assertTrue(output.contains("toss_in_flight_purchases 3\n"), output);
+        Assert.assertTrue(output.contains("toss_payment_locked_payments 0\n"), output);
+        Assert.assertTrue(output.contains("toss_tenant_runtimes 2\n"), output);
+        // Disabled journal
+        Assert.assertFalse(output.contains("toss_response_journal_depth"), output);
+
+        // Every sample belongs to the family declared before it
+        String family = null;
+        for (final String line : output.split("\n")) {
+            if (line.startsWith("# TYPE ")) {
+                family = line.split(" ")[2];
+            } else if (!line.startsWith("#")) {
+                Assert.assertNotNull(family, line);
+                Assert.assertTrue(line.startsWith(family), line);
+            }
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testTenantRequired() throws Exception {
+        final TossPaymentPluginApi pluginApi = Mockito.mock(TossPaymentPluginApi.class);
+        final TossMetricsServlet servlet = new TossMetricsServlet(new TossMetrics(), pluginApi, Mockito.mock(TossConfigurationHandler.class));
+
+        Assert.assertEquals(servlet.prometheus(Optional.empty()).status(), Optional.of(Status.UNAUTHORIZED));
+        Assert.assertEquals(servlet.inFlight(Optional.empty()).status(), Optional.of(Status.UNAUTHORIZED));
+        Assert.assertEquals(new TossRequestLanesServlet(new TossRequestLanes()).stats(Optional.empty()).status(), Optional.of(Status.UNAUTHORIZED));
+        Assert.assertEquals(new TossPaymentLocksServlet(new TossPaymentLocks()).stats(Optional.empty()).status(), Optional.of(Status.UNAUTHORIZED));
+        Mockito.verify(pluginApi, Mockito.never()).getRequestLanes();
+    }
+
+    @Test(groups = "fast")
+    public void testLabelValuesEscaped() {
+        final String output = new TossPrometheusWriter().sample("metric", 1.5, "label", "a\"b\\c\nd").toString();
+        Assert.assertEquals(output, "metric{label=\"a\\\"b\\\\c\\nd\"} 1.5\n");
+    }
+}
@@ -0,0 +1,45 @@
+package org.killbill.billing.plugin.toss.dao;
+
+import java.sql.Connection;
+import java.util.concurrent.Executor;
+
+import org.jooq.exception.DataAccessException;
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+public class TossAdvisoryLockTest {
+
+    @Test(groups = "fast")
+    public void testReleasedLockReturnsTheConnection() throws Exception {
+        final Connection connection = Mockito.mock(Connection.class);
+
+        new TossAdvisoryLock(connection, conn -> true, "lock").close();
+
+        Mockito.verify(connection, Mockito.never()).abort(Mockito.any(Executor.class));
+        Mockito.verify(connection).close();
+    }
+
+    @Test(groups = "fast")
+    public void testFailedReleaseAbortsTheConnection() throws Exception {
+        final Connection connection = Mockito.mock(Connection.class);
+
+        // What jOOQ throws, e.g. when the connection was reset
+        new TossAdvisoryLock(connection, conn -> {
+            throw new DataAccessException("connection reset");
+        }, "lock").close();
+
+        // Otherwise the pool would hand out the session, still holding the lock
+        Mockito.verify(connection).abort(Mockito.any(Executor.class));
+        Mockito.verify(connection).close();
+    }
+
+    @Test(groups = "fast")
+    public void testLockNotHeldAbortsTheConnection() throws Exception {
+        final Connection connection = Mockito.mock(Connection.class);
+
+        new TossAdvisoryLock(connection, conn -> false, "lock").close();
+
+        Mockito.verify(connection).abort(Mockito.any(Executor.class));
+        Mockito.verify(connection).close();
+    }
+}
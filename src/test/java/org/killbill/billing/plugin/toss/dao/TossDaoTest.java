@@ -0,0 +1,110 @@
+package org.killbill.billing.plugin.toss.dao;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.plugin.toss.EmbeddedDbHelper;
+import org.killbill.billing.plugin.toss.TestBase;
+import org.killbill.billing.plugin.toss.client.model.BillingKeyPaymentRequest;
+import org.killbill.billing.plugin.toss.client.model.LazyTossPayment;
+import org.killbill.billing.plugin.toss.client.model.TossBilling;
+import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossBillingIntentsRecord;
+import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossPaymentMethodsRecord;
+import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossResponsesRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TossDaoTest extends TestBase {
+
+    // Includes fields TossPayment does not know about
+    private static final String RESPONSE = "{\"paymentKey\":\"raw_payment_key\",\"orderId\":\"raw_order_id\",\"status\":\"DONE\"," +
+                                           "\"method\":\"카드\",\"totalAmount\":10000,\"currency\":\"KRW\",\"country\":\"KR\"," +
+                                           "\"isPartialCancelable\":true,\"receipt\":{\"url\":\"https://dashboard.tosspayments.com/receipt/raw\"}}";
+
+    @Test(groups = "slow")
+    public void testRawResponseStoredVerbatim() throws Exception {
+        final TossDao rawDao = EmbeddedDbHelper.instance().getTossDao(true, false);
+        final TossResponsesRecord record = addResponse(rawDao);
+
+        Assert.assertEquals(record.getAdditionalData(), RESPONSE);
+        Assert.assertEquals(record.getOrderId(), "raw_order_id");
+        Assert.assertEquals(record.getTossPaymentStatus(), "DONE");
+        Assert.assertEquals(record.getTossMethod(), "카드");
+        Assert.assertEquals(record.getTossReceiptUrl(), "https://dashboard.tosspayments.com/receipt/raw");
+    }
+
+    @Test(groups = "slow")
+    public void testRawResponseStoredCompressed() throws Exception {
+        final TossDao rawDao = EmbeddedDbHelper.instance().getTossDao(true, true);
+        final TossResponsesRecord record = addResponse(rawDao);
+
+        Assert.assertTrue(record.getAdditionalData().startsWith("gzip:"));
+        Assert.assertEquals(TossDao.decodeAdditionalData(record.getAdditionalData()), RESPONSE);
+        final Map additionalData = TossDao.fromAdditionalData(record.getAdditionalData());
+        Assert.assertEquals(additionalData.get("country"), "KR");
+        Assert.assertEquals(record.getPaymentKey(), "raw_payment_key");
+    }
+
+    @Test(groups = "slow")
+    public void testResponseReserializedByDefault() throws Exception {
+        final TossResponsesRecord record = addResponse(dao);
+
+        final Map additionalData = TossDao.fromAdditionalData(record.getAdditionalData());
+        Assert.assertEquals(additionalData.get("paymentKey"), "raw_payment_key");
+        // Not part of the TossPayment model
+        Assert.assertNull(additionalData.get("country"));
+    }
+
+    @Test(groups = "slow")
+    public void testBillingIntentCompletedInOneCommit() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final UUID kbTransactionId = UUID.randomUUID();
+        final TossBilling billing = new TossBilling("tosspayments", "customer_key", "2024-01-01T10:00:00+09:00", "카드", "billing_key_intent",
+                                                    new TossBilling.Card("61", "31", "43301234****123*", "신용", "개인"), null, "삼성", "43301234****123*");
+        final BillingKeyPaymentRequest request = new BillingKeyPaymentRequest(10000L, "order_id", "구독 결제", "customer_key", "john@example.com", "John");
+
+        final TossBillingIntentsRecord intent = dao.addBillingIntent(account.getId(), kbPaymentId, kbTransactionId, account.getPaymentMethodId(),
+                                                                     BigDecimal.valueOf(10000), Currency.KRW, true, billing, request,
+                                                                     clock.getUTCNow(), context.getTenantId());
+        Assert.assertEquals(intent.getBillingKey(), "billing_key_intent");
+        Assert.assertEquals(TossDao.toTossBilling(intent).getCard().getNumber(), "43301234****123*");
+        Assert.assertEquals(TossDao.toPaymentRequest(intent).getCustomerName(), "John");
+        Assert.assertEquals(dao.getBillingIntents().size(), 1);
+
+        final LazyTossPayment payment = LazyTossPayment.parse(RESPONSE.getBytes(StandardCharsets.UTF_8), new ObjectMapper());
+        final TossResponseEntry entry = new TossResponseEntry(account.getId(), kbPaymentId, kbTransactionId, TransactionType.PURCHASE, BigDecimal.valueOf(10000),
+                                                              Currency.KRW, payment.getPaymentKey(), payment, null, clock.getUTCNow(), context.getTenantId());
+        Assert.assertTrue(dao.completeBillingIntent(intent, entry, clock.getUTCNow()));
+
+        final TossPaymentMethodsRecord paymentMethod = dao.getPaymentMethod(account.getPaymentMethodId(), context.getTenantId());
+        Assert.assertEquals(paymentMethod.getBillingKey(), "billing_key_intent");
+        Assert.assertEquals(paymentMethod.getCardLast4(), "123*");
+        Assert.assertEquals(dao.getResponse(kbTransactionId, context.getTenantId()).getPaymentKey(), "raw_payment_key");
+        Assert.assertTrue(dao.getBillingIntents().isEmpty());
+
+        // Completing it again (e.g. recovery racing a late outcome) stores nothing
+        Assert.assertFalse(dao.completeBillingIntent(intent, entry, clock.getUTCNow()));
+        Assert.assertEquals(dao.getPaymentMethods(account.getId(), context.getTenantId()).size(), 1);
+    }
+
+    private TossResponsesRecord addResponse(final TossDao tossDao) throws Exception {
+        final LazyTossPayment payment = LazyTossPayment.parse(RESPONSE.getBytes(StandardCharsets.UTF_8), new ObjectMapper());
+        return tossDao.addResponse(account.getId(),
+                                   UUID.randomUUID(),
+                                   UUID.randomUUID(),
+                                   TransactionType.PURCHASE,
+                                   BigDecimal.valueOf(10000),
+                                   Currency.KRW,
+                                   payment.getPaymentKey(),
+                                   payment,
+                                   null,
+                                   clock.getUTCNow(),
+                                   context.getTenantId());
+    }
+}
@@ -0,0 +1,131 @@
+package org.killbill.billing.plugin.toss.dao;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.UUID;
+
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.plugin.toss.TestBase;
+import org.killbill.billing.plugin.toss.client.model.LazyTossPayment;
+import org.killbill.billing.plugin.toss.dao.gen.tables.records.TossResponsesRecord;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TossResponseJournalTest extends TestBase {
+
+    private static final String RESPONSE = "{\"paymentKey\":\"journal_payment_key\",\"orderId\":\"journal_order_id\",\"status\":\"DONE\"," +
+                                           "\"method\":\"카드\",\"totalAmount\":10000,\"currency\":\"KRW\"}";
+
+    private Path journalFile;
+
+    @BeforeMethod(groups = "slow")
+    public void setUpJournal() throws Exception {
+        journalFile = Files.createTempFile("toss-responses", ".journal");
+        Files.delete(journalFile);
+    }
+
+    @AfterMethod(groups = "slow")
+    public void tearDownJournal() throws Exception {
+        Files.deleteIfExists(journalFile);
+    }
+
+    @Test(groups = "slow")
+    public void testPendingResponsesSurviveRestart() throws Exception {
+        try (final TossResponseJournal journal = TossResponseJournal.open(journalFile, 64 * 1024)) {
+            Assert.assertTrue(journal.append(newEntry(UUID.randomUUID())));
+            Assert.assertTrue(journal.append(newEntry(UUID.randomUUID())));
+            Assert.assertEquals(journal.getDepth(), 2);
+        }
+
+        try (final TossResponseJournal journal = TossResponseJournal.open(journalFile, 64 * 1024)) {
+            Assert.assertEquals(journal.getDepth(), 2);
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testTornRecordTruncated() throws Exception {
+        try (final TossResponseJournal journal = TossResponseJournal.open(journalFile, 64 * 1024)) {
+            Assert.assertTrue(journal.append(newEntry(UUID.randomUUID())));
+            Assert.assertTrue(journal.append(newEntry(UUID.randomUUID())));
+        }
+
+        // Corrupt the last byte of the second record, as a crash in the middle of its write would
+        final long secondRecordEnd = secondRecordEnd();
+        try (final FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), secondRecordEnd - 1);
+        }
+
+        try (final TossResponseJournal journal = TossResponseJournal.open(journalFile, 64 * 1024)) {
+            Assert.assertEquals(journal.getDepth(), 1);
+            // The torn record is overwritten
+            Assert.assertTrue(journal.append(newEntry(UUID.randomUUID())));
+            Assert.assertEquals(journal.getDepth(), 2);
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testReplayIntoDatabase() throws Exception {
+        final UUID savedTransactionId = UUID.randomUUID();
+        final UUID unsavedTransactionId = UUID.randomUUID();
+        try (final TossResponseJournal journal = TossResponseJournal.open(journalFile, 64 * 1024)) {
+            Assert.assertTrue(journal.append(newEntry(savedTransactionId)));
+            Assert.assertTrue(journal.append(newEntry(unsavedTransactionId)));
+            // Saved after all, e.g. the insert timed out on the client side only
+            dao.addResponses(Collections.singletonList(newEntry(savedTransactionId)));
+
+            Assert.assertEquals(journal.replay(dao), 2);
+            Assert.assertEquals(journal.getDepth(), 0);
+
+            final TossResponsesRecord replayed = dao.getResponse(unsavedTransactionId, context.getTenantId());
+            Assert.assertEquals(replayed.getPaymentKey(), "journal_payment_key");
+            Assert.assertEquals(replayed.getTossPaymentStatus(), "DONE");
+            Assert.assertEquals(replayed.getAmount().compareTo(BigDecimal.valueOf(10000)), 0);
+        }
+
+        // Nothing left to replay after a restart
+        try (final TossResponseJournal journal = TossResponseJournal.open(journalFile, 64 * 1024)) {
+            Assert.assertEquals(journal.getDepth(), 0);
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testOverflowClearedOnceReplayed() throws Exception {
+        try (final TossResponseJournal journal = TossResponseJournal.open(journalFile, 1024)) {
+            int appended = 0;
+            while (journal.append(newEntry(UUID.randomUUID()))) {
+                appended++;
+            }
+            Assert.assertTrue(appended > 0);
+            Assert.assertTrue(journal.hasOverflowed());
+
+            Assert.assertEquals(journal.replay(dao), appended);
+            Assert.assertFalse(journal.hasOverflowed());
+            Assert.assertTrue(journal.append(newEntry(UUID.randomUUID())));
+        }
+    }
+
+    private long secondRecordEnd() throws Exception {
+        final ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(journalFile));
+        // 16 byte header, then [length][crc][state][payload] records
+        final int first = 16;
+        final int second = first + 9 + content.getInt(first);
+        return second + 9 + content.getInt(second);
+    }
+
+    private TossResponseEntry newEntry(final UUID kbTransactionId) throws Exception {
+        final LazyTossPayment payment = LazyTossPayment.parse(RESPONSE.getBytes(StandardCharsets.UTF_8), new ObjectMapper());
+        return new TossResponseEntry(account.getId(), UUID.randomUUID(), kbTransactionId, TransactionType.PURCHASE, BigDecimal.valueOf(10000),
+                                     Currency.KRW, payment.getPaymentKey(), payment, null, clock.getUTCNow(), context.getTenantId());
+    }
+}
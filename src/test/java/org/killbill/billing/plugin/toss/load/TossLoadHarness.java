@@ -0,0 +1,99 @@
+package org.killbill.billing.plugin.toss.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.killbill.billing.plugin.toss.metrics.TossHistogram;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs an operation in a closed loop from a fixed number of threads, recording the latency and outcome of each call.
+ */
+public class TossLoadHarness {
+
+    /**
+     * One call of the scenario.
+     */
+    public interface Operation {
+
+        /**
+         * @param sequence unique number of the call within the run, to derive ids from
+         * @return the outcome of the call, e.g. the payment status
+         */
+        String run(long sequence) throws Exception;
+    }
+
+    private final long warmupMillis;
+    private final long durationMillis;
+
+    /**
+     * @param warmupMillis time the operation runs before being measured
+     * @param durationMillis time the operation is measured
+     */
+    public TossLoadHarness(final long warmupMillis, final long durationMillis) {
+        this.warmupMillis = warmupMillis;
+        this.durationMillis = durationMillis;
+    }
+
+    public TossLoadResult run(final String scenario, final int concurrency, final Operation operation) throws Exception {
+        final AtomicLong sequence = new AtomicLong();
+        if (warmupMillis > 0) {
+            runFor(concurrency, warmupMillis, operation, sequence, new TossHistogram(), new ConcurrentHashMap<>());
+        }
+
+        final TossHistogram latencies = new TossHistogram();
+        final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        final long elapsedNanos = runFor(concurrency, durationMillis, operation, sequence, latencies, outcomes);
+        return new TossLoadResult(scenario, concurrency, elapsedNanos, latencies.snapshot(), outcomes);
+    }
+
+    private static long runFor(final int concurrency,
+                               final long millis,
+                               final Operation operation,
+                               final AtomicLong sequence,
+                               final TossHistogram latencies,
+                               final Map<String, LongAdder> outcomes) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(concurrency, new ThreadFactoryBuilder().setNameFormat("toss-load-%d").setDaemon(true).build());
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> workers = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+                    while (System.nanoTime() < deadline) {
+                        final long startNanos = System.nanoTime();
+                        String outcome;
+                        try {
+                            outcome = operation.run(sequence.getAndIncrement());
+                        } catch (final Exception e) {
+                            outcome = e.getClass().getSimpleName();
+                        }
+                        latencies.recordNanos(System.nanoTime() - startNanos);
+                        outcomes.computeIfAbsent(String.valueOf(outcome), k -> new LongAdder()).increment();
+                    }
+                    return null;
+                }));
+            }
+
+            final long startNanos = System.nanoTime();
+            start.countDown();
+            for (final Future<?> worker : workers) {
+                worker.get();
+            }
+            return System.nanoTime() - startNanos;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
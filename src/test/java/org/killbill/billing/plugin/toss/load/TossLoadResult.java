@@ -0,0 +1,88 @@
+package org.killbill.billing.plugin.toss.load;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.killbill.billing.plugin.toss.metrics.TossHistogramSnapshot;
+
+/**
+ * Throughput and latencies of a scenario run at a given concurrency.
+ */
+public class TossLoadResult {
+
+    static final String HEADER = String.format(Locale.ROOT, "%-10s %6s %9s %9s %9s %9s %9s %9s  %s",
+                                               "scenario", "conc", "ops", "ops/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "outcomes");
+
+    private final String scenario;
+    private final int concurrency;
+    private final long elapsedNanos;
+    private final TossHistogramSnapshot latencies;
+    private final Map<String, Long> outcomes = new TreeMap<>();
+
+    TossLoadResult(final String scenario,
+                   final int concurrency,
+                   final long elapsedNanos,
+                   final TossHistogramSnapshot latencies,
+                   final Map<String, LongAdder> outcomes) {
+        this.scenario = scenario;
+        this.concurrency = concurrency;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies;
+        outcomes.forEach((outcome, count) -> this.outcomes.put(outcome, count.sum()));
+    }
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public long getOperations() {
+        return latencies.getCount();
+    }
+
+    public double getOperationsPerSecond() {
+        return latencies.getCount() / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public TossHistogramSnapshot getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @return number of calls per outcome (payment status, or exception name)
+     */
+    public Map<String, Long> getOutcomes() {
+        return outcomes;
+    }
+
+    /**
+     * @return the row of this result in the report, under {@link #HEADER}
+     */
+    public String toReportLine() {
+        return String.format(Locale.ROOT, "%-10s %6d %9d %9.1f %9.2f %9.2f %9.2f %9.2f  %s",
+                             scenario,
+                             concurrency,
+                             getOperations(),
+                             getOperationsPerSecond(),
+                             millis(latencies.getValueAtPercentile(50)),
+                             millis(latencies.getValueAtPercentile(90)),
+                             millis(latencies.getValueAtPercentile(99)),
+                             millis(latencies.getMaxMicros()),
+                             outcomes);
+    }
+
+    private static double millis(final long micros) {
+        return micros / 1000d;
+    }
+
+    @Override
+    public String toString() {
+        return toReportLine();
+    }
+}
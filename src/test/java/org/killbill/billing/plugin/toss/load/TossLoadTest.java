@@ -0,0 +1,215 @@
+package org.killbill.billing.plugin.toss.load;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.osgi.libs.killbill.OSGIConfigPropertiesService;
+import org.killbill.billing.osgi.libs.killbill.OSGIKillbillAPI;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.TestUtils;
+import org.killbill.billing.plugin.toss.EmbeddedDbHelper;
+import org.killbill.billing.plugin.toss.api.TossPaymentPluginApi;
+import org.killbill.billing.plugin.toss.client.TossClientImpl;
+import org.killbill.billing.plugin.toss.core.TossActivator;
+import org.killbill.billing.plugin.toss.core.TossConfigProperties;
+import org.killbill.billing.plugin.toss.core.TossConfigurationHandler;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.clock.ClockMock;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Throughput and latencies of the plugin against {@link TossStubServer}, through a real {@link TossClientImpl}
+ * and the embedded database. Opt-in, as it runs for minutes:
+ *
+ * <pre>
+ * mvn -Pload test
+ * mvn -Pload test -Dtoss.load.concurrencies=8,32 -Dtoss.load.durationSeconds=30 -Dtoss.load.latencyMillis=50-150
+ * </pre>
+ *
+ * <p>Scenarios (each run at every concurrency):</p>
+ * <ul>
+ *   <li>{@code purchase}: 80% confirmations of a payment key, 20% charges of a stored billing key</li>
+ *   <li>{@code refund}: partial refunds of previously confirmed payments</li>
+ *   <li>{@code sync}: getPaymentInfo of pending payments, each asking Toss for the payment</li>
+ * </ul>
+ *
+ * <p>Settings (system properties): {@code toss.load.concurrencies}, {@code toss.load.warmupSeconds},
+ * {@code toss.load.durationSeconds}, {@code toss.load.latencyMillis} ({@code min-max}),
+ * {@code toss.load.tailPercent}, {@code toss.load.tailMillis}, {@code toss.load.serverErrorPercent},
+ * {@code toss.load.declinePercent} and {@code toss.load.inProgressPercent}.</p>
+ */
+public class TossLoadTest {
+
+    static final String ENABLED_PROPERTY = "toss.load";
+
+    private static final BigDecimal PURCHASE_AMOUNT = BigDecimal.valueOf(100000);
+    private static final BigDecimal REFUND_AMOUNT = BigDecimal.TEN;
+    // Payments refunded or synced in turn: more than the highest concurrency, so that few calls wait for a payment lock
+    private static final int SEEDED_PAYMENTS = 256;
+
+    private TossStubServer stub;
+    private TossPaymentPluginApi api;
+    private Account account;
+    private CallContext context;
+    private TossLoadHarness harness;
+    private int[] concurrencies;
+    private int inProgressPercent;
+    private final List<TossLoadResult> results = new ArrayList<>();
+
+    @BeforeClass(groups = "load")
+    public void setUp() throws Exception {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY)) {
+            throw new SkipException("Load tests are run with -Pload");
+        }
+
+        final String[] latency = System.getProperty("toss.load.latencyMillis", "20-80").split("-");
+        inProgressPercent = Integer.getInteger("toss.load.inProgressPercent", 0);
+        stub = new TossStubServer(512).withLatency(Integer.parseInt(latency[0]), Integer.parseInt(latency[latency.length - 1]))
+                                      .withLatencyTail(Integer.getInteger("toss.load.tailPercent", 1), Integer.getInteger("toss.load.tailMillis", 1000))
+                                      .withServerErrors(Integer.getInteger("toss.load.serverErrorPercent", 0))
+                                      .withDeclines(Integer.getInteger("toss.load.declinePercent", 0))
+                                      .withInProgress(inProgressPercent);
+        harness = new TossLoadHarness(Integer.getInteger("toss.load.warmupSeconds", 3) * 1000L,
+                                      Integer.getInteger("toss.load.durationSeconds", 10) * 1000L);
+        concurrencies = parseConcurrencies(System.getProperty("toss.load.concurrencies", "1,4,16,64"));
+
+        System.setProperty("org.jooq.no-logo", "true");
+        EmbeddedDbHelper.instance().startDb();
+
+        context = Mockito.mock(CallContext.class);
+        Mockito.when(context.getTenantId()).thenReturn(UUID.randomUUID());
+
+        // Note that the Kill Bill API mocks record their invocations: keep the runs to minutes
+        account = TestUtils.buildAccount(Currency.KRW, "KR");
+        Mockito.when(account.getEmail()).thenReturn("load@example.com");
+        final OSGIKillbillAPI killbillApi = TestUtils.buildOSGIKillbillAPI(account);
+        TestUtils.buildPaymentMethod(account.getId(), account.getPaymentMethodId(), TossActivator.PLUGIN_NAME, killbillApi);
+
+        final TossConfigurationHandler configurationHandler = new TossConfigurationHandler(TossActivator.PLUGIN_NAME, killbillApi);
+        final Properties properties = new Properties();
+        properties.setProperty("org.killbill.billing.plugin.toss.secret_key", "test_sk_load");
+        configurationHandler.setDefaultConfigurable(new TossConfigProperties(properties));
+
+        api = new TossPaymentPluginApi(killbillApi,
+                                       Mockito.mock(OSGIConfigPropertiesService.class),
+                                       new ClockMock(),
+                                       EmbeddedDbHelper.instance().getTossDao(),
+                                       configurationHandler,
+                                       new TossClientImpl(stub.getBaseUrl(), 5000, 30000));
+        TestUtils.updateOSGIKillbillAPI(killbillApi, api);
+
+        // Billing key of the stored billing key purchases
+        final PaymentTransactionInfoPlugin firstPurchase = purchase(ImmutableList.of(new PluginProperty("authKey", "load_auth_key", false),
+                                                                                     new PluginProperty("storePaymentMethod", "true", false)));
+        Assert.assertEquals(firstPurchase.getStatus(), PaymentPluginStatus.PROCESSED);
+    }
+
+    @AfterClass(groups = "load", alwaysRun = true)
+    public void tearDown() throws Exception {
+        if (stub == null) {
+            return;
+        }
+        System.out.println(TossLoadResult.HEADER);
+        for (final TossLoadResult result : results) {
+            System.out.println(result.toReportLine());
+        }
+        System.out.println("Toss stub requests: " + stub.getRequestCounts());
+
+        if (api != null) {
+            api.close();
+        }
+        stub.close();
+        EmbeddedDbHelper.instance().stopDB();
+    }
+
+    @Test(groups = "load")
+    public void testPurchase() throws Exception {
+        for (final int concurrency : concurrencies) {
+            record(harness.run("purchase", concurrency, sequence -> {
+                if (sequence % 5 == 4) {
+                    return purchase(ImmutableList.of()).getStatus().name();
+                }
+                return purchase(ImmutableList.of(new PluginProperty("paymentKey", "load_" + UUID.randomUUID(), false))).getStatus().name();
+            }));
+        }
+        Assert.assertTrue(stub.getRequestCount("POST /payments/confirm") > 0);
+        Assert.assertTrue(stub.getRequestCount("POST /billing/{key}") > 0);
+    }
+
+    @Test(groups = "load")
+    public void testRefund() throws Exception {
+        final List<UUID> payments = seedPayments(false);
+        for (final int concurrency : concurrencies) {
+            record(harness.run("refund", concurrency, sequence -> {
+                final UUID kbPaymentId = payments.get((int) (sequence % payments.size()));
+                return api.refundPayment(account.getId(), kbPaymentId, UUID.randomUUID(), account.getPaymentMethodId(),
+                                         REFUND_AMOUNT, Currency.KRW, ImmutableList.of(), context).getStatus().name();
+            }));
+        }
+        Assert.assertTrue(stub.getRequestCount("POST /payments/{key}/cancel") > 0);
+    }
+
+    @Test(groups = "load")
+    public void testSync() throws Exception {
+        // The payments stay pending, so that each getPaymentInfo asks Toss
+        stub.withInProgress(100);
+        try {
+            final List<UUID> payments = seedPayments(true);
+            for (final int concurrency : concurrencies) {
+                record(harness.run("sync", concurrency, sequence -> {
+                    final UUID kbPaymentId = payments.get((int) (sequence % payments.size()));
+                    final List<PaymentTransactionInfoPlugin> transactions = api.getPaymentInfo(account.getId(), kbPaymentId, ImmutableList.of(), context);
+                    return transactions.get(transactions.size() - 1).getStatus().name();
+                }));
+            }
+        } finally {
+            stub.withInProgress(inProgressPercent);
+        }
+        Assert.assertTrue(stub.getRequestCount("GET /payments/{key}") > 0);
+    }
+
+    private void record(final TossLoadResult result) {
+        System.out.println(result.toReportLine());
+        results.add(result);
+        Assert.assertTrue(result.getOperations() > 0, result.toReportLine());
+    }
+
+    private List<UUID> seedPayments(final boolean pending) throws Exception {
+        final List<UUID> payments = new ArrayList<>(SEEDED_PAYMENTS);
+        while (payments.size() < SEEDED_PAYMENTS) {
+            final PaymentTransactionInfoPlugin purchase = purchase(ImmutableList.of(new PluginProperty("paymentKey", "load_" + UUID.randomUUID(), false)));
+            if (purchase.getStatus() == (pending ? PaymentPluginStatus.PENDING : PaymentPluginStatus.PROCESSED)) {
+                payments.add(purchase.getKbPaymentId());
+            }
+        }
+        return payments;
+    }
+
+    private PaymentTransactionInfoPlugin purchase(final List<PluginProperty> properties) throws Exception {
+        return api.purchasePayment(account.getId(), UUID.randomUUID(), UUID.randomUUID(), account.getPaymentMethodId(),
+                                   PURCHASE_AMOUNT, Currency.KRW, properties, context);
+    }
+
+    private static int[] parseConcurrencies(final String value) {
+        final String[] parts = value.split(",");
+        final int[] concurrencies = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            concurrencies[i] = Integer.parseInt(parts[i].trim());
+        }
+        return concurrencies;
+    }
+}
@@ -0,0 +1,286 @@
+package org.killbill.billing.plugin.toss.load;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process stand-in for the Toss API, serving the endpoints the plugin calls:
+ *
+ * <ul>
+ *   <li>{@code POST /v1/payments/confirm}</li>
+ *   <li>{@code POST /v1/payments/{paymentKey}/cancel}</li>
+ *   <li>{@code GET /v1/payments/{paymentKey}}</li>
+ *   <li>{@code POST /v1/billing/authorizations/issue}</li>
+ *   <li>{@code POST /v1/billing/{billingKey}}</li>
+ * </ul>
+ *
+ * <p>Each response is delayed by a random latency, and may be replaced by an error or carry a pending status,
+ * with the distributions set by {@link #withLatency}, {@link #withLatencyTail}, {@link #withServerErrors},
+ * {@link #withDeclines} and {@link #withInProgress}. They can be changed while the server runs.</p>
+ */
+public class TossStubServer implements Closeable {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    static {
+        // Otherwise Nagle's algorithm holds each response body until the client acknowledges the headers, ~40ms later
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+    // Amount of the payments created, so that lookups and cancels answer consistently
+    private final Map<String, Long> paymentAmounts = new ConcurrentHashMap<>();
+
+    private volatile int minLatencyMillis;
+    private volatile int maxLatencyMillis;
+    private volatile int tailPercent;
+    private volatile int tailLatencyMillis;
+    private volatile int serverErrorPercent;
+    private volatile int declinePercent;
+    private volatile int inProgressPercent;
+
+    /**
+     * @param threads threads serving the requests: a request waiting for its latency holds one
+     */
+    public TossStubServer(final int threads) throws IOException {
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("toss-stub-%d").setDaemon(true).build());
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/v1/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return the base URL to give to {@code TossClientImpl}
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    /**
+     * Delay each response by a latency drawn uniformly between the bounds.
+     */
+    public TossStubServer withLatency(final int minMillis, final int maxMillis) {
+        this.minLatencyMillis = minMillis;
+        this.maxLatencyMillis = Math.max(minMillis, maxMillis);
+        return this;
+    }
+
+    /**
+     * Delay a share of the responses by a fixed, longer latency instead.
+     */
+    public TossStubServer withLatencyTail(final int percent, final int latencyMillis) {
+        this.tailPercent = percent;
+        this.tailLatencyMillis = latencyMillis;
+        return this;
+    }
+
+    /**
+     * Answer a share of the requests with HTTP 500 {@code FAILED_INTERNAL_SYSTEM_PROCESSING}.
+     */
+    public TossStubServer withServerErrors(final int percent) {
+        this.serverErrorPercent = percent;
+        return this;
+    }
+
+    /**
+     * Answer a share of the payments (confirmations and billing key payments) with HTTP 400 {@code REJECT_CARD_COMPANY}.
+     */
+    public TossStubServer withDeclines(final int percent) {
+        this.declinePercent = percent;
+        return this;
+    }
+
+    /**
+     * Return a share of the payments (confirmations, billing key payments and lookups) as {@code IN_PROGRESS}
+     * rather than {@code DONE}.
+     */
+    public TossStubServer withInProgress(final int percent) {
+        this.inProgressPercent = percent;
+        return this;
+    }
+
+    /**
+     * @param endpoint e.g. {@code POST /payments/confirm}, with the keys replaced by {@code {key}}
+     * @return the number of requests served for this endpoint
+     */
+    public long getRequestCount(final String endpoint) {
+        final LongAdder count = requestCounts.get(endpoint);
+        return count == null ? 0 : count.sum();
+    }
+
+    public Map<String, LongAdder> getRequestCounts() {
+        return requestCounts;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            final String method = exchange.getRequestMethod();
+            final String[] path = exchange.getRequestURI().getPath().substring("/v1/".length()).split("/");
+            final JsonNode body = readBody(exchange);
+
+            sleep();
+
+            if ("POST".equals(method) && path.length == 2 && "payments".equals(path[0]) && "confirm".equals(path[1])) {
+                count("POST /payments/confirm");
+                respondPayment(exchange, body.path("paymentKey").asText(), body.path("orderId").asText(), body.path("amount").asLong(), true);
+            } else if ("POST".equals(method) && path.length == 3 && "payments".equals(path[0]) && "cancel".equals(path[2])) {
+                count("POST /payments/{key}/cancel");
+                respondCancel(exchange, path[1], body.path("cancelAmount").asLong());
+            } else if ("GET".equals(method) && path.length == 2 && "payments".equals(path[0])) {
+                count("GET /payments/{key}");
+                final Long amount = paymentAmounts.get(path[1]);
+                if (amount == null) {
+                    respond(exchange, 404, "{\"code\":\"NOT_FOUND_PAYMENT\",\"message\":\"존재하지 않는 결제 정보 입니다.\"}");
+                } else {
+                    respondPayment(exchange, path[1], path[1], amount, false);
+                }
+            } else if ("POST".equals(method) && path.length == 3 && "billing".equals(path[0]) && "issue".equals(path[2])) {
+                count("POST /billing/authorizations/issue");
+                respondBilling(exchange, body.path("customerKey").asText());
+            } else if ("POST".equals(method) && path.length == 2 && "billing".equals(path[0])) {
+                count("POST /billing/{key}");
+                respondPayment(exchange, "stub_" + UUID.randomUUID(), body.path("orderId").asText(), body.path("amount").asLong(), true);
+            } else {
+                count("other");
+                respond(exchange, 404, "{\"code\":\"NOT_FOUND\",\"message\":\"Unknown endpoint\"}");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void respondPayment(final HttpExchange exchange,
+                                final String paymentKey,
+                                final String orderId,
+                                final long amount,
+                                final boolean newPayment) throws IOException {
+        if (respondWithError(exchange, newPayment)) {
+            return;
+        }
+        if (newPayment) {
+            paymentAmounts.put(paymentKey, amount);
+        }
+        final String status = roll(inProgressPercent) ? "IN_PROGRESS" : "DONE";
+        respond(exchange, 200, paymentJson(paymentKey, orderId, amount, amount, status, ""));
+    }
+
+    private void respondCancel(final HttpExchange exchange, final String paymentKey, final long cancelAmount) throws IOException {
+        if (respondWithError(exchange, false)) {
+            return;
+        }
+        final long amount = paymentAmounts.getOrDefault(paymentKey, cancelAmount);
+        final String cancels = "\"cancels\":[{\"transactionKey\":\"" + UUID.randomUUID().toString().replace("-", "") + "\"," +
+                               "\"cancelReason\":\"Refund\",\"cancelAmount\":" + cancelAmount + "," +
+                               "\"taxFreeAmount\":0,\"refundableAmount\":" + (amount - cancelAmount) + "," +
+                               "\"canceledAt\":\"2024-02-14T09:00:00+09:00\",\"cancelStatus\":\"DONE\"}],";
+        respond(exchange, 200, paymentJson(paymentKey, paymentKey, amount, amount - cancelAmount, cancelAmount < amount ? "PARTIAL_CANCELED" : "CANCELED", cancels));
+    }
+
+    private void respondBilling(final HttpExchange exchange, final String customerKey) throws IOException {
+        if (respondWithError(exchange, false)) {
+            return;
+        }
+        respond(exchange, 200, "{\"mId\":\"tosspayments\",\"customerKey\":\"" + customerKey + "\"," +
+                               "\"authenticatedAt\":\"2024-02-13T12:17:57+09:00\",\"method\":\"카드\"," +
+                               "\"billingKey\":\"stub_bk_" + customerKey + "\"," +
+                               "\"card\":{\"issuerCode\":\"61\",\"acquirerCode\":\"31\",\"number\":\"43301234****123*\",\"cardType\":\"신용\",\"ownerType\":\"개인\"}," +
+                               "\"cardCompany\":\"현대\",\"cardNumber\":\"43301234****123*\"}");
+    }
+
+    private boolean respondWithError(final HttpExchange exchange, final boolean payment) throws IOException {
+        if (roll(serverErrorPercent)) {
+            respond(exchange, 500, "{\"code\":\"FAILED_INTERNAL_SYSTEM_PROCESSING\",\"message\":\"내부 시스템 처리 작업이 실패했습니다.\"}");
+            return true;
+        }
+        if (payment && roll(declinePercent)) {
+            respond(exchange, 400, "{\"code\":\"REJECT_CARD_COMPANY\",\"message\":\"카드사에서 거절한 결제입니다.\"}");
+            return true;
+        }
+        return false;
+    }
+
+    private static String paymentJson(final String paymentKey,
+                                      final String orderId,
+                                      final long totalAmount,
+                                      final long balanceAmount,
+                                      final String status,
+                                      final String cancels) {
+        return "{\"mId\":\"tosspayments\",\"version\":\"2022-11-16\",\"type\":\"BILLING\"," +
+               "\"paymentKey\":\"" + paymentKey + "\",\"orderId\":\"" + orderId + "\",\"orderName\":\"Kill Bill\"," +
+               "\"lastTransactionKey\":\"9C62B18EEF0DE3EB7F4422EB6D14BC6E\",\"status\":\"" + status + "\"," +
+               "\"requestedAt\":\"2024-02-13T12:17:57+09:00\",\"approvedAt\":\"2024-02-13T12:18:14+09:00\"," +
+               "\"useEscrow\":false,\"currency\":\"KRW\",\"method\":\"카드\"," +
+               "\"totalAmount\":" + totalAmount + ",\"balanceAmount\":" + balanceAmount + "," +
+               "\"suppliedAmount\":" + totalAmount + ",\"vat\":0,\"taxFreeAmount\":0," + cancels +
+               "\"card\":{\"issuerCode\":\"61\",\"acquirerCode\":\"31\",\"number\":\"43301234****123*\",\"installmentPlanMonths\":0," +
+               "\"approveNo\":\"00000000\",\"useCardPoint\":false,\"cardType\":\"신용\",\"ownerType\":\"개인\"," +
+               "\"acquireStatus\":\"READY\",\"isInterestFree\":false,\"amount\":" + totalAmount + "}," +
+               "\"receipt\":{\"url\":\"https://dashboard.tosspayments.com/receipt/redirection?transactionId=stub\"}}";
+    }
+
+    private void sleep() {
+        final int latencyMillis = roll(tailPercent) ? tailLatencyMillis
+                                                    : minLatencyMillis + ThreadLocalRandom.current().nextInt(maxLatencyMillis - minLatencyMillis + 1);
+        if (latencyMillis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(latencyMillis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean roll(final int percent) {
+        return percent > 0 && ThreadLocalRandom.current().nextInt(100) < percent;
+    }
+
+    private void count(final String endpoint) {
+        requestCounts.computeIfAbsent(endpoint, k -> new LongAdder()).increment();
+    }
+
+    private static JsonNode readBody(final HttpExchange exchange) throws IOException {
+        try (final InputStream in = exchange.getRequestBody()) {
+            final byte[] bytes = in.readAllBytes();
+            return bytes.length == 0 ? objectMapper.createObjectNode() : objectMapper.readTree(bytes);
+        }
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final String json) throws IOException {
+        final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (final OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package org.killbill.billing.plugin.toss.load;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.osgi.libs.killbill.OSGIConfigPropertiesService;
+import org.killbill.billing.osgi.libs.killbill.OSGIKillbillAPI;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
+import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.plugin.TestUtils;
+import org.killbill.billing.plugin.toss.EmbeddedDbHelper;
+import org.killbill.billing.plugin.toss.api.TossPaymentPluginApi;
+import org.killbill.billing.plugin.toss.client.TossClientImpl;
+import org.killbill.billing.plugin.toss.client.TossTrafficRecorder;
+import org.killbill.billing.plugin.toss.core.TossActivator;
+import org.killbill.billing.plugin.toss.core.TossConfigProperties;
+import org.killbill.billing.plugin.toss.core.TossConfigurationHandler;
+import org.killbill.billing.plugin.toss.metrics.TossOperation;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.clock.ClockMock;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Replays a recording of the Toss traffic (see {@link TossTrafficRecorder} and the {@code traffic_recording_file}
+ * property) through {@link TossPaymentPluginApi} against {@link TossStubServer}, at increasing speeds, to find how
+ * many times the recorded peak the plugin sustains. Opt-in:
+ *
+ * <pre>
+ * mvn -Pload test -Dtest=TossTrafficReplayTest -Dtoss.replay.file=/var/tmp/toss-traffic.rec -Dtoss.replay.speeds=1,5,10
+ * </pre>
+ *
+ * <p>Without {@code toss.replay.file}, a month-start peak is synthesized: steady arrivals, then a burst of stored
+ * billing key charges (the renewals of the subscriptions billed on the 1st). Each recorded call is replayed as the
+ * plugin call that sends it:</p>
+ * <ul>
+ *   <li>confirmations: purchases with a payment key</li>
+ *   <li>billing key payments: purchases with the stored billing key</li>
+ *   <li>billing key issues: purchases with an auth key, storing the payment method</li>
+ *   <li>cancellations: partial refunds of previously confirmed payments</li>
+ *   <li>payment lookups: getPaymentInfo of pending payments</li>
+ * </ul>
+ *
+ * <p>The stub latencies are those of {@code toss.load.latencyMillis}, not the recorded ones: the question is how the
+ * plugin copes with the arrivals. Settings (system properties): {@code toss.replay.file}, {@code toss.replay.speeds},
+ * {@code toss.replay.durationSeconds} and {@code toss.replay.callsPerSecond} (of the synthesized recording).</p>
+ */
+public class TossTrafficReplayTest {
+
+    private static final BigDecimal PURCHASE_AMOUNT = BigDecimal.valueOf(100000);
+    private static final BigDecimal REFUND_AMOUNT = BigDecimal.TEN;
+    private static final int SEEDED_PAYMENTS = 256;
+
+    private TossStubServer stub;
+    private TossPaymentPluginApi api;
+    private Account account;
+    private CallContext context;
+    private List<TossTrafficRecorder.Entry> recording;
+    private double[] speeds;
+    private List<UUID> confirmedPayments;
+    private List<UUID> pendingPayments;
+    private final List<TossLoadResult> results = new ArrayList<>();
+
+    @BeforeClass(groups = "load")
+    public void setUp() throws Exception {
+        if (!Boolean.getBoolean(TossLoadTest.ENABLED_PROPERTY)) {
+            throw new SkipException("Load tests are run with -Pload");
+        }
+
+        final String file = System.getProperty("toss.replay.file");
+        recording = file != null ? TossTrafficRecorder.read(Paths.get(file)) : synthesizeMonthStart();
+        speeds = parseSpeeds(System.getProperty("toss.replay.speeds", "1,2,4"));
+
+        final String[] latency = System.getProperty("toss.load.latencyMillis", "20-80").split("-");
+        stub = new TossStubServer(512).withLatency(Integer.parseInt(latency[0]), Integer.parseInt(latency[latency.length - 1]));
+
+        System.setProperty("org.jooq.no-logo", "true");
+        EmbeddedDbHelper.instance().startDb();
+
+        context = Mockito.mock(CallContext.class);
+        Mockito.when(context.getTenantId()).thenReturn(UUID.randomUUID());
+
+        account = TestUtils.buildAccount(Currency.KRW, "KR");
+        Mockito.when(account.getEmail()).thenReturn("replay@example.com");
+        final OSGIKillbillAPI killbillApi = TestUtils.buildOSGIKillbillAPI(account);
+        TestUtils.buildPaymentMethod(account.getId(), account.getPaymentMethodId(), TossActivator.PLUGIN_NAME, killbillApi);
+
+        final TossConfigurationHandler configurationHandler = new TossConfigurationHandler(TossActivator.PLUGIN_NAME, killbillApi);
+        final Properties properties = new Properties();
+        properties.setProperty("org.killbill.billing.plugin.toss.secret_key", "test_sk_replay");
+        configurationHandler.setDefaultConfigurable(new TossConfigProperties(properties));
+
+        api = new TossPaymentPluginApi(killbillApi,
+                                       Mockito.mock(OSGIConfigPropertiesService.class),
+                                       new ClockMock(),
+                                       EmbeddedDbHelper.instance().getTossDao(),
+                                       configurationHandler,
+                                       new TossClientImpl(stub.getBaseUrl(), 5000, 30000));
+        TestUtils.updateOSGIKillbillAPI(killbillApi, api);
+
+        // Billing key of the stored billing key purchases
+        Assert.assertEquals(purchase(issueBillingKey()).getStatus(), PaymentPluginStatus.PROCESSED);
+        confirmedPayments = seedPayments(PaymentPluginStatus.PROCESSED);
+        stub.withInProgress(100);
+        try {
+            pendingPayments = seedPayments(PaymentPluginStatus.PENDING);
+        } finally {
+            stub.withInProgress(0);
+        }
+    }
+
+    @AfterClass(groups = "load", alwaysRun = true)
+    public void tearDown() throws Exception {
+        if (stub == null) {
+            return;
+        }
+        System.out.println(TossLoadResult.HEADER);
+        for (final TossLoadResult result : results) {
+            System.out.println(result.toReportLine());
+        }
+        System.out.println("Toss stub requests: " + stub.getRequestCounts());
+
+        if (api != null) {
+            api.close();
+        }
+        stub.close();
+        EmbeddedDbHelper.instance().stopDB();
+    }
+
+    @Test(groups = "load")
+    public void testReplay() throws Exception {
+        final TossTrafficReplayer replayer = new TossTrafficReplayer(recording);
+        System.out.printf("Replaying %d calls recorded over %ds%n", recording.size(), TimeUnit.MICROSECONDS.toSeconds(replayer.getDurationMicros()));
+        for (final double speed : speeds) {
+            final TossLoadResult result = replayer.replay("replay x" + speed, speed, this::replay);
+            System.out.println(result.toReportLine());
+            results.add(result);
+            Assert.assertEquals(result.getOperations(), recording.size(), result.toReportLine());
+        }
+    }
+
+    private String replay(final TossTrafficRecorder.Entry entry, final long sequence) throws Exception {
+        switch (entry.getOperation()) {
+            case CONFIRM_PAYMENT:
+                return purchase(ImmutableList.of(new PluginProperty("paymentKey", "replay_" + UUID.randomUUID(), false))).getStatus().name();
+            case BILLING_KEY_PAYMENT:
+                return purchase(ImmutableList.of()).getStatus().name();
+            case ISSUE_BILLING_KEY:
+                return purchase(issueBillingKey()).getStatus().name();
+            case CANCEL_PAYMENT:
+                return api.refundPayment(account.getId(), confirmedPayments.get((int) (sequence % confirmedPayments.size())), UUID.randomUUID(),
+                                         account.getPaymentMethodId(), REFUND_AMOUNT, Currency.KRW, ImmutableList.of(), context).getStatus().name();
+            case GET_PAYMENT:
+                final List<PaymentTransactionInfoPlugin> transactions = api.getPaymentInfo(account.getId(), pendingPayments.get((int) (sequence % pendingPayments.size())),
+                                                                                           ImmutableList.of(), context);
+                return transactions.get(transactions.size() - 1).getStatus().name();
+            default:
+                return "SKIPPED";
+        }
+    }
+
+    /**
+     * Steady arrivals, then the renewals of the 1st: a third of the recording at five times the rate.
+     */
+    private static List<TossTrafficRecorder.Entry> synthesizeMonthStart() throws Exception {
+        final int durationSeconds = Integer.getInteger("toss.replay.durationSeconds", 30);
+        final int callsPerSecond = Integer.getInteger("toss.replay.callsPerSecond", 20);
+        final long durationMicros = TimeUnit.SECONDS.toMicros(durationSeconds);
+        final SplittableRandom random = new SplittableRandom(42);
+
+        // Written and read back, as a recording from production would be
+        final Path directory = Files.createTempDirectory("toss-replay");
+        final Path file = directory.resolve("month-start.rec");
+        try {
+            try (final TossTrafficRecorder recorder = TossTrafficRecorder.open(file, durationSeconds * callsPerSecond * 5)) {
+                final long startMicros = TossTrafficRecorder.nowEpochMicros();
+                long offsetMicros = 0;
+                while (true) {
+                    final boolean renewals = offsetMicros >= durationMicros / 3 && offsetMicros < 2 * durationMicros / 3;
+                    final double rate = renewals ? callsPerSecond * 5 : callsPerSecond;
+                    // Poisson arrivals
+                    offsetMicros += (long) (-Math.log(1 - random.nextDouble()) / rate * TimeUnit.SECONDS.toMicros(1));
+                    if (offsetMicros >= durationMicros) {
+                        break;
+                    }
+                    final TossOperation operation = renewals ? TossOperation.BILLING_KEY_PAYMENT : nextOperation(random);
+                    recorder.record(new TossTrafficRecorder.Entry(startMicros + offsetMicros, operation, TossTrafficRecorder.Outcome.SUCCESS, 200, 200, 1500, 50000));
+                }
+            }
+            return TossTrafficRecorder.read(file);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static TossOperation nextOperation(final SplittableRandom random) {
+        final int percent = random.nextInt(100);
+        if (percent < 50) {
+            return TossOperation.CONFIRM_PAYMENT;
+        } else if (percent < 75) {
+            return TossOperation.BILLING_KEY_PAYMENT;
+        } else if (percent < 85) {
+            return TossOperation.ISSUE_BILLING_KEY;
+        } else if (percent < 93) {
+            return TossOperation.CANCEL_PAYMENT;
+        }
+        return TossOperation.GET_PAYMENT;
+    }
+
+    private List<UUID> seedPayments(final PaymentPluginStatus status) throws Exception {
+        final List<UUID> payments = new ArrayList<>(SEEDED_PAYMENTS);
+        while (payments.size() < SEEDED_PAYMENTS) {
+            final PaymentTransactionInfoPlugin purchase = purchase(ImmutableList.of(new PluginProperty("paymentKey", "replay_" + UUID.randomUUID(), false)));
+            if (purchase.getStatus() == status) {
+                payments.add(purchase.getKbPaymentId());
+            }
+        }
+        return payments;
+    }
+
+    private static List<PluginProperty> issueBillingKey() {
+        return ImmutableList.of(new PluginProperty("authKey", "replay_auth_key", false),
+                                new PluginProperty("storePaymentMethod", "true", false));
+    }
+
+    private PaymentTransactionInfoPlugin purchase(final List<PluginProperty> properties) throws Exception {
+        return api.purchasePayment(account.getId(), UUID.randomUUID(), UUID.randomUUID(), account.getPaymentMethodId(),
+                                   PURCHASE_AMOUNT, Currency.KRW, properties, context);
+    }
+
+    private static double[] parseSpeeds(final String value) {
+        final String[] parts = value.split(",");
+        final double[] speeds = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            speeds[i] = Double.parseDouble(parts[i].trim());
+        }
+        return speeds;
+    }
+}
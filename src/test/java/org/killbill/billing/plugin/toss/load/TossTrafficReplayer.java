@@ -0,0 +1,100 @@
+package org.killbill.billing.plugin.toss.load;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.killbill.billing.plugin.toss.client.TossTrafficRecorder;
+import org.killbill.billing.plugin.toss.metrics.TossHistogram;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Replays the arrival pattern of a {@link TossTrafficRecorder} recording, {@code speed} times faster.
+ *
+ * <p>The loop is open: each call starts at its recorded offset (divided by the speed) whatever the number of calls
+ * still running, as the shoppers of a peak day do not wait for the previous payment. Latencies are measured from the
+ * scheduled start, so that a plugin falling behind the arrivals shows in the percentiles.</p>
+ */
+public class TossTrafficReplayer {
+
+    /**
+     * Replays one recorded call.
+     */
+    public interface Call {
+
+        /**
+         * @param entry the recorded call
+         * @param sequence unique number of the call within the replay, to derive ids from
+         * @return the outcome of the call, e.g. the payment status
+         */
+        String replay(TossTrafficRecorder.Entry entry, long sequence) throws Exception;
+    }
+
+    private final List<TossTrafficRecorder.Entry> entries;
+
+    /**
+     * @param entries the recorded calls, oldest first (see {@link TossTrafficRecorder#read})
+     */
+    public TossTrafficReplayer(final List<TossTrafficRecorder.Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * @return duration of the recording, from the first to the last call start
+     */
+    public long getDurationMicros() {
+        return entries.isEmpty() ? 0 : entries.get(entries.size() - 1).getStartEpochMicros() - entries.get(0).getStartEpochMicros();
+    }
+
+    /**
+     * @return the result, whose concurrency is the highest number of calls running at once
+     */
+    public TossLoadResult replay(final String scenario, final double speed, final Call call) throws Exception {
+        final TossHistogram latencies = new TossHistogram();
+        final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger peakInFlight = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(entries.size());
+
+        final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("toss-replay-%d").setDaemon(true).build());
+        try {
+            final long firstMicros = entries.isEmpty() ? 0 : entries.get(0).getStartEpochMicros();
+            final long startNanos = System.nanoTime();
+            for (int i = 0; i < entries.size(); i++) {
+                final TossTrafficRecorder.Entry entry = entries.get(i);
+                final long scheduledNanos = startNanos + (long) (TimeUnit.MICROSECONDS.toNanos(entry.getStartEpochMicros() - firstMicros) / speed);
+                final long waitNanos = scheduledNanos - System.nanoTime();
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+
+                final long sequence = i;
+                executor.execute(() -> {
+                    peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    String outcome;
+                    try {
+                        outcome = call.replay(entry, sequence);
+                    } catch (final Exception e) {
+                        outcome = e.getClass().getSimpleName();
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                    latencies.recordNanos(System.nanoTime() - scheduledNanos);
+                    outcomes.computeIfAbsent(String.valueOf(outcome), k -> new LongAdder()).increment();
+                    done.countDown();
+                });
+            }
+            done.await();
+            return new TossLoadResult(scenario, peakInFlight.get(), System.nanoTime() - startNanos, latencies.snapshot(), outcomes);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.killbill.billing.plugin.toss.metrics;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class TossFlightRecorderTest {
+
+    @Test(groups = "fast")
+    public void testNoEventWhenNotRecorded() {
+        Assert.assertNull(TossFlightRecorder.beginHttpCall());
+        Assert.assertNull(TossFlightRecorder.beginDaoOperation());
+        Assert.assertNull(TossFlightRecorder.beginPluginOperation());
+
+        // No-op
+        TossFlightRecorder.endHttpCall(null, TossOperation.GET_PAYMENT, 200, 10);
+        TossFlightRecorder.endDaoOperation(null, TossOperation.GET_RESPONSE, null, null);
+        TossFlightRecorder.endPluginOperation(null, "refund", null, "PROCESSED");
+    }
+
+    @Test(groups = "fast")
+    public void testEventsRecorded() throws Exception {
+        final UUID kbPaymentId = UUID.randomUUID();
+        final Path file = Files.createTempFile("toss", ".jfr");
+        try (final Recording recording = new Recording()) {
+            recording.enable(TossHttpCallEvent.class);
+            recording.enable(TossDaoOperationEvent.class);
+            recording.enable(TossPluginOperationEvent.class);
+            recording.start();
+
+            TossFlightRecorder.endHttpCall(TossFlightRecorder.beginHttpCall(), TossOperation.CONFIRM_PAYMENT, 200, 1234);
+            TossFlightRecorder.endDaoOperation(TossFlightRecorder.beginDaoOperation(), TossOperation.GET_RESPONSES_BY_TRANSACTIONS, ImmutableList.of("a", "b"), null);
+            TossFlightRecorder.endDaoOperation(TossFlightRecorder.beginDaoOperation(), TossOperation.ADD_RESPONSE, null, new SQLException("duplicate", "23505"));
+            TossFlightRecorder.endPluginOperation(TossFlightRecorder.beginPluginOperation(), "purchase_confirm", kbPaymentId, "PROCESSED");
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        final List<RecordedEvent> events = new ArrayList<>();
+        try {
+            for (final RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (event.getEventType().getName().startsWith("org.killbill.billing.plugin.toss.")) {
+                    events.add(event);
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+        Assert.assertEquals(events.size(), 4);
+
+        final RecordedEvent httpCall = find(events, "org.killbill.billing.plugin.toss.TossHttpCall");
+        Assert.assertEquals(httpCall.getString("endpoint"), "confirm_payment");
+        Assert.assertEquals(httpCall.getInt("status"), 200);
+        Assert.assertEquals(httpCall.getLong("bytes"), 1234L);
+
+        final List<RecordedEvent> daoOperations = new ArrayList<>();
+        for (final RecordedEvent event : events) {
+            if (event.getEventType().getName().equals("org.killbill.billing.plugin.toss.TossDaoOperation")) {
+                daoOperations.add(event);
+            }
+        }
+        Assert.assertEquals(daoOperations.size(), 2);
+        Assert.assertEquals(daoOperations.get(0).getString("query"), "get_responses_by_transactions");
+        Assert.assertEquals(daoOperations.get(0).getInt("rows"), 2);
+        Assert.assertNull(daoOperations.get(0).getString("errorCode"));
+        Assert.assertEquals(daoOperations.get(1).getString("query"), "add_response");
+        Assert.assertEquals(daoOperations.get(1).getInt("rows"), -1);
+        Assert.assertEquals(daoOperations.get(1).getString("errorCode"), "23505");
+
+        final RecordedEvent pluginOperation = find(events, "org.killbill.billing.plugin.toss.TossPluginOperation");
+        Assert.assertEquals(pluginOperation.getString("flow"), "purchase_confirm");
+        Assert.assertEquals(pluginOperation.getInt("kbPaymentIdHash"), kbPaymentId.hashCode());
+        Assert.assertEquals(pluginOperation.getString("outcome"), "PROCESSED");
+    }
+
+    @Test(groups = "fast")
+    public void testRowCount() {
+        Assert.assertEquals(TossFlightRecorder.rowCount(null), 0);
+        Assert.assertEquals(TossFlightRecorder.rowCount(ImmutableList.of(1, 2, 3)), 3);
+        Assert.assertEquals(TossFlightRecorder.rowCount(5), 5);
+        Assert.assertEquals(TossFlightRecorder.rowCount(Boolean.TRUE), -1);
+        Assert.assertEquals(TossFlightRecorder.rowCount(new Object()), 1);
+    }
+
+    private static RecordedEvent find(final List<RecordedEvent> events, final String name) {
+        for (final RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                return event;
+            }
+        }
+        throw new AssertionError("No " + name + " event");
+    }
+}
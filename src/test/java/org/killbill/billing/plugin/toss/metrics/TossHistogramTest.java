@@ -0,0 +1,84 @@
+package org.killbill.billing.plugin.toss.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TossHistogramTest {
+
+    @Test(groups = "fast")
+    public void testBucketPrecision() {
+        for (long value = 0; value < 10_000_000; value = value * 11 / 10 + 1) {
+            final int index = TossHistogram.bucketIndex(value);
+            Assert.assertTrue(index < TossHistogram.BUCKETS, "value=" + value);
+            final long highest = TossHistogram.highestValueInBucket(index);
+            Assert.assertTrue(highest >= value, "value=" + value + ", highest=" + highest);
+            Assert.assertTrue(highest - value <= value / TossHistogram.SUB_BUCKETS, "value=" + value + ", highest=" + highest);
+        }
+        Assert.assertEquals(TossHistogram.bucketIndex(TossHistogram.MAX_TRACKABLE_MICROS), TossHistogram.BUCKETS - 1);
+    }
+
+    @Test(groups = "fast")
+    public void testPercentiles() {
+        final TossHistogram histogram = new TossHistogram();
+        for (long micros = 1; micros <= 10000; micros++) {
+            histogram.recordMicros(micros);
+        }
+
+        final TossHistogramSnapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(snapshot.getCount(), 10000);
+        Assert.assertEquals(snapshot.getMeanMicros(), 5000);
+        Assert.assertEquals(snapshot.getMaxMicros(), 10000);
+        assertWithinPrecision(snapshot.getValueAtPercentile(50), 5000);
+        assertWithinPrecision(snapshot.getValueAtPercentile(99), 9900);
+        Assert.assertEquals(snapshot.getValueAtPercentile(100), 10000);
+        assertWithinPrecision(snapshot.getCountAtOrBelow(1000), 1000);
+    }
+
+    @Test(groups = "fast")
+    public void testOutOfRangeValuesClamped() {
+        final TossHistogram histogram = new TossHistogram();
+        histogram.recordNanos(-5);
+        histogram.recordMicros(Long.MAX_VALUE);
+
+        final TossHistogramSnapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(snapshot.getCount(), 2);
+        Assert.assertEquals(snapshot.getValueAtPercentile(0), 0);
+        Assert.assertEquals(snapshot.getMaxMicros(), TossHistogram.MAX_TRACKABLE_MICROS);
+    }
+
+    @Test(groups = "fast")
+    public void testConcurrentRecording() throws Exception {
+        final TossHistogram histogram = new TossHistogram();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 10000; j++) {
+                        histogram.recordMicros(j % 100);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(histogram.getCount(), 80000);
+        Assert.assertEquals(histogram.snapshot().getCount(), 80000);
+        Assert.assertEquals(histogram.snapshot().getMaxMicros(), 99);
+    }
+
+    private static void assertWithinPrecision(final long actual, final long expected) {
+        Assert.assertTrue(Math.abs(actual - expected) <= expected / TossHistogram.SUB_BUCKETS, "actual=" + actual + ", expected=" + expected);
+    }
+}
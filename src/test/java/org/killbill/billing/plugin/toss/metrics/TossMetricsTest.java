@@ -0,0 +1,97 @@
+package org.killbill.billing.plugin.toss.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpTimeoutException;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import org.killbill.billing.plugin.toss.client.exception.TossApplicationException;
+import org.killbill.billing.plugin.toss.client.model.TossError;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TossMetricsTest {
+
+    @Test(groups = "fast")
+    public void testSeriesPerTags() {
+        final TossMetrics metrics = new TossMetrics();
+        final UUID tenantA = UUID.randomUUID();
+        final UUID tenantB = UUID.randomUUID();
+
+        metrics.recordSuccess(TossOperation.CONFIRM_PAYMENT, tenantA, "DONE", 1_000_000);
+        metrics.recordSuccess(TossOperation.CONFIRM_PAYMENT, tenantA, "DONE", 3_000_000);
+        metrics.recordSuccess(TossOperation.CONFIRM_PAYMENT, tenantB, "DONE", 2_000_000);
+        metrics.recordSuccess(TossOperation.GET_PAYMENT, tenantA, "CANCELED", 2_000_000);
+        metrics.recordFailure(TossOperation.CONFIRM_PAYMENT, tenantA, new TossApplicationException(new TossError("REJECT_CARD_COMPANY", "거절"), 400), 500_000);
+
+        Assert.assertEquals(metrics.getSeriesCount(), 4);
+        final TossMetricStats confirmed = find(metrics, TossOperation.CONFIRM_PAYMENT, tenantA, "DONE");
+        Assert.assertEquals(confirmed.getCount(), 2);
+        Assert.assertEquals(confirmed.getKind(), "TOSS");
+        Assert.assertEquals(confirmed.getMaxMicros(), 3000);
+        Assert.assertNull(confirmed.getErrorCode());
+
+        final TossMetricStats rejected = find(metrics, TossOperation.CONFIRM_PAYMENT, tenantA, TossMetrics.STATUS_ERROR);
+        Assert.assertEquals(rejected.getErrorCode(), "REJECT_CARD_COMPANY");
+        Assert.assertEquals(rejected.getCount(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testErrorCodes() {
+        Assert.assertEquals(TossMetrics.errorCode(new TossApplicationException(new TossError(null, "Bad Gateway"), 502)), "HTTP_502");
+        Assert.assertEquals(TossMetrics.errorCode(new RuntimeException(new SQLException("deadlock", "40001"))), "40001");
+        Assert.assertEquals(TossMetrics.errorCode(new HttpTimeoutException("request timed out")), "HttpTimeoutException");
+    }
+
+    @Test(groups = "fast")
+    public void testSeriesBounded() {
+        final TossMetrics metrics = new TossMetrics(2);
+        metrics.recordSuccess(TossOperation.GET_RESPONSE, null, TossMetrics.STATUS_OK, 1000);
+        metrics.recordSuccess(TossOperation.GET_PAYMENT_METHOD, null, TossMetrics.STATUS_OK, 1000);
+        metrics.recordSuccess(TossOperation.ADD_RESPONSE, null, TossMetrics.STATUS_OK, 1000);
+        // Existing series are still recorded
+        metrics.recordSuccess(TossOperation.GET_RESPONSE, null, TossMetrics.STATUS_OK, 1000);
+
+        Assert.assertEquals(metrics.getSeriesCount(), 2);
+        Assert.assertEquals(metrics.getDroppedRecordings(), 1);
+        Assert.assertEquals(find(metrics, TossOperation.GET_RESPONSE, null, TossMetrics.STATUS_OK).getCount(), 2);
+    }
+
+    @Test(groups = "fast")
+    public void testRecordingDoesNotAllocate() {
+        final java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean) || !((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        final com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threadBean;
+        final TossMetrics metrics = new TossMetrics();
+        final UUID tenant = UUID.randomUUID();
+        final String status = "DONE";
+        // Creates the series, and warms up the code
+        for (int i = 0; i < 100_000; i++) {
+            metrics.recordSuccess(TossOperation.CONFIRM_PAYMENT, tenant, status, i);
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        final long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            metrics.recordSuccess(TossOperation.CONFIRM_PAYMENT, tenant, status, i);
+        }
+        final long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        // Leaves room for the measurement itself, far below one object per recording
+        Assert.assertTrue(allocated < 100_000, "Allocated " + allocated + " bytes");
+    }
+
+    private static TossMetricStats find(final TossMetrics metrics, final TossOperation operation, final UUID kbTenantId, final String status) {
+        for (final TossMetricStats stats : metrics.getStats()) {
+            if (stats.getOperation().equals(operation.getTag()) &&
+                String.valueOf(kbTenantId).equals(String.valueOf(stats.getKbTenantId())) &&
+                stats.getStatus().equals(status)) {
+                return stats;
+            }
+        }
+        Assert.fail("No series for " + operation + ", " + kbTenantId + ", " + status);
+        return null;
+    }
+}